@@ -0,0 +1,29 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler enabled, so the allocation rate (bytes/op) is reported for each benchmark.
+ * Accepts the usual JMH command line options, e.g. a regular expression selecting the benchmarks to run.
+ *
+ * @author Armin Reichert
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		var options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
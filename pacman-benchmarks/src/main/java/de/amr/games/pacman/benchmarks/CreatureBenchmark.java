@@ -0,0 +1,68 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Ghost;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the movement methods of a creature ({@code Creature.tryMoving()} and
+ * {@code Creature.navigateTowardsTarget()}) using the red ghost of a Pac-Man level.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CreatureBenchmark {
+
+	private static final Direction[] DIRECTIONS = { Direction.LEFT, Direction.UP, Direction.RIGHT, Direction.DOWN };
+
+	private Ghost ghost;
+	private Vector2i[] tiles;
+	private int index;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		var fixture = new LevelFixture(GameVariant.PACMAN, 100, 0);
+		ghost = fixture.level.ghost(GameModel.RED_GHOST);
+		ghost.setTargetTile(fixture.level.pac().tile());
+		tiles = fixture.accessibleTiles();
+		index = 0;
+	}
+
+	/**
+	 * The wish direction changes every 8 frames so the ghost keeps moving, turning and getting blocked.
+	 */
+	@Benchmark
+	public Vector2i tryMoving() {
+		++index;
+		if ((index & 7) == 0) {
+			ghost.setWishDir(DIRECTIONS[(index >> 3) & 3]);
+		}
+		ghost.tryMoving();
+		return ghost.tile();
+	}
+
+	/**
+	 * The ghost is placed on a different tile every time, so the target direction is always computed.
+	 */
+	@Benchmark
+	public Direction navigateTowardsTarget() {
+		index = (index + 1) % tiles.length;
+		ghost.placeAtTile(tiles[index]);
+		ghost.navigateTowardsTarget();
+		return ghost.wishDir();
+	}
+}
@@ -0,0 +1,52 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.simulation.PacManEnv;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a step of the reinforcement learning environment ({@code PacManEnv.step()}) with random actions, including
+ * the observation update and the resets at the end of episodes.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EnvBenchmark {
+
+	@Param({ "PACMAN", "MS_PACMAN" })
+	public GameVariant variant;
+
+	@Param({ "1", "4" })
+	public int frameSkip;
+
+	private PacManEnv env;
+	private SplittableRandom rnd;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		env = new PacManEnv(variant, frameSkip);
+		rnd = new SplittableRandom(42);
+		env.reset(rnd.nextLong());
+	}
+
+	@Benchmark
+	public float step() {
+		var result = env.step(rnd.nextInt(4));
+		if (result.done()) {
+			env.reset(rnd.nextLong());
+		}
+		return result.reward();
+	}
+}
@@ -0,0 +1,73 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Ghost;
+import de.amr.games.pacman.model.actors.GhostState;
+import de.amr.games.pacman.model.world.World;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Creates game levels in a reproducible state for the benchmarks.
+ * <p>
+ * The level is played by the autopilot in its own game session, Pac-Man is immune so the level does not end by losing
+ * a life. A given percentage of the food is removed (always the same tiles for the same percentage) to simulate the
+ * early, mid and late phase of a level.
+ *
+ * @author Armin Reichert
+ */
+public class LevelFixture {
+
+	public final GameController session;
+	public final GameLevel level;
+
+	/**
+	 * @param variant      game variant
+	 * @param foodLeft     percentage of food left in the maze (0-100)
+	 * @param powerSeconds if positive, Pac-Man gets power for this number of seconds
+	 */
+	public LevelFixture(GameVariant variant, int foodLeft, int powerSeconds) {
+		session = new GameController(variant);
+		session.setImmune(true);
+		session.setAutoControlled(true);
+		var game = session.game();
+		game.setHighScorePersistent(false);
+		game.reset();
+		game.createLevel(1);
+		game.startLevel();
+		level = game.level().orElseThrow();
+		removeFood(level.world(), foodLeft);
+		level.guys().forEach(guy -> guy.setVisible(true));
+		level.startHunting(0);
+		if (powerSeconds > 0) {
+			level.pac().powerTimer().restartSeconds(powerSeconds);
+			level.ghosts(GhostState.HUNTING_PAC).forEach(Ghost::enterStateFrightened);
+		}
+	}
+
+	private static void removeFood(World world, int foodLeft) {
+		var foodTiles = world.tiles().filter(world::isFoodTile).collect(Collectors.toList());
+		Collections.shuffle(foodTiles, new Random(42));
+		int numRemoved = foodTiles.size() * (100 - foodLeft) / 100;
+		for (int i = 0; i < numRemoved; ++i) {
+			world.removeFood(foodTiles.get(i));
+		}
+	}
+
+	/**
+	 * @return all tiles of the world that can be accessed by Pac-Man (no walls, inside the world)
+	 */
+	public Vector2i[] accessibleTiles() {
+		var world = level.world();
+		return world.tiles().filter(tile -> !world.isWall(tile)).toArray(Vector2i[]::new);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Ghost;
+import de.amr.games.pacman.model.actors.MovementBatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one movement step of many creatures: {@code Creature.tryMoving()} for each creature object against a
+ * {@link MovementBatch} step, computed by scalar code and by the Vector API ({@link VectorMovementKernel}).
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Thread)
+public class MovementBenchmark {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	@Param({ "1024", "16384" })
+	public int count;
+
+	private Ghost[] ghosts;
+	private MovementBatch batch;
+	private MovementBatch vectorBatch;
+	private Direction[] wishDirs;
+	private int frame;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		var fixture = new LevelFixture(GameVariant.PACMAN, 100, 0);
+		var tiles = fixture.accessibleTiles();
+		var rnd = new SplittableRandom(42);
+		ghosts = new Ghost[count];
+		batch = new MovementBatch(fixture.level, count);
+		vectorBatch = new MovementBatch(fixture.level, count);
+		if (VectorMovementKernel.isAvailable()) {
+			vectorBatch.setKernel(new VectorMovementKernel(vectorBatch));
+		}
+		for (int i = 0; i < count; ++i) {
+			ghosts[i] = new Ghost(fixture.level.ghost((byte) (i % 4)));
+			ghosts[i].placeAtTile(tiles[rnd.nextInt(tiles.length)]);
+			ghosts[i].setMoveAndWishDir(DIRECTIONS[rnd.nextInt(4)]);
+			ghosts[i].setRelSpeed(0.75f);
+			batch.add(ghosts[i]);
+			vectorBatch.add(ghosts[i]);
+		}
+		wishDirs = new Direction[count];
+		for (int i = 0; i < count; ++i) {
+			wishDirs[i] = DIRECTIONS[rnd.nextInt(4)];
+		}
+		frame = 0;
+	}
+
+	/**
+	 * Every 8 frames, an eighth of the creatures gets a new wish direction, so creatures keep moving, turning and getting
+	 * blocked.
+	 */
+	private Direction nextWishDir(int i) {
+		return wishDirs[(i + frame) % count];
+	}
+
+	@Benchmark
+	public float objects() {
+		++frame;
+		for (int i = (frame & 7); i < count; i += 8) {
+			ghosts[i].setWishDir(nextWishDir(i));
+		}
+		for (var ghost : ghosts) {
+			ghost.tryMoving();
+		}
+		return ghosts[0].position().x();
+	}
+
+	@Benchmark
+	public float batchScalar() {
+		return step(batch);
+	}
+
+	@Benchmark
+	public float batchVector() {
+		return step(vectorBatch);
+	}
+
+	private float step(MovementBatch b) {
+		++frame;
+		for (int i = (frame & 7); i < count; i += 8) {
+			b.setWishDir(i, nextWishDir(i));
+		}
+		b.step();
+		return b.x(0);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.model.GameVariant;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the simulation of a single frame of a game level ({@code GameLevel.simulateOneFrame()}).
+ * <p>
+ * The level is re-created every {@link #FRAMES_PER_ROUND} frames so the amount of food left stays roughly at the
+ * configured percentage and the power timer does not run out. It is also re-created when the level has been completed
+ * or Pac-Man has been killed. Re-creation happens inside the measured method behind a rarely taken branch: an
+ * invocation-level setup method would distort the measurement of an operation this short by its own overhead. The
+ * re-creation cost is therefore included, spread over the frames of a round.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+
+	static final int FRAMES_PER_ROUND = 300;
+
+	@Param({ "PACMAN", "MS_PACMAN" })
+	public GameVariant variant;
+
+	/** Percentage of food left: 100 = early, 50 = mid, 10 = late level phase. */
+	@Param({ "100", "50", "10" })
+	public int foodLeft;
+
+	@Param({ "false", "true" })
+	public boolean power;
+
+	@Param({ "false", "true" })
+	public boolean headless;
+
+	private LevelFixture fixture;
+	private int frame;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		newRound();
+	}
+
+	private void newRound() {
+		fixture = new LevelFixture(variant, foodLeft, power ? 10 : 0);
+		fixture.session.setHeadless(headless);
+		frame = 0;
+	}
+
+	@Benchmark
+	public boolean simulateOneFrame() {
+		var lastFrame = fixture.level.thisFrame();
+		if (frame == FRAMES_PER_ROUND || lastFrame.levelCompleted || lastFrame.pacKilled) {
+			newRound();
+		}
+		++frame;
+		var level = fixture.level;
+		level.simulateOneFrame();
+		return level.thisFrame().pacKilled;
+	}
+}
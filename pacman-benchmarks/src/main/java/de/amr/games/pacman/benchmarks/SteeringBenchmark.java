@@ -0,0 +1,55 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.RuleBasedSteering;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Pac;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the autopilot ({@code RuleBasedSteering.steer()}). Pac-Man is placed on a different tile every time so the
+ * steering decision is never skipped.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SteeringBenchmark {
+
+	/** Percentage of food left: 100 = early, 50 = mid, 10 = late level phase. */
+	@Param({ "100", "50", "10" })
+	public int foodLeft;
+
+	private LevelFixture fixture;
+	private RuleBasedSteering steering;
+	private Vector2i[] tiles;
+	private int index;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		fixture = new LevelFixture(GameVariant.PACMAN, foodLeft, 0);
+		steering = new RuleBasedSteering();
+		tiles = fixture.accessibleTiles();
+		index = 0;
+	}
+
+	@Benchmark
+	public Direction steer() {
+		Pac pac = fixture.level.pac();
+		index = (index + 1) % tiles.length;
+		pac.placeAtTile(tiles[index]);
+		steering.steer(fixture.level, pac);
+		return pac.wishDir();
+	}
+}
@@ -0,0 +1,319 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.actors.MovementBatch;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static de.amr.games.pacman.lib.Globals.HTS;
+import static de.amr.games.pacman.lib.Globals.TS;
+import static de.amr.games.pacman.model.actors.MovementBatch.*;
+
+/**
+ * Computes the step of a {@link MovementBatch} with the Vector API, lane by lane the same computation as the scalar
+ * step. Needs the incubator module <code>jdk.incubator.vector</code> at runtime (<code>--add-modules
+ * jdk.incubator.vector</code>), that's why it lives in the benchmarks and not in the core module.
+ *
+ * @author Armin Reichert
+ */
+public final class VectorMovementKernel implements MovementBatch.Kernel {
+
+	/**
+	 * @return if the Vector API (module <code>jdk.incubator.vector</code>) is available at runtime
+	 */
+	public static boolean isAvailable() {
+		return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+	}
+
+	private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Integer> I = VectorSpecies.of(int.class, F.vectorShape());
+
+	static {
+		// direction vectors are computed from the ordinals, see dirX(), dirY()
+		for (var dir : Direction.values()) {
+			int sign = 2 * (dir.ordinal() & 1) - 1;
+			int vertical = dir.ordinal() >> 1;
+			if (dir.vector().x() != sign * (1 - vertical) || dir.vector().y() != sign * vertical) {
+				throw new IllegalStateException("Unexpected direction order");
+			}
+		}
+	}
+
+	private final MovementBatch batch;
+	private final int[] indexes = new int[I.length()];
+	private final int[] flags = new int[I.length()];
+
+	// intermediate results of the passes
+	private final int[] tileX;
+	private final int[] tileY;
+	private final int[] touchedTileX;
+	private final int[] touchedTileY;
+	private final int[] tileFlagsBefore;
+	private final int[] accessible;
+	private final int[] moving;
+
+	public VectorMovementKernel(MovementBatch batch) {
+		this.batch = batch;
+		tileX = new int[batch.capacity()];
+		tileY = new int[batch.capacity()];
+		touchedTileX = new int[batch.capacity()];
+		touchedTileY = new int[batch.capacity()];
+		tileFlagsBefore = new int[batch.capacity()];
+		accessible = new int[batch.capacity()];
+		moving = new int[batch.capacity()];
+	}
+
+	/**
+	 * Moves the creatures in the slots up to the largest multiple of the vector length.
+	 * <p>
+	 * The step is split into several passes over the arrays, each small enough to be compiled as a whole. Vector API
+	 * calls that the JIT compiler does not inline are executed with boxed vectors and are much slower than scalar code.
+	 *
+	 * @return first slot not moved
+	 */
+	@Override
+	public int step() {
+		int bound = F.loopBound(batch.size());
+		teleport(bound);
+		for (int attempt = 0; attempt < 2; ++attempt) {
+			boolean towardsWishDir = attempt == 0;
+			computeTiles(bound);
+			computeTouchedTiles(bound, towardsWishDir);
+			checkAccess(bound);
+			move(bound, towardsWishDir);
+			updateResult(bound);
+		}
+		return bound;
+	}
+
+	private static final float TWO_POW_23 = 1 << 23;
+	private static final int TWO_POW_23_BITS = Float.floatToIntBits(TWO_POW_23);
+
+	/*
+	 * Same as the (int) cast of each lane. The F2I conversion of the Vector API is not compiled to vector instructions
+	 * (JDK 17), so the integer part of the absolute value is computed by adding and subtracting 2^23, then read from the
+	 * mantissa bits. Valid for absolute values below 2^22.
+	 */
+	private static IntVector truncate(FloatVector v) {
+		var abs = v.abs();
+		var rounded = abs.add(TWO_POW_23).sub(TWO_POW_23);
+		var floor = rounded.sub(1, rounded.compare(VectorOperators.GT, abs));
+		var n = floor.add(TWO_POW_23).reinterpretAsInts().sub(TWO_POW_23_BITS);
+		return n.blend(n.neg(), v.compare(VectorOperators.LT, 0).cast(I));
+	}
+
+	private static IntVector tileCoord(FloatVector v) {
+		return truncate(v.add(HTS).div(TS));
+	}
+
+	private static FloatVector tileOrigin(IntVector v) {
+		return (FloatVector) v.mul(TS).convert(VectorOperators.I2F, 0);
+	}
+
+	// the tile containing the center of a creature placed at the origin of tile t is t+1 if t < 0 (int cast truncates)
+	private static int tileCoordAtOrigin(int t) {
+		return t < 0 ? t + 1 : t;
+	}
+
+	// LEFT, RIGHT, UP, DOWN: bit 0 is the sign, bit 1 is set for vertical directions
+	private static FloatVector dirX(IntVector dir) {
+		var sign = dir.and(1).mul(2).sub(1);
+		var horizontal = dir.lanewise(VectorOperators.LSHR, 1).neg().add(1);
+		return (FloatVector) sign.mul(horizontal).convert(VectorOperators.I2F, 0);
+	}
+
+	private static FloatVector dirY(IntVector dir) {
+		var sign = dir.and(1).mul(2).sub(1);
+		return (FloatVector) sign.mul(dir.lanewise(VectorOperators.LSHR, 1)).convert(VectorOperators.I2F, 0);
+	}
+
+	private static VectorMask<Integer> isSet(IntVector flags, int flag) {
+		return flags.and(flag).compare(VectorOperators.NE, 0);
+	}
+
+	private static VectorMask<Integer> todo(IntVector result) {
+		return isSet(result, TELEPORTED | MOVED).not();
+	}
+
+	/*
+	 * Same as MovementBatch.tileIndex(). The flags are read lane by lane: with 512 bit vectors, the int gather
+	 * (IntVector.fromArray with an index map) crashes code compiled by the C2 compiler of JDK 17.
+	 */
+	private IntVector tileFlags(IntVector col, IntVector row) {
+		row = row.max(-1).min(batch.numRows);
+		col = col.max(-batch.pad).min(batch.numCols + batch.pad - 1);
+		row.add(1).mul(batch.stride).add(col).add(batch.pad).intoArray(indexes, 0);
+		for (int lane = 0; lane < indexes.length; ++lane) {
+			flags[lane] = batch.tileFlags[indexes[lane]];
+		}
+		return IntVector.fromArray(I, flags, 0);
+	}
+
+	private void teleport(int bound) {
+		for (int slot = 0; slot < bound; slot += F.length()) {
+			var x = FloatVector.fromArray(F, batch.x, slot);
+			var y = FloatVector.fromArray(F, batch.y, slot);
+			var tx = tileCoord(x);
+			var ty = tileCoord(y);
+			var canTeleport = isSet(IntVector.fromArray(I, batch.access, slot), ACCESS_TELEPORT);
+			var result = IntVector.zero(I);
+			for (int i = 0; i < batch.portalDepth.length; ++i) {
+				int leftX = batch.portalLeftX[i] - batch.portalDepth[i];
+				int rightX = batch.portalRightX[i];
+				var toRight = canTeleport.and(ty.compare(VectorOperators.EQ, batch.portalLeftY[i]))
+						.and(x.compare(VectorOperators.LT, leftX * TS).cast(I));
+				var toLeft = canTeleport.andNot(toRight).and(tx.compare(VectorOperators.EQ, rightX + batch.portalDepth[i]))
+						.and(ty.compare(VectorOperators.EQ, batch.portalRightY[i]));
+				x = x.blend(rightX * TS + 0f, toRight.cast(F)).blend(leftX * TS + 0f, toLeft.cast(F));
+				y = y.blend(batch.portalRightY[i] * TS + 0f, toRight.cast(F)).blend(batch.portalLeftY[i] * TS + 0f,
+						toLeft.cast(F));
+				var toRightNewTile = tx.compare(VectorOperators.NE, tileCoordAtOrigin(rightX))
+						.or(ty.compare(VectorOperators.NE, tileCoordAtOrigin(batch.portalRightY[i])));
+				var toLeftNewTile = tx.compare(VectorOperators.NE, tileCoordAtOrigin(leftX))
+						.or(ty.compare(VectorOperators.NE, tileCoordAtOrigin(batch.portalLeftY[i])));
+				result = result.add(TELEPORTED, toRight.or(toLeft))
+						.add(NEW_TILE_ENTERED, toRight.and(toRightNewTile).or(toLeft.and(toLeftNewTile)));
+				canTeleport = canTeleport.andNot(toRight.or(toLeft));
+			}
+			result.intoArray(batch.result, slot);
+			x.intoArray(batch.x, slot);
+			y.intoArray(batch.y, slot);
+		}
+	}
+
+	private void computeTiles(int bound) {
+		for (int slot = 0; slot < bound; slot += F.length()) {
+			if (!todo(IntVector.fromArray(I, batch.result, slot)).anyTrue()) {
+				continue;
+			}
+			tileCoord(FloatVector.fromArray(F, batch.x, slot)).intoArray(tileX, slot);
+			tileCoord(FloatVector.fromArray(F, batch.y, slot)).intoArray(tileY, slot);
+		}
+	}
+
+	// tile touched when moving towards the direction
+	private void computeTouchedTiles(int bound, boolean towardsWishDir) {
+		for (int slot = 0; slot < bound; slot += F.length()) {
+			if (!todo(IntVector.fromArray(I, batch.result, slot)).anyTrue()) {
+				continue;
+			}
+			var x = FloatVector.fromArray(F, batch.x, slot);
+			var y = FloatVector.fromArray(F, batch.y, slot);
+			var speed = FloatVector.fromArray(F, batch.speed, slot);
+			var dirs = towardsWishDir ? batch.wishDir : batch.moveDir;
+			var dir = IntVector.fromArray(I, dirs, slot);
+			var dx = dirX(dir);
+			var dy = dirY(dir);
+			truncate(x.add(HTS).add(dx.mul(HTS)).add(speed.mul(dx)).div(TS)).intoArray(touchedTileX, slot);
+			truncate(y.add(HTS).add(dy.mul(HTS)).add(speed.mul(dy)).div(TS)).intoArray(touchedTileY, slot);
+		}
+	}
+
+	// same rules as MovementBatch.canAccess()
+	private void checkAccess(int bound) {
+		for (int slot = 0; slot < bound; slot += F.length()) {
+			if (!todo(IntVector.fromArray(I, batch.result, slot)).anyTrue()) {
+				continue;
+			}
+			var access = IntVector.fromArray(I, batch.access, slot);
+			var tx = IntVector.fromArray(I, tileX, slot);
+			var ty = IntVector.fromArray(I, tileY, slot);
+			var ux = IntVector.fromArray(I, touchedTileX, slot);
+			var uy = IntVector.fromArray(I, touchedTileY, slot);
+			var flagsBefore = tileFlags(tx, ty);
+			var touchedFlags = tileFlags(ux, uy);
+			var upBlocked = isSet(access, ACCESS_UP_BLOCKABLE).and(isSet(flagsBefore, TILE_UP_BLOCKED))
+					.and(ux.compare(VectorOperators.EQ, tx)).and(uy.compare(VectorOperators.EQ, ty.sub(1)));
+			var door = isSet(touchedFlags, TILE_DOOR);
+			var canAccess = door.and(isSet(access, ACCESS_DOOR)).or(door.not().and(isSet(touchedFlags, TILE_OPEN)))
+					.andNot(upBlocked);
+			flagsBefore.intoArray(tileFlagsBefore, slot);
+			IntVector.zero(I).blend(1, canAccess).intoArray(accessible, slot);
+		}
+	}
+
+	// one attempt of Creature.tryMoving(Direction) for the creatures not yet teleported or moved
+	private void move(int bound, boolean towardsWishDir) {
+		for (int slot = 0; slot < bound; slot += F.length()) {
+			var result = IntVector.fromArray(I, batch.result, slot);
+			var todo = todo(result);
+			if (!todo.anyTrue()) {
+				IntVector.zero(I).intoArray(this.moving, slot);
+				continue;
+			}
+			var x = FloatVector.fromArray(F, batch.x, slot);
+			var y = FloatVector.fromArray(F, batch.y, slot);
+			var speed = FloatVector.fromArray(F, batch.speed, slot);
+			var dirs = towardsWishDir ? batch.wishDir : batch.moveDir;
+			var dir = IntVector.fromArray(I, dirs, slot);
+			var dx = dirX(dir);
+			var dy = dirY(dir);
+			var horizontalF = dy.compare(VectorOperators.EQ, 0);
+			var moveDirVertical = IntVector.fromArray(I, batch.moveDir, slot).lanewise(VectorOperators.LSHR, 1);
+			var aroundCorner = dir.lanewise(VectorOperators.LSHR, 1).compare(VectorOperators.NE, moveDirVertical);
+			var tx = IntVector.fromArray(I, tileX, slot);
+			var ty = IntVector.fromArray(I, tileY, slot);
+			var accessible = IntVector.fromArray(I, this.accessible, slot).compare(VectorOperators.NE, 0);
+
+			// blocked moving forward: snap to tile
+			var blocked = todo.andNot(accessible).andNot(aroundCorner);
+			var originX = tileOrigin(tx);
+			var originY = tileOrigin(ty);
+			var blockedF = blocked.cast(F);
+			x = x.blend(originX, blockedF);
+			y = y.blend(originY, blockedF);
+			var snappedToNewTile = tx.compare(VectorOperators.LT, 0).or(ty.compare(VectorOperators.LT, 0));
+			result = result.lanewise(VectorOperators.AND, ~NEW_TILE_ENTERED, blocked).add(NEW_TILE_ENTERED, blocked.and(snappedToNewTile));
+
+			// cornering: only at turn position, snap to tile
+			var offset = x.sub(originX).blend(y.sub(originY), horizontalF).abs();
+			var atTurnPosition = offset.compare(VectorOperators.LE, 1).cast(I);
+			var moving = todo.and(accessible).and(aroundCorner.not().or(atTurnPosition));
+			var cornering = moving.and(aroundCorner);
+			var corneringF = cornering.cast(F);
+			x = x.blend(originX, corneringF);
+			y = y.blend(originY, corneringF);
+
+			// move
+			var corneringSpeedUp = FloatVector.fromArray(F, batch.corneringSpeedUp, slot);
+			var speedUp = corneringSpeedUp.compare(VectorOperators.GT, 0).and(corneringF);
+			var vx = speed.mul(dx).add(corneringSpeedUp.mul(dx), speedUp);
+			var vy = speed.mul(dy).add(corneringSpeedUp.mul(dy), speedUp);
+			var movingF = moving.cast(F);
+			x = x.add(vx, movingF);
+			y = y.add(vy, movingF);
+			x.intoArray(batch.x, slot);
+			y.intoArray(batch.y, slot);
+			if (towardsWishDir) {
+				IntVector.fromArray(I, batch.wishDir, slot).intoArray(batch.moveDir, slot, moving);
+			}
+			result.blend(MOVED, moving).intoArray(batch.result, slot);
+			IntVector.zero(I).blend(1, moving).intoArray(this.moving, slot);
+		}
+	}
+
+	// new tile and tunnel flags of the creatures moved by the last attempt
+	private void updateResult(int bound) {
+		for (int slot = 0; slot < bound; slot += F.length()) {
+			var moving = IntVector.fromArray(I, this.moving, slot).compare(VectorOperators.NE, 0);
+			if (!moving.anyTrue()) {
+				continue;
+			}
+			var nx = tileCoord(FloatVector.fromArray(F, batch.x, slot));
+			var ny = tileCoord(FloatVector.fromArray(F, batch.y, slot));
+			var newTile = nx.compare(VectorOperators.NE, IntVector.fromArray(I, tileX, slot))
+					.or(ny.compare(VectorOperators.NE, IntVector.fromArray(I, tileY, slot)));
+			var tunnelEntered = isSet(IntVector.fromArray(I, tileFlagsBefore, slot), TILE_TUNNEL).not()
+					.and(isSet(tileFlags(nx, ny), TILE_TUNNEL));
+			var moved = IntVector.broadcast(I, MOVED).add(NEW_TILE_ENTERED, newTile).add(TUNNEL_ENTERED, tunnelEntered);
+			IntVector.fromArray(I, batch.result, slot).blend(moved, moving).intoArray(batch.result, slot);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.world.FloorPlan;
+import de.amr.games.pacman.model.world.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the tile queries of the world ({@code World.hasFoodAt()}, {@code World.isIntersection()}) and the
+ * creation of a floor plan.
+ * <p>
+ * The tile queries are run over all tiles of the world, the reported time is per tile.
+ *
+ * @author Armin Reichert
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WorldBenchmark {
+
+	private static final int NUM_TILES = 28 * 36;
+
+	private World world;
+	private Vector2i[] tiles;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		world = new LevelFixture(GameVariant.PACMAN, 50, 0).level.world();
+		tiles = world.tiles().toArray(Vector2i[]::new);
+		if (tiles.length != NUM_TILES) {
+			throw new IllegalStateException("Unexpected number of tiles: " + tiles.length);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_TILES)
+	public int hasFoodAt() {
+		int count = 0;
+		for (var tile : tiles) {
+			if (world.hasFoodAt(tile)) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUM_TILES)
+	public int isIntersection() {
+		int count = 0;
+		for (var tile : tiles) {
+			if (world.isIntersection(tile)) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public FloorPlan createFloorPlan() {
+		return new FloorPlan(world, 8);
+	}
+}
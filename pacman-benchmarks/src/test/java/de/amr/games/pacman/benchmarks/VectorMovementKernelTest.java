@@ -0,0 +1,87 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.benchmarks;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Creature;
+import de.amr.games.pacman.model.actors.Ghost;
+import de.amr.games.pacman.model.actors.MovementBatch;
+import de.amr.games.pacman.model.actors.Pac;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static de.amr.games.pacman.model.actors.MovementBatch.TELEPORTED;
+import static org.junit.Assert.*;
+
+/**
+ * The scalar step is tested against {@link Creature#tryMoving()} in the core module, here the vector kernel is tested
+ * against the scalar step.
+ *
+ * @author Armin Reichert
+ */
+public class VectorMovementKernelTest {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private static void assertSameMovement(GameVariant variant) {
+		var rnd = new SplittableRandom(variant.ordinal());
+		var fixture = new LevelFixture(variant, 100, 0);
+		var tiles = fixture.accessibleTiles();
+		int count = 37; // not a multiple of the vector length
+		var scalar = new MovementBatch(fixture.level, count);
+		var vector = new MovementBatch(fixture.level, count);
+		vector.setKernel(new VectorMovementKernel(vector));
+		for (int i = 0; i < count; ++i) {
+			Creature creature;
+			if (i % 5 == 0) {
+				creature = new Pac(fixture.level.pac());
+			} else {
+				var ghost = new Ghost(fixture.level.ghost((byte) (i % 4)));
+				switch (i % 3) {
+				case 0 -> ghost.enterStateHuntingPac();
+				case 1 -> ghost.enterStateFrightened();
+				default -> ghost.enterStateLeavingHouse();
+				}
+				creature = ghost;
+			}
+			creature.placeAtTile(tiles[rnd.nextInt(tiles.length)], rnd.nextInt(-2, 3), rnd.nextInt(-2, 3));
+			creature.setMoveAndWishDir(DIRECTIONS[rnd.nextInt(4)]);
+			creature.setPixelSpeed(0.5f + 0.25f * rnd.nextInt(7));
+			scalar.add(creature);
+			vector.add(creature);
+		}
+		int teleports = 0;
+		for (int frame = 0; frame < 3000; ++frame) {
+			for (int slot = 0; slot < count; ++slot) {
+				if ((frame + slot) % 16 == 0) {
+					var dir = DIRECTIONS[rnd.nextInt(4)];
+					scalar.setWishDir(slot, dir);
+					vector.setWishDir(slot, dir);
+				}
+			}
+			scalar.step();
+			vector.step();
+			for (int slot = 0; slot < count; ++slot) {
+				String message = "Frame " + frame + ", slot " + slot;
+				assertEquals(message, scalar.x(slot), vector.x(slot), 0);
+				assertEquals(message, scalar.y(slot), vector.y(slot), 0);
+				assertEquals(message, scalar.moveDir(slot), vector.moveDir(slot));
+				assertEquals(message, scalar.result(slot), vector.result(slot));
+				teleports += (scalar.result(slot) & TELEPORTED) != 0 ? 1 : 0;
+			}
+		}
+		assertTrue(teleports > 0);
+	}
+
+	@Test
+	public void testVectorStepMovesLikeScalarStep() {
+		assertTrue(VectorMovementKernel.isAvailable());
+		for (var variant : GameVariant.values()) {
+			assertSameMovement(variant);
+		}
+	}
+}
@@ -5,7 +5,9 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.controller;
 
 import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventBus;
 import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventListenerRegistry;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.event.GameStateChangeEvent;
 import de.amr.games.pacman.lib.Fsm;
@@ -15,8 +17,10 @@ import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.GameVariant;
 import org.tinylog.Logger;
 
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Predicate;
 
 import static de.amr.games.pacman.lib.Globals.checkGameVariant;
@@ -29,6 +33,10 @@ import static de.amr.games.pacman.lib.Globals.checkNotNull;
  * selected game, see {@link GameModel}. Scene selection is not controlled by this class but left to the specific user
  * interface implementations.
  * <p>
+ * Each controller instance is an independent game session: it owns its game model, its state timers, its event
+ * subscribers and its Pac-Man steering. Any number of sessions can be created and updated in parallel (one thread per
+ * session). User interfaces typically use the single session created by {@link #create(GameVariant)}.
+ * <p>
  * <li>Exact level data for Ms. Pac-Man still not available. Any hints appreciated!
  * <li>Multiple players (1up, 2up) not implemented.</li>
  * </ul>
@@ -41,12 +49,13 @@ import static de.amr.games.pacman.lib.Globals.checkNotNull;
  *      behavior</a>
  * @see <a href="http://superpacman.com/mspacman/">Ms. Pac-Man</a>
  */
-public class GameController extends Fsm<GameState, GameModel> {
+public class GameController extends Fsm<GameState, GameController> {
 
 	private static GameController it;
 
 	/**
-	 * Creates the game controller singleton and sets the current game model to the given game variant.
+	 * Creates the game controller singleton (the default session used by user interfaces) and sets the current game
+	 * model to the given game variant.
 	 *
 	 * @param variant game variant to select
 	 */
@@ -69,31 +78,75 @@ public class GameController extends Fsm<GameState, GameModel> {
 		return it;
 	}
 
+	private final long seed;
+	private final SplittableRandom gameSeeds;
 	private GameModel game;
 	private Steering autopilot = new RuleBasedSteering();
 	private Steering manualPacSteering = Steering.NONE;
 	private int credit;
 	private boolean autoControlled = false;
 	private boolean immune = false; // extra feature
+	private boolean headless = false;
 	public int intermissionTestNumber; // used in intermission test mode
 
-	private GameController(GameVariant variant) {
+	/**
+	 * Creates a new, independent game session with a random seed.
+	 *
+	 * @param variant game variant to select
+	 */
+	public GameController(GameVariant variant) {
+		this(variant, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Creates a new, independent game session. The seeds of the games played in this session are derived from the given
+	 * seed, so a session can be reproduced exactly from its seed (and its Pac-Man steering input).
+	 *
+	 * @param variant game variant to select
+	 * @param seed    session seed
+	 */
+	public GameController(GameVariant variant, long seed) {
 		super(GameState.values());
-		GameController.it = this;
-		game = new GameModel(variant);
+		checkGameVariant(variant);
+		this.seed = seed;
+		gameSeeds = new SplittableRandom(seed);
+		game = createGame(variant);
 		// map FSM state change events to game events
-		addStateChangeListener((oldState, newState) -> publishGameEvent(new GameStateChangeEvent(game, oldState, newState)));
+		addStateChangeListener(this::publishStateChange);
 	}
 
 	@Override
-	public GameModel context() {
-		return game;
+	public GameController context() {
+		return this;
+	}
+
+	/**
+	 * Updates the state machine. If asynchronous event dispatch is enabled, the user commands queued since the last
+	 * update are executed first and the events published during this update are committed as one batch.
+	 */
+	@Override
+	public void update() {
+		Runnable command;
+		while ((command = pendingCommands.poll()) != null) {
+			command.run();
+		}
+		super.update();
+		if (eventBus != null) {
+			eventBus.endFrame();
+		}
 	}
 
 	public GameModel game() {
 		return game;
 	}
 
+	/**
+	 * @return seed of this session
+	 */
+	public long seed() {
+		return seed;
+	}
+
 	/** @return number of coins inserted. */
 	public int credit() {
 		return credit;
@@ -138,10 +191,49 @@ public class GameController extends Fsm<GameState, GameModel> {
 		this.immune = immune;
 	}
 
+	/**
+	 * @return if this session runs without user interface. Then cosmetic work (animations, blinking, flashing) and the
+	 *         waits that only exist for presentation (see {@link GameState}) are skipped. Game play is not affected.
+	 */
+	public boolean isHeadless() {
+		return headless;
+	}
+
+	/**
+	 * Sets if this session runs without user interface. A headless session does not tick the maze flashing, the
+	 * energizer blinking and the animations of the game states, skips the waits that only exist for presentation (see
+	 * {@link GameState}) and does not publish presentation-only events (see {@link GameEventType#isPresentationOnly()}).
+	 * The game outcome (score, lives, levels) is the same as with user interface.
+	 * <p>
+	 * As a secondary effect, the frame trace is disabled for headless sessions, sessions with user interface keep a trace
+	 * of the last {@link GameModel#TRACE_CAPACITY} frames for post-mortem analysis.
+	 *
+	 * @param headless if this session runs without user interface
+	 */
+	public void setHeadless(boolean headless) {
+		if (headless != this.headless) {
+			this.headless = headless;
+			game.setTraceCapacity(headless ? 0 : GameModel.TRACE_CAPACITY);
+		}
+	}
+
 	public Steering steering() {
 		return autoControlled ? autopilot : manualPacSteering;
 	}
 
+	public Steering getAutopilot() {
+		return autopilot;
+	}
+
+	/**
+	 * @param autopilot steering used for Pac-Man when the game is auto-controlled, e.g.
+	 *                  {@link de.amr.games.pacman.lib.MctsSteering}
+	 */
+	public void setAutopilot(Steering autopilot) {
+		checkNotNull(autopilot);
+		this.autopilot = autopilot;
+	}
+
 	public Steering getManualPacSteering() {
 		return manualPacSteering;
 	}
@@ -151,6 +243,14 @@ public class GameController extends Fsm<GameState, GameModel> {
 		this.manualPacSteering = steering;
 	}
 
+	private GameModel createGame(GameVariant variant) {
+		var model = new GameModel(variant, this, gameSeeds.nextLong());
+		if (!headless) {
+			model.setTraceCapacity(GameModel.TRACE_CAPACITY);
+		}
+		return model;
+	}
+
 	// Game commands
 
 	/**
@@ -159,91 +259,178 @@ public class GameController extends Fsm<GameState, GameModel> {
 	 * @param variant Pac-Man or Ms. Pac-Man
 	 */
 	public void startNewGame(GameVariant variant) {
-		game = new GameModel(variant);
-		restart(GameState.BOOT);
+		execute(() -> {
+			game = createGame(variant);
+			restart(GameState.BOOT);
+		});
 	}
 
 	/**
 	 * Adds credit (simulates insertion of a coin) and switches to the credit scene.
 	 */
 	public void addCredit() {
-		if (!game.isPlaying()) {
-			boolean added = changeCredit(1);
-			if (added) {
-				publishGameEvent(GameEventType.CREDIT_ADDED);
+		execute(() -> {
+			if (!game.isPlaying()) {
+				boolean added = changeCredit(1);
+				if (added) {
+					publishGameEvent(GameEventType.CREDIT_ADDED);
+				}
+				if (state() != GameState.CREDIT) {
+					changeState(GameState.CREDIT);
+				}
 			}
-			if (state() != GameState.CREDIT) {
-				changeState(GameState.CREDIT);
-			}
-		}
+		});
 	}
 
 	public void startPlaying() {
-		if ((state() == GameState.INTRO || state() == GameState.CREDIT) && hasCredit()) {
-			changeState(GameState.READY);
-		}
+		execute(() -> {
+			if ((state() == GameState.INTRO || state() == GameState.CREDIT) && hasCredit()) {
+				changeState(GameState.READY);
+			}
+		});
 	}
 
 	public void startCutscenesTest(int cutSceneNumber) {
-		if (state() == GameState.INTRO) {
-			intermissionTestNumber = cutSceneNumber;
-			changeState(GameState.INTERMISSION_TEST);
-		}
+		execute(() -> {
+			if (state() == GameState.INTRO) {
+				intermissionTestNumber = cutSceneNumber;
+				changeState(GameState.INTERMISSION_TEST);
+			}
+		});
 	}
 
 	public void cheatEatAllPellets() {
-		if (game.isPlaying() && state() == GameState.HUNTING) {
-			game.level().ifPresent(level -> {
-				var world = level.world();
-				world.tiles().filter(Predicate.not(world::isEnergizerTile)).forEach(world::removeFood);
-				publishGameEvent(GameEventType.PAC_FOUND_FOOD);
-			});
-		}
+		execute(() -> {
+			if (game.isPlaying() && state() == GameState.HUNTING) {
+				game.level().ifPresent(level -> {
+					var world = level.world();
+					world.tiles().filter(Predicate.not(world::isEnergizerTile)).forEach(world::removeFood);
+					publishGameEvent(GameEventType.PAC_FOUND_FOOD);
+				});
+			}
+		});
 	}
 
 	public void cheatKillAllEatableGhosts() {
-		if (game.isPlaying() && state() == GameState.HUNTING) {
-			game.level().ifPresent(level -> {
-				level.killAllHuntingAndFrightenedGhosts();
-				changeState(GameState.GHOST_DYING);
-			});
-		}
+		execute(() -> {
+			if (game.isPlaying() && state() == GameState.HUNTING) {
+				game.level().ifPresent(level -> {
+					level.killAllHuntingAndFrightenedGhosts();
+					changeState(GameState.GHOST_DYING);
+				});
+			}
+		});
 	}
 
 	public void cheatEnterNextLevel() {
-		if (game.isPlaying() && state() == GameState.HUNTING) {
-			game.level().ifPresent(level -> {
-				var world = level.world();
-				world.tiles().forEach(world::removeFood);
-				changeState(GameState.LEVEL_COMPLETE);
-			});
+		execute(() -> {
+			if (game.isPlaying() && state() == GameState.HUNTING) {
+				game.level().ifPresent(level -> {
+					var world = level.world();
+					world.tiles().forEach(world::removeFood);
+					changeState(GameState.LEVEL_COMPLETE);
+				});
+			}
+		});
+	}
+
+	/*
+	 * User commands change the state machine and publish events. In asynchronous mode, the thread calling update() must
+	 * be the only producer of the event bus, so commands are queued and executed by that thread at the start of the next
+	 * update. In synchronous mode, they are executed immediately.
+	 */
+	private void execute(Runnable command) {
+		if (eventBus != null) {
+			pendingCommands.add(command);
+		} else {
+			command.run();
 		}
 	}
 
 	// Events
 
-	private final Collection<GameEventListener> subscribers = new ArrayList<>();
+	private final GameEventListenerRegistry listeners = new GameEventListenerRegistry();
+	private final Queue<Runnable> pendingCommands = new ConcurrentLinkedQueue<>();
+	private GameEventBus eventBus;
+
+	/**
+	 * Switches between synchronous and asynchronous event dispatch. In asynchronous mode, events are passed to the given
+	 * bus instead of the listeners and delivered to the subscribers of the bus in batches (one per call of
+	 * {@link #update()}) on a different thread.
+	 * <p>
+	 * The bus accepts events from a single producer thread only. In asynchronous mode, this is the thread calling
+	 * {@link #update()}: user commands like {@link #addCredit()}, {@link #startPlaying()} or the cheats can be called
+	 * from any thread, they are queued and executed at the start of the next update. Events must not be published from
+	 * other threads. The bus should be set before the session is updated for the first time.
+	 * 
+	 * @param eventBus event bus or <code>null</code> for synchronous dispatch to the listeners
+	 */
+	public void setEventBus(GameEventBus eventBus) {
+		this.eventBus = eventBus;
+	}
+
+	public Optional<GameEventBus> eventBus() {
+		return Optional.ofNullable(eventBus);
+	}
+
+	/**
+	 * Adds a listener for all event types. Listeners can be added and removed from any thread.
+	 * 
+	 * @param listener game event listener
+	 */
+	public void addListener(GameEventListener listener) {
+		listeners.add(listener);
+	}
 
-	public void addListener(GameEventListener subscriber) {
-		checkNotNull(subscriber);
-		subscribers.add(subscriber);
+	/**
+	 * Adds a listener that only receives events of the given types.
+	 * 
+	 * @param listener game event listener
+	 * @param types    event types
+	 */
+	public void addListener(GameEventListener listener, GameEventType... types) {
+		listeners.add(listener, types);
 	}
 
-	public void removeListener(GameEventListener subscriber) {
-		checkNotNull(subscriber);
-		subscribers.remove(subscriber);
+	public void removeListener(GameEventListener listener) {
+		listeners.remove(listener);
 	}
 
 	public void publishGameEvent(GameEventType type) {
-		publishGameEvent(new GameEvent(type, game, null));
+		publishGameEvent(type, null);
 	}
 
 	public void publishGameEvent(GameEventType type, Vector2i tile) {
-		publishGameEvent(new GameEvent(type, game, tile));
+		if (headless && type.isPresentationOnly()) {
+			return;
+		}
+		if (eventBus != null) {
+			eventBus.offer(game, type, tile);
+		} else if (listeners.hasListeners(type)) {
+			listeners.dispatch(new GameEvent(type, game, tile));
+		}
+	}
+
+	private void publishStateChange(GameState oldState, GameState newState) {
+		if (eventBus != null) {
+			eventBus.offerStateChange(game, oldState, newState);
+		} else if (listeners.hasListeners(GameEventType.GAME_STATE_CHANGED)) {
+			listeners.dispatch(new GameStateChangeEvent(game, oldState, newState));
+		}
 	}
 
 	public void publishGameEvent(GameEvent event) {
-		Logger.trace("Publish game event: {}", event);
-		subscribers.forEach(subscriber -> subscriber.onGameEvent(event));
+		if (headless && event.type.isPresentationOnly()) {
+			return;
+		}
+		if (eventBus != null) {
+			if (event instanceof GameStateChangeEvent change) {
+				eventBus.offerStateChange(event.game, change.oldState, change.newState);
+			} else {
+				eventBus.offer(event.game, event.type, event.tile);
+			}
+		} else if (listeners.hasListeners(event.type)) {
+			listeners.dispatch(event);
+		}
 	}
 }
\ No newline at end of file
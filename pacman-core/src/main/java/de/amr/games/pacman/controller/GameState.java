@@ -4,67 +4,72 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.controller;
 
-import de.amr.games.pacman.event.GameEvent;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.FsmState;
-import de.amr.games.pacman.lib.TickTimer;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.IllegalGameVariantException;
 import de.amr.games.pacman.model.actors.*;
 
 /**
  * Rule of thumb: here, specify "what" and "when", not "how" (this should be implemented in the model).
+ * <p>
+ * In headless sessions (see {@link GameController#isHeadless()}) the waiting times that only exist for presentation
+ * are skipped, the game play itself is the same.
  * 
  * @author Armin Reichert
  */
-public enum GameState implements FsmState<GameModel> {
+public enum GameState implements FsmState<GameController> {
 
 	BOOT { // "Das muss das Boot abkönnen!"
 		@Override
-		public void onEnter(GameModel game) {
-			timer.restartIndefinitely();
+		public void onEnter(GameController gc) {
+			var game = gc.game();
+			gc.timer().restartIndefinitely();
 			game.clearLevelCounter();
 			game.score().reset();
 			game.loadHighScore();
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
-			if (timer.hasExpired()) {
-				GameController.it().changeState(INTRO);
+		public void onUpdate(GameController gc) {
+			if (gc.timer().hasExpired()) {
+				gc.changeState(INTRO);
 			}
 		}
 	},
 
 	INTRO {
 		@Override
-		public void onEnter(GameModel game) {
-			timer.restartIndefinitely();
+		public void onEnter(GameController gc) {
+			var game = gc.game();
+			gc.timer().restartIndefinitely();
 			game.setPlaying(false);
 			game.removeLevel();
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
-			if (timer.hasExpired()) {
-				GameController.it().changeState(READY);
+		public void onUpdate(GameController gc) {
+			if (gc.timer().hasExpired()) {
+				gc.changeState(READY);
 			}
 		}
 	},
 
 	CREDIT {
 		@Override
-		public void onUpdate(GameModel game) {
+		public void onUpdate(GameController gc) {
 			// nothing to do here
 		}
 	},
 
 	READY {
 		@Override
-		public void onEnter(GameModel game) {
-			GameController.it().getManualPacSteering().setEnabled(false);
-			GameController.it().publishGameEvent(GameEventType.STOP_ALL_SOUNDS);
-			if (!GameController.it().hasCredit()) {
+		public void onEnter(GameController gc) {
+			var game = gc.game();
+			gc.getManualPacSteering().setEnabled(false);
+			gc.publishGameEvent(GameEventType.STOP_ALL_SOUNDS);
+			if (!gc.hasCredit()) {
 				game.reset();
 				game.createDemoLevel();
 				game.startLevel();
@@ -79,40 +84,48 @@ public enum GameState implements FsmState<GameModel> {
 				game.reset();
 				game.createLevel(1);
 				game.startLevel();
-				GameController.it().publishGameEvent(GameEventType.READY_TO_PLAY);
+				gc.publishGameEvent(GameEventType.READY_TO_PLAY);
 			}
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
+		public void onUpdate(GameController gc) {
+			var game = gc.game();
 			game.level().ifPresent(level -> {
+				if (gc.isHeadless()) {
+					// no presentation, start at once
+					if (gc.hasCredit()) {
+						game.setPlaying(true);
+					}
+					level.beginHunting();
+					gc.changeState(GameState.HUNTING);
+					return;
+				}
 				final short showGuysTick = 120; // not sure
 				final short showGuysDemoLevelTick = 130; // not sure
 				final short startGameTick = 240; // not sure
 				final short resumeGameTick = 90; // not sure
-				if (GameController.it().hasCredit() && !game.isPlaying()) {
+				if (gc.hasCredit() && !game.isPlaying()) {
 					// start new game
-					if (timer.tick() == showGuysTick) {
+					if (gc.timer().tick() == showGuysTick) {
 						level.guys().forEach(Creature::show);
-					} else if (timer.tick() == startGameTick) {
+					} else if (gc.timer().tick() == startGameTick) {
 						// start game play
 						game.setPlaying(true);
-						level.startHunting(0);
-						GameController.it().changeState(GameState.HUNTING);
+						level.beginHunting();
+						gc.changeState(GameState.HUNTING);
 					}
 				} else if (game.isPlaying()) {
 					// resume game play
-					if (timer.tick() == resumeGameTick) {
-						level.guys().forEach(Creature::show);
-						level.startHunting(0);
-						GameController.it().changeState(GameState.HUNTING);
+					if (gc.timer().tick() == resumeGameTick) {
+						level.beginHunting();
+						gc.changeState(GameState.HUNTING);
 					}
 				} else {
 					// demo level
-					if (timer.tick() == showGuysDemoLevelTick) {
-						level.guys().forEach(Creature::show);
-						level.startHunting(0);
-						GameController.it().changeState(GameState.HUNTING);
+					if (gc.timer().tick() == showGuysDemoLevelTick) {
+						level.beginHunting();
+						gc.changeState(GameState.HUNTING);
 					}
 				}
 			});
@@ -121,27 +134,29 @@ public enum GameState implements FsmState<GameModel> {
 
 	HUNTING {
 		@Override
-		public void onEnter(GameModel game) {
+		public void onEnter(GameController gc) {
+			var game = gc.game();
 			game.level().ifPresent(level -> {
-				GameController.it().getManualPacSteering().setEnabled(true);
+				gc.getManualPacSteering().setEnabled(true);
 				level.pac().startAnimation();
 				level.ghosts().forEach(Ghost::startAnimation);
 				level.world().energizerBlinking().restart();
-				GameController.it().publishGameEvent(new GameEvent(GameEventType.HUNTING_PHASE_STARTED, game, null));
+				gc.publishGameEvent(GameEventType.HUNTING_PHASE_STARTED);
 			});
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
+		public void onUpdate(GameController gc) {
+			var game = gc.game();
 			game.level().ifPresent(level -> {
 				level.simulateOneFrame();
 				if (level.thisFrame().levelCompleted) {
-					GameController.it().changeState(LEVEL_COMPLETE);
+					gc.changeState(LEVEL_COMPLETE);
 				} else if (level.thisFrame().pacKilled) {
-					GameController.it().changeState(PACMAN_DYING);
+					gc.changeState(PACMAN_DYING);
 				} else if (level.thisFrame().pacPrey.size() > 0) {
 					level.killEdibleGhosts();
-					GameController.it().changeState(GHOST_DYING);
+					gc.changeState(GHOST_DYING);
 				}
 			});
 		}
@@ -149,30 +164,32 @@ public enum GameState implements FsmState<GameModel> {
 
 	LEVEL_COMPLETE {
 		@Override
-		public void onEnter(GameModel game) {
-			GameController.it().getManualPacSteering().setEnabled(false);
-			timer.restartSeconds(4);
+		public void onEnter(GameController gc) {
+			var game = gc.game();
+			gc.getManualPacSteering().setEnabled(false);
+			gc.timer().restartSeconds(4);
 			game.level().ifPresent(GameLevel::end);
-			GameController.it().publishGameEvent(GameEventType.STOP_ALL_SOUNDS);
+			gc.publishGameEvent(GameEventType.STOP_ALL_SOUNDS);
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
+		public void onUpdate(GameController gc) {
+			var game = gc.game();
 			game.level().ifPresent(level -> {
-				if (timer.hasExpired()) {
-					if (!GameController.it().hasCredit()) {
-						GameController.it().changeState(INTRO);
+				if (gc.timer().hasExpired() || gc.isHeadless()) {
+					if (!gc.hasCredit()) {
+						gc.changeState(INTRO);
 						// attract mode -> back to intro scene
 					} else if (level.intermissionNumber > 0) {
-						GameController.it().changeState(INTERMISSION); // play intermission scene
+						gc.changeState(INTERMISSION); // play intermission scene
 					} else {
-						GameController.it().changeState(CHANGING_TO_NEXT_LEVEL); // next level
+						gc.changeState(CHANGING_TO_NEXT_LEVEL); // next level
 					}
 				} else {
 					level.pac().stopAnimation();
 					level.pac().resetAnimation();
 					var flashing = level.world().mazeFlashing();
-					if (timer.atSecond(1)) {
+					if (gc.timer().atSecond(1)) {
 						flashing.restart(2 * level.numFlashes);
 					} else {
 						flashing.tick();
@@ -185,52 +202,57 @@ public enum GameState implements FsmState<GameModel> {
 
 	CHANGING_TO_NEXT_LEVEL {
 		@Override
-		public void onEnter(GameModel game) {
-			GameController.it().getManualPacSteering().setEnabled(false);
-			timer.restartSeconds(1);
+		public void onEnter(GameController gc) {
+			var game = gc.game();
+			gc.getManualPacSteering().setEnabled(false);
+			gc.timer().restartSeconds(1);
 			game.nextLevel();
-			GameController.it().publishGameEvent(GameEventType.LEVEL_STARTED);
+			gc.publishGameEvent(GameEventType.LEVEL_STARTED);
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
-			if (timer.hasExpired()) {
-				GameController.it().changeState(READY);
+		public void onUpdate(GameController gc) {
+			if (gc.timer().hasExpired() || gc.isHeadless()) {
+				gc.changeState(READY);
 			}
 		}
 	},
 
 	GHOST_DYING {
 		@Override
-		public void onEnter(GameModel game) {
-			timer.restartSeconds(1);
+		public void onEnter(GameController gc) {
+			var game = gc.game();
+			gc.timer().reset(GameLevel.GHOST_DYING_TICKS);
+			gc.timer().start();
 			game.level().ifPresent(level -> {
 				level.pac().hide();
 				level.ghosts().forEach(ghost -> ghost.animations().ifPresent(Animations::stopSelected));
-				GameController.it().publishGameEvent(GameEventType.GHOST_EATEN);
+				gc.publishGameEvent(GameEventType.GHOST_EATEN);
 			});
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
-			if (timer.hasExpired()) {
-				GameController.it().resumePreviousState();
+		public void onUpdate(GameController gc) {
+			if (gc.isHeadless()) {
+				// no presentation, but the other ghosts keep moving: simulate the whole pause at once
+				gc.game().level().ifPresent(GameLevel::simulateGhostDying);
+				gc.resumePreviousState();
+			} else if (gc.timer().hasExpired()) {
+				gc.resumePreviousState();
 			} else {
-				game.level().ifPresent(level -> {
-					var steering = level.pacSteering().orElse(GameController.it().steering());
-					steering.steer(level, level.pac());
-					level.ghosts(GhostState.EATEN, GhostState.RETURNING_TO_HOUSE, GhostState.ENTERING_HOUSE)
-							.forEach(Ghost::update);
+				gc.game().level().ifPresent(level -> {
+					level.simulateGhostDyingTick();
 					level.world().energizerBlinking().tick();
 				});
 			}
 		}
 
 		@Override
-		public void onExit(GameModel game) {
+		public void onExit(GameController gc) {
+			var game = gc.game();
 			game.level().ifPresent(level -> {
 				level.pac().show();
-				level.ghosts(GhostState.EATEN).forEach(Ghost::enterStateReturningToHouse);
+				level.endGhostDying();
 				level.ghosts().forEach(ghost -> ghost.animations().ifPresent(Animations::startSelected));
 			});
 		}
@@ -238,38 +260,42 @@ public enum GameState implements FsmState<GameModel> {
 
 	PACMAN_DYING {
 		@Override
-		public void onEnter(GameModel game) {
+		public void onEnter(GameController gc) {
+			var game = gc.game();
 			game.level().ifPresent(level -> {
-				GameController.it().getManualPacSteering().setEnabled(false);
-				timer.restartSeconds(4);
+				gc.getManualPacSteering().setEnabled(false);
+				gc.timer().restartSeconds(4);
 				level.onPacKilled();
-				GameController.it().publishGameEvent(GameEventType.STOP_ALL_SOUNDS);
+				gc.publishGameEvent(GameEventType.STOP_ALL_SOUNDS);
 			});
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
+		public void onUpdate(GameController gc) {
+			var game = gc.game();
 			game.level().ifPresent(level -> {
-				if (timer.atSecond(1)) {
+				if (gc.isHeadless()) {
+					// no presentation, skip the dying animation
+					level.ghosts().forEach(Ghost::hide);
+					gc.publishGameEvent(GameEventType.PAC_DIED);
+					level.pac().hide();
+					game.loseLife();
+					leave(gc);
+				} else if (gc.timer().atSecond(1)) {
 					level.pac().selectAnimation(PacAnimations.DYING);
 					level.pac().resetAnimation();
 					level.ghosts().forEach(Ghost::hide);
-				} else if (timer.atSecond(1.4)) {
+				} else if (gc.timer().atSecond(1.4)) {
 					level.pac().startAnimation();
-					GameController.it().publishGameEvent(GameEventType.PAC_DIED);
-				} else if (timer.atSecond(3.0)) {
+					gc.publishGameEvent(GameEventType.PAC_DIED);
+				} else if (gc.timer().atSecond(3.0)) {
 					level.pac().hide();
 					game.loseLife();
 					if (game.lives() == 0) {
 						level.world().mazeFlashing().stop();
 					}
-				} else if (timer.hasExpired()) {
-					if (!GameController.it().hasCredit()) {
-						// end of demo level
-						GameController.it().changeState(INTRO);
-					} else {
-						GameController.it().changeState(game.lives() == 0 ? GAME_OVER : READY);
-					}
+				} else if (gc.timer().hasExpired()) {
+					leave(gc);
 				} else {
 					level.world().energizerBlinking().tick();
 					level.pac().update();
@@ -277,31 +303,42 @@ public enum GameState implements FsmState<GameModel> {
 			});
 		}
 
+		private void leave(GameController gc) {
+			if (!gc.hasCredit()) {
+				// end of demo level
+				gc.changeState(INTRO);
+			} else {
+				gc.changeState(gc.game().lives() == 0 ? GAME_OVER : READY);
+			}
+		}
+
 		@Override
-		public void onExit(GameModel context) {
-			context.level().ifPresent(GameLevel::deactivateBonus);
+		public void onExit(GameController gc) {
+			gc.game().level().ifPresent(GameLevel::deactivateBonus);
 		}
 	},
 
 	GAME_OVER {
 		@Override
-		public void onEnter(GameModel game) {
-			timer.restartSeconds(1.2); //TODO not sure about exact duration
+		public void onEnter(GameController gc) {
+			var game = gc.game();
+			gc.timer().restartSeconds(1.2); //TODO not sure about exact duration
 			game.updateHighScore();
-			GameController.it().getManualPacSteering().setEnabled(false);
-			GameController.it().changeCredit(-1);
-			GameController.it().publishGameEvent(GameEventType.STOP_ALL_SOUNDS);
+			gc.getManualPacSteering().setEnabled(false);
+			gc.changeCredit(-1);
+			gc.publishGameEvent(GameEventType.STOP_ALL_SOUNDS);
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
-			if (timer.hasExpired()) {
-				GameController.it().changeState(GameController.it().hasCredit() ? CREDIT : INTRO);
+		public void onUpdate(GameController gc) {
+			if (gc.timer().hasExpired() || gc.isHeadless()) {
+				gc.changeState(gc.hasCredit() ? CREDIT : INTRO);
 			}
 		}
 
 		@Override
-		public void onExit(GameModel game) {
+		public void onExit(GameController gc) {
+			var game = gc.game();
 			game.setPlaying(false);
 			game.removeLevel();
 		}
@@ -309,105 +346,102 @@ public enum GameState implements FsmState<GameModel> {
 
 	INTERMISSION {
 		@Override
-		public void onEnter(GameModel game) {
-			timer.restartIndefinitely();
+		public void onEnter(GameController gc) {
+			gc.timer().restartIndefinitely();
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
-			if (timer.hasExpired()) {
-				GameController.it().changeState(GameController.it().hasCredit() && game.isPlaying() ? CHANGING_TO_NEXT_LEVEL : INTRO);
+		public void onUpdate(GameController gc) {
+			var game = gc.game();
+			// without user interface, no intermission scene is played
+			if (gc.timer().hasExpired() || gc.isHeadless()) {
+				gc.changeState(gc.hasCredit() && game.isPlaying() ? CHANGING_TO_NEXT_LEVEL : INTRO);
 			}
 		}
 	},
 
 	LEVEL_TEST {
-		private int lastTestedLevel;
-
-		@Override
-		public void onEnter(GameModel game) {
+		private int lastTestedLevel(GameModel game) {
 			switch (game.variant()) {
 			case MS_PACMAN:
-				lastTestedLevel = 18;
-				break;
+				return 18;
 			case PACMAN:
-				lastTestedLevel = 20;
-				break;
+				return 20;
 			default:
-				break;
+				throw new IllegalGameVariantException(game.variant());
 			}
-			timer.restartIndefinitely();
+		}
+
+		@Override
+		public void onEnter(GameController gc) {
+			var game = gc.game();
+			gc.timer().restartIndefinitely();
 			game.reset();
 			game.createLevel(1);
 			game.startLevel();
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
+		public void onUpdate(GameController gc) {
+			var game = gc.game();
 			game.level().ifPresent(level -> {
-				if (level.number() <= lastTestedLevel) {
-					if (timer.atSecond(0.5)) {
+				if (level.number() <= lastTestedLevel(game)) {
+					if (gc.timer().atSecond(0.5)) {
 						level.guys().forEach(Creature::show);
-					} else if (timer.atSecond(1.5)) {
+					} else if (gc.timer().atSecond(1.5)) {
 						level.handleBonusReached(0);
-					} else if (timer.atSecond(2.5)) {
+					} else if (gc.timer().atSecond(2.5)) {
 						level.bonus().ifPresent(bonus -> bonus.setEaten(120));
-						GameController.it().publishGameEvent(GameEventType.BONUS_EATEN);
-					} else if (timer.atSecond(4.5)) {
+						gc.publishGameEvent(GameEventType.BONUS_EATEN);
+					} else if (gc.timer().atSecond(4.5)) {
 						level.handleBonusReached(1);
-					} else if (timer.atSecond(5.5)) {
+					} else if (gc.timer().atSecond(5.5)) {
 						level.bonus().ifPresent(bonus -> bonus.setEaten(60));
 						level.guys().forEach(Creature::hide);
-					} else if (timer.atSecond(6.5)) {
+					} else if (gc.timer().atSecond(6.5)) {
 						var flashing = level.world().mazeFlashing();
 						flashing.restart(2 * level.numFlashes);
-					} else if (timer.atSecond(12.0)) {
+					} else if (gc.timer().atSecond(12.0)) {
 						level.end();
 						game.nextLevel();
-						timer.restartIndefinitely();
-						GameController.it().publishGameEvent(GameEventType.LEVEL_STARTED);
+						gc.timer().restartIndefinitely();
+						gc.publishGameEvent(GameEventType.LEVEL_STARTED);
 					}
 					level.world().energizerBlinking().tick();
 					level.world().mazeFlashing().tick();
 					level.ghosts().forEach(Ghost::update);
 					level.bonus().ifPresent(bonus -> bonus.update(level));
 				} else {
-					GameController.it().restart(GameState.BOOT);
+					gc.restart(GameState.BOOT);
 				}
 			});
 		}
 
 		@Override
-		public void onExit(GameModel game) {
+		public void onExit(GameController gc) {
+			var game = gc.game();
 			game.clearLevelCounter();
 		}
 	},
 
 	INTERMISSION_TEST {
 		@Override
-		public void onEnter(GameModel game) {
-			timer.restartIndefinitely();
+		public void onEnter(GameController gc) {
+			gc.timer().restartIndefinitely();
 		}
 
 		@Override
-		public void onUpdate(GameModel game) {
-			if (timer.hasExpired()) {
-				if (GameController.it().intermissionTestNumber < 3) {
-					++GameController.it().intermissionTestNumber;
-					timer.restartIndefinitely();
-					GameController.it().publishGameEvent(GameEventType.UNSPECIFIED_CHANGE);
+		public void onUpdate(GameController gc) {
+			if (gc.timer().hasExpired()) {
+				if (gc.intermissionTestNumber < 3) {
+					++gc.intermissionTestNumber;
+					gc.timer().restartIndefinitely();
+					gc.publishGameEvent(GameEventType.UNSPECIFIED_CHANGE);
 				} else {
-					GameController.it().intermissionTestNumber = 1;
-					GameController.it().changeState(INTRO);
+					gc.intermissionTestNumber = 1;
+					gc.changeState(INTRO);
 				}
 			}
 		}
 	};
-
-	final TickTimer timer = new TickTimer("Timer-" + name());
-
-	@Override
-	public TickTimer timer() {
-		return timer;
-	}
 }
\ No newline at end of file
@@ -53,7 +53,17 @@ public class MsPacManIntermission1 {
 		stateTimer.start();
 	}
 
+	private final GameController gameController;
+
 	public MsPacManIntermission1() {
+		this(GameController.it());
+	}
+
+	/**
+	 * @param gameController the game controller (session) that is controlled by this intermission
+	 */
+	public MsPacManIntermission1(GameController gameController) {
+		this.gameController = gameController;
 		pacMan = new Pac("Pac-Man");
 		inky = new Ghost(GameModel.CYAN_GHOST, "Inky");
 		msPac = new Pac("Ms. Pac-Man");
@@ -74,7 +84,7 @@ public class MsPacManIntermission1 {
 			break;
 		case STATE_IN_HEAVEN:
 			if (stateTimer.hasExpired()) {
-				GameController.it().terminateCurrentState();
+				gameController.terminateCurrentState();
 				return;
 			}
 			break;
@@ -86,7 +96,7 @@ public class MsPacManIntermission1 {
 
 	private void updateStateFlap() {
 		if (stateTimer.atSecond(1)) {
-			GameController.it().publishGameEvent(GameEventType.INTERMISSION_STARTED);
+			gameController.publishGameEvent(GameEventType.INTERMISSION_STARTED);
 		} else if (stateTimer.hasExpired()) {
 			enterStateChasedByGhosts();
 		}
@@ -41,7 +41,17 @@ public class MsPacManIntermission2 {
 		stateTimer.start();
 	}
 
+	private final GameController gameController;
+
 	public MsPacManIntermission2() {
+		this(GameController.it());
+	}
+
+	/**
+	 * @param gameController the game controller (session) that is controlled by this intermission
+	 */
+	public MsPacManIntermission2(GameController gameController) {
+		this.gameController = gameController;
 		pacMan = new Pac("Pac-Man");
 		msPac = new Pac("Ms. Pac-Man");
 	}
@@ -63,7 +73,7 @@ public class MsPacManIntermission2 {
 
 	private void updateStateFlap() {
 		if (stateTimer.hasExpired()) {
-			GameController.it().publishGameEvent(GameEventType.INTERMISSION_STARTED);
+			gameController.publishGameEvent(GameEventType.INTERMISSION_STARTED);
 			enterStateChasing();
 		}
 	}
@@ -118,7 +128,7 @@ public class MsPacManIntermission2 {
 			msPac.setMoveDir(Direction.RIGHT);
 			msPac.setPixelSpeed(4.0f);
 		} else if (stateTimer.atSecond(23)) {
-			GameController.it().terminateCurrentState();
+			gameController.terminateCurrentState();
 			return;
 		}
 		pacMan.move();
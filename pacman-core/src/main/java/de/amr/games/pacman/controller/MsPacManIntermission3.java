@@ -49,7 +49,17 @@ public class MsPacManIntermission3 {
 		stateTimer.start();
 	}
 
+	private final GameController gameController;
+
 	public MsPacManIntermission3() {
+		this(GameController.it());
+	}
+
+	/**
+	 * @param gameController the game controller (session) that is controlled by this intermission
+	 */
+	public MsPacManIntermission3(GameController gameController) {
+		this.gameController = gameController;
 		pacMan = new Pac("Pac-Man");
 		msPacMan = new Pac("Ms. Pac-Man");
 		stork = new Entity();
@@ -75,7 +85,7 @@ public class MsPacManIntermission3 {
 
 	private void updateStateFlap() {
 		if (stateTimer.atSecond(1)) {
-			GameController.it().publishGameEvent(GameEventType.INTERMISSION_STARTED);
+			gameController.publishGameEvent(GameEventType.INTERMISSION_STARTED);
 		} else if (stateTimer.atSecond(3)) {
 			enterStateDeliverJunior();
 		}
@@ -133,7 +143,7 @@ public class MsPacManIntermission3 {
 	private void updateStateStorkLeavesScene() {
 		stork.move();
 		if (stateTimer.hasExpired()) {
-			GameController.it().terminateCurrentState();
+			gameController.terminateCurrentState();
 		}
 	}
 }
\ No newline at end of file
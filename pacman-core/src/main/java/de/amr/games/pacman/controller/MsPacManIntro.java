@@ -26,6 +26,7 @@ import static de.amr.games.pacman.lib.Globals.*;
 public class MsPacManIntro extends Fsm<MsPacManIntro.State, MsPacManIntro.Context> {
 
 	public static class Context {
+		private final MsPacManIntro intro;
 		public float          speed                = 1.1f;
 		public int            stopY                = TS * 11 + 1;
 		public int            stopX                = TS * 6 - 4; 
@@ -44,6 +45,10 @@ public class MsPacManIntro extends Fsm<MsPacManIntro.State, MsPacManIntro.Contex
 		};
 		public int ghostIndex = 0;
 
+		private Context(MsPacManIntro intro) {
+			this.intro = intro;
+		}
+
 		/**
 		 * In the Arcade game, 6 of the 96 bulbs are switched-on every frame, shifting every tick. The bulbs in the leftmost
 		 * column however are switched-off every second frame. Maybe a bug?
@@ -89,8 +94,8 @@ public class MsPacManIntro extends Fsm<MsPacManIntro.State, MsPacManIntro.Contex
 			@Override
 			public void onUpdate(MsPacManIntro.Context ctx) {
 				ctx.marqueeTimer.advance();
-				if (timer.atSecond(1)) {
-					intro.changeState(State.GHOSTS);
+				if (ctx.intro.timer().atSecond(1)) {
+					ctx.intro.changeState(State.GHOSTS);
 				}
 			}
 		},
@@ -126,7 +131,7 @@ public class MsPacManIntro extends Fsm<MsPacManIntro.State, MsPacManIntro.Contex
 							ani.resetSelected();
 						});
 						if (ctx.ghostIndex == 3) {
-							intro.changeState(State.MSPACMAN);
+							ctx.intro.changeState(State.MSPACMAN);
 						} else {
 							++ctx.ghostIndex;
 						}
@@ -146,7 +151,7 @@ public class MsPacManIntro extends Fsm<MsPacManIntro.State, MsPacManIntro.Contex
 				if (ctx.msPacMan.position().x() <= ctx.stopMsPacX) {
 					ctx.msPacMan.setPixelSpeed(0);
 					ctx.msPacMan.animations().ifPresent(Animations::resetSelected);
-					intro.changeState(State.READY_TO_PLAY);
+					ctx.intro.changeState(State.READY_TO_PLAY);
 				}
 			}
 		},
@@ -155,32 +160,30 @@ public class MsPacManIntro extends Fsm<MsPacManIntro.State, MsPacManIntro.Contex
 			@Override
 			public void onUpdate(MsPacManIntro.Context ctx) {
 				ctx.marqueeTimer.advance();
-				if (timer.atSecond(2.0) && !GameController.it().hasCredit()) {
-					GameController.it().changeState(GameState.READY);
+				if (ctx.intro.timer().atSecond(2.0) && !ctx.intro.gameController.hasCredit()) {
+					ctx.intro.gameController.changeState(GameState.READY);
 					// go into demo mode
-				} else if (timer.atSecond(5)) {
-					GameController.it().changeState(GameState.CREDIT);
+				} else if (ctx.intro.timer().atSecond(5)) {
+					ctx.intro.gameController.changeState(GameState.CREDIT);
 				}
 			}
 		};
-
-		MsPacManIntro intro;
-		final TickTimer timer = new TickTimer("Timer-" + name());
-
-		@Override
-		public TickTimer timer() {
-			return timer;
-		}
 	}
 
+	private final GameController gameController;
 	private final Context introData;
 
 	public MsPacManIntro() {
+		this(GameController.it());
+	}
+
+	/**
+	 * @param gameController the game controller (session) that is controlled by this intro
+	 */
+	public MsPacManIntro(GameController gameController) {
 		super(State.values());
-		for (var state : states) {
-			state.intro = this;
-		}
-		introData = new Context();
+		this.gameController = gameController;
+		introData = new Context(this);
 	}
 
 	@Override
@@ -37,6 +37,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 	}
 
 	public static class Context {
+		private final PacManIntro intro;
 		public float chaseSpeed = 1.1f;
 		public int leftTileX = 4;
 		public Pulse blinking = new Pulse(10, true);
@@ -47,7 +48,8 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 		public int ghostIndex;
 		public long ghostKilledTime;
 
-		public Context() {
+		private Context(PacManIntro intro) {
+			this.intro = intro;
 			ghostInfo[0] = new GhostInfo(GameModel.RED_GHOST,   "BLINKY","SHADOW");
 			ghostInfo[1] = new GhostInfo(GameModel.PINK_GHOST,  "PINKY", "SPEEDY");
 			ghostInfo[2] = new GhostInfo(GameModel.CYAN_GHOST,  "INKY",  "BASHFUL");
@@ -68,12 +70,12 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 		START {
 			@Override
 			public void onUpdate(Context ctx) {
-				if (timer.tick() == 2) {
+				if (ctx.intro.timer().tick() == 2) {
 					ctx.creditVisible = true;
-				} else if (timer.tick() == 3) {
+				} else if (ctx.intro.timer().tick() == 3) {
 					ctx.titleVisible = true;
-				} else if (timer.atSecond(1)) {
-					controller.changeState(State.PRESENTING_GHOSTS);
+				} else if (ctx.intro.timer().atSecond(1)) {
+					ctx.intro.changeState(State.PRESENTING_GHOSTS);
 				}
 			}
 		},
@@ -81,18 +83,18 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 		PRESENTING_GHOSTS {
 			@Override
 			public void onUpdate(Context ctx) {
-				if (timer.atSecond(0)) {
+				if (ctx.intro.timer().atSecond(0)) {
 					ctx.ghostInfo[ctx.ghostIndex].pictureVisible = true;
-				} else if (timer.atSecond(1.0)) {
+				} else if (ctx.intro.timer().atSecond(1.0)) {
 					ctx.ghostInfo[ctx.ghostIndex].characterVisible = true;
-				} else if (timer.atSecond(1.5)) {
+				} else if (ctx.intro.timer().atSecond(1.5)) {
 					ctx.ghostInfo[ctx.ghostIndex].nicknameVisible = true;
-				} else if (timer.atSecond(2.0)) {
+				} else if (ctx.intro.timer().atSecond(2.0)) {
 					if (++ctx.ghostIndex < 4) {
-						timer.resetIndefinitely();
+						ctx.intro.timer().resetIndefinitely();
 					}
-				} else if (timer.atSecond(2.5)) {
-					controller.changeState(State.SHOWING_POINTS);
+				} else if (ctx.intro.timer().atSecond(2.5)) {
+					ctx.intro.changeState(State.SHOWING_POINTS);
 				}
 			}
 		},
@@ -105,8 +107,8 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 
 			@Override
 			public void onUpdate(Context ctx) {
-				if (timer.atSecond(1)) {
-					controller.changeState(State.CHASING_PAC);
+				if (ctx.intro.timer().atSecond(1)) {
+					ctx.intro.changeState(State.CHASING_PAC);
 				}
 			}
 		},
@@ -114,7 +116,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 		CHASING_PAC {
 			@Override
 			public void onEnter(Context ctx) {
-				timer.restartIndefinitely();
+				ctx.intro.timer().restartIndefinitely();
 				ctx.pacMan.setPosition(TS * 36, TS * 20);
 				ctx.pacMan.setMoveDir(Direction.LEFT);
 				ctx.pacMan.setPixelSpeed(ctx.chaseSpeed);
@@ -134,12 +136,12 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 
 			@Override
 			public void onUpdate(Context ctx) {
-				if (timer.atSecond(1)) {
+				if (ctx.intro.timer().atSecond(1)) {
 					ctx.blinking.start();
 				}
 				// Pac-Man reaches the energizer at the left and turns
 				if (ctx.pacMan.position().x() <= TS * ctx.leftTileX) {
-					controller.changeState(State.CHASING_GHOSTS);
+					ctx.intro.changeState(State.CHASING_GHOSTS);
 				}
 				// Ghosts already reverse direction before Pac-Man eats the energizer and turns!
 				else if (ctx.pacMan.position().x() <= TS * ctx.leftTileX + HTS) {
@@ -163,8 +165,8 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 		CHASING_GHOSTS {
 			@Override
 			public void onEnter(Context ctx) {
-				timer.restartIndefinitely();
-				ctx.ghostKilledTime = timer.tick();
+				ctx.intro.timer().restartIndefinitely();
+				ctx.ghostKilledTime = ctx.intro.timer().tick();
 				ctx.pacMan.setMoveDir(Direction.RIGHT);
 				ctx.pacMan.setPixelSpeed(ctx.chaseSpeed);
 			}
@@ -173,7 +175,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 			public void onUpdate(Context ctx) {
 				if (ctx.ghosts().allMatch(ghost -> ghost.is(GhostState.EATEN))) {
 					ctx.pacMan.hide();
-					controller.changeState(READY_TO_PLAY);
+					ctx.intro.changeState(READY_TO_PLAY);
 					return;
 				}
 				var nextVictim = ctx.ghosts()//
@@ -182,7 +184,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 						.findFirst();
 				nextVictim.ifPresent(victim -> {
 					victim.setKilledIndex(victim.id());
-					ctx.ghostKilledTime = timer.tick();
+					ctx.ghostKilledTime = ctx.intro.timer().tick();
 					victim.enterStateEaten();
 					ctx.pacMan.hide();
 					ctx.pacMan.setPixelSpeed(0);
@@ -193,7 +195,7 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 				});
 
 				// After ??? sec, Pac-Man and the surviving ghosts get visible again and move on
-				if (timer.tick() - ctx.ghostKilledTime == timer.secToTicks(0.9)) {
+				if (ctx.intro.timer().tick() - ctx.ghostKilledTime == ctx.intro.timer().secToTicks(0.9)) {
 					ctx.pacMan.show();
 					ctx.pacMan.setPixelSpeed(ctx.chaseSpeed);
 					ctx.ghosts().forEach(ghost -> {
@@ -215,36 +217,34 @@ public class PacManIntro extends Fsm<PacManIntro.State, PacManIntro.Context> {
 		READY_TO_PLAY {
 			@Override
 			public void onUpdate(Context ctx) {
-				if (timer.atSecond(0.75)) {
+				if (ctx.intro.timer().atSecond(0.75)) {
 					ctx.ghostInfo[3].ghost.hide();
-					if (!GameController.it().hasCredit()) {
-						GameController.it().changeState(GameState.READY);
+					if (!ctx.intro.gameController.hasCredit()) {
+						ctx.intro.gameController.changeState(GameState.READY);
 						return;
 					}
 				}
-				else if (timer.atSecond(5)) {
-					GameController.it().changeState(GameState.CREDIT);
+				else if (ctx.intro.timer().atSecond(5)) {
+					ctx.intro.gameController.changeState(GameState.CREDIT);
 				}
 			}
 		};
-
-		PacManIntro controller;
-		final TickTimer timer = new TickTimer("Timer-" + name());
-
-		@Override
-		public TickTimer timer() {
-			return timer;
-		}
 	}
 
+	private final GameController gameController;
 	private final Context introData;
 
 	public PacManIntro() {
+		this(GameController.it());
+	}
+
+	/**
+	 * @param gameController the game controller (session) that is controlled by this intro
+	 */
+	public PacManIntro(GameController gameController) {
 		super(State.values());
-		for (var state : states) {
-			state.controller = this;
-		}
-		introData = new Context();
+		this.gameController = gameController;
+		introData = new Context(this);
 	}
 
 	@Override
@@ -0,0 +1,53 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.event;
+
+import java.util.List;
+
+/**
+ * The game events published during one frame, delivered by a {@link GameEventBus}.
+ *
+ * @author Armin Reichert
+ */
+public final class GameEventBatch {
+
+	private final long frame;
+	private final List<GameEvent> events;
+
+	GameEventBatch(long frame, List<GameEvent> events) {
+		this.frame = frame;
+		this.events = events;
+	}
+
+	/**
+	 * @return number of the frame in which the events were published (counted by the bus, starting with 0)
+	 */
+	public long frame() {
+		return frame;
+	}
+
+	/**
+	 * @return the events in publishing order
+	 */
+	public List<GameEvent> events() {
+		return events;
+	}
+
+	/**
+	 * Passes all events of this batch to the given listener.
+	 *
+	 * @param listener game event listener
+	 */
+	public void dispatchTo(GameEventListener listener) {
+		for (var event : events) {
+			listener.onGameEvent(event);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "GameEventBatch[frame=" + frame + ", events=" + events.size() + "]";
+	}
+}
@@ -0,0 +1,261 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.event;
+
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameModel;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+import static de.amr.games.pacman.lib.Globals.v2i;
+
+/**
+ * Asynchronous game event dispatch.
+ * <p>
+ * The simulation thread writes events as primitive codes (type, packed tile, states) into a preallocated ring buffer
+ * and never blocks: if the ring buffer is full, the event is dropped and counted. At the end of each frame the events
+ * of the frame are committed as one batch. A consumer thread decodes the batches and publishes them to the subscribers
+ * of this publisher. Each subscriber gets its own buffer and receives batches only as requested (backpressure), batches
+ * that do not fit into the buffer of a slow subscriber are dropped and counted too.
+ * <p>
+ * Optionally, events of given types are coalesced: inside a batch only the last event of such a type is kept.
+ *
+ * @author Armin Reichert
+ */
+public class GameEventBus implements Flow.Publisher<GameEventBatch>, AutoCloseable {
+
+	/*
+	 * Event code layout (from least significant bit): type ordinal (8 bits), has tile (1), tile x (16, signed), tile y
+	 * (16, signed), old state ordinal + 1 (8), new state ordinal + 1 (8). A code with type bits 0xFF marks a frame end.
+	 */
+	private static final long TYPE_MASK = 0xFF;
+	private static final long FRAME_END = 0xFF;
+	private static final long HAS_TILE = 1L << 8;
+	private static final GameEventType[] TYPES = GameEventType.values();
+	private static final GameState[] STATES = GameState.values();
+
+	private static long encode(GameEventType type, Vector2i tile, GameState oldState, GameState newState) {
+		long code = type.ordinal();
+		if (tile != null) {
+			code |= HAS_TILE | (tile.x() & 0xFFFFL) << 9 | (tile.y() & 0xFFFFL) << 25;
+		}
+		if (oldState != null) {
+			code |= (oldState.ordinal() + 1L) << 41;
+		}
+		if (newState != null) {
+			code |= (newState.ordinal() + 1L) << 49;
+		}
+		return code;
+	}
+
+	private static GameEvent decode(long code, GameModel game) {
+		var type = TYPES[(int) (code & TYPE_MASK)];
+		if (type == GameEventType.GAME_STATE_CHANGED) {
+			int oldState = (int) (code >>> 41 & 0xFF) - 1;
+			int newState = (int) (code >>> 49 & 0xFF) - 1;
+			return new GameStateChangeEvent(game, oldState >= 0 ? STATES[oldState] : null,
+					newState >= 0 ? STATES[newState] : null);
+		}
+		Vector2i tile = null;
+		if ((code & HAS_TILE) != 0) {
+			tile = v2i((short) (code >>> 9), (short) (code >>> 25));
+		}
+		return new GameEvent(type, game, tile);
+	}
+
+	private final long[] codes;
+	private final GameModel[] games;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong(); // next slot read by consumer
+	private final AtomicLong committed = new AtomicLong(); // slots up to here can be read by consumer
+	private final AtomicLong droppedEvents = new AtomicLong();
+	private final AtomicLong droppedBatches = new AtomicLong();
+	private final Set<GameEventType> coalescedTypes;
+	private final SubmissionPublisher<GameEventBatch> publisher;
+	private final Thread consumer;
+	private long writeIndex; // only accessed by producer
+	private long frame; // only accessed by producer
+	private volatile boolean closed;
+
+	/**
+	 * @param capacity       ring buffer capacity (rounded up to a power of two, at least 2)
+	 * @param bufferSize     maximum number of batches buffered for each subscriber
+	 * @param coalescedTypes event types where only the last event of a frame is delivered
+	 */
+	public GameEventBus(int capacity, int bufferSize, Set<GameEventType> coalescedTypes) {
+		if (capacity < 2) {
+			throw new IllegalArgumentException("Capacity must be at least 2 but is " + capacity);
+		}
+		checkNotNull(coalescedTypes);
+		int size = Integer.highestOneBit(capacity - 1) << 1;
+		codes = new long[size];
+		games = new GameModel[size];
+		mask = size - 1;
+		this.coalescedTypes = coalescedTypes.isEmpty() ? EnumSet.noneOf(GameEventType.class)
+				: EnumSet.copyOf(coalescedTypes);
+		// batches are handed to the subscribers by the consumer thread (or the thread requesting more batches)
+		publisher = new SubmissionPublisher<>(Runnable::run, bufferSize);
+		consumer = new Thread(this::consume, "GameEventBus");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	/**
+	 * Creates a bus without coalescing.
+	 *
+	 * @param capacity ring buffer capacity
+	 */
+	public GameEventBus(int capacity) {
+		this(capacity, Flow.defaultBufferSize(), Set.of());
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super GameEventBatch> subscriber) {
+		publisher.subscribe(subscriber);
+	}
+
+	/**
+	 * @return number of events dropped because the ring buffer was full
+	 */
+	public long droppedEvents() {
+		return droppedEvents.get();
+	}
+
+	/**
+	 * @return number of batches dropped because the buffer of a subscriber was full
+	 */
+	public long droppedBatches() {
+		return droppedBatches.get();
+	}
+
+	// Producer side, must be called from a single thread (see GameController#setEventBus)
+
+	/**
+	 * Adds an event to the current frame's batch. Never blocks.
+	 *
+	 * @param game game model
+	 * @param type event type
+	 * @param tile tile or <code>null</code>
+	 */
+	public void offer(GameModel game, GameEventType type, Vector2i tile) {
+		put(game, encode(type, tile, null, null));
+	}
+
+	/**
+	 * Adds a state change event to the current frame's batch. Never blocks.
+	 *
+	 * @param game     game model
+	 * @param oldState old state
+	 * @param newState new state
+	 */
+	public void offerStateChange(GameModel game, GameState oldState, GameState newState) {
+		put(game, encode(GameEventType.GAME_STATE_CHANGED, null, oldState, newState));
+	}
+
+	private void put(GameModel game, long code) {
+		// one slot is kept free for the frame end marker
+		if (closed || writeIndex - head.get() >= codes.length - 1) {
+			droppedEvents.incrementAndGet();
+			return;
+		}
+		int slot = (int) (writeIndex & mask);
+		codes[slot] = code;
+		games[slot] = game;
+		++writeIndex;
+	}
+
+	/**
+	 * Commits the events of the current frame as one batch. Never blocks.
+	 */
+	public void endFrame() {
+		long frameNumber = frame++;
+		if (writeIndex == committed.get() || writeIndex - head.get() >= codes.length) {
+			return; // no events in this frame or no room for marker (events go into the next batch)
+		}
+		int slot = (int) (writeIndex & mask);
+		codes[slot] = frameNumber << 8 | FRAME_END;
+		games[slot] = null;
+		++writeIndex;
+		committed.lazySet(writeIndex);
+		LockSupport.unpark(consumer);
+	}
+
+	// Consumer side
+
+	private void consume() {
+		var events = new ArrayList<GameEvent>();
+		while (!closed) {
+			long readIndex = head.get();
+			long end = committed.get();
+			if (readIndex == end) {
+				LockSupport.park(this);
+				continue;
+			}
+			while (readIndex < end) {
+				int slot = (int) (readIndex & mask);
+				long code = codes[slot];
+				var game = games[slot];
+				games[slot] = null;
+				++readIndex;
+				if ((code & TYPE_MASK) == FRAME_END) {
+					head.lazySet(readIndex);
+					deliver(code >>> 8, events);
+					events = new ArrayList<>();
+				} else {
+					events.add(decode(code, game));
+				}
+			}
+		}
+		publisher.close();
+	}
+
+	private void deliver(long frameNumber, List<GameEvent> events) {
+		if (!coalescedTypes.isEmpty()) {
+			coalesce(events);
+		}
+		publisher.offer(new GameEventBatch(frameNumber, events), (subscriber, batch) -> {
+			droppedBatches.incrementAndGet();
+			Logger.trace("Game event batch {} dropped for subscriber {}", batch, subscriber);
+			return false;
+		});
+	}
+
+	private void coalesce(List<GameEvent> events) {
+		var seen = EnumSet.noneOf(GameEventType.class);
+		for (int i = events.size() - 1; i >= 0; --i) {
+			var type = events.get(i).type;
+			if (coalescedTypes.contains(type) && !seen.add(type)) {
+				events.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Stops the consumer thread after the committed batches have been delivered and completes all subscriptions.
+	 */
+	@Override
+	public void close() {
+		while (head.get() != committed.get() && consumer.isAlive()) {
+			Thread.onSpinWait();
+		}
+		closed = true;
+		LockSupport.unpark(consumer);
+		try {
+			consumer.join();
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.event;
+
+import org.tinylog.Logger;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Game event listeners indexed by event type.
+ * <p>
+ * For each event type, the registry keeps a snapshot array of the interested listeners. Registration copies the
+ * affected arrays and publishes a new map (copy-on-write), so listeners can be added or removed from any thread while
+ * events are dispatched. Dispatching only reads the current snapshot and does not allocate.
+ *
+ * @author Armin Reichert
+ */
+public final class GameEventListenerRegistry {
+
+	private static final GameEventListener[] NO_LISTENERS = new GameEventListener[0];
+	private static final GameEventType[] TYPES = GameEventType.values();
+
+	private volatile EnumMap<GameEventType, GameEventListener[]> listenersByType;
+
+	public GameEventListenerRegistry() {
+		var map = new EnumMap<GameEventType, GameEventListener[]>(GameEventType.class);
+		for (var type : TYPES) {
+			map.put(type, NO_LISTENERS);
+		}
+		listenersByType = map;
+	}
+
+	/**
+	 * Adds a listener for all event types.
+	 *
+	 * @param listener game event listener
+	 */
+	public void add(GameEventListener listener) {
+		add(listener, TYPES);
+	}
+
+	/**
+	 * Adds a listener for the given event types. A listener is called at most once per event, even if registered more
+	 * than once.
+	 *
+	 * @param listener game event listener
+	 * @param types    event types the listener is interested in
+	 */
+	public synchronized void add(GameEventListener listener, GameEventType... types) {
+		checkNotNull(listener);
+		checkNotNull(types);
+		var map = new EnumMap<>(listenersByType);
+		for (var type : types) {
+			checkNotNull(type);
+			var listeners = map.get(type);
+			if (indexOf(listeners, listener) == -1) {
+				var extended = Arrays.copyOf(listeners, listeners.length + 1);
+				extended[listeners.length] = listener;
+				map.put(type, extended);
+			}
+		}
+		listenersByType = map;
+	}
+
+	/**
+	 * Removes the listener for all event types.
+	 *
+	 * @param listener game event listener
+	 */
+	public synchronized void remove(GameEventListener listener) {
+		checkNotNull(listener);
+		var map = new EnumMap<>(listenersByType);
+		for (var type : TYPES) {
+			var listeners = map.get(type);
+			int index = indexOf(listeners, listener);
+			if (index != -1) {
+				var reduced = listeners.length == 1 ? NO_LISTENERS : new GameEventListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, reduced, 0, index);
+				System.arraycopy(listeners, index + 1, reduced, index, listeners.length - index - 1);
+				map.put(type, reduced);
+			}
+		}
+		listenersByType = map;
+	}
+
+	/**
+	 * @param type event type
+	 * @return if any listener is interested in events of the given type
+	 */
+	public boolean hasListeners(GameEventType type) {
+		return listenersByType.get(type).length > 0;
+	}
+
+	/**
+	 * @param type event type
+	 * @return number of listeners interested in events of the given type
+	 */
+	public int numListeners(GameEventType type) {
+		return listenersByType.get(type).length;
+	}
+
+	/**
+	 * Passes the event to all listeners interested in its type, in registration order.
+	 *
+	 * @param event game event
+	 */
+	public void dispatch(GameEvent event) {
+		var listeners = listenersByType.get(event.type);
+		if (listeners.length > 0) {
+			Logger.trace("Publish game event: {}", event);
+			for (var listener : listeners) {
+				listener.onGameEvent(event);
+			}
+		}
+	}
+
+	private static int indexOf(GameEventListener[] listeners, GameEventListener listener) {
+		for (int i = 0; i < listeners.length; ++i) {
+			if (listeners[i] == listener) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -26,4 +26,11 @@ public enum GameEventType {
   STOP_ALL_SOUNDS,
 
   UNSPECIFIED_CHANGE;
+
+  /**
+   * @return if this event is only of interest for a user interface and is not published by headless sessions
+   */
+  public boolean isPresentationOnly() {
+    return this == STOP_ALL_SOUNDS;
+  }
 }
\ No newline at end of file
@@ -7,7 +7,7 @@ package de.amr.games.pacman.lib;
 import de.amr.games.pacman.lib.TickTimer.State;
 import org.tinylog.Logger;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * A finite-state machine.
@@ -17,6 +17,9 @@ import java.util.ArrayList;
  * <p>
  * State transitions are defined dynamically via the {@link #changeState} method calls. Each state change triggers an
  * event.
+ * <p>
+ * The state timers are owned by the FSM instance, not by the (shared) enum constants, so any number of instances using
+ * the same state enumeration can run independently of each other.
  * 
  * @param <S> "State". Enumeration type providing the states of this FSM.
  * @param <C> "Context". Type of the data provided to the state lifecycle methods {@link FsmState#onEnter},
@@ -24,16 +27,22 @@ import java.util.ArrayList;
  * 
  * @author Armin Reichert
  */
-public abstract class Fsm<S extends FsmState<C>, C> {
+public abstract class Fsm<S extends Enum<S> & FsmState<C>, C> {
 
-	protected final ArrayList<FsmStateChangeListener<S>> subscribers = new ArrayList<>(5);
+	@SuppressWarnings("unchecked")
+	private volatile FsmStateChangeListener<S>[] stateChangeListeners = new FsmStateChangeListener[0];
 	protected final S[] states;
+	protected final TickTimer[] timers;
 	protected S currentState;
 	protected S prevState;
 	protected String name = getClass().getSimpleName();
 
 	protected Fsm(S[] states) {
 		this.states = states;
+		timers = new TickTimer[states.length];
+		for (S state : states) {
+			timers[state.ordinal()] = new TickTimer("Timer-" + state.name());
+		}
 	}
 
 	public void setName(String name) {
@@ -65,12 +74,30 @@ public abstract class Fsm<S extends FsmState<C>, C> {
 	}
 
 	/**
-	 * Adds a state change listener.
+	 * @return the timer of the current state
+	 */
+	public TickTimer timer() {
+		return timers[currentState.ordinal()];
+	}
+
+	/**
+	 * @param state a state of this FSM
+	 * @return the timer of the given state
+	 */
+	public TickTimer timer(S state) {
+		return timers[state.ordinal()];
+	}
+
+	/**
+	 * Adds a state change listener. Listeners are stored in a copy-on-write array, so they can be added and removed from
+	 * any thread while the state machine is running.
 	 * 
 	 * @param listener a state change listener
 	 */
 	public synchronized void addStateChangeListener(FsmStateChangeListener<S> listener) {
-		subscribers.add(listener);
+		var listeners = Arrays.copyOf(stateChangeListeners, stateChangeListeners.length + 1);
+		listeners[listeners.length - 1] = listener;
+		stateChangeListeners = listeners;
 	}
 
 	/**
@@ -79,15 +106,23 @@ public abstract class Fsm<S extends FsmState<C>, C> {
 	 * @param listener a state change listener
 	 */
 	public synchronized void removeStateChangeListener(FsmStateChangeListener<S> listener) {
-		subscribers.remove(listener);
+		var listeners = stateChangeListeners;
+		for (int i = 0; i < listeners.length; ++i) {
+			if (listeners[i] == listener) {
+				var reduced = Arrays.copyOf(listeners, listeners.length - 1);
+				System.arraycopy(listeners, i + 1, reduced, i, listeners.length - i - 1);
+				stateChangeListeners = reduced;
+				return;
+			}
+		}
 	}
 
 	/**
 	 * Resets the timer of each state to {@link TickTimer#INDEFINITE}.
 	 */
 	public void resetTimers() {
-		for (S state : states) {
-			state.timer().resetIndefinitely();
+		for (var timer : timers) {
+			timer.resetIndefinitely();
 		}
 	}
 
@@ -107,7 +142,7 @@ public abstract class Fsm<S extends FsmState<C>, C> {
 	 * Lets the timer of the current game state expire.
 	 */
 	public void terminateCurrentState() {
-		state().timer().expire();
+		timer().expire();
 	}
 
 	/**
@@ -127,15 +162,17 @@ public abstract class Fsm<S extends FsmState<C>, C> {
 		C context = context();
 		if (currentState != null) {
 			currentState.onExit(context);
-			Logger.trace("Exit  state {} timer={}", currentState, currentState.timer());
+			Logger.trace("Exit  state {} timer={}", currentState, timer());
 		}
 		prevState = currentState;
 		currentState = newState;
-		currentState.timer().resetIndefinitely();
-		Logger.trace("Enter state {} timer={}", currentState, currentState.timer());
+		timer().resetIndefinitely();
+		Logger.trace("Enter state {} timer={}", currentState, timer());
 		currentState.onEnter(context);
-		Logger.trace("After Enter state {} timer={}", currentState, currentState.timer());
-		subscribers.forEach(listener -> listener.onStateChange(prevState, currentState));
+		Logger.trace("After Enter state {} timer={}", currentState, timer());
+		for (var listener : stateChangeListeners) {
+			listener.onStateChange(prevState, currentState);
+		}
 	}
 
 	public void clearState() {
@@ -149,7 +186,7 @@ public abstract class Fsm<S extends FsmState<C>, C> {
 		if (prevState == null) {
 			throw new IllegalStateException("State machine cannot resume previous state because there is none");
 		}
-		Logger.trace("Resume state {}, timer= {}", prevState, prevState.timer());
+		Logger.trace("Resume state {}, timer= {}", prevState, timer(prevState));
 		changeState(prevState);
 	}
 
@@ -162,13 +199,14 @@ public abstract class Fsm<S extends FsmState<C>, C> {
 		try {
 			currentState.onUpdate(context());
 		} catch (Exception x) {
-			Logger.trace("Error updating state {}, timer={}", currentState, currentState.timer());
+			Logger.trace("Error updating state {}, timer={}", currentState, timer());
 			x.printStackTrace();
 		}
-		if (currentState.timer().state() == State.READY) {
-			currentState.timer().start();
+		var timer = timer();
+		if (timer.state() == State.READY) {
+			timer.start();
 		} else {
-			currentState.timer().advance();
+			timer.advance();
 		}
 	}
 }
\ No newline at end of file
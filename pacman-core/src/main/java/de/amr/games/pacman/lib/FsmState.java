@@ -5,7 +5,8 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.lib;
 
 /**
- * Interface implemented by all states (enums) of a FSM. Each state has a timer and a reference to its FSM.
+ * Interface implemented by all states (enums) of a FSM. The state timers are provided by the FSM, see
+ * {@link Fsm#timer()}.
  *
  * @param <C> the (context) type that the hook methods {@link #onEnter(C)}, {@link #onUpdate(C)}, {@link #onExit(C)} get
  *            passed as parameter
@@ -35,9 +36,4 @@ public interface FsmState<C> {
 	 */
 	default void onExit(C context) {
 	}
-
-	/**
-	 * @return the timer of this state
-	 */
-	TickTimer timer();
 }
\ No newline at end of file
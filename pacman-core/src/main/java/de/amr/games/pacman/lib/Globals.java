@@ -9,6 +9,7 @@ import de.amr.games.pacman.model.*;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.Random;
+import java.util.random.RandomGenerator;
 import java.util.stream.Stream;
 
 /**
@@ -22,6 +23,10 @@ public class Globals {
 	/** Half tile size (4px). */
 	public static final int HTS = 4;
 
+	/**
+	 * Shared random generator for code outside of the simulation (e.g. user interface effects). The game model uses its
+	 * own, seedable generator, see {@link GameModel#random()}.
+	 */
 	public static final Random RND = new Random();
 
 	private static final String MSG_GAME_NULL = "Game model must not be null";
@@ -30,7 +35,7 @@ public class Globals {
 	private static final String MSG_DIR_NULL = "Direction must not be null";
 
 	public static Vector2i v2i(int x, int y) {
-		return new Vector2i(x, y);
+		return Vector2i.of(x, y);
 	}
 
 	public static Vector2f v2f(double x, double y) {
@@ -128,12 +133,23 @@ public class Globals {
 	 *         guarantee <code>a<=b</code>
 	 */
 	public static int randomInt(int a, int b) {
+		return randomInt(RND, a, b);
+	}
+
+	/**
+	 * @param rnd random generator
+	 * @param a   left interval bound
+	 * @param b   right interval bound
+	 * @return Random integer number from right-open interval <code>[a; b[</code>. Interval bounds are rearranged to
+	 *         guarantee <code>a<=b</code>
+	 */
+	public static int randomInt(RandomGenerator rnd, int a, int b) {
 		if (a > b) {
 			var tmp = a;
 			a = b;
 			b = tmp;
 		}
-		return a + RND.nextInt(b - a);
+		return a + rnd.nextInt(b - a);
 	}
 
 	/**
@@ -143,12 +159,23 @@ public class Globals {
 	 *         to guarantee <code>a<=b</code>
 	 */
 	public static float randomFloat(float a, float b) {
+		return randomFloat(RND, a, b);
+	}
+
+	/**
+	 * @param rnd random generator
+	 * @param a   left interval bound
+	 * @param b   right interval bound
+	 * @return Random floating-point number from right-open interval <code>[a; b[</code>. Interval bounds are rearranged
+	 *         to guarantee <code>a<=b</code>
+	 */
+	public static float randomFloat(RandomGenerator rnd, float a, float b) {
 		if (a > b) {
 			var tmp = a;
 			a = b;
 			b = tmp;
 		}
-		return a + (b - a) * RND.nextFloat();
+		return a + (b - a) * rnd.nextFloat();
 	}
 
 	/**
@@ -158,12 +185,23 @@ public class Globals {
 	 *         are rearranged to guarantee <code>a<=b</code>
 	 */
 	public static double randomDouble(double a, double b) {
+		return randomDouble(RND, a, b);
+	}
+
+	/**
+	 * @param rnd random generator
+	 * @param a   left interval bound
+	 * @param b   right interval bound
+	 * @return Random double-precision floating-point number from right-open interval <code>[a; b[</code>. Interval bounds
+	 *         are rearranged to guarantee <code>a<=b</code>
+	 */
+	public static double randomDouble(RandomGenerator rnd, double a, double b) {
 		if (a > b) {
 			var tmp = a;
 			a = b;
 			b = tmp;
 		}
-		return a + (b - a) * RND.nextDouble();
+		return a + (b - a) * rnd.nextDouble();
 	}
 
 	public static boolean inPercentOfCases(int percent) {
@@ -0,0 +1,386 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.lib;
+
+import de.amr.games.pacman.controller.Steering;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.actors.Creature;
+import de.amr.games.pacman.model.actors.Ghost;
+import de.amr.games.pacman.model.actors.GhostState;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pac-Man steering by Monte Carlo tree search.
+ * <p>
+ * A decision is made when Pac-Man enters an intersection, is blocked or a hunting ghost is near. For the time budget
+ * of a decision, parallel searches run on a work-stealing pool, each on its own fork of the level (see
+ * {@link GameLevel#fork(long)}). A search builds a tree of direction choices at the following decision points, each
+ * iteration replays the choices of one tree path on a new fork and continues with random choices until Pac-Man gets
+ * killed, the level is completed or the look-ahead horizon is reached. Eaten food and ghosts are rewarded, getting
+ * killed is punished. The direction chosen most often by all searches becomes Pac-Man's wish direction.
+ *
+ * @author Armin Reichert
+ */
+public class MctsSteering extends Steering {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final float DANGER_DISTANCE = 5; // tiles
+	private static final double POINTS_FOR_MAX_REWARD = 500;
+
+	private final ForkJoinPool pool;
+	private final int parallelism;
+	private long timeBudgetNanos = 10_000_000;
+	private int maxIterations = Integer.MAX_VALUE;
+	private int horizonFrames = 180;
+	private double exploration = 0.7;
+	private int lastIterations;
+
+	/**
+	 * @param parallelism number of searches running in parallel
+	 */
+	public MctsSteering(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+		}
+		this.parallelism = parallelism;
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Creates a steering using all available processors.
+	 */
+	public MctsSteering() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public int parallelism() {
+		return parallelism;
+	}
+
+	/** @return time budget of a decision in milliseconds */
+	public double timeBudgetMillis() {
+		return timeBudgetNanos / 1e6;
+	}
+
+	/**
+	 * @param millis time budget of a decision in milliseconds, a decision should not take longer than a frame
+	 */
+	public void setTimeBudgetMillis(double millis) {
+		if (millis <= 0) {
+			throw new IllegalArgumentException("Time budget must be positive but is " + millis);
+		}
+		timeBudgetNanos = (long) (millis * 1e6);
+	}
+
+	public int maxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * @param maxIterations maximum number of iterations of a decision (summed over all searches). With a time budget
+	 *                      that is never reached, decisions are reproducible.
+	 */
+	public void setMaxIterations(int maxIterations) {
+		if (maxIterations <= 0) {
+			throw new IllegalArgumentException("Max iterations must be positive but is " + maxIterations);
+		}
+		this.maxIterations = maxIterations;
+	}
+
+	public int horizonFrames() {
+		return horizonFrames;
+	}
+
+	/**
+	 * @param horizonFrames number of frames simulated by a search iteration at most
+	 */
+	public void setHorizonFrames(int horizonFrames) {
+		if (horizonFrames <= 0) {
+			throw new IllegalArgumentException("Horizon must be positive but is " + horizonFrames);
+		}
+		this.horizonFrames = horizonFrames;
+	}
+
+	/**
+	 * @param exploration weight of the exploration term of the UCT formula
+	 */
+	public void setExploration(double exploration) {
+		this.exploration = exploration;
+	}
+
+	/** @return number of search iterations of the last decision */
+	public int lastIterations() {
+		return lastIterations;
+	}
+
+	@Override
+	public void steer(GameLevel level, Creature guy) {
+		if (guy.moved() && !guy.isNewTileEntered()) {
+			return;
+		}
+		var options = accessibleDirections(guy);
+		if (options.isEmpty()) {
+			return;
+		}
+		if (guy.moved() && !level.world().isIntersection(guy.tile()) && !isDangerNear(level, guy)) {
+			return;
+		}
+		if (options.size() == 1) {
+			guy.setWishDir(options.get(0));
+			return;
+		}
+		guy.setWishDir(decide(level, options));
+	}
+
+	/**
+	 * Runs the parallel searches for the current state of the level.
+	 *
+	 * @param level   game level
+	 * @param options directions Pac-Man can take
+	 * @return the best direction
+	 */
+	Direction decide(GameLevel level, List<Direction> options) {
+		long deadline = System.nanoTime() + timeBudgetNanos;
+		int iterationsPerSearch = Math.max(1, maxIterations / parallelism);
+		var searches = new ArrayList<Search>(parallelism);
+		for (int i = 0; i < parallelism; ++i) {
+			// forks are made here because forking marks the food of the source level as shared
+			long seed = level.game().pacSteeringRandom().nextLong();
+			searches.add(new Search(this, level.fork(seed), options, seed, deadline, iterationsPerSearch));
+		}
+		var tasks = searches.stream().map(pool::submit).toList();
+		var visits = new long[options.size()];
+		var rewards = new double[options.size()];
+		int iterations = 0;
+		for (var task : tasks) {
+			var root = task.join();
+			for (int i = 0; i < options.size(); ++i) {
+				var child = root.children[i];
+				if (child != null) {
+					visits[i] += child.visits;
+					rewards[i] += child.totalReward;
+				}
+			}
+			iterations += root.visits;
+		}
+		lastIterations = iterations;
+		int best = 0;
+		for (int i = 1; i < options.size(); ++i) {
+			if (visits[i] > visits[best] || visits[i] == visits[best] && rewards[i] > rewards[best]) {
+				best = i;
+			}
+		}
+		Logger.trace("MCTS decision {} after {} iterations at tile {}", options.get(best), iterations,
+				level.pac().tile());
+		return options.get(best);
+	}
+
+	private static List<Direction> accessibleDirections(Creature guy) {
+		var tile = guy.tile();
+		var dirs = new ArrayList<Direction>(4);
+		for (var dir : DIRECTIONS) {
+			if (guy.canAccessTile(tile.plus(dir.vector()))) {
+				dirs.add(dir);
+			}
+		}
+		return dirs;
+	}
+
+	private static boolean isDangerNear(GameLevel level, Creature guy) {
+		var tile = guy.tile();
+		return level.ghosts(GhostState.HUNTING_PAC)
+				.anyMatch(ghost -> ghost.tile().euclideanDistance(tile) < DANGER_DISTANCE);
+	}
+
+	private static final class Node {
+
+		Direction[] actions;
+		Node[] children;
+		int visits;
+		double totalReward;
+
+		Node(List<Direction> actions) {
+			setActions(actions);
+		}
+
+		Node() {
+		}
+
+		void setActions(List<Direction> actions) {
+			this.actions = actions.toArray(Direction[]::new);
+			children = new Node[this.actions.length];
+		}
+	}
+
+	/**
+	 * One search tree, built on the forks of a level by a single thread.
+	 */
+	private static final class Search implements Callable<Node> {
+
+		private final MctsSteering config;
+		private final GameLevel root;
+		private final Node rootNode;
+		private final SplittableRandom rnd;
+		private final long deadline;
+		private final int maxIterations;
+
+		// state of the current iteration
+		private GameLevel sim;
+		private int frames;
+		private int foodBefore;
+		private int ghostsEaten;
+		private boolean killed;
+		private boolean levelCompleted;
+		private boolean timeout;
+
+		Search(MctsSteering config, GameLevel root, List<Direction> options, long seed, long deadline, int maxIterations) {
+			this.config = config;
+			this.root = root;
+			this.rootNode = new Node(options);
+			this.rnd = new SplittableRandom(seed);
+			this.deadline = deadline;
+			this.maxIterations = maxIterations;
+		}
+
+		@Override
+		public Node call() {
+			do {
+				iterate();
+			} while (!timeout && rootNode.visits < maxIterations);
+			return rootNode;
+		}
+
+		private void iterate() {
+			sim = root.fork(rnd.nextLong());
+			frames = 0;
+			foodBefore = sim.world().uneatenFoodCount();
+			ghostsEaten = 0;
+			killed = false;
+			levelCompleted = false;
+
+			var path = new ArrayList<Node>();
+			var node = rootNode;
+			path.add(node);
+			// selection and expansion
+			while (!isTerminal()) {
+				if (node.actions == null) {
+					node.setActions(accessibleDirections(sim.pac()));
+				}
+				if (node.actions.length == 0) {
+					break;
+				}
+				int i = select(node);
+				boolean expanded = node.children[i] == null;
+				if (expanded) {
+					node.children[i] = new Node();
+				}
+				advance(node.actions[i]);
+				node = node.children[i];
+				path.add(node);
+				if (expanded) {
+					break;
+				}
+			}
+			// random playout
+			while (!isTerminal()) {
+				advance(randomDirection());
+			}
+			if (timeout) {
+				return; // incomplete iteration
+			}
+			double reward = reward();
+			for (var n : path) {
+				n.visits += 1;
+				n.totalReward += reward;
+			}
+		}
+
+		private int select(Node node) {
+			for (int i = 0; i < node.children.length; ++i) {
+				if (node.children[i] == null) {
+					return i;
+				}
+			}
+			double logVisits = Math.log(node.visits);
+			int best = 0;
+			double bestValue = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < node.children.length; ++i) {
+				var child = node.children[i];
+				double value = child.totalReward / child.visits + config.exploration * Math.sqrt(logVisits / child.visits);
+				if (value > bestValue) {
+					bestValue = value;
+					best = i;
+				}
+			}
+			return best;
+		}
+
+		private Direction randomDirection() {
+			var pac = sim.pac();
+			var dirs = accessibleDirections(pac);
+			if (dirs.size() > 1) {
+				dirs.remove(pac.moveDir().opposite());
+			}
+			return dirs.isEmpty() ? pac.moveDir() : dirs.get(rnd.nextInt(dirs.size()));
+		}
+
+		private boolean isTerminal() {
+			return killed || levelCompleted || timeout || frames >= config.horizonFrames;
+		}
+
+		/*
+		 * Moves towards the given direction until the next decision point.
+		 */
+		private void advance(Direction dir) {
+			var pac = sim.pac();
+			pac.setWishDir(dir);
+			do {
+				sim.simulateOneFrame();
+				++frames;
+				var frame = sim.thisFrame();
+				if (frame.levelCompleted) {
+					levelCompleted = true;
+				} else if (frame.pacKilled) {
+					killed = true;
+				} else if (!frame.pacPrey.isEmpty()) {
+					// no scoring, the reward counts the eaten ghosts
+					ghostsEaten += frame.pacPrey.size();
+					frame.pacPrey.forEach(Ghost::enterStateReturningToHouse);
+				}
+				// the first iteration is always completed
+				timeout = rootNode.visits > 0 && System.nanoTime() >= deadline;
+			} while (!isTerminal() && !isDecisionPoint());
+		}
+
+		private boolean isDecisionPoint() {
+			var pac = sim.pac();
+			if (!pac.moved()) {
+				return true;
+			}
+			return pac.isNewTileEntered() && (sim.world().isIntersection(pac.tile()) || isDangerNear(sim, pac));
+		}
+
+		/*
+		 * Reward in [0, 1]: getting killed gives less than surviving, the later the more. Surviving gives at least 0.5 and
+		 * more for eaten food and ghosts.
+		 */
+		private double reward() {
+			if (levelCompleted) {
+				return 1;
+			}
+			if (killed) {
+				return 0.25 * frames / config.horizonFrames;
+			}
+			int points = 10 * (foodBefore - sim.world().uneatenFoodCount()) + 200 * ghostsEaten;
+			return 0.5 + 0.5 * Math.min(1, points / POINTS_FOR_MAX_REWARD);
+		}
+	}
+}
@@ -63,7 +63,7 @@ public final class NavigationPoint {
 	}
 
 	public Vector2i tile() {
-		return new Vector2i(x, y);
+		return Vector2i.of(x, y);
 	}
 
 	@Override
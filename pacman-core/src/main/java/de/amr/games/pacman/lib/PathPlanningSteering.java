@@ -0,0 +1,329 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.lib;
+
+import de.amr.games.pacman.controller.Steering;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.actors.Creature;
+import de.amr.games.pacman.model.actors.GhostState;
+import de.amr.games.pacman.model.world.World;
+import org.tinylog.Logger;
+
+import java.util.Arrays;
+
+/**
+ * Steers a creature along a shortest path to its target tile (see {@link Creature#targetTile()}) through the maze
+ * accessible by Pac-Man.
+ * <p>
+ * The path is computed by A* search where entering a tile near a hunting ghost costs extra, the maze distance to the
+ * target (see {@link World#mazeDistance(int, int)}) is the heuristic. The path is kept across frames and only planned
+ * again if the target changes, the food on the target tile has been eaten, the creature left the path or a hunting
+ * ghost has entered the remaining path. Between these replans, steering is a lookup of the next path tile. Like the
+ * ghosts' navigation, a new path never starts by reversing the move direction, this avoids oscillating between two
+ * tiles when the ghosts move.
+ * <p>
+ * If the target tile is not accessible or not reachable, the creature navigates towards the target like a ghost (see
+ * {@link Creature#navigateTowardsTarget()}).
+ *
+ * @author Armin Reichert
+ */
+public class PathPlanningSteering extends Steering {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int NO_TILE = -1;
+
+	/** Maze distance (tiles) up to which a hunting ghost makes tiles more expensive. */
+	static final int DANGER_RADIUS = 6;
+
+	/** Extra cost of a tile next to a hunting ghost, decreasing linearly to 0 at {@link #DANGER_RADIUS}. */
+	static final int DANGER_COST = 24;
+
+	// search state, indexed by tile index
+	private World searchedWorld;
+	private int[] costSoFar;
+	private int[] parent;
+	private int[] visitedStamp;
+	private int stamp;
+	private final IntHeap open = new IntHeap();
+	private final int[] hunters = new int[4];
+
+	// planned path
+	private int[] path = new int[0];
+	private int pathLength;
+	private int pathPosition;
+	private int[] pathIndexOfTile; // tile index -> position on path + 1, 0 if not on path
+	private int goal = NO_TILE;
+	private boolean goalHadFood;
+	private int numReplans;
+
+	@Override
+	public void init() {
+		clearPath();
+		numReplans = 0;
+	}
+
+	/** @return number of path computations since creation or the last {@link #init()} */
+	public int numReplans() {
+		return numReplans;
+	}
+
+	/** @return if there is a planned path that has not been completed yet */
+	public boolean hasPath() {
+		return pathLength > 0;
+	}
+
+	@Override
+	public void steer(GameLevel level, Creature guy) {
+		if (guy.moved() && !guy.isNewTileEntered()) {
+			return;
+		}
+		var targetTile = guy.targetTile().orElse(null);
+		if (targetTile == null) {
+			clearPath();
+			return;
+		}
+		var world = level.world();
+		int current = world.index(guy.tile());
+		if (current == NO_TILE) {
+			return; // inside portal
+		}
+		int target = world.index(targetTile);
+		if (current == target) {
+			clearPath(); // target reached
+			return;
+		}
+		if (target == NO_TILE || !world.navigationGraph().isAccessible(target)
+				|| !world.navigationGraph().isAccessible(current)) {
+			clearPath();
+			guy.navigateTowardsTarget();
+			return;
+		}
+		if (world != searchedWorld) {
+			allocate(world);
+		}
+		// like the ghosts, a moving creature does not reverse when a new path is planned
+		var reverseDir = guy.moved() ? guy.moveDir().opposite() : null;
+		if (!isPathValid(level, current, target) && !plan(level, current, target, reverseDir)) {
+			guy.navigateTowardsTarget();
+			return;
+		}
+		int next = path[pathPosition + 1];
+		for (var dir : DIRECTIONS) {
+			if (world.neighbor(current, dir) == next) {
+				guy.setWishDir(dir);
+				return;
+			}
+		}
+	}
+
+	/*
+	 * Advances the path position to the current tile and checks if the path can still be used.
+	 */
+	private boolean isPathValid(GameLevel level, int current, int target) {
+		if (pathLength == 0 || goal != target) {
+			return false;
+		}
+		if (goalHadFood && !level.world().hasFoodAt(goal)) {
+			return false;
+		}
+		int position = pathIndexOfTile[current] - 1;
+		if (position < pathPosition) {
+			return false; // not on the remaining path
+		}
+		pathPosition = position;
+		for (byte id = 0; id < 4; ++id) {
+			var ghost = level.ghost(id);
+			if (ghost.is(GhostState.HUNTING_PAC)) {
+				int ghostTile = level.world().index(ghost.tile());
+				if (ghostTile != NO_TILE && pathIndexOfTile[ghostTile] - 1 > pathPosition) {
+					Logger.trace("{} entered planned path at tile {}", ghost.name(), ghost.tile());
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * A* search from the current to the target tile, the first move must not go into the forbidden direction.
+	 */
+	private boolean plan(GameLevel level, int source, int target, Direction forbidden) {
+		clearPath();
+		++numReplans;
+		var world = level.world();
+		var graph = world.navigationGraph();
+		int numHunters = 0;
+		for (byte id = 0; id < 4; ++id) {
+			var ghost = level.ghost(id);
+			int ghostTile = world.index(ghost.tile());
+			if (ghost.is(GhostState.HUNTING_PAC) && ghostTile != NO_TILE && graph.isAccessible(ghostTile)) {
+				hunters[numHunters++] = ghostTile;
+			}
+		}
+		if (++stamp == 0) {
+			Arrays.fill(visitedStamp, 0);
+			stamp = 1;
+		}
+		open.clear();
+		costSoFar[source] = 0;
+		parent[source] = NO_TILE;
+		visitedStamp[source] = stamp;
+		open.add(source, world.mazeDistance(source, target));
+		while (!open.isEmpty()) {
+			int current = open.removeMin();
+			if (current == target) {
+				storePath(level, target);
+				return true;
+			}
+			int currentCost = costSoFar[current];
+			if (open.lastKey() > currentCost + world.mazeDistance(current, target)) {
+				continue; // outdated heap entry
+			}
+			for (var dir : DIRECTIONS) {
+				if (current == source && dir == forbidden) {
+					continue;
+				}
+				int neighbor = world.neighbor(current, dir);
+				if (neighbor == NO_TILE || !graph.isAccessible(neighbor)) {
+					continue;
+				}
+				int cost = currentCost + 1 + dangerCost(world, numHunters, neighbor);
+				if (visitedStamp[neighbor] != stamp || cost < costSoFar[neighbor]) {
+					visitedStamp[neighbor] = stamp;
+					costSoFar[neighbor] = cost;
+					parent[neighbor] = current;
+					open.add(neighbor, cost + world.mazeDistance(neighbor, target));
+				}
+			}
+		}
+		return false;
+	}
+
+	private int dangerCost(World world, int numHunters, int tile) {
+		int cost = 0;
+		for (int i = 0; i < numHunters; ++i) {
+			int dist = world.mazeDistance(hunters[i], tile);
+			if (dist < DANGER_RADIUS) {
+				cost += DANGER_COST * (DANGER_RADIUS - dist) / DANGER_RADIUS;
+			}
+		}
+		return cost;
+	}
+
+	private void storePath(GameLevel level, int target) {
+		int length = 0;
+		for (int tile = target; tile != NO_TILE; tile = parent[tile]) {
+			++length;
+		}
+		if (path.length < length) {
+			path = new int[Math.max(length, 2 * path.length)];
+		}
+		int i = length;
+		for (int tile = target; tile != NO_TILE; tile = parent[tile]) {
+			path[--i] = tile;
+			pathIndexOfTile[tile] = i + 1;
+		}
+		pathLength = length;
+		pathPosition = 0;
+		goal = target;
+		goalHadFood = level.world().hasFoodAt(target);
+	}
+
+	private void clearPath() {
+		for (int i = 0; i < pathLength; ++i) {
+			pathIndexOfTile[path[i]] = 0;
+		}
+		pathLength = 0;
+		pathPosition = 0;
+		goal = NO_TILE;
+		goalHadFood = false;
+	}
+
+	private void allocate(World world) {
+		clearPath();
+		int numTiles = world.numCols() * world.numRows();
+		if (costSoFar == null || costSoFar.length != numTiles) {
+			costSoFar = new int[numTiles];
+			parent = new int[numTiles];
+			visitedStamp = new int[numTiles];
+			pathIndexOfTile = new int[numTiles];
+		} else {
+			Arrays.fill(visitedStamp, 0);
+		}
+		stamp = 0;
+		searchedWorld = world;
+	}
+
+	/**
+	 * Binary min-heap of tile indices with int keys. Decreasing a key adds another entry, outdated entries are skipped
+	 * when removed.
+	 */
+	private static final class IntHeap {
+
+		private int[] values = new int[64];
+		private int[] keys = new int[64];
+		private int size;
+		private int lastKey;
+
+		void clear() {
+			size = 0;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		/** @return key of the value removed last */
+		int lastKey() {
+			return lastKey;
+		}
+
+		void add(int value, int key) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, 2 * size);
+				keys = Arrays.copyOf(keys, 2 * size);
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >> 1;
+				if (keys[parent] <= key) {
+					break;
+				}
+				values[i] = values[parent];
+				keys[i] = keys[parent];
+				i = parent;
+			}
+			values[i] = value;
+			keys[i] = key;
+		}
+
+		int removeMin() {
+			int min = values[0];
+			lastKey = keys[0];
+			--size;
+			int value = values[size];
+			int key = keys[size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && keys[child + 1] < keys[child]) {
+					++child;
+				}
+				if (keys[child] >= key) {
+					break;
+				}
+				values[i] = values[child];
+				keys[i] = keys[child];
+				i = child;
+			}
+			values[i] = value;
+			keys[i] = key;
+			return min;
+		}
+	}
+}
@@ -28,6 +28,16 @@ public class Pulse {
 		this(Integer.MAX_VALUE, ticksPerFrame, startValue);
 	}
 
+	public Pulse(Pulse other) {
+		startValue = other.startValue;
+		ticksPerFrame = other.ticksPerFrame;
+		numFramesTotal = other.numFramesTotal;
+		value = other.value;
+		t = other.t;
+		frames = other.frames;
+		stopped = other.stopped;
+	}
+
 	public void reset() {
 		t = 0;
 		frames = 0;
@@ -7,12 +7,19 @@ package de.amr.games.pacman.lib;
 import de.amr.games.pacman.controller.Steering;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.actors.Creature;
+import de.amr.games.pacman.model.world.FlowField;
+import de.amr.games.pacman.model.world.WorldMap;
 import org.tinylog.Logger;
 
 import java.util.List;
 
 /**
  * Steering of a creature based on a route.
+ * <p>
+ * The route is compiled into one flow field per waypoint (see {@link WorldMap#flowField(Vector2i, boolean)}) when it
+ * is first followed on a map, so steering is a single lookup per tile and each waypoint is reached on a shortest way
+ * without reversing. Ways through a portal are only taken by creatures that can teleport. The flow fields are shared by
+ * all routes using the same waypoints on the same map.
  * 
  * @author Armin Reichert
  */
@@ -21,6 +28,9 @@ public class RouteBasedSteering extends Steering {
 	private List<NavigationPoint> route = List.of();
 	private int targetIndex;
 	private boolean complete;
+	private WorldMap compiledMap;
+	private boolean compiledTeleport;
+	private FlowField[] flowFields;
 
 	public RouteBasedSteering() {
 	}
@@ -29,8 +39,25 @@ public class RouteBasedSteering extends Steering {
 		setRoute(route);
 	}
 
+	/**
+	 * Creates a steering at the same position of the same route as the given steering.
+	 * 
+	 * @param other steering to copy
+	 */
+	public RouteBasedSteering(RouteBasedSteering other) {
+		route = other.route;
+		targetIndex = other.targetIndex;
+		complete = other.complete;
+		compiledMap = other.compiledMap;
+		compiledTeleport = other.compiledTeleport;
+		flowFields = other.flowFields;
+		setEnabled(other.isEnabled());
+	}
+
 	public void setRoute(List<NavigationPoint> route) {
 		this.route = route;
+		compiledMap = null;
+		flowFields = null;
 		init();
 	}
 
@@ -42,32 +69,61 @@ public class RouteBasedSteering extends Steering {
 
 	@Override
 	public void steer(GameLevel level, Creature guy) {
-		guy.navigateTowardsTarget();
 		if (targetIndex == route.size()) {
 			complete = true;
-		} else if (guy.targetTile().isEmpty()) {
+			return;
+		}
+		if (guy.targetTile().isEmpty()) {
 			guy.setTargetTile(currentTarget().tile());
-			guy.navigateTowardsTarget();
-			Logger.trace("New target tile for {}={}s", guy.name(), guy.targetTile().get());
+			Logger.trace("New target tile for {}={}", guy.name(), guy.targetTile().get());
 		} else if (guy.tile().equals(currentTarget().tile())) {
 			nextTarget(guy);
+			if (targetIndex == route.size()) {
+				return;
+			}
 			Logger.trace("New target tile for {}={}", guy.name(), guy.targetTile().get());
 		}
+		navigate(level, guy);
 	}
 
 	public boolean isComplete() {
 		return complete;
 	}
 
+	private void navigate(GameLevel level, Creature guy) {
+		if (!guy.isNewTileEntered() && guy.moved()) {
+			return;
+		}
+		var world = level.world();
+		int tileIndex = world.index(guy.tile());
+		if (tileIndex == -1) {
+			return; // inside portal, keep direction
+		}
+		var dir = flowField(world.map(), guy.canTeleport()).get(tileIndex, guy.moveDir());
+		if (dir != null) {
+			guy.setWishDir(dir);
+		} else {
+			guy.navigateTowardsTarget(); // waypoint not accessible by Pac-Man
+		}
+	}
+
+	private FlowField flowField(WorldMap map, boolean teleport) {
+		if (map != compiledMap || teleport != compiledTeleport) {
+			flowFields = route.stream().map(point -> map.flowField(point.tile(), teleport)).toArray(FlowField[]::new);
+			compiledMap = map;
+			compiledTeleport = teleport;
+		}
+		return flowFields[targetIndex];
+	}
+
 	private void nextTarget(Creature guy) {
 		++targetIndex;
 		if (targetIndex < route.size()) {
 			guy.setTargetTile(currentTarget().tile());
-			guy.navigateTowardsTarget();
 		}
 	}
 
 	private NavigationPoint currentTarget() {
 		return route.get(targetIndex);
 	}
-}
\ No newline at end of file
+}
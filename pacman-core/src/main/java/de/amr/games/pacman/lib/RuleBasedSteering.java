@@ -18,7 +18,8 @@ import java.util.stream.Collectors;
 import static de.amr.games.pacman.lib.Globals.tileAt;
 
 /**
- * Pac-Man steering based on a set of rules.
+ * Pac-Man steering based on a set of rules. The rules choose the target tile (frightened ghost, bonus or food), the way
+ * to the target is found by a {@link PathPlanningSteering}.
  * 
  * @author Armin Reichert
  */
@@ -63,9 +64,12 @@ public class RuleBasedSteering extends Steering {
 		}
 	}
 
+	private final PathPlanningSteering pathPlanning = new PathPlanningSteering();
+	private final ThreatField threatField = new ThreatField();
+
 	@Override
 	public void init() {
-		// nothing to do
+		pathPlanning.init();
 	}
 
 	@Override
@@ -73,6 +77,7 @@ public class RuleBasedSteering extends Steering {
 		if (guy.moved() && !guy.isNewTileEntered()) {
 			return;
 		}
+		threatField.update(level);
 		var data = collectData(level);
 		if (data.hunterAhead != null || data.hunterBehind != null || !data.frightenedGhosts.isEmpty()) {
 			Logger.trace("\n{}", data);
@@ -118,9 +123,15 @@ public class RuleBasedSteering extends Steering {
 			return;
 		}
 
-		// when not escaping ghost, keep move direction at least until next intersection
-		if (pac.moved() && !level.world().isIntersection(pac.tile()))
+		// when not escaping ghost, keep target at least until next intersection
+		if (pac.moved() && !level.world().isIntersection(pac.tile())) {
+			if (pathPlanning.hasPath()) {
+				pathPlanning.steer(level, pac);
+			} else {
+				pac.navigateTowardsTarget(); // target reached, follow the corridor
+			}
 			return;
+		}
 
 		if (!data.frightenedGhosts.isEmpty() && pac.powerTimer().remaining() >= 1 * 60) {
 			Ghost prey = data.frightenedGhosts.get(0);
@@ -133,10 +144,10 @@ public class RuleBasedSteering extends Steering {
 				pac.setTargetTile(tileAt(bonus.entity().position()));
 			});
 		} else {
-			Vector2i foodTile = findTileFarestFromGhosts(level, findNearestFoodTiles(level));
+			Vector2i foodTile = findTileFarestFromGhosts(findNearestFoodTiles(level));
 			pac.setTargetTile(foodTile);
 		}
-		pac.navigateTowardsTarget();
+		pathPlanning.steer(level, pac);
 	}
 
 	private boolean isEdibleBonusNearPac(GameLevel level, Pac pac) {
@@ -159,19 +170,19 @@ public class RuleBasedSteering extends Steering {
 			if (!pac.canAccessTile(ahead)) {
 				break;
 			}
-			if (level.world().isEnergizerTile(ahead) && !level.world().hasEatenFoodAt(ahead)) {
+			int aheadIndex = level.world().index(ahead);
+			if (aheadIndex != -1 && level.world().isEnergizerTile(aheadIndex) && !level.world().hasEatenFoodAt(aheadIndex)) {
 				energizerFound = true;
 			}
 			Vector2i aheadLeft = ahead.plus(pac.moveDir().succAntiClockwise().vector());
 			Vector2i aheadRight = ahead.plus(pac.moveDir().succClockwise().vector());
-			for (Ghost ghost : level.ghosts(GhostState.HUNTING_PAC).toArray(Ghost[]::new)) {
-				if (ghost.tile().equals(ahead) || ghost.tile().equals(aheadLeft) || ghost.tile().equals(aheadRight)) {
-					if (energizerFound) {
-						Logger.trace("Ignore hunting ghost ahead, energizer comes first!");
-						return null;
-					}
-					return ghost;
+			Ghost ghost = huntingGhostAt(level, ahead, aheadLeft, aheadRight);
+			if (ghost != null) {
+				if (energizerFound) {
+					Logger.trace("Ignore hunting ghost ahead, energizer comes first!");
+					return null;
 				}
+				return ghost;
 			}
 		}
 		return null;
@@ -185,10 +196,19 @@ public class RuleBasedSteering extends Steering {
 			if (!pac.canAccessTile(behind)) {
 				break;
 			}
-			for (Ghost ghost : level.ghosts().toArray(Ghost[]::new)) {
-				if (ghost.is(GhostState.HUNTING_PAC) && ghost.tile().equals(behind)) {
-					return ghost;
-				}
+			Ghost ghost = huntingGhostAt(level, behind);
+			if (ghost != null) {
+				return ghost;
+			}
+		}
+		return null;
+	}
+
+	private Ghost huntingGhostAt(GameLevel level, Vector2i... tiles) {
+		for (var tile : tiles) {
+			var ghost = threatField.huntingGhostAt(level, tile);
+			if (ghost != null) {
+				return ghost;
 			}
 		}
 		return null;
@@ -198,7 +218,7 @@ public class RuleBasedSteering extends Steering {
 		var pac = level.pac();
 		Vector2i pacManTile = pac.tile();
 		List<Direction> escapes = new ArrayList<>(4);
-		for (Direction dir : Direction.shuffled()) {
+		for (Direction dir : Direction.shuffled(level.game().pacSteeringRandom())) {
 			if (forbidden.contains(dir)) {
 				continue;
 			}
@@ -219,43 +239,24 @@ public class RuleBasedSteering extends Steering {
 	private List<Vector2i> findNearestFoodTiles(GameLevel level) {
 		long time = System.nanoTime();
 		var pac = level.pac();
-		List<Vector2i> foodTiles = new ArrayList<>();
+		var world = level.world();
 		Vector2i pacManTile = pac.tile();
-		float minDist = Float.MAX_VALUE;
-		for (int x = 0; x < level.world().numCols(); ++x) {
-			for (int y = 0; y < level.world().numRows(); ++y) {
-				Vector2i tile = new Vector2i(x, y);
-				if (!level.world().isFoodTile(tile) || level.world().hasEatenFoodAt(tile)) {
-					continue;
-				}
-				if (level.world().isEnergizerTile(tile) && pac.powerTimer().remaining() > 2 * 60
-						&& level.world().uneatenFoodCount() > 1) {
-					continue;
-				}
-				float dist = pacManTile.manhattanDistance(tile);
-				if (dist < minDist) {
-					minDist = dist;
-					foodTiles.clear();
-					foodTiles.add(tile);
-				} else if (dist == minDist) {
-					foodTiles.add(tile);
-				}
-			}
-		}
+		boolean skipEnergizers = pac.powerTimer().remaining() > 2 * 60 && world.uneatenFoodCount() > 1;
+		List<Vector2i> foodTiles = world.nearestFoodTiles(pacManTile, !skipEnergizers);
 		time = System.nanoTime() - time;
 		Logger.trace("Nearest food tiles from Pac-Man location {}: (time {} millis)", pacManTile, time / 1_000_000f);
 		for (Vector2i t : foodTiles) {
-			Logger.trace("\t{} ({} tiles away from Pac-Man, {} tiles away from ghosts)", t, t.manhattanDistance(pacManTile),
-					minDistanceFromGhosts(level));
+			Logger.trace("\t{} ({} tiles away from Pac-Man, {} moves away from hunting ghosts)", t,
+					t.manhattanDistance(pacManTile), threatField.distance(t));
 		}
 		return foodTiles;
 	}
 
-	private Vector2i findTileFarestFromGhosts(GameLevel level, List<Vector2i> tiles) {
+	private Vector2i findTileFarestFromGhosts(List<Vector2i> tiles) {
 		Vector2i farestTile = null;
-		float maxDist = -1;
+		int maxDist = -1;
 		for (Vector2i tile : tiles) {
-			float dist = minDistanceFromGhosts(level);
+			int dist = threatField.distance(tile);
 			if (dist > maxDist) {
 				maxDist = dist;
 				farestTile = tile;
@@ -263,9 +264,4 @@ public class RuleBasedSteering extends Steering {
 		}
 		return farestTile;
 	}
-
-	private float minDistanceFromGhosts(GameLevel level) {
-		var pac = level.pac();
-		return (float) level.ghosts().map(Ghost::tile).mapToDouble(pac.tile()::manhattanDistance).min().getAsDouble();
-	}
 }
\ No newline at end of file
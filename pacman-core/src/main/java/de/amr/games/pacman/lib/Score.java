@@ -18,6 +18,12 @@ public class Score {
 		reset();
 	}
 
+	public Score(Score other) {
+		points = other.points;
+		levelNumber = other.levelNumber;
+		date = other.date;
+	}
+
 	public void reset() {
 		points = 0;
 		levelNumber = 1;
@@ -0,0 +1,214 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.lib;
+
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.actors.Ghost;
+import de.amr.games.pacman.model.actors.GhostState;
+import de.amr.games.pacman.model.world.World;
+
+import java.util.Arrays;
+
+import static de.amr.games.pacman.lib.Globals.checkLevelNotNull;
+
+/**
+ * For each tile of the maze accessible by Pac-Man, the number of moves the nearest ghost hunting Pac-Man needs to reach
+ * it, and which ghost that is.
+ * <p>
+ * The field is computed by a breadth-first search starting at the tiles of all hunting ghosts. As ghosts do not
+ * reverse, the first move of a ghost does not go back against its move direction. {@link #update(GameLevel)} only
+ * invalidates the field if a hunting ghost has entered a new tile, changed its move direction or a ghost has changed
+ * its state. The search is repeated when the field is read the next time, so reading costs a constant time lookup
+ * except for the first read after a change. Asking for the hunting ghost at a tile never needs a search.
+ *
+ * @author Armin Reichert
+ */
+public class ThreatField {
+
+	/** Distance of tiles not reachable by any hunting ghost. */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int NO_TILE = -1;
+
+	private World world;
+	private int[] neighbors; // 4 * tile index + direction ordinal -> accessible neighbor tile or -1
+	private int[] distance;
+	private int[] searchStamp; // distance and nearest ghost are only valid if stamp is current
+	private int stamp;
+	private byte[] nearestGhost;
+	private int[] queue;
+	private final int[] ghostTile = new int[4];
+	private final Direction[] ghostDir = new Direction[4];
+	private final boolean[] ghostHunting = new boolean[4];
+	private boolean valid;
+	private int numSearches;
+
+	/**
+	 * Invalidates the field if the world or the ghosts have changed since the last update. Must be called before
+	 * reading the field.
+	 *
+	 * @param level game level
+	 * @return if the field has changed
+	 */
+	public boolean update(GameLevel level) {
+		checkLevelNotNull(level);
+		boolean changed = level.world() != world;
+		if (changed) {
+			allocate(level.world());
+		}
+		for (byte id = 0; id < 4; ++id) {
+			var ghost = level.ghost(id);
+			int tile = world.index(ghost.tile());
+			boolean hunting = ghost.is(GhostState.HUNTING_PAC);
+			if (hunting != ghostHunting[id] || hunting && (tile != ghostTile[id] || ghost.moveDir() != ghostDir[id])) {
+				changed = true;
+			}
+			ghostTile[id] = tile;
+			ghostDir[id] = ghost.moveDir();
+			ghostHunting[id] = hunting;
+		}
+		if (changed) {
+			valid = false;
+		}
+		return changed;
+	}
+
+	/** @return number of searches since creation */
+	public int numSearches() {
+		return numSearches;
+	}
+
+	/**
+	 * @param index tile index
+	 * @return number of moves the nearest hunting ghost needs to reach this tile or {@link #UNREACHABLE}
+	 */
+	public int distance(int index) {
+		if (index == NO_TILE) {
+			return UNREACHABLE;
+		}
+		ensureValid();
+		return searchStamp[index] != stamp ? UNREACHABLE : distance[index];
+	}
+
+	/**
+	 * @param tile some tile
+	 * @return number of moves the nearest hunting ghost needs to reach this tile or {@link #UNREACHABLE}
+	 */
+	public int distance(Vector2i tile) {
+		return distance(world.index(tile));
+	}
+
+	/**
+	 * @param level game level
+	 * @param tile  some tile
+	 * @return the hunting ghost reaching this tile first or <code>null</code>
+	 */
+	public Ghost nearestGhost(GameLevel level, Vector2i tile) {
+		int index = world.index(tile);
+		if (index == NO_TILE) {
+			return null;
+		}
+		ensureValid();
+		return searchStamp[index] != stamp ? null : level.ghost(nearestGhost[index]);
+	}
+
+	/**
+	 * @param level game level
+	 * @param tile  some tile
+	 * @return a hunting ghost located at this tile or <code>null</code>
+	 */
+	public Ghost huntingGhostAt(GameLevel level, Vector2i tile) {
+		int index = world.index(tile);
+		if (index != NO_TILE) {
+			for (byte id = 0; id < 4; ++id) {
+				if (ghostHunting[id] && ghostTile[id] == index) {
+					return level.ghost(id);
+				}
+			}
+		}
+		return null;
+	}
+
+	private void ensureValid() {
+		if (!valid) {
+			search();
+			valid = true;
+		}
+	}
+
+	private void allocate(World world) {
+		this.world = world;
+		int numTiles = world.numCols() * world.numRows();
+		if (distance == null || distance.length != numTiles) {
+			neighbors = new int[4 * numTiles];
+			distance = new int[numTiles];
+			searchStamp = new int[numTiles];
+			nearestGhost = new byte[numTiles];
+			queue = new int[numTiles];
+		}
+		var graph = world.navigationGraph();
+		for (int index = 0; index < numTiles; ++index) {
+			for (var dir : DIRECTIONS) {
+				int neighbor = world.neighbor(index, dir);
+				boolean accessible = neighbor != NO_TILE && graph.isAccessible(index) && graph.isAccessible(neighbor);
+				neighbors[4 * index + dir.ordinal()] = accessible ? neighbor : NO_TILE;
+			}
+		}
+		Arrays.fill(searchStamp, 0);
+		stamp = 0;
+		Arrays.fill(ghostTile, NO_TILE);
+	}
+
+	private void search() {
+		++numSearches;
+		if (++stamp == 0) {
+			Arrays.fill(searchStamp, 0);
+			stamp = 1;
+		}
+		int tail = 0;
+		for (byte id = 0; id < 4; ++id) {
+			int tile = ghostTile[id];
+			if (ghostHunting[id] && tile != NO_TILE && world.navigationGraph().isAccessible(tile)
+					&& searchStamp[tile] != stamp) {
+				searchStamp[tile] = stamp;
+				distance[tile] = 0;
+				nearestGhost[tile] = id;
+				queue[tail++] = tile;
+			}
+		}
+		// first moves, ghosts do not reverse
+		int numSources = tail;
+		for (int head = 0; head < numSources; ++head) {
+			int source = queue[head];
+			int reverse = ghostDir[nearestGhost[source]].opposite().ordinal();
+			for (int dir = 0; dir < 4; ++dir) {
+				if (dir != reverse) {
+					tail = visit(neighbors[4 * source + dir], 1, nearestGhost[source], tail);
+				}
+			}
+		}
+		for (int head = numSources; head < tail; ++head) {
+			int current = queue[head];
+			int nextDistance = distance[current] + 1;
+			byte ghost = nearestGhost[current];
+			int slot = 4 * current;
+			tail = visit(neighbors[slot], nextDistance, ghost, tail);
+			tail = visit(neighbors[slot + 1], nextDistance, ghost, tail);
+			tail = visit(neighbors[slot + 2], nextDistance, ghost, tail);
+			tail = visit(neighbors[slot + 3], nextDistance, ghost, tail);
+		}
+	}
+
+	private int visit(int tile, int dist, byte ghost, int tail) {
+		if (tile != NO_TILE && searchStamp[tile] != stamp) {
+			searchStamp[tile] = stamp;
+			distance[tile] = dist;
+			nearestGhost[tile] = ghost;
+			queue[tail++] = tile;
+		}
+		return tail;
+	}
+}
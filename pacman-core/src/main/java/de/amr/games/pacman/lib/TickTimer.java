@@ -48,6 +48,18 @@ public class TickTimer {
 		resetIndefinitely();
 	}
 
+	/**
+	 * Creates a timer in the same state as the given timer. Event listeners are not copied.
+	 * 
+	 * @param other timer to copy
+	 */
+	public TickTimer(TickTimer other) {
+		name = other.name;
+		state = other.state;
+		duration = other.duration;
+		tick = other.tick;
+	}
+
 	public void addEventListener(Consumer<TickTimerEvent> subscriber) {
 		if (subscribers == null) {
 			subscribers = new ArrayList<>(3);
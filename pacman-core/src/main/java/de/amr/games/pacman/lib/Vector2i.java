@@ -4,22 +4,49 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.lib;
 
-import java.util.Objects;
-import java.util.stream.Stream;
-
 /**
  * Immutable int 2D vector.
+ * <p>
+ * Vectors are created by {@link #of(int, int)}. Vectors in the range of the tiles used by the game (the world map plus
+ * margins for the portal tunnels and for ghost target tiles outside the map) are canonical instances taken from a
+ * pool, so tile computations in the game loop do not allocate and equal tiles are identical.
  * 
  * @author Armin Reichert
  */
 public final class Vector2i {
 
-	public static final Vector2i ZERO = new Vector2i(0, 0);
+	private static final int POOL_MIN_X = -32;
+	private static final int POOL_MIN_Y = -40;
+	private static final int POOL_WIDTH = 96;
+	private static final int POOL_HEIGHT = 120;
+	private static final Vector2i[] POOL = new Vector2i[POOL_WIDTH * POOL_HEIGHT];
+
+	static {
+		for (int i = 0; i < POOL.length; ++i) {
+			POOL[i] = new Vector2i(POOL_MIN_X + i % POOL_WIDTH, POOL_MIN_Y + i / POOL_WIDTH);
+		}
+	}
+
+	public static final Vector2i ZERO = of(0, 0);
+
+	/**
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return vector with given coordinates, the canonical instance if inside the pool range
+	 */
+	public static Vector2i of(int x, int y) {
+		int px = x - POOL_MIN_X;
+		int py = y - POOL_MIN_Y;
+		if (px >= 0 && px < POOL_WIDTH && py >= 0 && py < POOL_HEIGHT) {
+			return POOL[py * POOL_WIDTH + px];
+		}
+		return new Vector2i(x, y);
+	}
 
 	private final int x;
 	private final int y;
 
-	public Vector2i(int x, int y) {
+	private Vector2i(int x, int y) {
 		this.x = x;
 		this.y = y;
 	}
@@ -33,23 +60,23 @@ public final class Vector2i {
 	}
 
 	public Vector2i scaled(int s) {
-		return new Vector2i(s * x, s * y);
+		return of(s * x, s * y);
 	}
 
 	public Vector2i plus(Vector2i v) {
-		return new Vector2i(x + v.x, y + v.y);
+		return of(x + v.x, y + v.y);
 	}
 
 	public Vector2i plus(int dx, int dy) {
-		return new Vector2i(x + dx, y + dy);
+		return of(x + dx, y + dy);
 	}
 
 	public Vector2i minus(Vector2i v) {
-		return new Vector2i(x - v.x, y - v.y);
+		return of(x - v.x, y - v.y);
 	}
 
 	public Vector2i minus(int dx, int dy) {
-		return new Vector2i(x - dx, y - dy);
+		return of(x - dx, y - dy);
 	}
 
 	public float euclideanDistance(Vector2i v) {
@@ -60,10 +87,6 @@ public final class Vector2i {
 		return Math.abs(x - v.x) + Math.abs(y - v.y);
 	}
 
-	public Stream<Vector2i> neighbors() {
-		return Stream.of(Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.LEFT).map(dir -> this.plus(dir.vector()));
-	}
-
 	@Override
 	public String toString() {
 		return String.format("(%2d,%2d)", x, y);
@@ -75,18 +98,15 @@ public final class Vector2i {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(x, y);
+		return 31 * x + y;
 	}
 
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
 			return true;
-		if (obj == null)
-			return false;
-		if (getClass() != obj.getClass())
-			return false;
-		Vector2i other = (Vector2i) obj;
-		return x == other.x && y == other.y;
+		if (obj instanceof Vector2i other)
+			return x == other.x && y == other.y;
+		return false;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,309 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.actors.Ghost;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.amr.games.pacman.lib.Globals.v2i;
+
+/**
+ * Post-mortem trace of the last frames of a game.
+ * <p>
+ * Each move of a creature and the memory of each simulated frame is stored as a fixed-size binary record (two longs) in
+ * a preallocated ring buffer, the oldest records get overwritten. Nothing is formatted while recording, the records are
+ * decoded to text only when the trace is dumped. The trace is written by the simulation thread and should be dumped by
+ * that thread too.
+ * <p>
+ * The ring buffer is allocated when the first record is written. A trace with capacity 0 (see {@link #DISABLED})
+ * records nothing.
+ *
+ * @author Armin Reichert
+ */
+public final class FrameTrace {
+
+	/** Trace that records nothing. Can be shared because it has no state. */
+	public static final FrameTrace DISABLED = new FrameTrace(0);
+
+	/** Actor IDs. Ghosts use their ghost ID. */
+	public static final int ACTOR_PAC = 4;
+	public static final int ACTOR_BONUS = 5;
+	public static final int ACTOR_NONE = 0xFF;
+
+	// record kinds
+	private static final int FRAME = 0;
+	private static final int MOVE = 1;
+	private static final int BLOCKED = 2;
+	private static final int TELEPORT = 3;
+
+	/** Move flags */
+	public static final int MOVE_NEW_TILE = 1;
+	public static final int MOVE_TUNNEL_ENTERED = 2;
+
+	/** Reasons of a blocked move. */
+	public static final int BLOCKED_BY_TILE = 0;
+	public static final int BLOCKED_NOT_AT_TURN_POSITION = 1;
+
+	// memory flags
+	private static final int LEVEL_COMPLETED = 1;
+	private static final int FOOD_FOUND = 1 << 1;
+	private static final int ENERGIZER_FOUND = 1 << 2;
+	private static final int PAC_KILLED = 1 << 3;
+	private static final int POWER_STARTS = 1 << 4;
+	private static final int POWER_ACTIVE = 1 << 5;
+	private static final int POWER_FADING = 1 << 6;
+	private static final int POWER_LOST = 1 << 7;
+	private static final int BONUS_SHIFT = 8; // bonus index + 1 (2 bits)
+
+	private static final String[] ACTOR_NAMES = { "Red ghost", "Pink ghost", "Cyan ghost", "Orange ghost", "Pac",
+			"Bonus" };
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int NO_DIR = 0xFF;
+
+	/*
+	 * Record layout. First long: tick (32 bits), actor (8), kind (8), flags (16). Second long: tile x (16, signed), tile
+	 * y (16, signed), direction (8), argument (24).
+	 */
+	private long[] records; // allocated on first write
+	private final int mask; // -1 if disabled
+	private long size; // number of records written so far
+	private int tick;
+
+	/**
+	 * @param capacity maximum number of records kept (rounded up to a power of two), 0 means nothing is recorded
+	 */
+	public FrameTrace(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Trace capacity must not be negative but is " + capacity);
+		}
+		int n = capacity <= 1 ? capacity : Integer.highestOneBit(capacity - 1) << 1;
+		mask = n - 1;
+	}
+
+	/**
+	 * @return maximum number of records kept
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return if this trace records anything
+	 */
+	public boolean isEnabled() {
+		return mask >= 0;
+	}
+
+	/**
+	 * @return number of records currently kept
+	 */
+	public int size() {
+		return (int) Math.min(size, capacity());
+	}
+
+	/**
+	 * @return number of frames recorded so far
+	 */
+	public int tick() {
+		return tick;
+	}
+
+	public void clear() {
+		if (isEnabled()) {
+			size = 0;
+			tick = 0;
+		}
+	}
+
+	private void write(int actor, int kind, int flags, int x, int y, Direction dir, int arg) {
+		if (!isEnabled()) {
+			return;
+		}
+		if (records == null) {
+			records = new long[2 * capacity()];
+		}
+		int slot = 2 * (int) (size & mask);
+		records[slot] = (tick & 0xFFFF_FFFFL) | (long) (actor & 0xFF) << 32 | (long) kind << 40
+				| (long) (flags & 0xFFFF) << 48;
+		records[slot + 1] = (x & 0xFFFFL) | (y & 0xFFFFL) << 16 | (long) (dir != null ? dir.ordinal() : NO_DIR) << 32
+				| (long) (arg & 0xFF_FFFF) << 40;
+		++size;
+	}
+
+	/**
+	 * Records a move.
+	 *
+	 * @param actor actor ID
+	 * @param tile  tile after the move
+	 * @param dir   move direction
+	 * @param flags move flags
+	 * @param speed speed in pixels
+	 */
+	public void recordMove(int actor, Vector2i tile, Direction dir, int flags, float speed) {
+		write(actor, MOVE, flags, tile.x(), tile.y(), dir, Math.round(speed * 100));
+	}
+
+	/**
+	 * Records a move that was not possible.
+	 *
+	 * @param actor  actor ID
+	 * @param tile   tile the actor could not move into
+	 * @param dir    direction of the move
+	 * @param reason reason why the move was blocked
+	 */
+	public void recordBlocked(int actor, Vector2i tile, Direction dir, int reason) {
+		write(actor, BLOCKED, reason, tile.x(), tile.y(), dir, 0);
+	}
+
+	/**
+	 * Records a teleportation.
+	 *
+	 * @param actor actor ID
+	 * @param from  tile before teleportation
+	 * @param to    tile after teleportation
+	 */
+	public void recordTeleport(int actor, Vector2i from, Vector2i to) {
+		write(actor, TELEPORT, 0, from.x(), from.y(), null, (to.x() & 0xFFF) | (to.y() & 0xFFF) << 12);
+	}
+
+	/**
+	 * Records what happened in the current frame and advances the tick.
+	 *
+	 * @param memory memory of the current frame
+	 */
+	public void recordFrame(Memory memory) {
+		if (!isEnabled()) {
+			return;
+		}
+		int flags = 0;
+		if (memory.levelCompleted) {
+			flags |= LEVEL_COMPLETED;
+		}
+		if (memory.foodFoundTile != null) {
+			flags |= FOOD_FOUND;
+		}
+		if (memory.energizerFound) {
+			flags |= ENERGIZER_FOUND;
+		}
+		if (memory.pacKilled) {
+			flags |= PAC_KILLED;
+		}
+		if (memory.pacPowerStarts) {
+			flags |= POWER_STARTS;
+		}
+		if (memory.pacPowerActive) {
+			flags |= POWER_ACTIVE;
+		}
+		if (memory.pacPowerFading) {
+			flags |= POWER_FADING;
+		}
+		if (memory.pacPowerLost) {
+			flags |= POWER_LOST;
+		}
+		flags |= (memory.bonusReachedIndex + 1) << BONUS_SHIFT;
+		int x = memory.foodFoundTile != null ? memory.foodFoundTile.x() : 0;
+		int y = memory.foodFoundTile != null ? memory.foodFoundTile.y() : 0;
+		int arg = ghostMask(memory.pacPrey) | ghostMask(memory.killedGhosts) << 4;
+		write(ACTOR_NONE, FRAME, flags, x, y, null, arg);
+		++tick;
+	}
+
+	private static int ghostMask(List<Ghost> ghosts) {
+		int mask = 0;
+		for (int i = 0; i < ghosts.size(); ++i) {
+			mask |= 1 << ghosts.get(i).id();
+		}
+		return mask;
+	}
+
+	/**
+	 * @return the kept records decoded to text, oldest first
+	 */
+	public List<String> dump() {
+		var lines = new ArrayList<String>(size());
+		for (long i = size - size(); i < size; ++i) {
+			int slot = 2 * (int) (i & mask);
+			lines.add(decode(records[slot], records[slot + 1]));
+		}
+		return lines;
+	}
+
+	private static String decode(long w0, long w1) {
+		int tick = (int) w0;
+		int actor = (int) (w0 >>> 32 & 0xFF);
+		int kind = (int) (w0 >>> 40 & 0xFF);
+		int flags = (int) (w0 >>> 48 & 0xFFFF);
+		var tile = v2i((short) w1, (short) (w1 >>> 16));
+		int dirOrdinal = (int) (w1 >>> 32 & 0xFF);
+		var dir = dirOrdinal == NO_DIR ? null : DIRECTIONS[dirOrdinal];
+		int arg = (int) (w1 >>> 40 & 0xFF_FFFF);
+		var name = actor < ACTOR_NAMES.length ? ACTOR_NAMES[actor] : "";
+		var sb = new StringBuilder().append(String.format("%8d ", tick));
+		switch (kind) {
+		case MOVE -> {
+			sb.append(String.format("%s: moved %s to %s (%.2f pixels)", name, dir, tile, arg / 100f));
+			if ((flags & MOVE_NEW_TILE) != 0) {
+				sb.append(" new tile");
+			}
+			if ((flags & MOVE_TUNNEL_ENTERED) != 0) {
+				sb.append(" entered tunnel");
+			}
+		}
+		case BLOCKED -> sb.append(flags == BLOCKED_NOT_AT_TURN_POSITION
+				? String.format("%s: wants to take corner towards %s but not at turn position", name, dir)
+				: String.format("%s: cannot move %s into tile %s", name, dir, tile));
+		case TELEPORT -> sb.append(String.format("%s: teleported from %s to %s", name, tile,
+				v2i(arg << 20 >> 20, arg << 8 >> 20)));
+		default -> appendFrame(sb, flags, tile, arg);
+		}
+		return sb.toString();
+	}
+
+	private static void appendFrame(StringBuilder sb, int flags, Vector2i foodTile, int ghostMasks) {
+		sb.append("Frame:");
+		if ((flags & LEVEL_COMPLETED) != 0) {
+			sb.append(" level completed");
+		}
+		if ((flags & FOOD_FOUND) != 0) {
+			sb.append((flags & ENERGIZER_FOUND) != 0 ? " energizer at " : " pellet at ").append(foodTile);
+		}
+		int bonus = (flags >> BONUS_SHIFT & 3) - 1;
+		if (bonus != -1) {
+			sb.append(" bonus ").append(bonus).append(" reached");
+		}
+		if ((flags & POWER_STARTS) != 0) {
+			sb.append(" power starts");
+		}
+		if ((flags & POWER_ACTIVE) != 0) {
+			sb.append(" power active");
+		}
+		if ((flags & POWER_FADING) != 0) {
+			sb.append(" power fading");
+		}
+		if ((flags & POWER_LOST) != 0) {
+			sb.append(" power lost");
+		}
+		if ((flags & PAC_KILLED) != 0) {
+			sb.append(" Pac killed");
+		}
+		appendGhosts(sb, " prey:", ghostMasks & 0xF);
+		appendGhosts(sb, " killed:", ghostMasks >> 4 & 0xF);
+	}
+
+	private static void appendGhosts(StringBuilder sb, String label, int mask) {
+		if (mask != 0) {
+			sb.append(label);
+			for (int id = 0; id < 4; ++id) {
+				if ((mask & 1 << id) != 0) {
+					sb.append(' ').append(ACTOR_NAMES[id]);
+				}
+			}
+		}
+	}
+}
@@ -4,7 +4,6 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model;
 
-import de.amr.games.pacman.controller.GameController;
 import de.amr.games.pacman.controller.Steering;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.Direction;
@@ -32,6 +31,9 @@ import static de.amr.games.pacman.model.actors.GhostState.*;
  */
 public class GameLevel {
 
+	/** Number of ticks the game is paused after Pac-Man has eaten ghosts. */
+	public static final int GHOST_DYING_TICKS = GameModel.FPS;
+
 	/** Relative Pac-Man speed (percentage of base speed). */
 	public final float pacSpeed;
 
@@ -77,10 +79,10 @@ public class GameLevel {
 
 	private final boolean demoLevel;
 
-	private final TickTimer huntingTimer = new TickTimer("HuntingTimer");
+	private final TickTimer huntingTimer;
 
 	/** Memorizes what happens during a frame. */
-	private final Memory thisFrame = new Memory();
+	private final Memory thisFrame;
 
 	private final World world;
 
@@ -109,6 +111,9 @@ public class GameLevel {
 		this.levelNumber = number;
 		this.demoLevel   = demoLevel;
 
+		huntingTimer = new TickTimer("HuntingTimer");
+		thisFrame = new Memory();
+
 		pacSpeed             = percent(data[0]);
 		ghostSpeed           = percent(data[1]);
 		ghostSpeedTunnel     = percent(data[2]);
@@ -139,31 +144,27 @@ public class GameLevel {
 		ghosts[RED_GHOST].setInitialDirection(Direction.LEFT);
 		ghosts[RED_GHOST].setInitialPosition(house.door().entryPosition());
 		ghosts[RED_GHOST].setRevivalPosition(house.seat("middle"));
-		ghosts[RED_GHOST].setScatterTile(v2i(25, 0));
-		ghosts[RED_GHOST].setChasingTarget(pac::tile);
+		ghosts[RED_GHOST].setScatterTile(ARCADE_SCATTER_TILES.get(RED_GHOST));
 
 		// Pinky: ambushes Pac-Man
 		ghosts[PINK_GHOST].setInitialDirection(Direction.DOWN);
 		ghosts[PINK_GHOST].setInitialPosition(house.seat("middle"));
 		ghosts[PINK_GHOST].setRevivalPosition(house.seat("middle"));
-		ghosts[PINK_GHOST].setScatterTile(v2i(2, 0));
-		ghosts[PINK_GHOST].setChasingTarget(() -> pac.tilesAheadBuggy(4));
+		ghosts[PINK_GHOST].setScatterTile(ARCADE_SCATTER_TILES.get(PINK_GHOST));
 
 		// Inky: attacks from opposite side as Blinky
 		ghosts[CYAN_GHOST].setInitialDirection(Direction.UP);
 		ghosts[CYAN_GHOST].setInitialPosition(house.seat("left"));
 		ghosts[CYAN_GHOST].setRevivalPosition(house.seat("left"));
-		ghosts[CYAN_GHOST].setScatterTile(v2i(27, 34));
-		ghosts[CYAN_GHOST].setChasingTarget(() -> pac.tilesAheadBuggy(2).scaled(2).minus(ghosts[RED_GHOST].tile()));
+		ghosts[CYAN_GHOST].setScatterTile(ARCADE_SCATTER_TILES.get(CYAN_GHOST));
 
 		// Clyde/Sue: attacks directly but retreats if Pac is near
 		ghosts[ORANGE_GHOST].setInitialDirection(Direction.UP);
 		ghosts[ORANGE_GHOST].setInitialPosition(house.seat("right"));
 		ghosts[ORANGE_GHOST].setRevivalPosition(house.seat("right"));
-		ghosts[ORANGE_GHOST].setScatterTile(v2i(0, 34));
-		ghosts[ORANGE_GHOST].setChasingTarget(() -> ghosts[ORANGE_GHOST].tile().euclideanDistance(pac.tile()) < 8
-				? ghosts[ORANGE_GHOST].scatterTile()
-				: pac.tile());
+		ghosts[ORANGE_GHOST].setScatterTile(ARCADE_SCATTER_TILES.get(ORANGE_GHOST));
+
+		setChasingTargets();
 
 		bonusSymbols = new byte[2];
 		bonusSymbols[0] = nextBonusSymbol();
@@ -174,6 +175,94 @@ public class GameLevel {
 		Logger.trace("Game level {} ({}) created.", levelNumber, game.variant());
 	}
 
+	/**
+	 * Copy constructor used for forking, see {@link #fork(long)}.
+	 */
+	GameLevel(GameModel game, GameLevel other) {
+		this.game   = game;
+		levelNumber = other.levelNumber;
+		demoLevel   = other.demoLevel;
+
+		pacSpeed             = other.pacSpeed;
+		ghostSpeed           = other.ghostSpeed;
+		ghostSpeedTunnel     = other.ghostSpeedTunnel;
+		elroy1DotsLeft       = other.elroy1DotsLeft;
+		elroy1Speed          = other.elroy1Speed;
+		elroy2DotsLeft       = other.elroy2DotsLeft;
+		elroy2Speed          = other.elroy2Speed;
+		pacSpeedPowered      = other.pacSpeedPowered;
+		ghostSpeedFrightened = other.ghostSpeedFrightened;
+		pacPowerSeconds      = other.pacPowerSeconds;
+		numFlashes           = other.numFlashes;
+		intermissionNumber   = other.intermissionNumber;
+
+		world = other.world.fork();
+		pac = new Pac(other.pac);
+		ghosts = new Ghost[] {
+			new Ghost(other.ghosts[RED_GHOST]),
+			new Ghost(other.ghosts[PINK_GHOST]),
+			new Ghost(other.ghosts[CYAN_GHOST]),
+			new Ghost(other.ghosts[ORANGE_GHOST])
+		};
+		guys().forEach(guy -> guy.setLevel(this));
+		setChasingTargets();
+
+		huntingTimer = new TickTimer(other.huntingTimer);
+		thisFrame = new Memory(other.thisFrame, ghosts);
+		ghostHouseManagement = new GhostHouseManagement(other.ghostHouseManagement);
+		huntingPhase = other.huntingPhase;
+		numGhostsKilledInLevel = other.numGhostsKilledInLevel;
+		numGhostsKilledByEnergizer = other.numGhostsKilledByEnergizer;
+		cruiseElroyState = other.cruiseElroyState;
+		bonusSymbols = other.bonusSymbols; // never modified
+		if (other.bonus instanceof StaticBonus staticBonus) {
+			var bonusCopy = new StaticBonus(staticBonus);
+			bonusCopy.setLevel(this);
+			bonus = bonusCopy;
+		} else if (other.bonus instanceof MovingBonus movingBonus) {
+			var bonusCopy = new MovingBonus(movingBonus);
+			bonusCopy.setLevel(this);
+			bonus = bonusCopy;
+		}
+		// Pac-Man steering is not copied, a forked level is steered by its user
+	}
+
+	private void setChasingTargets() {
+		// Blinky: attacks Pac-Man directly
+		ghosts[RED_GHOST].setChasingTarget(pac::tile);
+		// Pinky: ambushes Pac-Man
+		ghosts[PINK_GHOST].setChasingTarget(() -> pac.tilesAheadBuggy(4));
+		// Inky: attacks from opposite side as Blinky
+		ghosts[CYAN_GHOST].setChasingTarget(() -> pac.tilesAheadBuggy(2).scaled(2).minus(ghosts[RED_GHOST].tile()));
+		// Clyde/Sue: attacks directly but retreats if Pac is near
+		ghosts[ORANGE_GHOST].setChasingTarget(() -> ghosts[ORANGE_GHOST].tile().euclideanDistance(pac.tile()) < 8
+				? ghosts[ORANGE_GHOST].scatterTile()
+				: pac.tile());
+	}
+
+	/**
+	 * Creates an independent copy of this level in its current state, e.g. for look-ahead search. The copy belongs to a
+	 * detached copy of the game (score, lives) which publishes no game events and does not touch the high score file.
+	 * Immutable data like the world map is shared, the food is copied only when it gets eaten. The copy has no Pac-Man
+	 * steering and no animations, it is advanced by setting Pac-Man's wish direction and calling {@link #simulateOneFrame()}.
+	 * 
+	 * @param seed seed of the random generator of the copy
+	 * @return the forked level
+	 */
+	public GameLevel fork(long seed) {
+		return new GameModel(game, this, seed).level().orElseThrow();
+	}
+
+	/**
+	 * Forks this level using a seed from the Pac-Man steering random generator of the game, so forking does not change
+	 * the random decisions of the game itself (see {@link GameModel#pacSteeringRandom()}). See {@link #fork(long)}.
+	 * 
+	 * @return the forked level
+	 */
+	public GameLevel fork() {
+		return fork(game.pacSteeringRandom().nextLong());
+	}
+
 	public void end() {
 		pac.rest(Pac.REST_FOREVER);
 		pac.selectAnimation(PacAnimations.MUNCHING);
@@ -330,6 +419,15 @@ public class GameLevel {
 				(float) huntingTimer.duration() / GameModel.FPS, huntingTimer);
 	}
 
+	/**
+	 * Shows Pac-Man and the ghosts and starts the first hunting phase. Called when the "Ready!" phase at the start of a
+	 * level or after Pac-Man's death is over.
+	 */
+	public void beginHunting() {
+		guys().forEach(Creature::show);
+		startHunting(0);
+	}
+
 	private void stopHuntingTimer() {
 		huntingTimer.stop();
 		Logger.info("Hunting timer stopped");
@@ -492,7 +590,7 @@ public class GameLevel {
 		} else if (world.uneatenFoodCount() == elroy2DotsLeft) {
 			setCruiseElroyState((byte) 2);
 		}
-		GameController.it().publishGameEvent(GameEventType.PAC_FOUND_FOOD, foodTile);
+		game.publishGameEvent(GameEventType.PAC_FOUND_FOOD, foodTile);
 	}
 
 	private void handlePacPowerStarts() {
@@ -500,7 +598,7 @@ public class GameLevel {
 		Logger.info("{} power starting, duration {} ticks", pac.name(), pac.powerTimer().duration());
 		ghosts(HUNTING_PAC).forEach(Ghost::enterStateFrightened);
 		ghosts(FRIGHTENED).forEach(Ghost::reverseAsSoonAsPossible);
-		GameController.it().publishGameEvent(GameEventType.PAC_GETS_POWER);
+		game.publishGameEvent(GameEventType.PAC_GETS_POWER);
 	}
 
 	private void handlePacPowerLost() {
@@ -510,7 +608,7 @@ public class GameLevel {
 		huntingTimer.start();
 		Logger.info("Hunting timer restarted");
 		ghosts(FRIGHTENED).forEach(Ghost::enterStateHuntingPac);
-		GameController.it().publishGameEvent(GameEventType.PAC_LOST_POWER);
+		game.publishGameEvent(GameEventType.PAC_LOST_POWER);
 	}
 
 	public void simulateOneFrame() {
@@ -526,7 +624,7 @@ public class GameLevel {
 
 		// Level complete?
 		if (thisFrame.levelCompleted) {
-			logWhatHappenedThisFrame();
+			game.trace().recordFrame(thisFrame);
 			return;
 		}
 
@@ -539,22 +637,24 @@ public class GameLevel {
 		if (thisFrame.pacPowerStarts) {
 			handlePacPowerStarts();
 		} else if (thisFrame.pacPowerFading) {
-			GameController.it().publishGameEvent(GameEventType.PAC_STARTS_LOSING_POWER);
+			game.publishGameEvent(GameEventType.PAC_STARTS_LOSING_POWER);
 		} else if (thisFrame.pacPowerLost) {
 			handlePacPowerLost();
 		}
 
 		// Now check who gets killed
 		thisFrame.pacPrey = ghosts(FRIGHTENED).filter(pac::sameTile).collect(Collectors.toList());
-		thisFrame.pacKilled = !GameController.it().isImmune() && ghosts(HUNTING_PAC).anyMatch(pac::sameTile);
+		thisFrame.pacKilled = !game.isPacImmune() && ghosts(HUNTING_PAC).anyMatch(pac::sameTile);
 
-		// Update world
-		world.mazeFlashing().tick();
-		world.energizerBlinking().tick();
+		// Update world (only cosmetic)
+		if (!game.isHeadless()) {
+			world.mazeFlashing().tick();
+			world.energizerBlinking().tick();
+		}
 
 		// Update guys
 		unlockGhost();
-		var steering = pacSteering().orElse(GameController.it().steering());
+		var steering = pacSteering().orElse(game.defaultPacSteering());
 		steering.steer(this, pac);
 		pac.update();
 		ghosts().forEach(Ghost::update);
@@ -574,14 +674,7 @@ public class GameLevel {
 			}
 		}
 
-		logWhatHappenedThisFrame();
-	}
-
-	private void logWhatHappenedThisFrame() {
-		var memoText = thisFrame.toString();
-		if (!memoText.isBlank()) {
-			Logger.trace(memoText);
-		}
+		game.trace().recordFrame(thisFrame);
 	}
 
 	/**
@@ -605,6 +698,31 @@ public class GameLevel {
 		}
 	}
 
+	/**
+	 * Simulates one tick of the pause after Pac-Man has eaten ghosts. Pac-Man and the hunting ghosts are frozen, only
+	 * Pac-Man's steering and the ghosts that are eaten, returning or entering the house get updated.
+	 */
+	public void simulateGhostDyingTick() {
+		pacSteering().orElse(game.defaultPacSteering()).steer(this, pac);
+		ghosts(EATEN, RETURNING_TO_HOUSE, ENTERING_HOUSE).forEach(Ghost::update);
+	}
+
+	/**
+	 * Simulates the complete pause of {@link #GHOST_DYING_TICKS} ticks after Pac-Man has eaten ghosts at once.
+	 */
+	public void simulateGhostDying() {
+		for (int t = 0; t < GHOST_DYING_TICKS; ++t) {
+			simulateGhostDyingTick();
+		}
+	}
+
+	/**
+	 * Ends the pause after Pac-Man has eaten ghosts: the eaten ghosts start returning to the house.
+	 */
+	public void endGhostDying() {
+		ghosts(EATEN).forEach(Ghost::enterStateReturningToHouse);
+	}
+
 	private void killGhost(Ghost ghost) {
 		ghost.setKilledIndex(numGhostsKilledByEnergizer);
 		ghost.enterStateEaten();
@@ -713,7 +831,7 @@ public class GameLevel {
 			case 6: return GameModel.MS_PACMAN_PEAR;
 			case 7: return GameModel.MS_PACMAN_BANANA;
 			default:
-				int random = randomInt(0, 320);
+				int random = randomInt(game.random(), 0, 320);
 				if (random < 50)  return GameModel.MS_PACMAN_CHERRIES;
 				if (random < 100) return GameModel.MS_PACMAN_STRAWBERRY;
 				if (random < 150) return GameModel.MS_PACMAN_ORANGE;
@@ -759,18 +877,21 @@ public class GameLevel {
 					return;
 				}
 				byte symbol = bonusSymbols[bonusIndex];
-				bonus = createMovingBonus(symbol, GameModel.BONUS_VALUES_MS_PACMAN[symbol] * 100, RND.nextBoolean());
+				bonus = createMovingBonus(symbol, GameModel.BONUS_VALUES_MS_PACMAN[symbol] * 100,
+						game.random().nextBoolean());
 				bonus.setEdible(TickTimer.INDEFINITE);
-				GameController.it().publishGameEvent(GameEventType.BONUS_ACTIVATED, bonus.entity().tile());
+				game.publishGameEvent(GameEventType.BONUS_ACTIVATED, bonus.entity().tile());
 				break;
 			}
 			case PACMAN: {
 				byte symbol = bonusSymbols[bonusIndex];
-				bonus = new StaticBonus(symbol, GameModel.BONUS_VALUES_PACMAN[symbol] * 100);
+				var staticBonus = new StaticBonus(symbol, GameModel.BONUS_VALUES_PACMAN[symbol] * 100);
+				staticBonus.setLevel(this);
+				bonus = staticBonus;
 				bonus.entity().setPosition(GameModel.BONUS_POSITION_PACMAN);
-				int ticks = randomInt(9 * FPS, 10 * FPS); // between 9 and 10 seconds
+				int ticks = randomInt(game.random(), 9 * FPS, 10 * FPS); // between 9 and 10 seconds
 				bonus.setEdible(ticks);
-				GameController.it().publishGameEvent(GameEventType.BONUS_ACTIVATED, bonus.entity().tile());
+				game.publishGameEvent(GameEventType.BONUS_ACTIVATED, bonus.entity().tile());
 				break;
 			}
 			default: throw new IllegalGameVariantException(game.variant());
@@ -787,8 +908,8 @@ public class GameLevel {
 		var houseHeight    = world.house().size().y();
 		var houseEntryTile = tileAt(world.house().door().entryPosition());
 		var portals        = world.portals();
-		var entryPortal    = portals.get(RND.nextInt(portals.size()));
-		var exitPortal     = portals.get(RND.nextInt(portals.size()));
+		var entryPortal    = portals.get(game.random().nextInt(portals.size()));
+		var exitPortal     = portals.get(game.random().nextInt(portals.size()));
 		var startPoint     = leftToRight ? np(entryPortal.leftTunnelEnd())
 				                             : np(entryPortal.rightTunnelEnd());
 		var exitPoint      = leftToRight ? np(exitPortal.rightTunnelEnd().plus(1, 0))
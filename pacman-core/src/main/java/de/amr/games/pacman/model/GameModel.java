@@ -5,11 +5,13 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.model;
 
 import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.Steering;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.*;
 import de.amr.games.pacman.model.world.Door;
 import de.amr.games.pacman.model.world.House;
 import de.amr.games.pacman.model.world.World;
+import de.amr.games.pacman.model.world.WorldMap;
 import org.tinylog.Logger;
 
 import java.io.File;
@@ -18,6 +20,7 @@ import java.io.FileOutputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 import static de.amr.games.pacman.lib.Globals.*;
 import static de.amr.games.pacman.lib.NavigationPoint.np;
@@ -234,25 +237,32 @@ public class GameModel {
 	};
 
 	public static World createPacManWorld() {
-		return createArcadeWorld(PACMAN_MAP);
+		return new World(PACMAN_WORLD_MAP);
 	}
 
 	public static World createMsPacManWorld(int number) {
 		if (number >= 1 && number <= 4) {
-			return createArcadeWorld(MS_PACMAN_MAPS[number - 1]);
+			return new World(MS_PACMAN_WORLD_MAPS[number - 1]);
 		}
 		throw new IllegalArgumentException("Ms. Pac-Man world number must be 1..4 but is " + number);
 	}
 
 	public static World createArcadeWorld(byte[][] map) {
-		var world = new World(map);
-		if (world.numCols() != TILES_X || world.numRows() != TILES_Y) {
+		return new World(createArcadeWorldMap(map));
+	}
+
+	/**
+	 * @param data tile map data
+	 * @return new map with Arcade house and direction tables for the Arcade scatter tiles
+	 */
+	public static WorldMap createArcadeWorldMap(byte[][] data) {
+		var map = new WorldMap(data);
+		if (map.numCols() != TILES_X || map.numRows() != TILES_Y) {
 			throw new IllegalArgumentException(
 					String.format("Arcade map must have %d columns and %d rows but has %d columns and %d rows",
-					TILES_X, TILES_Y, world.numCols(), world.numRows()));
+					TILES_X, TILES_Y, map.numCols(), map.numRows()));
 		}
-		world.setHouse(createArcadeHouse());
-		return world;
+		return new WorldMap(map, createArcadeHouse(), ARCADE_SCATTER_TILES);
 	}
 
 	public static final Vector2i ARCADE_HOUSE_POSITION = v2i(10, 15);
@@ -262,6 +272,10 @@ public class GameModel {
 	public static final Vector2f ARCADE_HOUSE_SEAT_RIGHT = halfTileRightOf(15, 17);
 	public static final Door ARCADE_HOUSE_DOOR = new Door(v2i(13, 15), v2i(14, 15));
 
+	/** Scatter tiles of the ghosts (indexed by ghost ID) in the Arcade mazes. */
+	public static final List<Vector2i> ARCADE_SCATTER_TILES = List.of(
+			v2i(25, 0), v2i(2, 0), v2i(27, 34), v2i(0, 34));
+
 	public static House createArcadeHouse() {
 		var house = new House();
 		house.setMinTile(ARCADE_HOUSE_POSITION);
@@ -272,6 +286,15 @@ public class GameModel {
 		house.addSeat("right",  ARCADE_HOUSE_SEAT_RIGHT);
 		return house;
 	}
+
+	// maps are shared by all levels and game sessions, worlds only store the eaten food
+	private static final WorldMap PACMAN_WORLD_MAP = createArcadeWorldMap(PACMAN_MAP);
+	private static final WorldMap[] MS_PACMAN_WORLD_MAPS = {
+		createArcadeWorldMap(MS_PACMAN_MAPS[0]),
+		createArcadeWorldMap(MS_PACMAN_MAPS[1]),
+		createArcadeWorldMap(MS_PACMAN_MAPS[2]),
+		createArcadeWorldMap(MS_PACMAN_MAPS[3]),
+	};
 	
 	/**
 	 * In Ms. Pac-Man, there are 4 maps used by the 6 mazes. Up to level 13, the mazes are:
@@ -346,6 +369,9 @@ public class GameModel {
 	public static final short   BONUS_POINTS_SHOWN_TICKS = 2 * FPS; // unsure
 	public static final short   PAC_POWER_FADES_TICKS = 2 * FPS - 1; // unsure
 
+	/** Number of records kept in the frame trace of sessions with a user interface (about 10 seconds of play). */
+	public static final int TRACE_CAPACITY = 1 << 13;
+
 	private static final byte[][] LEVEL_DATA = {
 	/* 1*/ { 80, 75, 40,  20,  80, 10,  85,  90, 50, 6, 5, 0},
 	/* 2*/ { 90, 85, 45,  30,  90, 15,  95,  95, 55, 5, 5, 1},
@@ -440,6 +466,7 @@ public class GameModel {
 
 
 	private final GameVariant variant;
+	private final GameController controller;
 	private final List<Byte> levelCounter;
 	private final Score score;
 	private final Score highScore;
@@ -449,10 +476,43 @@ public class GameModel {
 	private short extraLifeScore;
 	private boolean playing;
 	private boolean scoringEnabled;
+	private boolean highScorePersistent = true;
+	private FrameTrace trace = FrameTrace.DISABLED;
+	private final long seed;
+	private final SplittableRandom rnd;
+	private final SplittableRandom pacSteeringRnd;
 
+	/**
+	 * Creates a game model that is not attached to a game controller. Such a model publishes no game events and Pac-Man
+	 * is only steered by the level-specific steering.
+	 *
+	 * @param variant game variant
+	 */
 	public GameModel(GameVariant variant) {
+		this(variant, null);
+	}
+
+	/**
+	 * @param variant    game variant
+	 * @param controller game controller (session) this model belongs to, may be <code>null</code>
+	 */
+	public GameModel(GameVariant variant, GameController controller) {
+		this(variant, controller, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * @param variant    game variant
+	 * @param controller game controller (session) this model belongs to, may be <code>null</code>
+	 * @param seed       seed of the random generator, games with the same seed and the same Pac-Man steering are
+	 *                   identical
+	 */
+	public GameModel(GameVariant variant, GameController controller, long seed) {
 		checkGameVariant(variant);
 		this.variant = variant;
+		this.controller = controller;
+		this.seed = seed;
+		rnd = new SplittableRandom(seed);
+		pacSteeringRnd = rnd.split();
 		levelCounter = new LinkedList<>();
 		score = new Score();
 		highScore = new Score();
@@ -460,6 +520,32 @@ public class GameModel {
 		extraLifeScore = 10000;
 	}
 
+	/**
+	 * Creates a detached copy of the given game containing a fork of the given level, see {@link GameLevel#fork(long)}.
+	 * 
+	 * @param other game to copy
+	 * @param level level to fork
+	 * @param seed  seed of the random generator of the copy
+	 */
+	GameModel(GameModel other, GameLevel level, long seed) {
+		variant = other.variant;
+		controller = null;
+		this.seed = seed;
+		rnd = new SplittableRandom(seed);
+		pacSteeringRnd = rnd.split();
+		levelCounter = new LinkedList<>(other.levelCounter);
+		score = new Score(other.score);
+		highScore = new Score(other.highScore);
+		initialLives = other.initialLives;
+		lives = other.lives;
+		extraLifeScore = other.extraLifeScore;
+		playing = other.playing;
+		scoringEnabled = other.scoringEnabled;
+		highScorePersistent = false;
+		// forks are not analyzed post-mortem, their trace stays disabled
+		this.level = new GameLevel(this, level);
+	}
+
 	/**
 	 * Resets the game and deletes the current level. Credit, immunity and scores remain unchanged.
 	 */
@@ -486,7 +572,7 @@ public class GameModel {
 		var levelData = LEVEL_DATA[dataRow(levelNumber)];
 		level = new GameLevel(this, world, levelNumber, levelData, false);
 		Logger.info("Level {} created", levelNumber);
-		GameController.it().publishGameEvent(GameEventType.LEVEL_CREATED);
+		publishGameEvent(GameEventType.LEVEL_CREATED);
 	}
 
 	/**
@@ -513,7 +599,7 @@ public class GameModel {
 				throw new IllegalGameVariantException(variant);
 		}
 		Logger.info("Demo level created ({})", variant);
-		GameController.it().publishGameEvent(GameEventType.LEVEL_CREATED);
+		publishGameEvent(GameEventType.LEVEL_CREATED);
 	}
 
 	public void startLevel() {
@@ -535,7 +621,7 @@ public class GameModel {
 		// Demo level shows guys immediately, otherwise they get shown after some ticks, see game state
 		level.guys().forEach(guy -> guy.setVisible(level.isDemoLevel()));
 		Logger.info("{} {} started ({})", level.isDemoLevel() ? "Demo level" : "Level", level.number(), variant);
-		GameController.it().publishGameEvent(GameEventType.LEVEL_STARTED);
+		publishGameEvent(GameEventType.LEVEL_STARTED);
 	}
 
 	public void nextLevel() {
@@ -558,6 +644,103 @@ public class GameModel {
 		return variant;
 	}
 
+	/**
+	 * @return game controller (session) this model belongs to, empty if the model is detached
+	 */
+	public Optional<GameController> controller() {
+		return Optional.ofNullable(controller);
+	}
+
+	/**
+	 * Publishes a game event to the subscribers of this model's game controller (if any).
+	 * 
+	 * @param type event type
+	 */
+	public void publishGameEvent(GameEventType type) {
+		if (controller != null) {
+			controller.publishGameEvent(type);
+		}
+	}
+
+	/**
+	 * Publishes a game event to the subscribers of this model's game controller (if any).
+	 * 
+	 * @param type event type
+	 * @param tile tile related to the event
+	 */
+	public void publishGameEvent(GameEventType type, Vector2i tile) {
+		if (controller != null) {
+			controller.publishGameEvent(type, tile);
+		}
+	}
+
+	/**
+	 * @return seed of the random generator of this game
+	 */
+	public long seed() {
+		return seed;
+	}
+
+	/**
+	 * Random generator used for all random decisions of this game (frightened ghosts, bonus symbols, bonus routes and
+	 * durations). Not thread-safe, like the rest of the model it is only used by the session's thread.
+	 * 
+	 * @return random generator of this game
+	 */
+	public RandomGenerator random() {
+		return rnd;
+	}
+
+	/**
+	 * Random generator for Pac-Man steering (autopilot). It is independent of {@link #random()}, so the course of the
+	 * game only depends on the seed and the resulting Pac-Man moves, not on how the steering made its decisions. This is
+	 * what makes input replays exact.
+	 * 
+	 * @return random generator for Pac-Man steering
+	 */
+	public RandomGenerator pacSteeringRandom() {
+		return pacSteeringRnd;
+	}
+
+	/**
+	 * @return trace of the last simulated frames (moves and frame memory), for post-mortem analysis. Disabled unless a
+	 *         capacity has been set, see {@link #setTraceCapacity(int)}.
+	 */
+	public FrameTrace trace() {
+		return trace;
+	}
+
+	/**
+	 * Replaces the frame trace by an empty trace of the given capacity.
+	 *
+	 * @param capacity number of records kept (e.g. {@link #TRACE_CAPACITY}), 0 disables the trace
+	 */
+	public void setTraceCapacity(int capacity) {
+		trace = capacity == 0 ? FrameTrace.DISABLED : new FrameTrace(capacity);
+	}
+
+	/**
+	 * @return if Pac-Man is immune against ghost attacks (cheat mode of the game controller)
+	 */
+	public boolean isPacImmune() {
+		return controller != null && controller.isImmune();
+	}
+
+	/**
+	 * @return if cosmetic work (animations, blinking, flashing) is skipped. A game model without controller has no user
+	 *         interface and is always headless.
+	 */
+	public boolean isHeadless() {
+		return controller == null || controller.isHeadless();
+	}
+
+	/**
+	 * @return steering used for Pac-Man if the level does not define its own steering
+	 */
+	public Steering defaultPacSteering() {
+		return controller != null ? controller.steering() : Steering.NONE;
+	}
+
 	/**
 	 * @return number of maze (not map) used in level, 1-based.
 	 */
@@ -632,7 +815,7 @@ public class GameModel {
 		}
 		if (oldScore < extraLifeScore && newScore >= extraLifeScore) {
 			lives += 1;
-			GameController.it().publishGameEvent(GameEventType.EXTRA_LIFE_WON);
+			publishGameEvent(GameEventType.EXTRA_LIFE_WON);
 		}
 	}
 
@@ -661,11 +844,25 @@ public class GameModel {
 		}
 	}
 
+	/**
+	 * @param persistent if the high score is loaded from and saved to the high score file of the game variant. Batch
+	 *                   simulations switch this off to keep the player's high score untouched.
+	 */
+	public void setHighScorePersistent(boolean persistent) {
+		this.highScorePersistent = persistent;
+	}
+
 	public void loadHighScore() {
+		if (!highScorePersistent) {
+			return;
+		}
 		loadScore(highScore, highScoreFile());
 	}
 
 	public void updateHighScore() {
+		if (!highScorePersistent) {
+			return;
+		}
 		var file = highScoreFile();
 		var savedHiscore = new Score();
 		loadScore(savedHiscore, file);
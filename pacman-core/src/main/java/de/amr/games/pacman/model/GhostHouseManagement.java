@@ -70,6 +70,15 @@ public class GhostHouseManagement {
 		globalDotCounterEnabled = false;
 	}
 
+	GhostHouseManagement(GhostHouseManagement other) {
+		pacStarvingTicksLimit = other.pacStarvingTicksLimit;
+		globalGhostDotLimits = other.globalGhostDotLimits; // never modified
+		privateGhostDotLimits = other.privateGhostDotLimits; // never modified
+		ghostDotCounters = other.ghostDotCounters.clone();
+		globalDotCounter = other.globalDotCounter;
+		globalDotCounterEnabled = other.globalDotCounterEnabled;
+	}
+
 	public void onFoodFound(GameLevel level) {
 		if (globalDotCounterEnabled) {
 			if (level.ghost(ORANGE_GHOST).is(LOCKED) && globalDotCounter == 32) {
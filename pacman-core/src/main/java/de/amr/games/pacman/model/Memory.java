@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * @author Armin Reichert
@@ -32,6 +33,25 @@ public class Memory {
 		forgetEverything();
 	}
 
+	/**
+	 * @param other  memory to copy
+	 * @param ghosts ghosts (by ID) the copy refers to instead of the ghosts of the original memory
+	 */
+	Memory(Memory other, Ghost[] ghosts) {
+		foodFoundTile = other.foodFoundTile;
+		energizerFound = other.energizerFound;
+		bonusReachedIndex = other.bonusReachedIndex;
+		levelCompleted = other.levelCompleted;
+		pacKilled = other.pacKilled;
+		pacPowerActive = other.pacPowerActive;
+		pacPowerStarts = other.pacPowerStarts;
+		pacPowerLost = other.pacPowerLost;
+		pacPowerFading = other.pacPowerFading;
+		pacPrey = other.pacPrey.isEmpty() ? Collections.emptyList()
+				: other.pacPrey.stream().map(ghost -> ghosts[ghost.id()]).collect(Collectors.toList());
+		other.killedGhosts.forEach(ghost -> killedGhosts.add(ghosts[ghost.id()]));
+	}
+
 	public void forgetEverything() {
 		foodFoundTile = null;
 		energizerFound = false;
@@ -47,7 +67,7 @@ public class Memory {
 	}
 
 	public Optional<Vector2i> foodFoundTile() {
-		return Optional.of(foodFoundTile);
+		return Optional.ofNullable(foodFoundTile);
 	}
 
 	@Override
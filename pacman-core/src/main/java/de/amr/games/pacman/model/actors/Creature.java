@@ -7,8 +7,11 @@ package de.amr.games.pacman.model.actors;
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.lib.Vector2f;
 import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.FrameTrace;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.world.DirectionCache;
+import de.amr.games.pacman.model.world.DirectionTable;
 import de.amr.games.pacman.model.world.Portal;
 import org.tinylog.Logger;
 
@@ -26,6 +29,7 @@ import static de.amr.games.pacman.lib.Globals.*;
 public abstract class Creature extends Entity implements AnimationDirector {
 
 	protected static final Direction[] DIRECTION_PRIORITY = { UP, LEFT, DOWN, RIGHT };
+	private static final Direction[] DIRECTIONS = Direction.values();
 
 	private final String name;
 	private Direction moveDir;
@@ -45,6 +49,27 @@ public abstract class Creature extends Entity implements AnimationDirector {
 		this.name = name;
 	}
 
+	/**
+	 * Copies the state of the given creature, including its level reference. Animations are not copied.
+	 * 
+	 * @param other creature to copy
+	 */
+	protected Creature(Creature other) {
+		super(other);
+		name = other.name;
+		moveDir = other.moveDir;
+		wishDir = other.wishDir;
+		targetTile = other.targetTile;
+		level = other.level;
+		moveResult.moved = other.moveResult.moved;
+		moveResult.tunnelEntered = other.moveResult.tunnelEntered;
+		moveResult.teleported = other.moveResult.teleported;
+		newTileEntered = other.newTileEntered;
+		gotReverseCommand = other.gotReverseCommand;
+		canTeleport = other.canTeleport;
+		corneringSpeedUp = other.corneringSpeedUp;
+	}
+
 	/** Readable name, for display and logging purposes. */
 	public String name() {
 		return name;
@@ -77,6 +102,37 @@ public abstract class Creature extends Entity implements AnimationDirector {
 		return Optional.ofNullable(animations);
 	}
 
+	// Creatures are updated every frame, so the animation direction methods avoid creating optionals and lambdas.
+	// Without user interface (headless) no animations are set and these are no-ops.
+
+	@Override
+	public void selectAnimation(String name, Object... args) {
+		if (animations != null) {
+			animations.select(name, args);
+		}
+	}
+
+	@Override
+	public void startAnimation() {
+		if (animations != null) {
+			animations.startSelected();
+		}
+	}
+
+	@Override
+	public void stopAnimation() {
+		if (animations != null) {
+			animations.stopSelected();
+		}
+	}
+
+	@Override
+	public void resetAnimation() {
+		if (animations != null) {
+			animations.resetSelected();
+		}
+	}
+
 	public GameLevel level() {
 		return level;
 	}
@@ -188,18 +244,31 @@ public abstract class Creature extends Entity implements AnimationDirector {
 	}
 
 	/**
+	 * Subclasses overriding this method must also override {@link #accessState()} accordingly.
+	 * 
 	 * @param tile some tile inside or outside the world
 	 * @return if this creature can access the given tile
 	 */
 	public boolean canAccessTile(Vector2i tile) {
-		checkTileNotNull(tile);
 		var world = level.world();
-		if (world.insideBounds(tile)) {
-			return !world.isWall(tile) && !world.house().door().occupies(tile);
+		int index = world.index(tile);
+		if (index != -1) {
+			return !world.isWall(index) && !world.house().door().occupies(tile);
 		}
 		return world.belongsToPortal(tile);
 	}
 
+	/**
+	 * The accessibility of the neighbor tiles must only depend on the current tile and this state because it is part of
+	 * the key under which target directions are cached.
+	 * 
+	 * @return state deciding together with the current tile which neighbor tiles are accessible, see
+	 *         {@link DirectionTable}
+	 */
+	protected int accessState() {
+		return 0;
+	}
+
 	/**
 	 * Sets the move direction and updates the velocity vector.
 	 * 
@@ -293,27 +362,66 @@ public abstract class Creature extends Entity implements AnimationDirector {
 		if (level.world().belongsToPortal(tile())) {
 			return; // inside portal, no navigation happens
 		}
-		computeTargetDirection().ifPresent(this::setWishDir);
+		var dir = computeTargetDirection();
+		if (dir != null) {
+			setWishDir(dir);
+		}
 	}
 
-	private Optional<Direction> computeTargetDirection() {
+	/**
+	 * For static targets like the scatter tiles or the house entry, the decision is taken from the precomputed direction
+	 * table of the world map. Otherwise it is looked up in the direction cache of the map first. The cache key consists
+	 * of the current tile, the move direction, the target tile and the {@link #accessState()}.
+	 */
+	private Direction computeTargetDirection() {
+		var world = level.world();
+		int tileIndex = world.index(tile());
+		int state = accessState();
+		if (tileIndex != -1) {
+			var table = world.map().directionTable(targetTile);
+			if (table != null) {
+				return table.get(tileIndex, moveDir, state);
+			}
+		}
+		var cache = world.map().directionCache();
+		int cached = tileIndex != -1 ? cache.get(tileIndex, moveDir, targetTile, state) : DirectionCache.MISS;
+		if (cached == DirectionCache.NO_DIRECTION) {
+			return null;
+		}
+		if (cached != DirectionCache.MISS) {
+			return DIRECTIONS[cached];
+		}
+		var targetDir = chooseTargetDirection();
+		if (tileIndex != -1) {
+			cache.put(tileIndex, moveDir, targetTile, state, targetDir);
+		}
+		return targetDir;
+	}
+
+	/*
+	 * Chooses the accessible neighbor tile nearest to the target tile (Euclidean distance, compared squared), ties are
+	 * broken by the direction priority.
+	 */
+	private Direction chooseTargetDirection() {
 		final var currentTile = tile();
 		Direction targetDir = null;
-		float minDistance = Float.MAX_VALUE;
+		long minDistance = Long.MAX_VALUE;
 		for (var dir : DIRECTION_PRIORITY) {
 			if (dir == moveDir.opposite()) {
 				continue; // reversing the move direction is not allowed
 			}
 			final var neighborTile = currentTile.plus(dir.vector());
 			if (canAccessTile(neighborTile)) {
-				final var distance = neighborTile.euclideanDistance(targetTile);
+				long dx = neighborTile.x() - targetTile.x();
+				long dy = neighborTile.y() - targetTile.y();
+				long distance = dx * dx + dy * dy;
 				if (distance < minDistance) {
 					minDistance = distance;
 					targetDir = dir;
 				}
 			}
 		}
-		return Optional.ofNullable(targetDir);
+		return targetDir;
 	}
 
 	public boolean moved() {
@@ -324,6 +432,11 @@ public abstract class Creature extends Entity implements AnimationDirector {
 		return moveResult.teleported;
 	}
 
+	/**
+	 * @return ID of this creature in the frame trace, see {@link FrameTrace}
+	 */
+	protected abstract int traceId();
+
 	public boolean enteredTunnel() {
 		return moveResult.tunnelEntered;
 	}
@@ -346,9 +459,6 @@ public abstract class Creature extends Entity implements AnimationDirector {
 				tryMoving(moveDir);
 			}
 		}
-		if (moveResult.teleported || moveResult.moved) {
-			Logger.trace("{}: {} {} {}", name, moveResult, moveResult.summary(), this);
-		}
 	}
 
 	private void checkReverseCommand() {
@@ -372,15 +482,14 @@ public abstract class Creature extends Entity implements AnimationDirector {
 
 	private void teleport(Portal portal) {
 		var tile = tile();
-		var oldPosition = position;
 		if (tile.y() == portal.leftTunnelEnd().y() && position.x() < (portal.leftTunnelEnd().x() - portal.depth()) * TS) {
 			placeAtTile(portal.rightTunnelEnd());
 			moveResult.teleported = true;
-			moveResult.addMessage(String.format("%s: Teleported from %s to %s", name, oldPosition, position));
+			level.game().trace().recordTeleport(traceId(), tile, tile());
 		} else if (tile.equals(portal.rightTunnelEnd().plus(portal.depth(), 0))) {
 			placeAtTile(portal.leftTunnelEnd().minus(portal.depth(), 0));
 			moveResult.teleported = true;
-			moveResult.addMessage(String.format("%s: Teleported from %s to %s", name, oldPosition, position));
+			level.game().trace().recordTeleport(traceId(), tile, tile());
 		}
 	}
 
@@ -388,7 +497,8 @@ public abstract class Creature extends Entity implements AnimationDirector {
 		final var tileBeforeMove = tile();
 		final var aroundCorner = !dir.sameOrientation(moveDir);
 		final var dirVector = dir.vector().toFloatVec();
-		final var newVelocity = dirVector.scaled(velocity.length());
+		final var speed = velocity.length();
+		final var newVelocity = dirVector.scaled(speed);
 		final var touchPosition = center().plus(dirVector.scaled(HTS)).plus(newVelocity);
 		final var touchedTile = tileAt(touchPosition);
 
@@ -396,7 +506,7 @@ public abstract class Creature extends Entity implements AnimationDirector {
 			if (!aroundCorner) {
 				placeAtTile(tile()); // adjust if blocked and moving forward
 			}
-			moveResult.addMessage(String.format("Cannot move %s into tile %s", dir, touchedTile));
+			level.game().trace().recordBlocked(traceId(), touchedTile, dir, FrameTrace.BLOCKED_BY_TILE);
 			return;
 		}
 
@@ -406,7 +516,7 @@ public abstract class Creature extends Entity implements AnimationDirector {
 			if (atTurnPosition) {
 				placeAtTile(tile()); // adjust if moving around corner
 			} else {
-				moveResult.addMessage(String.format("Wants to take corner towards %s but not at turn position", dir));
+				level.game().trace().recordBlocked(traceId(), touchedTile, dir, FrameTrace.BLOCKED_NOT_AT_TURN_POSITION);
 				return;
 			}
 		}
@@ -424,6 +534,13 @@ public abstract class Creature extends Entity implements AnimationDirector {
 		newTileEntered = !tileBeforeMove.equals(tile());
 		moveResult.moved = true;
 		moveResult.tunnelEntered = !level.world().isTunnel(tileBeforeMove) && level.world().isTunnel(tile());
-		moveResult.addMessage(String.format("%5s (%.2f pixels)", dir, newVelocity.length()));
+		var trace = level.game().trace();
+		if (trace.isEnabled()) {
+			int flags = newTileEntered ? FrameTrace.MOVE_NEW_TILE : 0;
+			if (moveResult.tunnelEntered) {
+				flags |= FrameTrace.MOVE_TUNNEL_ENTERED;
+			}
+			trace.recordMove(traceId(), tile(), dir, flags, speed); // new velocity is axis-parallel with same length
+		}
 	}
 }
\ No newline at end of file
@@ -21,6 +21,16 @@ public class Entity {
 	protected Vector2f velocity = Vector2f.ZERO;
 	protected Vector2f acceleration = Vector2f.ZERO;
 
+	public Entity() {
+	}
+
+	protected Entity(Entity other) {
+		visible = other.visible;
+		position = other.position;
+		velocity = other.velocity;
+		acceleration = other.acceleration;
+	}
+
 	@Override
 	public String toString() {
 		return "Entity[visible=" + visible + ", position=" + position + ", velocity=" + velocity
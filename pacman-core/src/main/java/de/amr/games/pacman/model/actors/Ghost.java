@@ -9,6 +9,7 @@ import de.amr.games.pacman.lib.Globals;
 import de.amr.games.pacman.lib.Vector2f;
 import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.world.DirectionTable;
 import de.amr.games.pacman.model.world.House;
 import org.tinylog.Logger;
 
@@ -41,6 +42,24 @@ public class Ghost extends Creature {
 		reset();
 	}
 
+	/**
+	 * Copies the given ghost. The chasing target function is shared and normally has to be replaced because it refers
+	 * to the actors of the original level.
+	 * 
+	 * @param other ghost to copy, see {@link Creature#Creature(Creature)}
+	 */
+	public Ghost(Ghost other) {
+		super(other);
+		id = other.id;
+		state = other.state;
+		fnChasingTarget = other.fnChasingTarget;
+		initialPosition = other.initialPosition;
+		revivalPosition = other.revivalPosition;
+		scatterTile = other.scatterTile;
+		initialDirection = other.initialDirection;
+		killedIndex = other.killedIndex;
+	}
+
 	@Override
 	public String toString() {
 		return "Ghost [id=" + id + ", state=" + state + ", initialPosition=" + initialPosition + ", revivalPosition="
@@ -142,6 +161,20 @@ public class Ghost extends Creature {
 		return super.canAccessTile(targetTile);
 	}
 
+	@Override
+	protected int traceId() {
+		return id;
+	}
+
+	@Override
+	protected int accessState() {
+		int state = is(ENTERING_HOUSE, LEAVING_HOUSE) ? DirectionTable.ACCESS_DOOR : 0;
+		if (!level.isSteeringAllowed(this, UP)) {
+			state |= DirectionTable.ACCESS_UP_BLOCKED;
+		}
+		return state;
+	}
+
 	@Override
 	public boolean canReverse() {
 		return isNewTileEntered() && is(HUNTING_PAC, FRIGHTENED);
@@ -189,7 +222,7 @@ public class Ghost extends Creature {
 	}
 
 	private Direction pseudoRandomDirection() {
-		float rnd = Globals.randomFloat(0, 100);
+		float rnd = randomFloat(level.game().random(), 0, 100);
 		if (rnd < 16.3) return UP;
 		if (rnd < 16.3 + 25.2) return RIGHT;
 		if (rnd < 16.3 + 25.2 + 28.5) return DOWN;
@@ -4,29 +4,15 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model.actors;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
-
 public class MoveResult {
 	public boolean moved;
 	public boolean tunnelEntered;
 	public boolean teleported;
-	private final List<String> messages = new ArrayList<>(3);
 
 	public void clear() {
 		moved = false;
 		tunnelEntered = false;
 		teleported = false;
-		messages.clear();
-	}
-
-	public void addMessage(String message) {
-		messages.add(message);
-	}
-
-	public String summary() {
-		return messages.stream().collect(Collectors.joining(", "));
 	}
 
 	@Override
@@ -0,0 +1,437 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.actors;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.world.World;
+
+import java.util.List;
+import java.util.Optional;
+
+import static de.amr.games.pacman.lib.Globals.*;
+
+/**
+ * Movement of many creatures, for example the guys of many game sessions simulated together. Instead of one object per
+ * creature, positions, speeds, directions and access flags are stored in primitive arrays (structure of arrays).
+ * <p>
+ * A {@link #step()} moves all creatures like {@link Creature#tryMoving()} moves a single creature: teleport through
+ * a portal, else move towards the wish direction if possible, else towards the move direction. The accessibility rules
+ * (walls, house door, portals, tiles where hunting ghosts cannot move upwards), the cornering and the floating point
+ * arithmetic are the same, so both paths compute identical positions. Reverse commands and the frame trace are not
+ * handled. All creatures of a batch move through worlds with the same map.
+ * <p>
+ * The arrays are public, so a {@link Kernel} outside of this package can compute the step of the first slots, for
+ * example with the Vector API, see {@link #setKernel(Kernel)}.
+ *
+ * @author Armin Reichert
+ */
+public final class MovementBatch {
+
+	/** Step result flag: the creature moved. */
+	public static final int MOVED = 1;
+
+	/** Step result flag: the creature entered a new tile. */
+	public static final int NEW_TILE_ENTERED = 2;
+
+	/** Step result flag: the creature entered a tunnel. */
+	public static final int TUNNEL_ENTERED = 4;
+
+	/** Step result flag: the creature was teleported. */
+	public static final int TELEPORTED = 8;
+
+	// creature access flags
+	public static final int ACCESS_DOOR = 1;
+	public static final int ACCESS_UP_BLOCKABLE = 2;
+	public static final int ACCESS_TELEPORT = 4;
+
+	// tile flags
+	public static final int TILE_OPEN = 1;
+	public static final int TILE_DOOR = 2;
+	public static final int TILE_TUNNEL = 4;
+	public static final int TILE_UP_BLOCKED = 8;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	/**
+	 * Computes the step of the creatures in the first slots of a batch, the remaining slots are moved by the scalar code.
+	 * Must compute exactly the same positions, directions and results as the scalar code.
+	 */
+	@FunctionalInterface
+	public interface Kernel {
+
+		/**
+		 * @return first slot not moved
+		 */
+		int step();
+	}
+
+	// creatures
+	public final float[] x;
+	public final float[] y;
+	public final float[] speed;
+	public final float[] corneringSpeedUp;
+	public final int[] moveDir;
+	public final int[] wishDir;
+	public final int[] access;
+	public final int[] result;
+	private int size;
+
+	// map: tile flags of the map extended by pad columns left and right and one row above and below. The border of this
+	// area contains no accessible tile, so tile coordinates outside can be clamped to the border.
+	public final int numCols;
+	public final int numRows;
+	public final int pad;
+	public final int stride;
+	public final int[] tileFlags;
+
+	// portals
+	public final int[] portalLeftX;
+	public final int[] portalLeftY;
+	public final int[] portalRightX;
+	public final int[] portalRightY;
+	public final int[] portalDepth;
+
+	private Kernel kernel;
+
+	/**
+	 * @param world               world, only its map is used
+	 * @param upwardsBlockedTiles tiles where hunting ghosts cannot move upwards
+	 * @param capacity            maximum number of creatures
+	 */
+	public MovementBatch(World world, List<Vector2i> upwardsBlockedTiles, int capacity) {
+		checkNotNull(world);
+		checkNotNull(upwardsBlockedTiles);
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive but is " + capacity);
+		}
+		x = new float[capacity];
+		y = new float[capacity];
+		speed = new float[capacity];
+		corneringSpeedUp = new float[capacity];
+		moveDir = new int[capacity];
+		wishDir = new int[capacity];
+		access = new int[capacity];
+		result = new int[capacity];
+
+		var portals = world.portals();
+		portalLeftX = new int[portals.size()];
+		portalLeftY = new int[portals.size()];
+		portalRightX = new int[portals.size()];
+		portalRightY = new int[portals.size()];
+		portalDepth = new int[portals.size()];
+		int maxDepth = 0;
+		for (int i = 0; i < portals.size(); ++i) {
+			var portal = portals.get(i);
+			portalLeftX[i] = portal.leftTunnelEnd().x();
+			portalLeftY[i] = portal.leftTunnelEnd().y();
+			portalRightX[i] = portal.rightTunnelEnd().x();
+			portalRightY[i] = portal.rightTunnelEnd().y();
+			portalDepth[i] = portal.depth();
+			maxDepth = Math.max(maxDepth, portal.depth());
+		}
+
+		numCols = world.numCols();
+		numRows = world.numRows();
+		pad = maxDepth + 2;
+		stride = numCols + 2 * pad;
+		tileFlags = new int[stride * (numRows + 2)];
+		for (int row = 0; row < numRows; ++row) {
+			for (int col = -pad; col < numCols + pad; ++col) {
+				tileFlags[tileIndex(col, row)] = computeTileFlags(world, v2i(col, row), upwardsBlockedTiles);
+			}
+		}
+	}
+
+	/**
+	 * @param level    game level providing the world and the tiles where hunting ghosts cannot move upwards
+	 * @param capacity maximum number of creatures
+	 */
+	public MovementBatch(GameLevel level, int capacity) {
+		this(level.world(), level.upwardsBlockedTiles(), capacity);
+	}
+
+	private static int computeTileFlags(World world, Vector2i tile, List<Vector2i> upwardsBlockedTiles) {
+		int flags = 0;
+		if (world.house().door().occupies(tile)) {
+			flags |= TILE_DOOR;
+		} else if (world.insideBounds(tile) ? !world.isWall(tile) : world.belongsToPortal(tile)) {
+			flags |= TILE_OPEN;
+		}
+		if (world.isTunnel(tile)) {
+			flags |= TILE_TUNNEL;
+		}
+		if (upwardsBlockedTiles.contains(tile)) {
+			flags |= TILE_UP_BLOCKED;
+		}
+		return flags;
+	}
+
+	int tileIndex(int col, int row) {
+		row = Math.max(-1, Math.min(row, numRows));
+		col = Math.max(-pad, Math.min(col, numCols + pad - 1));
+		return (row + 1) * stride + col + pad;
+	}
+
+	public int capacity() {
+		return x.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all creatures.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Adds the given creature.
+	 *
+	 * @param creature a creature
+	 * @return slot of the creature
+	 */
+	public int add(Creature creature) {
+		if (size == capacity()) {
+			throw new IllegalStateException("Movement batch is full, capacity: " + capacity());
+		}
+		checkNotNull(creature);
+		copyFrom(size, creature);
+		return size++;
+	}
+
+	private void checkSlot(int slot) {
+		if (slot < 0 || slot >= size) {
+			throw new IndexOutOfBoundsException("Illegal slot: " + slot + ", size: " + size);
+		}
+	}
+
+	/**
+	 * Copies the movement state of the given creature into the slot. For a ghost, the access flags depend on its current
+	 * state, so the ghost must be loaded again when its state changes.
+	 *
+	 * @param slot     slot
+	 * @param creature a creature
+	 */
+	public void load(int slot, Creature creature) {
+		checkSlot(slot);
+		checkNotNull(creature);
+		copyFrom(slot, creature);
+	}
+
+	private void copyFrom(int slot, Creature creature) {
+		x[slot] = creature.position().x();
+		y[slot] = creature.position().y();
+		speed[slot] = creature.velocity().length();
+		corneringSpeedUp[slot] = creature.corneringSpeedUp;
+		moveDir[slot] = creature.moveDir().ordinal();
+		wishDir[slot] = creature.wishDir().ordinal();
+		int flags = creature.canTeleport() ? ACCESS_TELEPORT : 0;
+		if (creature instanceof Ghost ghost) {
+			if (ghost.is(GhostState.ENTERING_HOUSE, GhostState.LEAVING_HOUSE)) {
+				flags |= ACCESS_DOOR;
+			}
+			if (ghost.is(GhostState.HUNTING_PAC)) {
+				flags |= ACCESS_UP_BLOCKABLE;
+			}
+		}
+		access[slot] = flags;
+		result[slot] = 0;
+	}
+
+	/**
+	 * Copies the movement state of the slot back into the given creature.
+	 *
+	 * @param slot     slot
+	 * @param creature a creature
+	 */
+	public void store(int slot, Creature creature) {
+		checkSlot(slot);
+		checkNotNull(creature);
+		creature.setPosition(x[slot], y[slot]);
+		creature.setMoveDir(DIRECTIONS[moveDir[slot]]);
+		creature.setWishDir(DIRECTIONS[wishDir[slot]]);
+		creature.newTileEntered = (result[slot] & NEW_TILE_ENTERED) != 0;
+		creature.moveResult.moved = (result[slot] & MOVED) != 0;
+		creature.moveResult.tunnelEntered = (result[slot] & TUNNEL_ENTERED) != 0;
+		creature.moveResult.teleported = (result[slot] & TELEPORTED) != 0;
+	}
+
+	public float x(int slot) {
+		checkSlot(slot);
+		return x[slot];
+	}
+
+	public float y(int slot) {
+		checkSlot(slot);
+		return y[slot];
+	}
+
+	public Direction moveDir(int slot) {
+		checkSlot(slot);
+		return DIRECTIONS[moveDir[slot]];
+	}
+
+	public Direction wishDir(int slot) {
+		checkSlot(slot);
+		return DIRECTIONS[wishDir[slot]];
+	}
+
+	public void setWishDir(int slot, Direction dir) {
+		checkSlot(slot);
+		checkDirectionNotNull(dir);
+		wishDir[slot] = dir.ordinal();
+	}
+
+	/**
+	 * @param slot slot
+	 * @return result flags of the last step, see {@link #MOVED}, {@link #NEW_TILE_ENTERED}, {@link #TUNNEL_ENTERED},
+	 *         {@link #TELEPORTED}
+	 */
+	public int result(int slot) {
+		checkSlot(slot);
+		return result[slot];
+	}
+
+	public Optional<Kernel> kernel() {
+		return Optional.ofNullable(kernel);
+	}
+
+	/**
+	 * @param kernel kernel computing the step of the first slots or <code>null</code> if all slots are moved by the
+	 *               scalar code
+	 */
+	public void setKernel(Kernel kernel) {
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Moves all creatures one step.
+	 */
+	public void step() {
+		int start = kernel != null ? kernel.step() : 0;
+		for (int slot = start; slot < size; ++slot) {
+			step(slot);
+		}
+	}
+
+	private void step(int slot) {
+		result[slot] = 0;
+		if ((access[slot] & ACCESS_TELEPORT) != 0 && tryTeleport(slot)) {
+			return;
+		}
+		tryMoving(slot, wishDir[slot]);
+		if ((result[slot] & MOVED) != 0) {
+			moveDir[slot] = wishDir[slot];
+		} else {
+			tryMoving(slot, moveDir[slot]);
+		}
+	}
+
+	private boolean tryTeleport(int slot) {
+		int tx = (int) ((x[slot] + HTS) / TS);
+		int ty = (int) ((y[slot] + HTS) / TS);
+		for (int i = 0; i < portalDepth.length; ++i) {
+			if (ty == portalLeftY[i] && x[slot] < (portalLeftX[i] - portalDepth[i]) * TS) {
+				place(slot, portalRightX[i], portalRightY[i], tx, ty);
+				result[slot] = TELEPORTED | result[slot];
+				return true;
+			}
+			if (tx == portalRightX[i] + portalDepth[i] && ty == portalRightY[i]) {
+				place(slot, portalLeftX[i] - portalDepth[i], portalLeftY[i], tx, ty);
+				result[slot] = TELEPORTED | result[slot];
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// places the creature at the tile origin and sets the new tile flag like Creature.placeAtTile()
+	private void place(int slot, int col, int row, int prevCol, int prevRow) {
+		x[slot] = col * TS + 0f;
+		y[slot] = row * TS + 0f;
+		boolean newTile = (int) ((x[slot] + HTS) / TS) != prevCol || (int) ((y[slot] + HTS) / TS) != prevRow;
+		result[slot] = newTile ? result[slot] | NEW_TILE_ENTERED : result[slot] & ~NEW_TILE_ENTERED;
+	}
+
+	private void tryMoving(int slot, int dir) {
+		final int tx = (int) ((x[slot] + HTS) / TS);
+		final int ty = (int) ((y[slot] + HTS) / TS);
+		final int tileFlagsBefore = tileFlags[tileIndex(tx, ty)];
+		final boolean horizontal = isHorizontal(dir);
+		final boolean aroundCorner = horizontal != isHorizontal(moveDir[slot]);
+		final float dx = dx(dir);
+		final float dy = dy(dir);
+		final float s = speed[slot];
+		final int ux = (int) (((x[slot] + HTS) + HTS * dx + s * dx) / TS);
+		final int uy = (int) (((y[slot] + HTS) + HTS * dy + s * dy) / TS);
+
+		if (!canAccess(slot, tileFlagsBefore, tx, ty, ux, uy)) {
+			if (!aroundCorner) {
+				place(slot, tx, ty, tx, ty);
+			}
+			return;
+		}
+
+		if (aroundCorner) {
+			float offset = horizontal ? y[slot] - (float) (TS * ty) : x[slot] - (float) (TS * tx);
+			if (Math.abs(offset) <= 1) {
+				place(slot, tx, ty, tx, ty);
+			} else {
+				return;
+			}
+		}
+
+		float vx = s * dx;
+		float vy = s * dy;
+		float cs = corneringSpeedUp[slot];
+		if (aroundCorner && cs > 0) {
+			vx += cs * dx;
+			vy += cs * dy;
+		}
+		x[slot] += vx;
+		y[slot] += vy;
+
+		int nx = (int) ((x[slot] + HTS) / TS);
+		int ny = (int) ((y[slot] + HTS) / TS);
+		int flags = MOVED;
+		if (nx != tx || ny != ty) {
+			flags |= NEW_TILE_ENTERED;
+		}
+		if ((tileFlagsBefore & TILE_TUNNEL) == 0 && (tileFlags[tileIndex(nx, ny)] & TILE_TUNNEL) != 0) {
+			flags |= TUNNEL_ENTERED;
+		}
+		result[slot] = flags;
+	}
+
+	// same rules as Creature.canAccessTile() and Ghost.canAccessTile()
+	private boolean canAccess(int slot, int tileFlagsBefore, int tx, int ty, int ux, int uy) {
+		if ((access[slot] & ACCESS_UP_BLOCKABLE) != 0 && (tileFlagsBefore & TILE_UP_BLOCKED) != 0 && ux == tx
+				&& uy == ty - 1) {
+			return false;
+		}
+		int flags = tileFlags[tileIndex(ux, uy)];
+		if ((flags & TILE_DOOR) != 0) {
+			return (access[slot] & ACCESS_DOOR) != 0;
+		}
+		return (flags & TILE_OPEN) != 0;
+	}
+
+	private static boolean isHorizontal(int dir) {
+		return dir == Direction.LEFT.ordinal() || dir == Direction.RIGHT.ordinal();
+	}
+
+	private static float dx(int dir) {
+		return DIRECTIONS[dir].vector().x();
+	}
+
+	private static float dy(int dir) {
+		return DIRECTIONS[dir].vector().y();
+	}
+}
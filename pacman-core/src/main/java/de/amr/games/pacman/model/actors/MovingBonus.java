@@ -4,12 +4,12 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model.actors;
 
-import de.amr.games.pacman.controller.GameController;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.lib.NavigationPoint;
 import de.amr.games.pacman.lib.Pulse;
 import de.amr.games.pacman.lib.RouteBasedSteering;
+import de.amr.games.pacman.model.FrameTrace;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
 import org.tinylog.Logger;
@@ -28,7 +28,7 @@ import java.util.List;
 public class MovingBonus extends Creature implements Bonus {
 
 	private final Pulse jumpAnimation;
-	private final RouteBasedSteering steering = new RouteBasedSteering();
+	private final RouteBasedSteering steering;
 	private final byte symbol;
 	private final int points;
 	private long eatenTimer;
@@ -40,11 +40,30 @@ public class MovingBonus extends Creature implements Bonus {
 		this.symbol = symbol;
 		this.points = points;
 		jumpAnimation = new Pulse(10, false);
+		steering = new RouteBasedSteering();
 		canTeleport = false; // override default from Creature
 		eatenTimer = 0;
 		state = Bonus.STATE_INACTIVE;
 	}
 
+	/**
+	 * @param other bonus to copy, see {@link Creature#Creature(Creature)}
+	 */
+	public MovingBonus(MovingBonus other) {
+		super(other);
+		symbol = other.symbol;
+		points = other.points;
+		jumpAnimation = new Pulse(other.jumpAnimation);
+		steering = new RouteBasedSteering(other.steering);
+		eatenTimer = other.eatenTimer;
+		state = other.state;
+	}
+
+	@Override
+	protected int traceId() {
+		return FrameTrace.ACTOR_BONUS;
+	}
+
 	@Override
 	public boolean canReverse() {
 		return false;
@@ -99,7 +118,7 @@ public class MovingBonus extends Creature implements Bonus {
 		eatenTimer = ticks;
 		jumpAnimation.stop();
 		Logger.info("Bonus eaten: {}", this);
-		GameController.it().publishGameEvent(GameEventType.BONUS_EATEN, tile());
+		level().game().publishGameEvent(GameEventType.BONUS_EATEN, tile());
 	}
 
 	public void setRoute(List<NavigationPoint> route, boolean leftToRight) {
@@ -127,16 +146,15 @@ public class MovingBonus extends Creature implements Bonus {
 			if (sameTile(level.pac())) {
 				level.game().scorePoints(points());
 				setEaten(GameModel.BONUS_POINTS_SHOWN_TICKS);
-				GameController.it().publishGameEvent(GameEventType.BONUS_EATEN);
+				level().game().publishGameEvent(GameEventType.BONUS_EATEN);
 				return;
 			}
 			steering.steer(level, this);
 			if (steering.isComplete()) {
 				setInactive();
 				Logger.trace("Bonus reached target: {}", this);
-				GameController.it().publishGameEvent(GameEventType.BONUS_EXPIRED, tile());
+				level().game().publishGameEvent(GameEventType.BONUS_EXPIRED, tile());
 			} else {
-				navigateTowardsTarget();
 				tryMoving();
 				jumpAnimation.tick();
 			}
@@ -147,7 +165,7 @@ public class MovingBonus extends Creature implements Bonus {
 			if (--eatenTimer == 0) {
 				setInactive();
 				Logger.trace("Bonus expired: {}", this);
-				GameController.it().publishGameEvent(GameEventType.BONUS_EXPIRED, tile());
+				level().game().publishGameEvent(GameEventType.BONUS_EXPIRED, tile());
 			}
 			break;
 		}
@@ -5,6 +5,7 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.model.actors;
 
 import de.amr.games.pacman.lib.TickTimer;
+import de.amr.games.pacman.model.FrameTrace;
 import de.amr.games.pacman.model.GameModel;
 
 /**
@@ -27,6 +28,17 @@ public class Pac extends Creature {
 		reset();
 	}
 
+	/**
+	 * @param other Pac-Man to copy, see {@link Creature#Creature(Creature)}
+	 */
+	public Pac(Pac other) {
+		super(other);
+		powerTimer = new TickTimer(other.powerTimer);
+		dead = other.dead;
+		restingTicks = other.restingTicks;
+		starvingTicks = other.starvingTicks;
+	}
+
 	@Override
 	public String toString() {
 		return "Pac [powerTimer=" + powerTimer + ", dead=" + dead + ", restingTicks=" + restingTicks + ", starvingTicks="
@@ -35,6 +47,11 @@ public class Pac extends Creature {
 				+ visible + ", position=" + position + ", velocity=" + velocity + ", acceleration=" + acceleration + "]";
 	}
 
+	@Override
+	protected int traceId() {
+		return FrameTrace.ACTOR_PAC;
+	}
+
 	@Override
 	public boolean canReverse() {
 		return isNewTileEntered();
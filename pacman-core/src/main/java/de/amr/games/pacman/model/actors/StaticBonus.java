@@ -4,12 +4,13 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model.actors;
 
-import de.amr.games.pacman.controller.GameController;
 import de.amr.games.pacman.event.GameEventType;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
 import org.tinylog.Logger;
 
+import static de.amr.games.pacman.lib.Globals.checkLevelNotNull;
+
 /**
  * Bonus that appears for some time at a fixed position before it gets eaten or vanishes.
  * 
@@ -21,6 +22,7 @@ public class StaticBonus extends Entity implements Bonus {
 	private final int points;
 	private long timer;
 	private byte state;
+	private GameLevel level;
 
 	public StaticBonus(byte symbol, int points) {
 		this.symbol = symbol;
@@ -29,6 +31,26 @@ public class StaticBonus extends Entity implements Bonus {
 		this.state = Bonus.STATE_INACTIVE;
 	}
 
+	/**
+	 * @param other bonus to copy, the level reference is copied too
+	 */
+	public StaticBonus(StaticBonus other) {
+		super(other);
+		symbol = other.symbol;
+		points = other.points;
+		timer = other.timer;
+		state = other.state;
+		level = other.level;
+	}
+
+	/**
+	 * @param level the level where this bonus appears
+	 */
+	public void setLevel(GameLevel level) {
+		checkLevelNotNull(level);
+		this.level = level;
+	}
+
 	@Override
 	public StaticBonus entity() {
 		return this;
@@ -80,13 +102,13 @@ public class StaticBonus extends Entity implements Bonus {
 		timer = ticks;
 		state = Bonus.STATE_EATEN;
 		Logger.info("Bonus eaten: {}", this);
-		GameController.it().publishGameEvent(GameEventType.BONUS_EATEN, tile());
+		level.game().publishGameEvent(GameEventType.BONUS_EATEN, tile());
 	}
 
 	private void expire() {
 		setInactive();
 		Logger.info("Bonus expired: {}", this);
-		GameController.it().publishGameEvent(GameEventType.BONUS_EXPIRED, tile());
+		level.game().publishGameEvent(GameEventType.BONUS_EXPIRED, tile());
 	}
 
 	@Override
@@ -102,7 +124,7 @@ public class StaticBonus extends Entity implements Bonus {
 				level.game().scorePoints(points());
 				setEaten(GameModel.BONUS_POINTS_SHOWN_TICKS);
 				Logger.info("Scored {} points for eating bonus {}", points(), this);
-				GameController.it().publishGameEvent(GameEventType.BONUS_EATEN);
+				level.game().publishGameEvent(GameEventType.BONUS_EATEN);
 			} else if (timer == 0) {
 				expire();
 			} else {
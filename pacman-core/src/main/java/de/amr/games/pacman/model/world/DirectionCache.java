@@ -0,0 +1,92 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.world;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caches the direction a creature chooses when navigating towards a target tile. The choice only depends on the
+ * current tile, the move direction, the target tile and the accessibility state of the creature (e.g. if the house
+ * door can be passed), so one cache per map can be shared by all creatures and game sessions.
+ * <p>
+ * The cache is a direct-mapped table of fixed size. Each entry is a single <code>long</code> containing the key and
+ * the cached direction, so entries can be read and written without locks. Colliding keys simply overwrite each other.
+ *
+ * @author Armin Reichert
+ */
+public final class DirectionCache {
+
+	/** Returned by {@link #get} if there is no entry for the key. */
+	public static final int MISS = -2;
+
+	/** Cached result meaning that no direction could be chosen. */
+	public static final int NO_DIRECTION = -1;
+
+	/** Number of bits available for the accessibility state. */
+	public static final int STATE_BITS = 2;
+
+	private static final int SIZE_BITS = 12;
+	private static final long VALID = 1L << 3;
+	private static final long RESULT_MASK = 0b111;
+	private static final int RESULT_NONE = 4;
+
+	private final AtomicLongArray entries = new AtomicLongArray(1 << SIZE_BITS);
+
+	/*
+	 * Entry layout (from least significant bit): result (3 bits), valid (1), move direction (2), state (2), target x (16,
+	 * signed), target y (16, signed), tile index (24). Returns -1 if the key cannot be represented.
+	 */
+	private static long key(int tileIndex, Direction moveDir, Vector2i target, int state) {
+		int x = target.x();
+		int y = target.y();
+		if (tileIndex < 0 || tileIndex >= 1 << 24 || state < 0 || state >= 1 << STATE_BITS
+				|| x != (short) x || y != (short) y) {
+			return -1;
+		}
+		return (long) tileIndex << 40 | (y & 0xFFFFL) << 24 | (x & 0xFFFFL) << 8 | (long) state << 6
+				| (long) moveDir.ordinal() << 4 | VALID;
+	}
+
+	private static int slot(long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - SIZE_BITS));
+	}
+
+	/**
+	 * @param tileIndex index of the current tile
+	 * @param moveDir   current move direction
+	 * @param target    target tile
+	 * @param state     accessibility state (0..3)
+	 * @return ordinal of the cached direction, {@link #NO_DIRECTION} or {@link #MISS}
+	 */
+	public int get(int tileIndex, Direction moveDir, Vector2i target, int state) {
+		long key = key(tileIndex, moveDir, target, state);
+		if (key == -1) {
+			return MISS;
+		}
+		long entry = entries.get(slot(key));
+		if ((entry & ~RESULT_MASK) != key) {
+			return MISS;
+		}
+		int result = (int) (entry & RESULT_MASK);
+		return result == RESULT_NONE ? NO_DIRECTION : result;
+	}
+
+	/**
+	 * @param tileIndex index of the current tile
+	 * @param moveDir   current move direction
+	 * @param target    target tile
+	 * @param state     accessibility state (0..3)
+	 * @param dir       chosen direction or <code>null</code>
+	 */
+	public void put(int tileIndex, Direction moveDir, Vector2i target, int state, Direction dir) {
+		long key = key(tileIndex, moveDir, target, state);
+		if (key != -1) {
+			entries.lazySet(slot(key), key | (dir != null ? dir.ordinal() : RESULT_NONE));
+		}
+	}
+}
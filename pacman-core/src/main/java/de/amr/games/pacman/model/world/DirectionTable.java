@@ -0,0 +1,112 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.world;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+
+import java.util.Arrays;
+
+import static de.amr.games.pacman.lib.Direction.*;
+
+/**
+ * Precomputed navigation decisions towards a fixed target tile (e.g. a ghost's scatter tile or the house entry). For
+ * each tile, move direction and access state, the table contains the direction a creature chooses when navigating
+ * towards the target: the accessible neighbor tile (not reversing the move direction) nearest to the target, ties
+ * broken by the order <code>UP, LEFT, DOWN, RIGHT</code>.
+ * <p>
+ * A neighbor tile is accessible if it is a tile inside the map that is not a wall or a portal tile outside of the map.
+ * The house door is accessible only in state {@link #ACCESS_DOOR}, the tile above the current tile is not accessible
+ * in state {@link #ACCESS_UP_BLOCKED}.
+ *
+ * @author Armin Reichert
+ */
+public final class DirectionTable {
+
+	/** Access state flag: the house door can be passed. */
+	public static final int ACCESS_DOOR = 1;
+
+	/** Access state flag: moving upwards from the current tile is not allowed. */
+	public static final int ACCESS_UP_BLOCKED = 2;
+
+	/** Number of access states. */
+	public static final int NUM_ACCESS_STATES = 4;
+
+	private static final Direction[] DIRECTION_PRIORITY = { UP, LEFT, DOWN, RIGHT };
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final byte NONE = -1;
+
+	private final Vector2i target;
+	private final byte[] decisions;
+
+	DirectionTable(WorldMap map, Vector2i target) {
+		this.target = target;
+		int numTiles = map.numCols() * map.numRows();
+		decisions = new byte[numTiles * 4 * NUM_ACCESS_STATES];
+		Arrays.fill(decisions, NONE);
+		for (int index = 0; index < numTiles; ++index) {
+			var tile = map.tile(index);
+			for (var moveDir : DIRECTIONS) {
+				for (int state = 0; state < NUM_ACCESS_STATES; ++state) {
+					var dir = choose(map, tile, moveDir, state);
+					if (dir != null) {
+						decisions[slot(index, moveDir, state)] = (byte) dir.ordinal();
+					}
+				}
+			}
+		}
+	}
+
+	private static int slot(int tileIndex, Direction moveDir, int state) {
+		return (tileIndex * 4 + moveDir.ordinal()) * NUM_ACCESS_STATES + state;
+	}
+
+	private Direction choose(WorldMap map, Vector2i tile, Direction moveDir, int state) {
+		Direction targetDir = null;
+		long minDistance = Long.MAX_VALUE;
+		for (var dir : DIRECTION_PRIORITY) {
+			if (dir == moveDir.opposite()) {
+				continue;
+			}
+			var neighborTile = tile.plus(dir.vector());
+			if (canAccess(map, neighborTile, dir, state)) {
+				long dx = neighborTile.x() - target.x();
+				long dy = neighborTile.y() - target.y();
+				long distance = dx * dx + dy * dy;
+				if (distance < minDistance) {
+					minDistance = distance;
+					targetDir = dir;
+				}
+			}
+		}
+		return targetDir;
+	}
+
+	private static boolean canAccess(WorldMap map, Vector2i tile, Direction dir, int state) {
+		if (dir == UP && (state & ACCESS_UP_BLOCKED) != 0) {
+			return false;
+		}
+		if (map.house().door().occupies(tile)) {
+			return (state & ACCESS_DOOR) != 0;
+		}
+		int index = map.index(tile);
+		return index != -1 ? !map.isWall(index) : map.belongsToPortal(tile);
+	}
+
+	public Vector2i target() {
+		return target;
+	}
+
+	/**
+	 * @param tileIndex valid tile index
+	 * @param moveDir   current move direction
+	 * @param state     access state
+	 * @return direction chosen to reach the target or <code>null</code>
+	 */
+	public Direction get(int tileIndex, Direction moveDir, int state) {
+		byte decision = decisions[slot(tileIndex, moveDir, state)];
+		return decision != NONE ? DIRECTIONS[decision] : null;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.world;
+
+import de.amr.games.pacman.lib.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Shortest path distances (number of moves) between all tiles accessible by Pac-Man (see
+ * {@link NavigationGraph#isAccessible(int)}). Moving through a portal counts as one move, the house door is blocked.
+ * <p>
+ * The accessible tiles get consecutive numbers, the distances are stored in a <code>short</code> array indexed by
+ * these numbers.
+ *
+ * @author Armin Reichert
+ */
+final class DistanceTable {
+
+	private static final int NO_TILE = -1;
+
+	private final int[] tileNumber; // tile index -> number of accessible tile or -1
+	private final int numTiles;
+	private final short[] distances;
+
+	DistanceTable(WorldMap map, NavigationGraph graph) {
+		int numIndices = map.numCols() * map.numRows();
+		tileNumber = new int[numIndices];
+		int[] tileIndex = new int[numIndices];
+		int n = 0;
+		for (int index = 0; index < numIndices; ++index) {
+			if (graph.isAccessible(index)) {
+				tileIndex[n] = index;
+				tileNumber[index] = n++;
+			} else {
+				tileNumber[index] = NO_TILE;
+			}
+		}
+		numTiles = n;
+		distances = new short[n * n];
+		Arrays.fill(distances, (short) NO_TILE);
+
+		// breadth-first search from each accessible tile
+		int[] queue = new int[n];
+		for (int source = 0; source < n; ++source) {
+			int row = source * n;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = source;
+			distances[row + source] = 0;
+			while (head < tail) {
+				int current = queue[head++];
+				short nextDistance = (short) (distances[row + current] + 1);
+				for (var dir : Direction.values()) {
+					int neighbor = map.neighbor(tileIndex[current], dir);
+					if (neighbor == NO_TILE) {
+						continue;
+					}
+					int next = tileNumber[neighbor];
+					if (next != NO_TILE && distances[row + next] == NO_TILE) {
+						distances[row + next] = nextDistance;
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param indexA valid tile index
+	 * @param indexB valid tile index
+	 * @return number of moves on a shortest path or <code>-1</code> if one of the tiles is not accessible
+	 */
+	int distance(int indexA, int indexB) {
+		int a = tileNumber[indexA];
+		int b = tileNumber[indexB];
+		return a == NO_TILE || b == NO_TILE ? NO_TILE : distances[a * numTiles + b];
+	}
+}
@@ -0,0 +1,168 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.world;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed shortest ways to a fixed target tile (e.g. a waypoint of a route). For each tile accessible by Pac-Man
+ * (see {@link NavigationGraph#isAccessible(int)}) and move direction, the field contains the direction of the first
+ * move on a shortest way to the target that never reverses the move direction. If the target can only be reached by
+ * reversing, the first move on a shortest way with reversal is taken.
+ * <p>
+ * The target may also be a portal tile outside of the map, then the way leads through the border tile of the portal.
+ * Ways through a portal to the opposite border are only used by fields for creatures that can teleport.
+ *
+ * @author Armin Reichert
+ */
+public final class FlowField {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int NO_TILE = -1;
+	private static final byte NONE = -1;
+
+	private final Vector2i target;
+	private final boolean teleport;
+	private final byte[] decisions;
+
+	FlowField(WorldMap map, Vector2i target, boolean teleport) {
+		this.target = target;
+		this.teleport = teleport;
+		int numTiles = map.numCols() * map.numRows();
+		decisions = new byte[4 * numTiles];
+		Arrays.fill(decisions, NONE);
+		var graph = map.navigationGraph();
+
+		// the target tile inside the map and the last move, if the target is a portal tile outside of the map
+		int goal = map.index(target);
+		Direction exitDir = null;
+		if (goal == NO_TILE) {
+			if (!map.belongsToPortal(target)) {
+				return;
+			}
+			exitDir = target.x() < 0 ? Direction.LEFT : Direction.RIGHT;
+			goal = map.index(Vector2i.of(target.x() < 0 ? 0 : map.numCols() - 1, target.y()));
+		}
+		if (!graph.isAccessible(goal)) {
+			return;
+		}
+
+		// breadth-first search backwards over the states (tile, move direction)
+		int[] queue = new int[4 * numTiles];
+		boolean[] reached = new boolean[4 * numTiles];
+		int tail = 0;
+		for (var dir : DIRECTIONS) {
+			int state = 4 * goal + dir.ordinal();
+			if (exitDir == null) {
+				reached[state] = true;
+				queue[tail++] = state;
+			} else if (dir != exitDir.opposite()) {
+				reached[state] = true;
+				decisions[state] = (byte) exitDir.ordinal();
+				queue[tail++] = state;
+			}
+		}
+		for (int head = 0; head < tail; ++head) {
+			int tile = queue[head] >> 2;
+			var arrivalDir = DIRECTIONS[queue[head] & 3];
+			// predecessor tile from which a move into the arrival direction leads to this tile
+			int pred = neighbor(map, tile, arrivalDir.opposite());
+			if (pred == NO_TILE || !graph.isAccessible(pred)) {
+				continue;
+			}
+			for (var moveDir : DIRECTIONS) {
+				int state = 4 * pred + moveDir.ordinal();
+				if (moveDir != arrivalDir.opposite() && !reached[state]) {
+					reached[state] = true;
+					decisions[state] = (byte) arrivalDir.ordinal();
+					queue[tail++] = state;
+				}
+			}
+		}
+
+		// states which cannot reach the target without reversing
+		int[] distance = tileDistances(map, goal);
+		for (int index = 0; index < numTiles; ++index) {
+			if (!graph.isAccessible(index) || index == goal && exitDir == null) {
+				continue;
+			}
+			byte fallback = index == goal ? (byte) exitDir.ordinal() : nearestNeighborDir(map, distance, index);
+			for (var dir : DIRECTIONS) {
+				int state = 4 * index + dir.ordinal();
+				if (!reached[state]) {
+					decisions[state] = fallback;
+				}
+			}
+		}
+	}
+
+	// neighbor tile, the border tiles of a portal are only connected with each other if the creature can teleport
+	private int neighbor(WorldMap map, int index, Direction dir) {
+		int neighbor = map.neighbor(index, dir);
+		if (!teleport && neighbor != NO_TILE && dir.vector().x() != 0 && Math.abs(neighbor - index) != 1) {
+			return NO_TILE;
+		}
+		return neighbor;
+	}
+
+	private byte nearestNeighborDir(WorldMap map, int[] distance, int index) {
+		byte best = NONE;
+		int minDistance = Integer.MAX_VALUE;
+		for (var dir : DIRECTIONS) {
+			int neighbor = neighbor(map, index, dir);
+			if (neighbor != NO_TILE && distance[neighbor] != NO_TILE && distance[neighbor] < minDistance) {
+				minDistance = distance[neighbor];
+				best = (byte) dir.ordinal();
+			}
+		}
+		return best;
+	}
+
+	private int[] tileDistances(WorldMap map, int goal) {
+		var graph = map.navigationGraph();
+		int[] distance = new int[map.numCols() * map.numRows()];
+		Arrays.fill(distance, NO_TILE);
+		int[] queue = new int[distance.length];
+		int tail = 0;
+		distance[goal] = 0;
+		queue[tail++] = goal;
+		for (int head = 0; head < tail; ++head) {
+			int tile = queue[head];
+			for (var dir : DIRECTIONS) {
+				int neighbor = neighbor(map, tile, dir);
+				if (neighbor != NO_TILE && graph.isAccessible(neighbor) && distance[neighbor] == NO_TILE) {
+					distance[neighbor] = distance[tile] + 1;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+		return distance;
+	}
+
+	public Vector2i target() {
+		return target;
+	}
+
+	/**
+	 * @return if the ways may lead through a portal to the opposite border
+	 */
+	public boolean isTeleport() {
+		return teleport;
+	}
+
+	/**
+	 * @param tileIndex valid tile index
+	 * @param moveDir   current move direction
+	 * @return direction of the next move towards the target or <code>null</code> if the tile is the target, is not
+	 *         accessible or the target cannot be reached
+	 */
+	public Direction get(int tileIndex, Direction moveDir) {
+		byte decision = decisions[4 * tileIndex + moveDir.ordinal()];
+		return decision != NONE ? DIRECTIONS[decision] : null;
+	}
+}
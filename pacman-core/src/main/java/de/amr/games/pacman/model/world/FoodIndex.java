@@ -0,0 +1,190 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.world;
+
+import de.amr.games.pacman.lib.Vector2i;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static de.amr.games.pacman.lib.Globals.v2i;
+
+/**
+ * Uneaten food of a world stored as one bit per tile, each row of the map uses one or more <code>long</code> words.
+ * Nearest food queries search the rows outwards from the start row and find the nearest food inside a row by bit
+ * operations, so they do not have to look at every tile.
+ * <p>
+ * Copies share the bit arrays until one of them removes food (copy-on-write), so copying is cheap.
+ *
+ * @author Armin Reichert
+ */
+final class FoodIndex {
+
+	private static final Comparator<Vector2i> BY_X_THEN_Y = Comparator.comparingInt(Vector2i::x)
+			.thenComparingInt(Vector2i::y);
+
+	private final int numCols;
+	private final int numRows;
+	private final int wordsPerRow;
+	private long[] food; // uneaten pellets and energizers
+	private long[] energizers; // uneaten energizers
+	private boolean shared; // bit arrays are shared with a copy
+
+	FoodIndex(WorldMap map) {
+		numCols = map.numCols();
+		numRows = map.numRows();
+		wordsPerRow = (numCols + 63) >>> 6;
+		food = new long[numRows * wordsPerRow];
+		energizers = new long[numRows * wordsPerRow];
+		for (int index = 0; index < numCols * numRows; ++index) {
+			if (map.isFoodTile(index)) {
+				set(food, index);
+			}
+			if (map.isEnergizerTile(index)) {
+				set(energizers, index);
+			}
+		}
+	}
+
+	FoodIndex(FoodIndex other) {
+		numCols = other.numCols;
+		numRows = other.numRows;
+		wordsPerRow = other.wordsPerRow;
+		food = other.food;
+		energizers = other.energizers;
+		shared = true;
+		other.shared = true;
+	}
+
+	private int word(int index) {
+		int y = index / numCols;
+		int x = index - y * numCols;
+		return y * wordsPerRow + (x >>> 6);
+	}
+
+	private long bit(int index) {
+		return 1L << ((index % numCols) & 63);
+	}
+
+	private void set(long[] bits, int index) {
+		bits[word(index)] |= bit(index);
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile contains uneaten food
+	 */
+	boolean contains(int index) {
+		return (food[word(index)] & bit(index)) != 0;
+	}
+
+	/**
+	 * @param index valid tile index
+	 */
+	void remove(int index) {
+		if (shared) {
+			food = food.clone();
+			energizers = energizers.clone();
+			shared = false;
+		}
+		long mask = ~bit(index);
+		int word = word(index);
+		food[word] &= mask;
+		energizers[word] &= mask;
+	}
+
+	private long rowWord(int y, int w, boolean includeEnergizers) {
+		int i = y * wordsPerRow + w;
+		return includeEnergizers ? food[i] : food[i] & ~energizers[i];
+	}
+
+	private int nearestAtOrLeftOf(int y, int x, boolean includeEnergizers) {
+		if (x < 0) {
+			return -1;
+		}
+		if (x >= numCols) {
+			x = numCols - 1;
+		}
+		int w = x >>> 6;
+		long bits = rowWord(y, w, includeEnergizers) & (-1L >>> (63 - (x & 63)));
+		while (bits == 0) {
+			if (--w < 0) {
+				return -1;
+			}
+			bits = rowWord(y, w, includeEnergizers);
+		}
+		return (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+	}
+
+	private int nearestAtOrRightOf(int y, int x, boolean includeEnergizers) {
+		if (x >= numCols) {
+			return -1;
+		}
+		if (x < 0) {
+			x = 0;
+		}
+		int w = x >>> 6;
+		long bits = rowWord(y, w, includeEnergizers) & (-1L << (x & 63));
+		while (bits == 0) {
+			if (++w == wordsPerRow) {
+				return -1;
+			}
+			bits = rowWord(y, w, includeEnergizers);
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * @param x                 x-coordinate of start tile (may be outside of the map)
+	 * @param y                 y-coordinate of start tile (may be outside of the map)
+	 * @param includeEnergizers if energizer tiles are considered
+	 * @return all tiles with uneaten food having minimal Manhattan distance from the start tile, ordered by x, then y
+	 */
+	List<Vector2i> nearest(int x, int y, boolean includeEnergizers) {
+		var result = new ArrayList<Vector2i>(4);
+		int minDist = Integer.MAX_VALUE;
+		for (int dy = 0; dy <= minDist; ++dy) {
+			int above = y - dy;
+			int below = y + dy;
+			if (above < 0 && below >= numRows) {
+				break;
+			}
+			minDist = scanRow(above, dy, x, includeEnergizers, minDist, result);
+			if (dy > 0) {
+				minDist = scanRow(below, dy, x, includeEnergizers, minDist, result);
+			}
+		}
+		result.sort(BY_X_THEN_Y);
+		return result;
+	}
+
+	private int scanRow(int row, int dy, int x, boolean includeEnergizers, int minDist, List<Vector2i> result) {
+		if (row < 0 || row >= numRows) {
+			return minDist;
+		}
+		int left = nearestAtOrLeftOf(row, x, includeEnergizers);
+		if (left != -1) {
+			minDist = addCandidate(left, row, dy + Math.abs(x - left), minDist, result);
+		}
+		int right = nearestAtOrRightOf(row, x, includeEnergizers);
+		if (right != -1 && right != left) {
+			minDist = addCandidate(right, row, dy + Math.abs(right - x), minDist, result);
+		}
+		return minDist;
+	}
+
+	private static int addCandidate(int x, int y, int dist, int minDist, List<Vector2i> result) {
+		if (dist < minDist) {
+			result.clear();
+			result.add(v2i(x, y));
+			return dist;
+		}
+		if (dist == minDist) {
+			result.add(v2i(x, y));
+		}
+		return minDist;
+	}
+}
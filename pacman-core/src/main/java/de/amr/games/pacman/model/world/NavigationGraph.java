@@ -0,0 +1,300 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.world;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Graph of the maze as seen by Pac-Man. Nodes are intersections, dead ends and portal ends, edges are the corridors
+ * between them. Only the tiles reachable from the house entry are part of the graph, the house itself and the door
+ * are excluded.
+ * <p>
+ * Nodes and tiles are identified by their tile index (see {@link WorldMap#index(Vector2i)}). For each accessible tile
+ * and direction the node reached by following the corridor is precomputed, so graph hops can be done without walking
+ * the maze tile by tile.
+ *
+ * @author Armin Reichert
+ */
+public class NavigationGraph {
+
+	/**
+	 * A corridor between two nodes, starting into the given direction at the source node.
+	 */
+	public static final class Edge {
+
+		private final int source;
+		private final int target;
+		private final Direction dir;
+		private final List<Vector2i> tiles;
+
+		private Edge(int source, int target, Direction dir, List<Vector2i> tiles) {
+			this.source = source;
+			this.target = target;
+			this.dir = dir;
+			this.tiles = tiles;
+		}
+
+		/**
+		 * @return tile index of the source node
+		 */
+		public int source() {
+			return source;
+		}
+
+		/**
+		 * @return tile index of the target node
+		 */
+		public int target() {
+			return target;
+		}
+
+		/**
+		 * @return direction leading from the source node into this corridor
+		 */
+		public Direction dir() {
+			return dir;
+		}
+
+		/**
+		 * @return corridor tiles between source and target (both excluded) in order from source to target
+		 */
+		public List<Vector2i> tiles() {
+			return tiles;
+		}
+
+		/**
+		 * @return number of moves from source to target
+		 */
+		public int length() {
+			return tiles.size() + 1;
+		}
+
+		@Override
+		public String toString() {
+			return "Edge[source=" + source + ", target=" + target + ", dir=" + dir + ", length=" + length() + "]";
+		}
+	}
+
+	private static final int NO_TILE = -1;
+
+	private final int numTiles;
+	private final boolean[] accessible;
+	private final boolean[] node;
+	private final int[] nodes;
+	private final Edge[] edges;
+	private final int[] nextNode;
+	private final int[] nextNodeDistance;
+	private final int numEdges;
+
+	/**
+	 * Builds the graph for the given map.
+	 *
+	 * @param map a map with house
+	 */
+	public NavigationGraph(WorldMap map) {
+		var house = map.house();
+		if (house == null) {
+			throw new IllegalStateException("Cannot build navigation graph of map without house");
+		}
+		numTiles = map.numCols() * map.numRows();
+
+		// flood fill starting at the tile above the house door
+		accessible = new boolean[numTiles];
+		int start = map.index(house.door().leftWing().minus(0, 1));
+		if (start == NO_TILE || !isOpen(map, start)) {
+			throw new IllegalStateException("House entry is not accessible");
+		}
+		int[] queue = new int[numTiles];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = start;
+		accessible[start] = true;
+		while (head < tail) {
+			int current = queue[head++];
+			for (var dir : Direction.values()) {
+				int neighbor = map.neighbor(current, dir);
+				if (neighbor != NO_TILE && !accessible[neighbor] && isOpen(map, neighbor)) {
+					accessible[neighbor] = true;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+
+		// nodes
+		node = new boolean[numTiles];
+		var nodeList = new ArrayList<Integer>();
+		for (int index = 0; index < numTiles; ++index) {
+			if (accessible[index] && (degree(map, index) != 2 || isPortalEnd(map, index))) {
+				node[index] = true;
+				nodeList.add(index);
+			}
+		}
+		nodes = nodeList.stream().mapToInt(Integer::intValue).toArray();
+
+		// corridors
+		edges = new Edge[4 * numTiles];
+		nextNode = new int[4 * numTiles];
+		nextNodeDistance = new int[4 * numTiles];
+		int edgeCount = 0;
+		var path = new ArrayList<Vector2i>();
+		for (int index = 0; index < numTiles; ++index) {
+			for (var dir : Direction.values()) {
+				int slot = 4 * index + dir.ordinal();
+				nextNode[slot] = NO_TILE;
+				int neighbor = map.neighbor(index, dir);
+				if (!accessible[index] || neighbor == NO_TILE || !accessible[neighbor]) {
+					continue;
+				}
+				path.clear();
+				int target = followCorridor(map, index, neighbor, path);
+				if (target == NO_TILE) {
+					continue; // circular corridor without any node
+				}
+				nextNode[slot] = target;
+				nextNodeDistance[slot] = path.size() + 1;
+				if (node[index]) {
+					edges[slot] = new Edge(index, target, dir, Collections.unmodifiableList(new ArrayList<>(path)));
+					++edgeCount;
+				}
+			}
+		}
+		numEdges = edgeCount;
+	}
+
+	private static boolean isOpen(WorldMap map, int index) {
+		var tile = map.tile(index);
+		return !map.isWall(index) && !map.house().contains(tile) && !map.house().door().occupies(tile);
+	}
+
+	private static boolean isPortalEnd(WorldMap map, int index) {
+		var tile = map.tile(index);
+		for (var portal : map.portals()) {
+			if (tile.equals(portal.leftTunnelEnd()) || tile.equals(portal.rightTunnelEnd())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int degree(WorldMap map, int index) {
+		int degree = 0;
+		for (var dir : Direction.values()) {
+			int neighbor = map.neighbor(index, dir);
+			if (neighbor != NO_TILE && accessible[neighbor]) {
+				++degree;
+			}
+		}
+		return degree;
+	}
+
+	/**
+	 * Follows the corridor entered by moving from tile <code>from</code> to tile <code>current</code> until a node is
+	 * reached. The visited corridor tiles (excluding the node) are added to the path.
+	 */
+	private int followCorridor(WorldMap map, int from, int current, List<Vector2i> path) {
+		int prev = from;
+		while (!node[current]) {
+			if (path.size() == numTiles) {
+				return NO_TILE;
+			}
+			path.add(map.tile(current));
+			int next = NO_TILE;
+			for (var dir : Direction.values()) {
+				int neighbor = map.neighbor(current, dir);
+				if (neighbor != NO_TILE && neighbor != prev && accessible[neighbor]) {
+					next = neighbor;
+					break;
+				}
+			}
+			if (next == NO_TILE) {
+				return NO_TILE;
+			}
+			prev = current;
+			current = next;
+		}
+		return current;
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile is part of the maze reachable by Pac-Man
+	 */
+	public boolean isAccessible(int index) {
+		return accessible[index];
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile is a node (intersection, dead end or portal end)
+	 */
+	public boolean isNode(int index) {
+		return node[index];
+	}
+
+	public int numNodes() {
+		return nodes.length;
+	}
+
+	public int numEdges() {
+		return numEdges;
+	}
+
+	/**
+	 * @return tile indices of all nodes in ascending order
+	 */
+	public IntStream nodes() {
+		return IntStream.of(nodes);
+	}
+
+	/**
+	 * @param node tile index of a node
+	 * @param dir  direction
+	 * @return the corridor leaving the node into the given direction or <code>null</code>
+	 */
+	public Edge edge(int node, Direction dir) {
+		return edges[4 * node + dir.ordinal()];
+	}
+
+	/**
+	 * @param node tile index of a node
+	 * @return all corridors leaving the node
+	 */
+	public List<Edge> edges(int node) {
+		var result = new ArrayList<Edge>(4);
+		for (var dir : Direction.values()) {
+			var edge = edge(node, dir);
+			if (edge != null) {
+				result.add(edge);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @param dir   direction
+	 * @return tile index of the first node reached when leaving the tile into the given direction and following the
+	 *         corridor or <code>-1</code> if that direction is blocked
+	 */
+	public int nextNode(int index, Direction dir) {
+		return nextNode[4 * index + dir.ordinal()];
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @param dir   direction
+	 * @return number of moves until the node given by {@link #nextNode(int, Direction)} is reached, 0 if there is no
+	 *         such node
+	 */
+	public int distanceToNextNode(int index, Direction dir) {
+		return nextNodeDistance[4 * index + dir.ordinal()];
+	}
+}
@@ -4,103 +4,110 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.model.world;
 
+import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.lib.Pulse;
 import de.amr.games.pacman.lib.Vector2i;
 
-import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static de.amr.games.pacman.lib.Globals.*;
 
 /**
+ * The world of a game level. The immutable data (tiles, portals, house etc.) are provided by a {@link WorldMap} that is
+ * shared between levels, the world itself only keeps the state that changes while playing: the uneaten food and the
+ * animations. The uneaten food is kept in an index answering nearest food queries (see
+ * {@link #nearestFoodTiles(Vector2i, boolean)}).
+ * <p>
+ * Besides the tile-based methods there is an index-based API (see {@link #index(Vector2i)}) which is used by the
+ * movement and steering code.
+ *
  * @author Armin Reichert
  */
 public class World {
 
-	public static final byte T_SPACE     = 0;
-	public static final byte T_WALL      = 1;
-	public static final byte T_TUNNEL    = 2;
-	public static final byte T_PELLET    = 3;
-	public static final byte T_ENERGIZER = 4;
-
-	private static byte[][] validateTileMapData(byte[][] data) {
-		if (data == null) {
-			throw new IllegalArgumentException("Map data missing");
-		}
-		if (data.length == 0) {
-			throw new IllegalArgumentException("Map data empty");
-		}
-		var firstRow = data[0];
-		if (firstRow.length == 0) {
-			throw new IllegalArgumentException("Map data empty");
-		}
-		for (var row : data) {
-			if (row.length != firstRow.length) {
-				throw new IllegalArgumentException("Map has differently sized rows");
-			}
-		}
-		for (int row = 0; row < data.length; ++row) {
-			for (int col = 0 ; col < data[row].length; ++col) {
-				byte d = data[row][col];
-				if (d < T_SPACE || d > T_ENERGIZER) {
-					throw new IllegalArgumentException(String.format("Map data at row=%d, col=%d are illegal: %d", row, col, d));
-				}
-			}
-		}
-		return data;
-	}
-
-	private final byte[][] tileMap;
-	private final List<Vector2i> energizerTiles;
-	private final BitSet eaten;
-	private final List<Portal> portals;
+	private final WorldMap map;
+	private final FoodIndex foodIndex;
 	private final Pulse energizerBlinking;
 	private final Pulse mazeFlashing;
-	private final int totalFoodCount;
-	private House house;
 	private int uneatenFoodCount;
 
 	/**
-	 * @param tileMapData byte-array of tile map data
+	 * @param map the (shared) map of this world
 	 */
-	public World(byte[][] tileMapData) {
-		tileMap = validateTileMapData(tileMapData);
-
-		// build portals
-		var portalList = new ArrayList<Portal>();
-		int lastColumn = numCols() - 1;
-		for (int row = 0; row < numRows(); ++row) {
-			var leftBorderTile = v2i(0, row);
-			var rightBorderTile = v2i(lastColumn, row);
-			if (tileMap[row][0] == T_TUNNEL && tileMap[row][lastColumn] == T_TUNNEL) {
-				portalList.add(new Portal(leftBorderTile, rightBorderTile, 2));
-			}
-		}
-		portalList.trimToSize();
-		portals = Collections.unmodifiableList(portalList);
-
-		energizerTiles = tiles().filter(this::isEnergizerTile).collect(Collectors.toList());
-		eaten = new BitSet(numCols() * numRows());
-		totalFoodCount = (int) tiles().filter(this::isFoodTile).count();
-		uneatenFoodCount = totalFoodCount;
+	public World(WorldMap map) {
+		checkNotNull(map);
+		this.map = map;
+		foodIndex = new FoodIndex(map);
+		uneatenFoodCount = map.totalFoodCount();
 
 		// Animations
 		energizerBlinking = new Pulse(10, true);
 		mazeFlashing = new Pulse(10, false);
 	}
 
+	private World(World other) {
+		map = other.map;
+		foodIndex = new FoodIndex(other.foodIndex);
+		uneatenFoodCount = other.uneatenFoodCount;
+		energizerBlinking = new Pulse(other.energizerBlinking);
+		mazeFlashing = new Pulse(other.mazeFlashing);
+	}
+
+	/**
+	 * Creates a world with its own map.
+	 *
+	 * @param tileMapData byte-array of tile map data
+	 */
+	public World(byte[][] tileMapData) {
+		this(new WorldMap(tileMapData));
+	}
+
+	/**
+	 * Creates a copy of this world in the current state. The map is shared, the food is copied when it is eaten first
+	 * in either of the worlds.
+	 *
+	 * @return independent copy of this world
+	 */
+	public World fork() {
+		return new World(this);
+	}
+
+	public WorldMap map() {
+		return map;
+	}
+
 	public House house() {
-		return house;
+		return map.house();
 	}
 
-	public void setHouse(House house) {
-		checkNotNull(house);
-		this.house = house;
+	/**
+	 * @return navigation graph of this world (shared by all worlds using the same map)
+	 */
+	public NavigationGraph navigationGraph() {
+		return map.navigationGraph();
+	}
+
+	/**
+	 * Constant time lookup in the distance table of the map.
+	 *
+	 * @param a a tile
+	 * @param b a tile
+	 * @return number of moves on a shortest path between the tiles (the house door is blocked, portals can be used) or
+	 *         <code>-1</code> if one of the tiles is outside of the world or not accessible by Pac-Man
+	 */
+	public int mazeDistance(Vector2i a, Vector2i b) {
+		return map.mazeDistance(a, b);
+	}
+
+	/**
+	 * @param indexA valid tile index
+	 * @param indexB valid tile index
+	 * @return number of moves on a shortest path between the tiles or <code>-1</code> if one of the tiles is not
+	 *         accessible by Pac-Man
+	 */
+	public int mazeDistance(int indexA, int indexB) {
+		return map.mazeDistance(indexA, indexB);
 	}
 
 	public Pulse energizerBlinking() {
@@ -115,11 +122,11 @@ public class World {
 	 * @return tiles in order top-to-bottom, left-to-right
 	 */
 	public Stream<Vector2i> tiles() {
-		return IntStream.range(0, numCols() * numRows()).mapToObj(this::tile);
+		return map.tiles();
 	}
 
 	public Stream<Vector2i> energizerTiles() {
-		return energizerTiles.stream();
+		return map.energizerTiles().stream();
 	}
 
 	/**
@@ -127,7 +134,7 @@ public class World {
 	 * @return tile with given index
 	 */
 	public Vector2i tile(int index) {
-		return v2i(index % numCols(), index / numCols());
+		return map.tile(index);
 	}
 
 	/**
@@ -145,50 +152,91 @@ public class World {
 		return 0 <= x && x < numCols() * TS && 0 <= y && y < numRows() * TS;
 	}
 
-	private int index(Vector2i tile) {
-		return numCols() * tile.y() + tile.x();
+	/**
+	 * @param tile a tile
+	 * @return index of the tile in order top-to-bottom, left-to-right or <code>-1</code> if the tile is outside of the
+	 *         world bounds
+	 */
+	public int index(Vector2i tile) {
+		return map.index(tile);
+	}
+
+	/**
+	 * @param index tile index
+	 * @param dir   direction
+	 * @return index of the neighbor tile in the given direction or <code>-1</code> if the neighbor is outside of the
+	 *         world bounds. Moving out of a portal border tile leads to the border tile on the opposite side.
+	 */
+	public int neighbor(int index, Direction dir) {
+		return map.neighbor(index, dir);
 	}
 
 	public int numCols() {
-		return tileMap[0].length;
+		return map.numCols();
 	}
 
 	public int numRows() {
-		return tileMap.length;
+		return map.numRows();
 	}
 
 	public List<Portal> portals() {
-		return portals;
+		return map.portals();
 	}
 
+	/**
+	 * @param tile a tile
+	 * @return if the tile is one of the tunnel tiles outside of the world bounds that belong to a portal
+	 */
 	public boolean belongsToPortal(Vector2i tile) {
-		checkTileNotNull(tile);
-		return portals.stream().anyMatch(portal -> portal.contains(tile));
+		return map.belongsToPortal(tile);
 	}
 
-	private byte content(Vector2i tile) {
-		return insideBounds(tile) ? tileMap[tile.y()][tile.x()] : T_SPACE;
+	public boolean isWall(Vector2i tile) {
+		return map.isWall(tile);
 	}
 
-	public boolean isWall(Vector2i tile) {
-		checkTileNotNull(tile);
-		return content(tile) == T_WALL;
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index is a wall
+	 */
+	public boolean isWall(int index) {
+		return map.isWall(index);
 	}
 
 	public boolean isTunnel(Vector2i tile) {
-		checkTileNotNull(tile);
-		return content(tile) == T_TUNNEL;
+		return map.isTunnel(tile);
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index is a tunnel tile
+	 */
+	public boolean isTunnel(int index) {
+		return map.isTunnel(index);
 	}
 
 	public boolean isFoodTile(Vector2i tile) {
-		checkTileNotNull(tile);
-		byte data = content(tile);
-		return data == T_PELLET || data == T_ENERGIZER;
+		return map.isFoodTile(tile);
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index initially contains food
+	 */
+	public boolean isFoodTile(int index) {
+		return map.isFoodTile(index);
 	}
 
 	public boolean isEnergizerTile(Vector2i tile) {
-		checkTileNotNull(tile);
-		return content(tile) == T_ENERGIZER;
+		return map.isEnergizerTile(tile);
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index initially contains an energizer
+	 */
+	public boolean isEnergizerTile(int index) {
+		return map.isEnergizerTile(index);
 	}
 
 	public boolean isIntersection(Vector2i tile) {
@@ -196,17 +244,23 @@ public class World {
 		if (tile.x() <= 0 || tile.x() >= numCols() - 1) {
 			return false; // exclude portal entries and tiles outside the map
 		}
+		var house = house();
 		if (house.contains(tile)) {
 			return false;
 		}
-		long numWallNeighbors = tile.neighbors().filter(this::isWall).count();
-		long numDoorNeighbors = tile.neighbors().filter(house.door()::occupies).count();
-		return numWallNeighbors + numDoorNeighbors < 2;
+		int numBlockedNeighbors = 0;
+		for (var dir : Direction.values()) {
+			var neighbor = tile.plus(dir.vector());
+			if (isWall(neighbor) || house.door().occupies(neighbor)) {
+				++numBlockedNeighbors;
+			}
+		}
+		return numBlockedNeighbors < 2;
 	}
 
 
 	public int totalFoodCount() {
-		return totalFoodCount;
+		return map.totalFoodCount();
 	}
 
 	public int uneatenFoodCount() {
@@ -214,27 +268,54 @@ public class World {
 	}
 
 	public int eatenFoodCount() {
-		return totalFoodCount - uneatenFoodCount;
+		return totalFoodCount() - uneatenFoodCount;
 	}
 
 	public void removeFood(Vector2i tile) {
-		if (hasFoodAt(tile)) {
-			eaten.set(index(tile));
+		int index = index(tile);
+		if (index != -1 && hasFoodAt(index)) {
+			foodIndex.remove(index);
 			--uneatenFoodCount;
 		}
 	}
 
 	public boolean hasFoodAt(Vector2i tile) {
-		checkTileNotNull(tile);
-		if (insideBounds(tile)) {
-			byte data = tileMap[tile.y()][tile.x()];
-			return (data == T_PELLET || data == T_ENERGIZER) && !eaten.get(index(tile));
-		}
-		return false;
+		int index = index(tile);
+		return index != -1 && hasFoodAt(index);
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index contains food that has not been eaten yet
+	 */
+	public boolean hasFoodAt(int index) {
+		return foodIndex.contains(index);
 	}
 
 	public boolean hasEatenFoodAt(Vector2i tile) {
+		int index = index(tile);
+		return index != -1 && hasEatenFoodAt(index);
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index contained food that has been eaten
+	 */
+	public boolean hasEatenFoodAt(int index) {
+		return isFoodTile(index) && !foodIndex.contains(index);
+	}
+
+	/**
+	 * Finds the uneaten food nearest to the given tile. Only the rows around the tile are searched until no nearer food
+	 * can exist, inside a row the nearest food is found by bit operations.
+	 * 
+	 * @param tile              a tile, may be outside of the world (e.g. inside a portal)
+	 * @param includeEnergizers if energizer tiles are considered
+	 * @return all tiles with uneaten food having minimal Manhattan distance from the given tile, ordered by x, then y.
+	 *         Empty list if there is no such tile.
+	 */
+	public List<Vector2i> nearestFoodTiles(Vector2i tile, boolean includeEnergizers) {
 		checkTileNotNull(tile);
-		return insideBounds(tile) && eaten.get(index(tile));
+		return foodIndex.nearest(tile.x(), tile.y(), includeEnergizers);
 	}
-}
\ No newline at end of file
+}
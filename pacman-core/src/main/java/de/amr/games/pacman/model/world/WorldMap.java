@@ -0,0 +1,401 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.model.world;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static de.amr.games.pacman.lib.Globals.*;
+
+/**
+ * The immutable part of a world: tiles, portals, energizer positions, house and everything derived from these. A map
+ * is created once and shared by all worlds (levels) using it, also across game sessions. The house of a shared map
+ * must not be modified.
+ * <p>
+ * The tiles are stored in a flat array in order top-to-bottom, left-to-right. Besides the tile-based methods there is
+ * an index-based API (see {@link #index(Vector2i)}) using a precomputed neighbor table.
+ *
+ * @author Armin Reichert
+ */
+public final class WorldMap {
+
+	public static final byte T_SPACE     = 0;
+	public static final byte T_WALL      = 1;
+	public static final byte T_TUNNEL    = 2;
+	public static final byte T_PELLET    = 3;
+	public static final byte T_ENERGIZER = 4;
+
+	private static final int PORTAL_DEPTH = 2;
+	private static final int NO_TILE = -1;
+
+	private static byte[][] validateTileMapData(byte[][] data) {
+		if (data == null) {
+			throw new IllegalArgumentException("Map data missing");
+		}
+		if (data.length == 0) {
+			throw new IllegalArgumentException("Map data empty");
+		}
+		var firstRow = data[0];
+		if (firstRow.length == 0) {
+			throw new IllegalArgumentException("Map data empty");
+		}
+		for (var row : data) {
+			if (row.length != firstRow.length) {
+				throw new IllegalArgumentException("Map has differently sized rows");
+			}
+		}
+		for (int row = 0; row < data.length; ++row) {
+			for (int col = 0 ; col < data[row].length; ++col) {
+				byte d = data[row][col];
+				if (d < T_SPACE || d > T_ENERGIZER) {
+					throw new IllegalArgumentException(String.format("Map data at row=%d, col=%d are illegal: %d", row, col, d));
+				}
+			}
+		}
+		return data;
+	}
+
+	private final int numCols;
+	private final int numRows;
+	private final byte[] tileData;
+	private final int[] neighbors;
+	private final boolean[] portalRows;
+	private final List<Portal> portals;
+	private final List<Vector2i> energizerTiles;
+	private final int totalFoodCount;
+	private final House house;
+	private final NavigationGraph navigationGraph;
+	private final DistanceTable distanceTable;
+	private final DirectionCache directionCache = new DirectionCache();
+	private final DirectionTable[] directionTables;
+	private final Map<Vector2i, FlowField> flowFields = new ConcurrentHashMap<>();
+	private final Map<Vector2i, FlowField> flowFieldsWithoutTeleport = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a map without house.
+	 *
+	 * @param tileMapData byte-array of tile map data
+	 */
+	public WorldMap(byte[][] tileMapData) {
+		var tileMap = validateTileMapData(tileMapData);
+		numRows = tileMap.length;
+		numCols = tileMap[0].length;
+		tileData = new byte[numCols * numRows];
+		for (int row = 0; row < numRows; ++row) {
+			System.arraycopy(tileMap[row], 0, tileData, row * numCols, numCols);
+		}
+
+		// build portals
+		var portalList = new ArrayList<Portal>();
+		portalRows = new boolean[numRows];
+		int lastColumn = numCols - 1;
+		for (int row = 0; row < numRows; ++row) {
+			var leftBorderTile = v2i(0, row);
+			var rightBorderTile = v2i(lastColumn, row);
+			if (tileMap[row][0] == T_TUNNEL && tileMap[row][lastColumn] == T_TUNNEL) {
+				portalList.add(new Portal(leftBorderTile, rightBorderTile, PORTAL_DEPTH));
+				portalRows[row] = true;
+			}
+		}
+		portalList.trimToSize();
+		portals = Collections.unmodifiableList(portalList);
+
+		// neighbor table, portal border tiles are connected with each other
+		neighbors = new int[tileData.length * 4];
+		for (int index = 0; index < tileData.length; ++index) {
+			int col = index % numCols;
+			int row = index / numCols;
+			for (var dir : Direction.values()) {
+				int nx = col + dir.vector().x();
+				int ny = row + dir.vector().y();
+				int neighbor = NO_TILE;
+				if (0 <= nx && nx < numCols && 0 <= ny && ny < numRows) {
+					neighbor = ny * numCols + nx;
+				} else if (portalRows[row] && ny == row) {
+					neighbor = row * numCols + (nx < 0 ? lastColumn : 0);
+				}
+				neighbors[4 * index + dir.ordinal()] = neighbor;
+			}
+		}
+
+		var energizerList = new ArrayList<Vector2i>();
+		int foodCount = 0;
+		for (int index = 0; index < tileData.length; ++index) {
+			if (isEnergizerTile(index)) {
+				energizerList.add(tile(index));
+			}
+			if (isFoodTile(index)) {
+				++foodCount;
+			}
+		}
+		energizerList.trimToSize();
+		energizerTiles = Collections.unmodifiableList(energizerList);
+		totalFoodCount = foodCount;
+
+		house = null;
+		navigationGraph = null;
+		distanceTable = null;
+		directionTables = new DirectionTable[0];
+	}
+
+	/**
+	 * Creates a map with the tiles of the given map and the given house. The tile data, portals and neighbor table of the
+	 * given map are shared, the navigation graph and the distance table are computed for the house. This is expensive,
+	 * maps are meant to be created once and shared (see {@link World}).
+	 *
+	 * @param map   a map
+	 * @param house the house, must not be modified afterwards
+	 */
+	public WorldMap(WorldMap map, House house) {
+		this(map, house, List.of());
+	}
+
+	/**
+	 * Creates a map with the tiles of the given map and the given house. The tile data, portals and neighbor table of the
+	 * given map are shared, the navigation graph, the distance table and the direction tables for the house entry and
+	 * the given static targets are computed for the house. This is expensive, maps are meant to be created once and
+	 * shared (see {@link World}).
+	 *
+	 * @param map           a map
+	 * @param house         the house, must not be modified afterwards
+	 * @param staticTargets fixed target tiles (e.g. scatter tiles)
+	 */
+	public WorldMap(WorldMap map, House house, List<Vector2i> staticTargets) {
+		checkNotNull(map);
+		checkNotNull(house);
+		checkNotNull(staticTargets);
+		numCols = map.numCols;
+		numRows = map.numRows;
+		tileData = map.tileData;
+		neighbors = map.neighbors;
+		portalRows = map.portalRows;
+		portals = map.portals;
+		energizerTiles = map.energizerTiles;
+		totalFoodCount = map.totalFoodCount;
+		this.house = house;
+		navigationGraph = new NavigationGraph(this);
+		distanceTable = new DistanceTable(this, navigationGraph);
+		var targets = new ArrayList<Vector2i>();
+		targets.add(house.door().leftWing());
+		for (var target : staticTargets) {
+			if (!targets.contains(target)) {
+				targets.add(target);
+			}
+		}
+		directionTables = targets.stream().map(target -> new DirectionTable(this, target)).toArray(DirectionTable[]::new);
+	}
+
+	/**
+	 * @return the house or <code>null</code> if this map has no house
+	 */
+	public House house() {
+		return house;
+	}
+
+	/**
+	 * @return navigation graph of this map
+	 */
+	public NavigationGraph navigationGraph() {
+		if (navigationGraph == null) {
+			throw new IllegalStateException("Map without house has no navigation graph");
+		}
+		return navigationGraph;
+	}
+
+	/**
+	 * @param target a target tile
+	 * @return the precomputed direction table for this target or <code>null</code>
+	 */
+	public DirectionTable directionTable(Vector2i target) {
+		for (var table : directionTables) {
+			if (table.target().equals(target)) {
+				return table;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the flow field towards the given target tile. The field is computed when first requested and then shared by
+	 * all creatures and game sessions using this map.
+	 *
+	 * @param target   a target tile (can be a portal tile outside of the map)
+	 * @param teleport if the ways may lead through a portal to the opposite border, must be <code>false</code> for
+	 *                 creatures that cannot teleport
+	 * @return flow field towards the target
+	 */
+	public FlowField flowField(Vector2i target, boolean teleport) {
+		checkTileNotNull(target);
+		if (navigationGraph == null) {
+			throw new IllegalStateException("Map without house has no flow fields");
+		}
+		var cache = teleport ? flowFields : flowFieldsWithoutTeleport;
+		return cache.computeIfAbsent(target, t -> new FlowField(this, t, teleport));
+	}
+
+	/**
+	 * @return cache for the directions chosen by creatures navigating towards a target tile on this map
+	 */
+	public DirectionCache directionCache() {
+		return directionCache;
+	}
+
+	/**
+	 * @param indexA valid tile index
+	 * @param indexB valid tile index
+	 * @return number of moves on a shortest path between the tiles (the house door is blocked, portals can be used) or
+	 *         <code>-1</code> if one of the tiles is not accessible by Pac-Man
+	 */
+	public int mazeDistance(int indexA, int indexB) {
+		if (distanceTable == null) {
+			throw new IllegalStateException("Map without house has no distance table");
+		}
+		return distanceTable.distance(indexA, indexB);
+	}
+
+	/**
+	 * @param a a tile
+	 * @param b a tile
+	 * @return number of moves on a shortest path between the tiles (the house door is blocked, portals can be used) or
+	 *         <code>-1</code> if one of the tiles is outside of the map or not accessible by Pac-Man
+	 */
+	public int mazeDistance(Vector2i a, Vector2i b) {
+		int indexA = index(a);
+		int indexB = index(b);
+		return indexA == NO_TILE || indexB == NO_TILE ? NO_TILE : mazeDistance(indexA, indexB);
+	}
+
+	public int numCols() {
+		return numCols;
+	}
+
+	public int numRows() {
+		return numRows;
+	}
+
+	public List<Portal> portals() {
+		return portals;
+	}
+
+	public List<Vector2i> energizerTiles() {
+		return energizerTiles;
+	}
+
+	public int totalFoodCount() {
+		return totalFoodCount;
+	}
+
+	/**
+	 * @return tiles in order top-to-bottom, left-to-right
+	 */
+	public Stream<Vector2i> tiles() {
+		return IntStream.range(0, numCols * numRows).mapToObj(this::tile);
+	}
+
+	/**
+	 * @param index tile index in order top-to-bottom, left-to-right
+	 * @return tile with given index
+	 */
+	public Vector2i tile(int index) {
+		return v2i(index % numCols, index / numCols);
+	}
+
+	/**
+	 * @param tile a tile
+	 * @return index of the tile in order top-to-bottom, left-to-right or <code>-1</code> if the tile is outside of the
+	 *         map bounds
+	 */
+	public int index(Vector2i tile) {
+		checkTileNotNull(tile);
+		int x = tile.x();
+		int y = tile.y();
+		return 0 <= x && x < numCols && 0 <= y && y < numRows ? y * numCols + x : NO_TILE;
+	}
+
+	/**
+	 * @param index tile index
+	 * @param dir   direction
+	 * @return index of the neighbor tile in the given direction or <code>-1</code> if the neighbor is outside of the
+	 *         map bounds. Moving out of a portal border tile leads to the border tile on the opposite side.
+	 */
+	public int neighbor(int index, Direction dir) {
+		return neighbors[4 * index + dir.ordinal()];
+	}
+
+	/**
+	 * @param tile a tile
+	 * @return if the tile is one of the tunnel tiles outside of the map bounds that belong to a portal
+	 */
+	public boolean belongsToPortal(Vector2i tile) {
+		checkTileNotNull(tile);
+		int x = tile.x();
+		int y = tile.y();
+		return 0 <= y && y < numRows && portalRows[y]
+				&& (-PORTAL_DEPTH <= x && x < 0 || numCols <= x && x < numCols + PORTAL_DEPTH);
+	}
+
+	private byte content(Vector2i tile) {
+		int index = index(tile);
+		return index != NO_TILE ? tileData[index] : T_SPACE;
+	}
+
+	public boolean isWall(Vector2i tile) {
+		return content(tile) == T_WALL;
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index is a wall
+	 */
+	public boolean isWall(int index) {
+		return tileData[index] == T_WALL;
+	}
+
+	public boolean isTunnel(Vector2i tile) {
+		return content(tile) == T_TUNNEL;
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index is a tunnel tile
+	 */
+	public boolean isTunnel(int index) {
+		return tileData[index] == T_TUNNEL;
+	}
+
+	public boolean isFoodTile(Vector2i tile) {
+		byte data = content(tile);
+		return data == T_PELLET || data == T_ENERGIZER;
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index initially contains food
+	 */
+	public boolean isFoodTile(int index) {
+		byte data = tileData[index];
+		return data == T_PELLET || data == T_ENERGIZER;
+	}
+
+	public boolean isEnergizerTile(Vector2i tile) {
+		return content(tile) == T_ENERGIZER;
+	}
+
+	/**
+	 * @param index valid tile index
+	 * @return if the tile with this index initially contains an energizer
+	 */
+	public boolean isEnergizerTile(int index) {
+		return tileData[index] == T_ENERGIZER;
+	}
+}
@@ -0,0 +1,127 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.simulation;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.Steering;
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Creature;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Steering that records the moves of another steering.
+ * <p>
+ * After the wrapped steering has steered Pac-Man, the resulting wish direction is recorded. Use it as the Pac-Man
+ * steering of a session (see {@link GameController#setManualPacSteering}) to record the first game played in this
+ * session, see {@link InputRecording}.
+ *
+ * @author Armin Reichert
+ */
+public class InputRecorder extends Steering {
+
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 4096;
+
+	private final GameVariant variant;
+	private final long seed;
+	private final Steering delegate;
+	private final int keyframeInterval;
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+	private final DataOutputStream body = new DataOutputStream(bytes);
+	private int[] keyframeOffsets = new int[16];
+	private byte[] keyframeDirs = new byte[16];
+	private long[] keyframeLastChanges = new long[16];
+	private int numKeyframes;
+	private long tick;
+	private Direction dir;
+	private long lastChangeTick;
+
+	/**
+	 * @param session          session whose first game is recorded
+	 * @param delegate         steering that is recorded
+	 * @param keyframeInterval number of ticks between two keyframes
+	 */
+	public InputRecorder(GameController session, Steering delegate, int keyframeInterval) {
+		checkNotNull(session);
+		checkNotNull(delegate);
+		if (keyframeInterval <= 0) {
+			throw new IllegalArgumentException("Keyframe interval must be positive but is " + keyframeInterval);
+		}
+		this.variant = session.game().variant();
+		this.seed = session.seed();
+		this.delegate = delegate;
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	public InputRecorder(GameController session, Steering delegate) {
+		this(session, delegate, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	@Override
+	public void init() {
+		delegate.init();
+	}
+
+	@Override
+	public void steer(GameLevel level, Creature guy) {
+		delegate.steer(level, guy);
+		record(guy.wishDir());
+	}
+
+	private void record(Direction wishDir) {
+		if (tick % keyframeInterval == 0) {
+			addKeyframe();
+		}
+		if (wishDir != dir) {
+			try {
+				InputRecording.writeVarint(body, (tick - lastChangeTick) << 2 | wishDir.ordinal());
+			} catch (IOException x) {
+				throw new UncheckedIOException(x); // cannot happen with byte array stream
+			}
+			dir = wishDir;
+			lastChangeTick = tick;
+		}
+		++tick;
+	}
+
+	private void addKeyframe() {
+		if (numKeyframes == keyframeOffsets.length) {
+			keyframeOffsets = Arrays.copyOf(keyframeOffsets, 2 * numKeyframes);
+			keyframeDirs = Arrays.copyOf(keyframeDirs, 2 * numKeyframes);
+			keyframeLastChanges = Arrays.copyOf(keyframeLastChanges, 2 * numKeyframes);
+		}
+		keyframeOffsets[numKeyframes] = bytes.size();
+		keyframeDirs[numKeyframes] = (byte) (dir != null ? dir.ordinal() : 0xFF);
+		keyframeLastChanges[numKeyframes] = lastChangeTick;
+		++numKeyframes;
+	}
+
+	/**
+	 * @return number of ticks recorded so far
+	 */
+	public long tick() {
+		return tick;
+	}
+
+	/**
+	 * @return the input recorded so far
+	 */
+	public InputRecording recording() {
+		if (numKeyframes == 0) {
+			addKeyframe();
+		}
+		return new InputRecording(variant, seed, tick, keyframeInterval, bytes.toByteArray(),
+				Arrays.copyOf(keyframeOffsets, numKeyframes), Arrays.copyOf(keyframeDirs, numKeyframes),
+				Arrays.copyOf(keyframeLastChanges, numKeyframes));
+	}
+}
@@ -0,0 +1,299 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.simulation;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.GameVariant;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import static de.amr.games.pacman.lib.Globals.checkGameVariant;
+
+/**
+ * Recorded Pac-Man input of a game: the session seed and the wish direction of Pac-Man after each steering tick (one
+ * tick per simulated frame of the game level).
+ * <p>
+ * Only direction changes are stored, each as one varint <code>(ticks since previous change &lt;&lt; 2) | direction
+ * ordinal</code>. Every {@link #keyframeInterval()} ticks a keyframe (tick, byte offset, current direction, tick of the
+ * last change) is added to an index, so the direction at any tick is found by decoding at most one keyframe interval.
+ * <p>
+ * File layout: magic, version, variant, seed, number of ticks, keyframe interval, body (length + bytes), keyframe
+ * index (count + entries). All integers except magic and seed are varints.
+ *
+ * @author Armin Reichert
+ */
+public final class InputRecording {
+
+	private static final int MAGIC = 0x504D5250; // "PMRP"
+	private static final int VERSION = 1;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int NO_DIR = 0xFF;
+
+	/**
+	 * Sequential reader for the recorded directions, starting at some tick.
+	 */
+	public final class Cursor {
+
+		private int pos;
+		private long tick;
+		private Direction dir;
+		private long lastChangeTick;
+		private long nextChangeTick;
+		private Direction nextDir;
+		private int nextPos;
+
+		private Cursor(int keyframe, long startTick) {
+			pos = keyframeOffsets[keyframe];
+			tick = (long) keyframe * keyframeInterval;
+			dir = (keyframeDirs[keyframe] & 0xFF) == NO_DIR ? null : DIRECTIONS[keyframeDirs[keyframe]];
+			lastChangeTick = keyframeLastChanges[keyframe];
+			peek();
+			while (tick < startTick) {
+				next();
+			}
+		}
+
+		private void peek() {
+			if (pos < body.length) {
+				long value = 0;
+				int shift = 0;
+				int p = pos;
+				byte b;
+				do {
+					b = body[p++];
+					value |= (long) (b & 0x7F) << shift;
+					shift += 7;
+				} while (b < 0);
+				nextChangeTick = lastChangeTick + (value >>> 2);
+				nextDir = DIRECTIONS[(int) (value & 3)];
+				nextPos = p;
+			} else {
+				nextChangeTick = Long.MAX_VALUE;
+			}
+		}
+
+		/**
+		 * @return tick of the direction returned by the next call of {@link #next()}
+		 */
+		public long tick() {
+			return tick;
+		}
+
+		public boolean hasNext() {
+			return tick < numTicks;
+		}
+
+		/**
+		 * @return Pac-Man's wish direction at the current tick, then advances to the next tick
+		 */
+		public Direction next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("End of recording reached at tick " + tick);
+			}
+			if (nextChangeTick == tick) {
+				dir = nextDir;
+				lastChangeTick = tick;
+				pos = nextPos;
+				peek();
+			}
+			++tick;
+			return dir;
+		}
+	}
+
+	private final GameVariant variant;
+	private final long seed;
+	private final long numTicks;
+	private final int keyframeInterval;
+	private final byte[] body;
+	private final int[] keyframeOffsets;
+	private final byte[] keyframeDirs;
+	private final long[] keyframeLastChanges;
+
+	InputRecording(GameVariant variant, long seed, long numTicks, int keyframeInterval, byte[] body,
+			int[] keyframeOffsets, byte[] keyframeDirs, long[] keyframeLastChanges) {
+		checkGameVariant(variant);
+		if (keyframeInterval <= 0) {
+			throw new IllegalArgumentException("Keyframe interval must be positive but is " + keyframeInterval);
+		}
+		this.variant = variant;
+		this.seed = seed;
+		this.numTicks = numTicks;
+		this.keyframeInterval = keyframeInterval;
+		this.body = body;
+		this.keyframeOffsets = keyframeOffsets;
+		this.keyframeDirs = keyframeDirs;
+		this.keyframeLastChanges = keyframeLastChanges;
+	}
+
+	public GameVariant variant() {
+		return variant;
+	}
+
+	/**
+	 * @return seed of the recorded game session
+	 */
+	public long seed() {
+		return seed;
+	}
+
+	/**
+	 * @return number of recorded ticks
+	 */
+	public long numTicks() {
+		return numTicks;
+	}
+
+	public int keyframeInterval() {
+		return keyframeInterval;
+	}
+
+	/**
+	 * @return number of keyframes in the index
+	 */
+	public int numKeyframes() {
+		return keyframeOffsets.length;
+	}
+
+	/**
+	 * @return size of the encoded input in bytes (without header and index)
+	 */
+	public int sizeInBytes() {
+		return body.length;
+	}
+
+	/**
+	 * @param tick a tick
+	 * @return cursor positioned at the given tick, found via the nearest keyframe
+	 */
+	public Cursor cursor(long tick) {
+		if (tick < 0 || tick > numTicks) {
+			throw new IndexOutOfBoundsException("Tick " + tick + " not in recording range 0.." + numTicks);
+		}
+		int keyframe = (int) Math.min(tick / keyframeInterval, keyframeOffsets.length - 1);
+		return new Cursor(keyframe, tick);
+	}
+
+	/**
+	 * @param tick a recorded tick
+	 * @return Pac-Man's wish direction at this tick
+	 */
+	public Direction directionAt(long tick) {
+		if (tick >= numTicks) {
+			throw new IndexOutOfBoundsException("Tick " + tick + " not in recording range 0.." + (numTicks - 1));
+		}
+		return cursor(tick).next();
+	}
+
+	public void write(OutputStream out) throws IOException {
+		var data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(MAGIC);
+		data.writeByte(VERSION);
+		data.writeByte(variant.ordinal());
+		data.writeLong(seed);
+		writeVarint(data, numTicks);
+		writeVarint(data, keyframeInterval);
+		writeVarint(data, body.length);
+		data.write(body);
+		writeVarint(data, keyframeOffsets.length);
+		for (int i = 0; i < keyframeOffsets.length; ++i) {
+			writeVarint(data, keyframeOffsets[i]);
+			data.writeByte(keyframeDirs[i]);
+			writeVarint(data, (long) i * keyframeInterval - keyframeLastChanges[i]);
+		}
+		data.flush();
+	}
+
+	public static InputRecording read(InputStream in) throws IOException {
+		var data = new DataInputStream(new BufferedInputStream(in));
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Not an input recording");
+		}
+		int version = data.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported input recording version " + version);
+		}
+		var variant = GameVariant.values()[data.readUnsignedByte()];
+		long seed = data.readLong();
+		long numTicks = readVarint(data);
+		int keyframeInterval = (int) readVarint(data);
+		var body = new byte[(int) readVarint(data)];
+		data.readFully(body);
+		int numKeyframes = (int) readVarint(data);
+		var offsets = new int[numKeyframes];
+		var dirs = new byte[numKeyframes];
+		var lastChanges = new long[numKeyframes];
+		for (int i = 0; i < numKeyframes; ++i) {
+			offsets[i] = (int) readVarint(data);
+			dirs[i] = data.readByte();
+			lastChanges[i] = (long) i * keyframeInterval - readVarint(data);
+		}
+		return new InputRecording(variant, seed, numTicks, keyframeInterval, body, offsets, dirs, lastChanges);
+	}
+
+	public void save(Path path) throws IOException {
+		try (var out = Files.newOutputStream(path)) {
+			write(out);
+		}
+	}
+
+	public static InputRecording load(Path path) throws IOException {
+		try (var in = Files.newInputStream(path)) {
+			return read(in);
+		}
+	}
+
+	static void writeVarint(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarint(DataInput in) throws IOException {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			if (shift > 63) {
+				throw new IOException("Malformed varint");
+			}
+			b = in.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("InputRecording[variant=%s, seed=%d, ticks=%d, bytes=%d, keyframes=%d]", variant, seed,
+				numTicks, body.length, keyframeOffsets.length);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof InputRecording other)) {
+			return false;
+		}
+		return variant == other.variant && seed == other.seed && numTicks == other.numTicks
+				&& keyframeInterval == other.keyframeInterval && Arrays.equals(body, other.body)
+				&& Arrays.equals(keyframeOffsets, other.keyframeOffsets) && Arrays.equals(keyframeDirs, other.keyframeDirs)
+				&& Arrays.equals(keyframeLastChanges, other.keyframeLastChanges);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(seed) * 31 + Arrays.hashCode(body);
+	}
+}
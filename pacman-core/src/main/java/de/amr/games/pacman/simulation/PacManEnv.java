@@ -0,0 +1,337 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.simulation;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.GhostState;
+import de.amr.games.pacman.model.world.World;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static de.amr.games.pacman.lib.Globals.checkGameVariant;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Reinforcement learning environment ("gym") for a Pac-Man game.
+ * <p>
+ * An episode is one game from level 1 until the last life is lost. Each {@link #step(Direction)} sets the action as
+ * Pac-Man's wish direction and simulates {@link #frameSkip()} frames of the game level, the reward is the number of
+ * points scored. The game runs on a detached {@link GameModel} without game controller: no state machine timing, no
+ * events, no presentation. Level changes, Pac-Man's death and eaten ghosts are handled by the same game model methods
+ * the game states use.
+ * <p>
+ * The observation consists of {@link #NUM_CHANNELS} tile planes of size {@link GameModel#TILES_X} x
+ * {@link GameModel#TILES_Y}, stored channel by channel and row by row in a float array that is reused by all steps.
+ * Channels: walls, pellets, energizers, Pac-Man and one plane per {@link GhostState}. A tile is marked with 1.
+ * <p>
+ * If a {@link SharedStateExporter} is set, the state of every simulated frame is also exported for other processes.
+ *
+ * @author Armin Reichert
+ */
+public final class PacManEnv {
+
+	public static final int CHANNEL_WALLS = 0;
+	public static final int CHANNEL_PELLETS = 1;
+	public static final int CHANNEL_ENERGIZERS = 2;
+	public static final int CHANNEL_PAC = 3;
+	/** First ghost channel, the channel of a ghost is <code>CHANNEL_GHOSTS + ghost.state().ordinal()</code>. */
+	public static final int CHANNEL_GHOSTS = 4;
+	public static final int NUM_CHANNELS = CHANNEL_GHOSTS + GhostState.values().length;
+
+	public static final int PLANE_SIZE = GameModel.TILES_X * GameModel.TILES_Y;
+	public static final int OBSERVATION_SIZE = NUM_CHANNELS * PLANE_SIZE;
+
+	private static final Direction[] ACTIONS = Direction.values();
+
+	/**
+	 * Result of an environment step.
+	 */
+	public static final class StepResult {
+
+		private final float reward;
+		private final boolean done;
+		private final int score;
+		private final int lives;
+		private final int levelNumber;
+		private final long frames;
+
+		StepResult(float reward, boolean done, int score, int lives, int levelNumber, long frames) {
+			this.reward = reward;
+			this.done = done;
+			this.score = score;
+			this.lives = lives;
+			this.levelNumber = levelNumber;
+			this.frames = frames;
+		}
+
+		/** @return points scored during the step */
+		public float reward() {
+			return reward;
+		}
+
+		/** @return if the game is over */
+		public boolean done() {
+			return done;
+		}
+
+		public int score() {
+			return score;
+		}
+
+		public int lives() {
+			return lives;
+		}
+
+		public int levelNumber() {
+			return levelNumber;
+		}
+
+		/** @return number of frames simulated in this episode */
+		public long frames() {
+			return frames;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("StepResult[reward=%.0f, done=%s, score=%d, lives=%d, level=%d, frames=%d]", reward, done,
+					score, lives, levelNumber, frames);
+		}
+	}
+
+	private final GameVariant variant;
+	private final int frameSkip;
+	private final float[] observation;
+	private final int offset;
+	private final int[] lastGhostCells = new int[4];
+	private GameModel game;
+	private GameLevel level;
+	private SharedStateExporter stateExporter;
+	private int lastPacCell = -1;
+	private long frames;
+	private boolean done;
+
+	/**
+	 * @param variant     game variant
+	 * @param frameSkip   number of frames simulated per step
+	 * @param observation array receiving the observation
+	 * @param offset      start index of the observation in the array
+	 */
+	public PacManEnv(GameVariant variant, int frameSkip, float[] observation, int offset) {
+		checkGameVariant(variant);
+		checkNotNull(observation);
+		if (frameSkip <= 0) {
+			throw new IllegalArgumentException("Frame skip must be positive but is " + frameSkip);
+		}
+		if (offset < 0 || offset + OBSERVATION_SIZE > observation.length) {
+			throw new IllegalArgumentException("Observation does not fit into array at offset " + offset);
+		}
+		this.variant = variant;
+		this.frameSkip = frameSkip;
+		this.observation = observation;
+		this.offset = offset;
+	}
+
+	/**
+	 * @param variant   game variant
+	 * @param frameSkip number of frames simulated per step
+	 */
+	public PacManEnv(GameVariant variant, int frameSkip) {
+		this(variant, frameSkip, new float[OBSERVATION_SIZE], 0);
+	}
+
+	public GameVariant variant() {
+		return variant;
+	}
+
+	public int frameSkip() {
+		return frameSkip;
+	}
+
+	/**
+	 * @return the observation array, updated by {@link #reset(long)} and {@link #step(Direction)}, the observation starts
+	 *         at {@link #observationOffset()}
+	 */
+	public float[] observation() {
+		return observation;
+	}
+
+	public int observationOffset() {
+		return offset;
+	}
+
+	/**
+	 * Copies the observation into the given buffer (native byte order is used if the buffer is direct).
+	 *
+	 * @param buffer buffer with at least <code>4 * OBSERVATION_SIZE</code> bytes remaining
+	 */
+	public void copyObservation(ByteBuffer buffer) {
+		var floats = buffer.isDirect() ? buffer.order(ByteOrder.nativeOrder()).asFloatBuffer() : buffer.asFloatBuffer();
+		floats.put(observation, offset, OBSERVATION_SIZE);
+		buffer.position(buffer.position() + 4 * OBSERVATION_SIZE);
+	}
+
+	public Optional<SharedStateExporter> stateExporter() {
+		return Optional.ofNullable(stateExporter);
+	}
+
+	/**
+	 * @param stateExporter exporter receiving the state of every simulated frame or <code>null</code>
+	 */
+	public void setStateExporter(SharedStateExporter stateExporter) {
+		this.stateExporter = stateExporter;
+	}
+
+	/**
+	 * @return the game of the current episode
+	 */
+	public GameModel game() {
+		return game;
+	}
+
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * Starts a new episode.
+	 *
+	 * @param seed seed of the game, episodes with the same seed and the same actions are identical
+	 */
+	public void reset(long seed) {
+		game = new GameModel(variant, null, seed);
+		game.setHighScorePersistent(false);
+		game.reset();
+		game.setPlaying(true);
+		game.createLevel(1);
+		game.startLevel();
+		frames = 0;
+		done = false;
+		startHunting();
+	}
+
+	/**
+	 * @param action index of a {@link Direction}
+	 * @return step result
+	 */
+	public StepResult step(int action) {
+		return step(ACTIONS[action]);
+	}
+
+	/**
+	 * Simulates {@link #frameSkip()} frames with the given action as Pac-Man's wish direction. The step ends early if
+	 * Pac-Man gets killed or the level is completed.
+	 *
+	 * @param action Pac-Man's wish direction
+	 * @return step result
+	 */
+	public StepResult step(Direction action) {
+		checkNotNull(action);
+		if (game == null || done) {
+			throw new IllegalStateException("Environment must be reset before stepping");
+		}
+		int scoreBefore = game.score().points();
+		for (int i = 0; i < frameSkip && !done; ++i) {
+			level.pac().setWishDir(action);
+			level.simulateOneFrame();
+			++frames;
+			if (stateExporter != null) {
+				stateExporter.export(level);
+			}
+			level.thisFrame().foodFoundTile().ifPresent(this::clearFood);
+			if (level.thisFrame().levelCompleted) {
+				level.end();
+				game.nextLevel();
+				startHunting();
+				break;
+			} else if (level.thisFrame().pacKilled) {
+				level.onPacKilled();
+				game.loseLife();
+				level.deactivateBonus(); // like leaving the game state PACMAN_DYING
+				if (game.lives() == 0) {
+					done = true;
+				} else {
+					level.letsGetReadyToRumble();
+					startHunting();
+				}
+				break;
+			} else if (!level.thisFrame().pacPrey.isEmpty()) {
+				level.killEdibleGhosts();
+				level.simulateGhostDying();
+				level.endGhostDying();
+			}
+		}
+		updateGuys();
+		return new StepResult(game.score().points() - scoreBefore, done, game.score().points(), game.lives(),
+				level.number(), frames);
+	}
+
+	private void startHunting() {
+		level = game.level().orElseThrow();
+		level.beginHunting();
+		drawWorld();
+		lastPacCell = -1;
+		lastGhostCells[0] = lastGhostCells[1] = lastGhostCells[2] = lastGhostCells[3] = -1;
+		updateGuys();
+		if (stateExporter != null) {
+			stateExporter.export(level);
+		}
+	}
+
+	private void drawWorld() {
+		World world = level.world();
+		Arrays.fill(observation, offset, offset + OBSERVATION_SIZE, 0);
+		for (int i = 0; i < PLANE_SIZE; ++i) {
+			if (world.isWall(i)) {
+				observation[offset + CHANNEL_WALLS * PLANE_SIZE + i] = 1;
+			}
+			if (world.hasFoodAt(i)) {
+				int channel = world.isEnergizerTile(i) ? CHANNEL_ENERGIZERS : CHANNEL_PELLETS;
+				observation[offset + channel * PLANE_SIZE + i] = 1;
+			}
+		}
+	}
+
+	private void clearFood(Vector2i tile) {
+		int cell = level.world().index(tile);
+		if (cell != -1) {
+			observation[offset + CHANNEL_PELLETS * PLANE_SIZE + cell] = 0;
+			observation[offset + CHANNEL_ENERGIZERS * PLANE_SIZE + cell] = 0;
+		}
+	}
+
+	private void updateGuys() {
+		// clear all marks before setting the new ones, guys may share a tile
+		if (lastPacCell != -1) {
+			observation[lastPacCell] = 0;
+		}
+		for (int id = 0; id < 4; ++id) {
+			if (lastGhostCells[id] != -1) {
+				observation[lastGhostCells[id]] = 0;
+			}
+		}
+		var world = level.world();
+		int pacIndex = world.index(level.pac().tile());
+		lastPacCell = pacIndex == -1 ? -1 : offset + CHANNEL_PAC * PLANE_SIZE + pacIndex;
+		if (lastPacCell != -1) {
+			observation[lastPacCell] = 1;
+		}
+		for (byte id = 0; id < 4; ++id) {
+			var ghost = level.ghost(id);
+			int ghostIndex = world.index(ghost.tile());
+			lastGhostCells[id] = ghostIndex == -1 ? -1
+					: offset + (CHANNEL_GHOSTS + ghost.state().ordinal()) * PLANE_SIZE + ghostIndex;
+			if (lastGhostCells[id] != -1) {
+				observation[lastGhostCells[id]] = 1;
+			}
+		}
+	}
+}
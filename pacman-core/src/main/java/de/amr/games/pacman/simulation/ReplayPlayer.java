@@ -0,0 +1,126 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.simulation;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.controller.Steering;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.actors.Creature;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Replays an {@link InputRecording} without user interface and as fast as possible.
+ * <p>
+ * The recorded session is recreated from its seed and Pac-Man is steered by the recorded input, so the replayed game
+ * is identical to the recorded one. The replay session runs headless, which does not change the game.
+ * <p>
+ * Seeking is not random access: the recording only contains the input, not the game state, and a session cannot be
+ * resumed from a checkpoint. The keyframe index gives random access to the recorded input only (see
+ * {@link InputRecording#cursor(long)}). To reach a tick, the game has to be simulated up to that tick, so seeking costs
+ * time linear in the number of simulated ticks: seeking forward continues the replay, seeking backward restarts it
+ * from tick 0.
+ *
+ * @author Armin Reichert
+ */
+public class ReplayPlayer {
+
+	private static class ReplaySteering extends Steering {
+
+		private final InputRecording.Cursor cursor;
+
+		ReplaySteering(InputRecording recording) {
+			cursor = recording.cursor(0);
+		}
+
+		@Override
+		public void steer(GameLevel level, Creature guy) {
+			if (cursor.hasNext()) {
+				guy.setWishDir(cursor.next());
+			}
+		}
+	}
+
+	private final InputRecording recording;
+	private GameController session;
+	private ReplaySteering steering;
+
+	public ReplayPlayer(InputRecording recording) {
+		checkNotNull(recording);
+		this.recording = recording;
+		restart();
+	}
+
+	private void restart() {
+		session = new GameController(recording.variant(), recording.seed());
+		steering = new ReplaySteering(recording);
+		session.game().setHighScorePersistent(false);
+		session.setHeadless(true);
+		session.setManualPacSteering(steering);
+		session.setAutoControlled(false);
+		session.setCredit(1);
+		session.restart(GameState.READY);
+	}
+
+	public InputRecording recording() {
+		return recording;
+	}
+
+	/**
+	 * @return the session in which the recording is replayed
+	 */
+	public GameController session() {
+		return session;
+	}
+
+	/**
+	 * @return number of ticks replayed so far
+	 */
+	public long tick() {
+		return steering.cursor.tick();
+	}
+
+	/**
+	 * @return if the game is over or all recorded ticks have been replayed
+	 */
+	public boolean isFinished() {
+		return session.state() == GameState.GAME_OVER || tick() == recording.numTicks();
+	}
+
+	/**
+	 * Positions the replay at the given tick. Seeking forward continues the current replay, seeking backward restarts it
+	 * and simulates all ticks from the start, see class comment.
+	 *
+	 * @param tick tick in range <code>0..numTicks</code>
+	 */
+	public void seek(long tick) {
+		if (tick < 0 || tick > recording.numTicks()) {
+			throw new IndexOutOfBoundsException("Tick " + tick + " not in recording range 0.." + recording.numTicks());
+		}
+		if (tick < tick()) {
+			restart();
+		}
+		while (tick() < tick && session.state() != GameState.GAME_OVER) {
+			step();
+		}
+	}
+
+	/**
+	 * Replays until the game is over or the recording ends.
+	 *
+	 * @return number of replayed ticks
+	 */
+	public long playToEnd() {
+		while (!isFinished()) {
+			step();
+		}
+		return tick();
+	}
+
+	private void step() {
+		session.update();
+	}
+}
@@ -0,0 +1,266 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.simulation;
+
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.actors.Creature;
+import de.amr.games.pacman.model.world.World;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static de.amr.games.pacman.lib.Globals.checkLevelNotNull;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Writes a snapshot of the game state into a memory-mapped file, so other processes (trainer, renderer) can map the
+ * file and read the state of each frame without copying or deserializing.
+ * <p>
+ * The file has a fixed layout, all values in little endian byte order:
+ * <ul>
+ * <li>Header: magic ({@link #MAGIC}), version, sequence number, columns, rows, number of actors.</li>
+ * <li>Frame values at {@link #FRAME_OFFSET}: level number, score, lives, hunting phase, remaining ticks of Pac-Man's
+ * power, remaining food, game variant ordinal.</li>
+ * <li>Actors at {@link #ACTORS_OFFSET}: Pac-Man and the ghosts in order RED, PINK, CYAN, ORANGE, each
+ * {@link #ACTOR_SIZE} bytes: x, y (float), move and wish direction ordinal, state (ghost state ordinal, 0 for
+ * Pac-Man), flags ({@link #ACTOR_VISIBLE}, {@link #ACTOR_DEAD}), tile index (int, -1 outside the world).</li>
+ * <li>Tiles at {@link #TILES_OFFSET}: one byte per tile in row order, see {@link #TILE_WALL} etc.</li>
+ * <li>Food at {@link #foodOffset()}: one bit per tile (bit <code>i % 64</code> of long <code>i / 64</code>), set if
+ * the tile still has food.</li>
+ * </ul>
+ * <p>
+ * Consistent snapshots are provided by a sequence lock: the sequence number is odd while a snapshot is written and
+ * incremented to the next even number when the snapshot is complete. A reader reads the sequence number, waits until
+ * it is even, reads the values it needs and accepts them if the sequence number is still the same, else it retries.
+ * See {@link SharedStateReader}.
+ *
+ * @author Armin Reichert
+ */
+public final class SharedStateExporter implements AutoCloseable {
+
+	public static final int MAGIC = 0x53534D50; // "PMSS"
+	public static final int VERSION = 1;
+
+	public static final int SEQUENCE_OFFSET = 8;
+	public static final int NUM_COLS_OFFSET = 16;
+	public static final int NUM_ROWS_OFFSET = 20;
+	public static final int NUM_ACTORS_OFFSET = 24;
+
+	public static final int FRAME_OFFSET = 32;
+	public static final int LEVEL_NUMBER_OFFSET = FRAME_OFFSET;
+	public static final int SCORE_OFFSET = FRAME_OFFSET + 4;
+	public static final int LIVES_OFFSET = FRAME_OFFSET + 8;
+	public static final int HUNTING_PHASE_OFFSET = FRAME_OFFSET + 12;
+	public static final int PAC_POWER_TICKS_OFFSET = FRAME_OFFSET + 16;
+	public static final int FOOD_REMAINING_OFFSET = FRAME_OFFSET + 20;
+	public static final int VARIANT_OFFSET = FRAME_OFFSET + 24;
+
+	public static final int NUM_ACTORS = 5;
+	public static final int ACTORS_OFFSET = 64;
+	public static final int ACTOR_SIZE = 16;
+	public static final int ACTOR_X = 0;
+	public static final int ACTOR_Y = 4;
+	public static final int ACTOR_MOVE_DIR = 8;
+	public static final int ACTOR_WISH_DIR = 9;
+	public static final int ACTOR_STATE = 10;
+	public static final int ACTOR_FLAGS = 11;
+	public static final int ACTOR_TILE = 12;
+
+	public static final int TILES_OFFSET = ACTORS_OFFSET + NUM_ACTORS * ACTOR_SIZE;
+
+	public static final byte ACTOR_VISIBLE = 1;
+	public static final byte ACTOR_DEAD = 2;
+
+	public static final byte TILE_WALL = 1;
+	public static final byte TILE_TUNNEL = 2;
+	public static final byte TILE_FOOD = 4;
+	public static final byte TILE_ENERGIZER = 8;
+	public static final byte TILE_DOOR = 16;
+
+	static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	static int foodOffset(int numTiles) {
+		return (TILES_OFFSET + numTiles + 7) & ~7;
+	}
+
+	static int fileSize(int numTiles) {
+		return foodOffset(numTiles) + 8 * ((numTiles + 63) / 64);
+	}
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int numCols;
+	private final int numRows;
+	private final long[] food;
+	private World exportedWorld;
+	private long sequence;
+
+	/**
+	 * Creates (or overwrites) the file and maps it for the arcade world size ({@link GameModel#TILES_X} x
+	 * {@link GameModel#TILES_Y}).
+	 *
+	 * @param file path of the memory-mapped file
+	 * @throws IOException if the file cannot be created or mapped
+	 */
+	public SharedStateExporter(Path file) throws IOException {
+		this(file, GameModel.TILES_X, GameModel.TILES_Y);
+	}
+
+	/**
+	 * Creates (or overwrites) the file and maps it.
+	 *
+	 * @param file    path of the memory-mapped file
+	 * @param numCols number of tile columns of the exported worlds
+	 * @param numRows number of tile rows of the exported worlds
+	 * @throws IOException if the file cannot be created or mapped
+	 */
+	public SharedStateExporter(Path file, int numCols, int numRows) throws IOException {
+		checkNotNull(file);
+		if (numCols <= 0 || numRows <= 0) {
+			throw new IllegalArgumentException("Illegal world size: " + numCols + "x" + numRows);
+		}
+		this.numCols = numCols;
+		this.numRows = numRows;
+		int numTiles = numCols * numRows;
+		food = new long[(numTiles + 63) / 64];
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(numTiles));
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(NUM_COLS_OFFSET, numCols);
+		buffer.putInt(NUM_ROWS_OFFSET, numRows);
+		buffer.putInt(NUM_ACTORS_OFFSET, NUM_ACTORS);
+		LONGS.setRelease(buffer, SEQUENCE_OFFSET, 0L);
+	}
+
+	/** @return byte offset of the food bits */
+	public int foodOffset() {
+		return foodOffset(numCols * numRows);
+	}
+
+	/** @return size of the file in bytes */
+	public int size() {
+		return fileSize(numCols * numRows);
+	}
+
+	/** @return sequence number of the last complete snapshot, twice the number of exported snapshots */
+	public long sequence() {
+		return sequence;
+	}
+
+	/**
+	 * Writes a snapshot of the given level. The tile section is only rewritten if the level has another world than the
+	 * previously exported level.
+	 *
+	 * @param level game level
+	 */
+	public void export(GameLevel level) {
+		checkLevelNotNull(level);
+		var world = level.world();
+		if (world.numCols() != numCols || world.numRows() != numRows) {
+			throw new IllegalArgumentException(String.format("World size %dx%d does not match exported size %dx%d",
+					world.numCols(), world.numRows(), numCols, numRows));
+		}
+		var game = level.game();
+		var powerTimer = level.pac().powerTimer();
+		computeFood(world);
+
+		LONGS.setOpaque(buffer, SEQUENCE_OFFSET, sequence + 1);
+		VarHandle.storeStoreFence();
+		buffer.putInt(LEVEL_NUMBER_OFFSET, level.number());
+		buffer.putInt(SCORE_OFFSET, game.score().points());
+		buffer.putInt(LIVES_OFFSET, game.lives());
+		buffer.putInt(HUNTING_PHASE_OFFSET, level.huntingPhase());
+		buffer.putInt(PAC_POWER_TICKS_OFFSET, powerTimer.isRunning() ? (int) powerTimer.remaining() : 0);
+		buffer.putInt(FOOD_REMAINING_OFFSET, world.uneatenFoodCount());
+		buffer.putInt(VARIANT_OFFSET, game.variant().ordinal());
+		writeActor(world, 0, level.pac(), 0, level.pac().isDead());
+		for (byte id = 0; id < 4; ++id) {
+			var ghost = level.ghost(id);
+			writeActor(world, 1 + id, ghost, ghost.state().ordinal(), false);
+		}
+		if (world != exportedWorld) {
+			writeTiles(world);
+			exportedWorld = world;
+		}
+		int foodOffset = foodOffset();
+		for (int i = 0; i < food.length; ++i) {
+			buffer.putLong(foodOffset + 8 * i, food[i]);
+		}
+		sequence += 2;
+		LONGS.setRelease(buffer, SEQUENCE_OFFSET, sequence);
+	}
+
+	private void computeFood(World world) {
+		for (int i = 0; i < food.length; ++i) {
+			food[i] = 0;
+		}
+		for (int i = 0; i < numCols * numRows; ++i) {
+			if (world.hasFoodAt(i)) {
+				food[i >> 6] |= 1L << (i & 63);
+			}
+		}
+	}
+
+	private void writeActor(World world, int index, Creature creature, int state, boolean dead) {
+		int offset = ACTORS_OFFSET + index * ACTOR_SIZE;
+		var position = creature.position();
+		buffer.putFloat(offset + ACTOR_X, position.x());
+		buffer.putFloat(offset + ACTOR_Y, position.y());
+		buffer.put(offset + ACTOR_MOVE_DIR, (byte) creature.moveDir().ordinal());
+		buffer.put(offset + ACTOR_WISH_DIR, (byte) creature.wishDir().ordinal());
+		buffer.put(offset + ACTOR_STATE, (byte) state);
+		byte flags = 0;
+		if (creature.isVisible()) {
+			flags |= ACTOR_VISIBLE;
+		}
+		if (dead) {
+			flags |= ACTOR_DEAD;
+		}
+		buffer.put(offset + ACTOR_FLAGS, flags);
+		buffer.putInt(offset + ACTOR_TILE, world.index(creature.tile()));
+	}
+
+	private void writeTiles(World world) {
+		var door = world.house() != null ? world.house().door() : null;
+		for (int i = 0; i < numCols * numRows; ++i) {
+			var tile = world.tile(i);
+			byte flags = 0;
+			if (world.isWall(i)) {
+				flags |= TILE_WALL;
+			}
+			if (world.isTunnel(i)) {
+				flags |= TILE_TUNNEL;
+			}
+			if (world.isFoodTile(i)) {
+				flags |= TILE_FOOD;
+			}
+			if (world.isEnergizerTile(i)) {
+				flags |= TILE_ENERGIZER;
+			}
+			if (door != null && door.occupies(tile)) {
+				flags |= TILE_DOOR;
+			}
+			buffer.put(TILES_OFFSET + i, flags);
+		}
+	}
+
+	/**
+	 * Closes the file channel. The mapping stays valid until the exporter is garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,211 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.simulation;
+
+import de.amr.games.pacman.lib.Direction;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+import static de.amr.games.pacman.simulation.SharedStateExporter.*;
+
+/**
+ * Reads the game state written by a {@link SharedStateExporter}, possibly in another process, directly from the
+ * memory-mapped file.
+ * <p>
+ * Values are only consistent if read between {@link #beginRead()} and a successful {@link #validate(long)}:
+ *
+ * <pre>
+ * long seq;
+ * do {
+ * 	seq = reader.beginRead();
+ * 	score = reader.score();
+ * 	...
+ * } while (!reader.validate(seq));
+ * </pre>
+ *
+ * @author Armin Reichert
+ */
+public final class SharedStateReader implements AutoCloseable {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int numCols;
+	private final int numRows;
+	private final int foodOffset;
+
+	/**
+	 * Maps the given file read-only.
+	 *
+	 * @param file file written by a {@link SharedStateExporter}
+	 * @throws IOException if the file cannot be mapped or is not a state export
+	 */
+	public SharedStateReader(Path file) throws IOException {
+		checkNotNull(file);
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			if (channel.size() < TILES_OFFSET) {
+				throw new IOException("File too small for a state export: " + file);
+			}
+			var header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TILES_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("Not a state export of version " + VERSION + ": " + file);
+			}
+			numCols = header.getInt(NUM_COLS_OFFSET);
+			numRows = header.getInt(NUM_ROWS_OFFSET);
+			foodOffset = SharedStateExporter.foodOffset(numCols * numRows);
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize(numCols * numRows));
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+		} catch (IOException | RuntimeException x) {
+			channel.close();
+			throw x;
+		}
+	}
+
+	/**
+	 * Waits until no snapshot is being written.
+	 *
+	 * @return sequence number of the snapshot to read, pass it to {@link #validate(long)}
+	 */
+	public long beginRead() {
+		long seq = (long) LONGS.getAcquire(buffer, SEQUENCE_OFFSET);
+		while ((seq & 1) != 0) {
+			Thread.onSpinWait();
+			seq = (long) LONGS.getAcquire(buffer, SEQUENCE_OFFSET);
+		}
+		return seq;
+	}
+
+	/**
+	 * @param seq sequence number returned by {@link #beginRead()}
+	 * @return if the values read since {@link #beginRead()} belong to the same snapshot
+	 */
+	public boolean validate(long seq) {
+		VarHandle.loadLoadFence();
+		return (long) LONGS.getOpaque(buffer, SEQUENCE_OFFSET) == seq;
+	}
+
+	/** @return number of snapshots written so far */
+	public long numSnapshots() {
+		return beginRead() / 2;
+	}
+
+	public int numCols() {
+		return numCols;
+	}
+
+	public int numRows() {
+		return numRows;
+	}
+
+	public int levelNumber() {
+		return buffer.getInt(LEVEL_NUMBER_OFFSET);
+	}
+
+	public int score() {
+		return buffer.getInt(SCORE_OFFSET);
+	}
+
+	public int lives() {
+		return buffer.getInt(LIVES_OFFSET);
+	}
+
+	public int huntingPhase() {
+		return buffer.getInt(HUNTING_PHASE_OFFSET);
+	}
+
+	/** @return remaining ticks of Pac-Man's power, 0 if Pac-Man has no power */
+	public int pacPowerTicks() {
+		return buffer.getInt(PAC_POWER_TICKS_OFFSET);
+	}
+
+	public int foodRemaining() {
+		return buffer.getInt(FOOD_REMAINING_OFFSET);
+	}
+
+	/** @return game variant ordinal */
+	public int variant() {
+		return buffer.getInt(VARIANT_OFFSET);
+	}
+
+	/**
+	 * @param actor 0 for Pac-Man, 1 + ghost ID for a ghost
+	 * @return x-coordinate of the actor's position
+	 */
+	public float actorX(int actor) {
+		return buffer.getFloat(actorOffset(actor) + ACTOR_X);
+	}
+
+	public float actorY(int actor) {
+		return buffer.getFloat(actorOffset(actor) + ACTOR_Y);
+	}
+
+	public Direction actorMoveDir(int actor) {
+		return DIRECTIONS[buffer.get(actorOffset(actor) + ACTOR_MOVE_DIR) & 3];
+	}
+
+	public Direction actorWishDir(int actor) {
+		return DIRECTIONS[buffer.get(actorOffset(actor) + ACTOR_WISH_DIR) & 3];
+	}
+
+	/** @return ghost state ordinal, 0 for Pac-Man */
+	public int actorState(int actor) {
+		return buffer.get(actorOffset(actor) + ACTOR_STATE);
+	}
+
+	/** @return actor flags, see {@link SharedStateExporter#ACTOR_VISIBLE} */
+	public int actorFlags(int actor) {
+		return buffer.get(actorOffset(actor) + ACTOR_FLAGS);
+	}
+
+	/** @return tile index of the actor, -1 if outside the world */
+	public int actorTile(int actor) {
+		return buffer.getInt(actorOffset(actor) + ACTOR_TILE);
+	}
+
+	/**
+	 * @param index tile index
+	 * @return tile flags, see {@link SharedStateExporter#TILE_WALL}
+	 */
+	public int tileFlags(int index) {
+		return buffer.get(TILES_OFFSET + checkTileIndex(index));
+	}
+
+	/**
+	 * @param index tile index
+	 * @return if the tile still has food
+	 */
+	public boolean hasFood(int index) {
+		checkTileIndex(index);
+		return (buffer.getLong(foodOffset + 8 * (index >> 6)) & (1L << (index & 63))) != 0;
+	}
+
+	private int actorOffset(int actor) {
+		if (actor < 0 || actor >= NUM_ACTORS) {
+			throw new IllegalArgumentException("Illegal actor index: " + actor);
+		}
+		return ACTORS_OFFSET + actor * ACTOR_SIZE;
+	}
+
+	private int checkTileIndex(int index) {
+		if (index < 0 || index >= numCols * numRows) {
+			throw new IllegalArgumentException("Illegal tile index: " + index);
+		}
+		return index;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
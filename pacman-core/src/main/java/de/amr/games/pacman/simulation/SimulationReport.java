@@ -0,0 +1,144 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.simulation;
+
+import de.amr.games.pacman.model.GameVariant;
+
+import java.util.Arrays;
+
+/**
+ * Result of a batch simulation run: per-game scores, levels and frames plus the wall-clock time of the run.
+ *
+ * @author Armin Reichert
+ */
+public class SimulationReport {
+
+	private final GameVariant variant;
+	private final int[] scores;
+	private final int[] levels;
+	private final long[] frames;
+	private final boolean[] capped;
+	private final long nanos;
+	private final int[] sortedScores;
+
+	SimulationReport(GameVariant variant, int[] scores, int[] levels, long[] frames, boolean[] capped, long nanos) {
+		this.variant = variant;
+		this.scores = scores;
+		this.levels = levels;
+		this.frames = frames;
+		this.capped = capped;
+		this.nanos = nanos;
+		sortedScores = scores.clone();
+		Arrays.sort(sortedScores);
+	}
+
+	public GameVariant variant() {
+		return variant;
+	}
+
+	public int numGames() {
+		return scores.length;
+	}
+
+	/**
+	 * @return number of games that were stopped because they reached the frame limit before the game was over
+	 */
+	public int numCappedGames() {
+		int n = 0;
+		for (var c : capped) {
+			if (c) {
+				++n;
+			}
+		}
+		return n;
+	}
+
+	public double seconds() {
+		return nanos / 1e9;
+	}
+
+	public long totalFrames() {
+		return Arrays.stream(frames).sum();
+	}
+
+	public double gamesPerSecond() {
+		return numGames() / seconds();
+	}
+
+	public double framesPerSecond() {
+		return totalFrames() / seconds();
+	}
+
+	public double meanLevel() {
+		return Arrays.stream(levels).average().orElse(0);
+	}
+
+	public int maxLevel() {
+		return Arrays.stream(levels).max().orElse(0);
+	}
+
+	public double meanScore() {
+		return Arrays.stream(scores).average().orElse(0);
+	}
+
+	public int minScore() {
+		return sortedScores.length > 0 ? sortedScores[0] : 0;
+	}
+
+	public int maxScore() {
+		return sortedScores.length > 0 ? sortedScores[sortedScores.length - 1] : 0;
+	}
+
+	/**
+	 * @param percent percentage (0-100)
+	 * @return score below or equal to which the given percentage of the games ended (nearest-rank method)
+	 */
+	public int scorePercentile(double percent) {
+		if (percent < 0 || percent > 100) {
+			throw new IllegalArgumentException("Percentage must be in range 0-100 but is " + percent);
+		}
+		if (sortedScores.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percent / 100 * sortedScores.length);
+		return sortedScores[Math.max(rank - 1, 0)];
+	}
+
+	/**
+	 * @param numBins number of score bins
+	 * @return number of games per score bin, bins have equal width and cover the range from the min to the max score
+	 */
+	public int[] scoreHistogram(int numBins) {
+		if (numBins <= 0) {
+			throw new IllegalArgumentException("Number of bins must be positive but is " + numBins);
+		}
+		var histogram = new int[numBins];
+		int min = minScore();
+		int width = Math.max(1, (maxScore() - min + numBins) / numBins);
+		for (var score : scores) {
+			histogram[Math.min((score - min) / width, numBins - 1)] += 1;
+		}
+		return histogram;
+	}
+
+	@Override
+	public String toString() {
+		var sb = new StringBuilder();
+		sb.append(String.format("%s: %d games (%d capped) in %.2f sec%n", variant, numGames(), numCappedGames(), seconds()));
+		sb.append(String.format("  Games/sec:   %,.1f%n", gamesPerSecond()));
+		sb.append(String.format("  Frames/sec:  %,.0f (%,d frames total)%n", framesPerSecond(), totalFrames()));
+		sb.append(String.format("  Level:       mean %.2f max %d%n", meanLevel(), maxLevel()));
+		sb.append(String.format("  Score:       mean %.0f min %d p10 %d p50 %d p90 %d p99 %d max %d%n", meanScore(),
+				minScore(), scorePercentile(10), scorePercentile(50), scorePercentile(90), scorePercentile(99), maxScore()));
+		int numBins = 10;
+		var histogram = scoreHistogram(numBins);
+		int width = Math.max(1, (maxScore() - minScore() + numBins) / numBins);
+		for (int bin = 0; bin < numBins; ++bin) {
+			int from = minScore() + bin * width;
+			sb.append(String.format("  %7d-%-7d %d%n", from, from + width - 1, histogram[bin]));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,156 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.simulation;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.lib.Option;
+import de.amr.games.pacman.lib.OptionParser;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static de.amr.games.pacman.lib.Globals.checkGameVariant;
+
+/**
+ * Plays complete games (from the first level until game over) without a user interface and as fast as possible.
+ * <p>
+ * Each game runs in its own game session (see {@link GameController}) through the regular game state machine, Pac-Man
+ * is steered by the autopilot. The sessions run headless (see {@link GameController#isHeadless()}) unless configured
+ * otherwise, this does not change the outcome of the games. The games are distributed over a fork/join pool.
+ *
+ * @author Armin Reichert
+ */
+public class SimulationRunner {
+
+	public static void main(String[] args) {
+		var optVariant = Option.option("-variant", GameVariant.PACMAN, GameVariant::valueOf);
+		var optGames = Option.integerOption("-games", 1000);
+		var optThreads = Option.integerOption("-threads", Runtime.getRuntime().availableProcessors());
+		var optMaxFrames = Option.integerOption("-maxframes", 1_000_000);
+		var optSeed = Option.option("-seed", 0L, Long::valueOf);
+		var optHeadless = Option.booleanOption("-headless", true);
+		new OptionParser(optVariant, optGames, optThreads, optMaxFrames, optSeed, optHeadless).parse(args);
+
+		var runner = new SimulationRunner(optVariant.getValue());
+		runner.setNumGames(optGames.getValue());
+		runner.setParallelism(optThreads.getValue());
+		runner.setMaxFramesPerGame(optMaxFrames.getValue());
+		runner.setSeed(optSeed.getValue());
+		runner.setHeadless(optHeadless.getValue());
+		var report = runner.run();
+		System.out.println(report);
+	}
+
+	private final GameVariant variant;
+	private int numGames = 1000;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private long maxFramesPerGame = 1_000_000;
+	private long seed;
+	private boolean headless = true;
+
+	public SimulationRunner(GameVariant variant) {
+		checkGameVariant(variant);
+		this.variant = variant;
+	}
+
+	public void setNumGames(int numGames) {
+		if (numGames <= 0) {
+			throw new IllegalArgumentException("Number of games must be positive but is " + numGames);
+		}
+		this.numGames = numGames;
+	}
+
+	public void setParallelism(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @param maxFrames maximum number of frames a single game may last, a game reaching this limit is stopped and
+	 *                  counted as "capped"
+	 */
+	public void setMaxFramesPerGame(long maxFrames) {
+		if (maxFrames <= 0) {
+			throw new IllegalArgumentException("Max frames must be positive but is " + maxFrames);
+		}
+		this.maxFramesPerGame = maxFrames;
+	}
+
+	/**
+	 * @param seed base seed, game <code>i</code> is played in a session with seed <code>seed + i</code>. Runs with the
+	 *             same seed produce the same results, independent of the parallelism.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @param headless if the sessions skip cosmetic work and presentation waits (default: <code>true</code>)
+	 */
+	public void setHeadless(boolean headless) {
+		this.headless = headless;
+	}
+
+	/**
+	 * Plays the configured number of games and waits until all are finished.
+	 *
+	 * @return report about the played games
+	 */
+	public SimulationReport run() {
+		var scores = new int[numGames];
+		var levels = new int[numGames];
+		var frames = new long[numGames];
+		var capped = new boolean[numGames];
+		var pool = new ForkJoinPool(parallelism);
+		long start = System.nanoTime();
+		try {
+			pool.submit(() -> IntStream.range(0, numGames).parallel().forEach(i -> {
+				var session = new GameController(variant, seed + i);
+				frames[i] = playGame(session);
+				capped[i] = session.state() != GameState.GAME_OVER;
+				scores[i] = session.game().score().points();
+				levels[i] = session.game().level().map(GameLevel::number).orElse(0);
+			})).get();
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Simulation interrupted", x);
+		} catch (ExecutionException x) {
+			throw new IllegalStateException("Simulation failed", x.getCause());
+		} finally {
+			pool.shutdown();
+		}
+		return new SimulationReport(variant, scores, levels, frames, capped, System.nanoTime() - start);
+	}
+
+	/**
+	 * Plays a single game in the given session until the game is over or the frame limit is reached.
+	 *
+	 * @param session game session
+	 * @return number of simulated frames
+	 */
+	long playGame(GameController session) {
+		session.game().setHighScorePersistent(false);
+		session.setHeadless(headless);
+		session.setAutoControlled(true);
+		session.setCredit(1);
+		session.restart(GameState.READY);
+		long frame = 0;
+		while (session.state() != GameState.GAME_OVER && frame < maxFramesPerGame) {
+			if (session.state() == GameState.INTERMISSION) {
+				// no user interface playing the intermission scene
+				session.terminateCurrentState();
+			}
+			session.update();
+			++frame;
+		}
+		return frame;
+	}
+}
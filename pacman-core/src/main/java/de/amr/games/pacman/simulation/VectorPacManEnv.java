@@ -0,0 +1,139 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.simulation;
+
+import de.amr.games.pacman.model.GameVariant;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static de.amr.games.pacman.lib.Globals.checkGameVariant;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * A number of {@link PacManEnv environments} stepped in lockstep, distributed over a fork/join pool.
+ * <p>
+ * The observations of all environments are stored in one array, environment <code>i</code> starts at index
+ * <code>i * PacManEnv.OBSERVATION_SIZE</code>. An environment whose episode is done is reset automatically in the same
+ * step, its reward and done flag of the finished episode are reported. The seeds of the episodes are derived from the
+ * seed given to {@link #reset(long)}, so runs with the same seed and actions are identical, independent of the
+ * parallelism.
+ *
+ * @author Armin Reichert
+ */
+public final class VectorPacManEnv implements AutoCloseable {
+
+	private final PacManEnv[] envs;
+	private final SplittableRandom[] episodeSeeds;
+	private final float[] observations;
+	private final float[] rewards;
+	private final boolean[] dones;
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param variant     game variant
+	 * @param numEnvs     number of environments
+	 * @param frameSkip   number of frames simulated per step
+	 * @param parallelism number of threads
+	 */
+	public VectorPacManEnv(GameVariant variant, int numEnvs, int frameSkip, int parallelism) {
+		checkGameVariant(variant);
+		if (numEnvs <= 0) {
+			throw new IllegalArgumentException("Number of environments must be positive but is " + numEnvs);
+		}
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive but is " + parallelism);
+		}
+		observations = new float[numEnvs * PacManEnv.OBSERVATION_SIZE];
+		envs = new PacManEnv[numEnvs];
+		for (int i = 0; i < numEnvs; ++i) {
+			envs[i] = new PacManEnv(variant, frameSkip, observations, i * PacManEnv.OBSERVATION_SIZE);
+		}
+		episodeSeeds = new SplittableRandom[numEnvs];
+		rewards = new float[numEnvs];
+		dones = new boolean[numEnvs];
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	public int numEnvs() {
+		return envs.length;
+	}
+
+	public PacManEnv env(int i) {
+		return envs[i];
+	}
+
+	/**
+	 * @return observations of all environments
+	 */
+	public float[] observations() {
+		return observations;
+	}
+
+	/**
+	 * @return rewards of the last step
+	 */
+	public float[] rewards() {
+		return rewards;
+	}
+
+	/**
+	 * @return done flags of the last step
+	 */
+	public boolean[] dones() {
+		return dones;
+	}
+
+	/**
+	 * Starts new episodes in all environments.
+	 *
+	 * @param seed base seed
+	 */
+	public void reset(long seed) {
+		for (int i = 0; i < envs.length; ++i) {
+			episodeSeeds[i] = new SplittableRandom(seed + i);
+		}
+		run(i -> envs[i].reset(episodeSeeds[i].nextLong()));
+	}
+
+	/**
+	 * Steps all environments.
+	 *
+	 * @param actions action (direction index) for each environment
+	 */
+	public void step(int[] actions) {
+		checkNotNull(actions);
+		if (actions.length != envs.length) {
+			throw new IllegalArgumentException("Expected " + envs.length + " actions but got " + actions.length);
+		}
+		run(i -> {
+			var result = envs[i].step(actions[i]);
+			rewards[i] = result.reward();
+			dones[i] = result.done();
+			if (result.done()) {
+				envs[i].reset(episodeSeeds[i].nextLong());
+			}
+		});
+	}
+
+	private void run(IntConsumer action) {
+		try {
+			pool.submit(() -> IntStream.range(0, envs.length).parallel().forEach(action)).get();
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Environment step interrupted", x);
+		} catch (ExecutionException x) {
+			throw new IllegalStateException("Environment step failed", x.getCause());
+		}
+	}
+
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+}
@@ -11,4 +11,5 @@ module de.amr.games.pacman {
 	exports de.amr.games.pacman.model;
 	exports de.amr.games.pacman.model.actors;
 	exports de.amr.games.pacman.model.world;
+	exports de.amr.games.pacman.simulation;
 }
\ No newline at end of file
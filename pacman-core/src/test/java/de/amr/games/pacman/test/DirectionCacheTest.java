@@ -0,0 +1,76 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.world.DirectionCache;
+import de.amr.games.pacman.model.world.DirectionTable;
+import org.junit.Test;
+
+import static de.amr.games.pacman.lib.Direction.*;
+import static de.amr.games.pacman.lib.Globals.v2i;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class DirectionCacheTest {
+
+	@Test
+	public void testGetAndPut() {
+		var cache = new DirectionCache();
+		var target = v2i(25, -3);
+		assertEquals(DirectionCache.MISS, cache.get(100, LEFT, target, 0));
+		cache.put(100, LEFT, target, 0, UP);
+		assertEquals(UP.ordinal(), cache.get(100, LEFT, target, 0));
+		assertEquals(DirectionCache.MISS, cache.get(100, LEFT, target, 1));
+		assertEquals(DirectionCache.MISS, cache.get(100, RIGHT, target, 0));
+		assertEquals(DirectionCache.MISS, cache.get(101, LEFT, target, 0));
+		assertEquals(DirectionCache.MISS, cache.get(100, LEFT, v2i(-3, 25), 0));
+		cache.put(100, LEFT, target, 0, null);
+		assertEquals(DirectionCache.NO_DIRECTION, cache.get(100, LEFT, target, 0));
+	}
+
+	@Test
+	public void testKeyOutOfRange() {
+		var cache = new DirectionCache();
+		cache.put(-1, LEFT, v2i(1, 1), 0, UP);
+		assertEquals(DirectionCache.MISS, cache.get(-1, LEFT, v2i(1, 1), 0));
+		cache.put(1, LEFT, v2i(1, 1), 4, UP);
+		assertEquals(DirectionCache.MISS, cache.get(1, LEFT, v2i(1, 1), 4));
+	}
+
+	@Test
+	public void testDirectionTableMatchesGhostAccess() {
+		var game = new GameModel(GameVariant.PACMAN);
+		game.reset();
+		game.createLevel(1);
+		var level = game.level().get();
+		var world = level.world();
+		var ghost = level.ghost(GameModel.RED_GHOST);
+		ghost.enterStateHuntingPac();
+		var table = world.map().directionTable(ghost.scatterTile());
+		assertNotNull(table);
+		world.tiles().filter(tile -> !world.isWall(tile)).forEach(tile -> {
+			ghost.placeAtTile(tile);
+			int state = level.isSteeringAllowed(ghost, UP) ? 0 : DirectionTable.ACCESS_UP_BLOCKED;
+			for (var moveDir : Direction.values()) {
+				Direction expected = null;
+				float minDist = Float.MAX_VALUE;
+				for (var dir : new Direction[] { UP, LEFT, DOWN, RIGHT }) {
+					var neighbor = tile.plus(dir.vector());
+					if (dir != moveDir.opposite() && ghost.canAccessTile(neighbor)
+							&& neighbor.euclideanDistance(ghost.scatterTile()) < minDist) {
+						minDist = neighbor.euclideanDistance(ghost.scatterTile());
+						expected = dir;
+					}
+				}
+				assertEquals(expected, table.get(world.index(tile), moveDir, state));
+			}
+		});
+	}
+}
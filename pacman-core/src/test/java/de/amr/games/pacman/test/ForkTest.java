@@ -0,0 +1,120 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.lib.RuleBasedSteering;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class ForkTest {
+
+	private GameController session;
+
+	@Before
+	public void setUp() {
+		session = new GameController(GameVariant.PACMAN, 3);
+		session.game().setHighScorePersistent(false);
+		session.setManualPacSteering(new RuleBasedSteering());
+		session.setAutoControlled(false);
+		session.setCredit(1);
+		session.restart(GameState.READY);
+		for (int frame = 0; frame < 600 || session.state() != GameState.HUNTING; ++frame) {
+			session.update();
+		}
+	}
+
+	private static void play(GameLevel level, int frames) {
+		level.setPacSteering(new RuleBasedSteering());
+		for (int frame = 0; frame < frames; ++frame) {
+			level.simulateOneFrame();
+			if (level.thisFrame().levelCompleted || level.thisFrame().pacKilled) {
+				break;
+			}
+		}
+	}
+
+	@Test
+	public void testForkIsIndependent() {
+		var level = session.game().level().get();
+		var pacPosition = level.pac().position();
+		var blinkyPosition = level.ghost((byte) 0).position();
+		int eatenFood = level.world().eatenFoodCount();
+		int score = session.game().score().points();
+
+		var fork = level.fork();
+		assertNotSame(level, fork);
+		assertNotSame(level.pac(), fork.pac());
+		assertSame(fork, fork.pac().level());
+		assertSame(level.world().map(), fork.world().map());
+		assertEquals(pacPosition, fork.pac().position());
+		assertEquals(eatenFood, fork.world().eatenFoodCount());
+
+		play(fork, 300);
+		assertTrue(fork.world().eatenFoodCount() > eatenFood);
+		assertTrue(fork.game().score().points() > score);
+
+		assertEquals(pacPosition, level.pac().position());
+		assertEquals(blinkyPosition, level.ghost((byte) 0).position());
+		assertEquals(eatenFood, level.world().eatenFoodCount());
+		assertEquals(score, session.game().score().points());
+		assertEquals(level.world().tiles().filter(level.world()::hasFoodAt).count(), level.world().uneatenFoodCount());
+	}
+
+	@Test
+	public void testForksWithSameSeedAreEqual() {
+		var level = session.game().level().get();
+		var fork1 = level.fork(42);
+		var fork2 = level.fork(42);
+		play(fork1, 500);
+		play(fork2, 500);
+		assertEquals(fork1.pac().position(), fork2.pac().position());
+		assertEquals(fork1.world().eatenFoodCount(), fork2.world().eatenFoodCount());
+		assertEquals(fork1.game().score().points(), fork2.game().score().points());
+		for (byte id = 0; id < 4; ++id) {
+			assertEquals(fork1.ghost(id).position(), fork2.ghost(id).position());
+			assertEquals(fork1.ghost(id).state(), fork2.ghost(id).state());
+		}
+	}
+
+	@Test
+	public void testForkPublishesNoEvents() {
+		var events = new AtomicInteger();
+		session.addListener(new GameEventListener() {
+			@Override
+			public void onGameEvent(GameEvent event) {
+				events.incrementAndGet();
+			}
+		});
+		var fork = session.game().level().get().fork();
+		assertTrue(fork.game().controller().isEmpty());
+		play(fork, 300);
+		assertEquals(0, events.get());
+	}
+
+	@Test
+	public void testForkOfFork() {
+		var level = session.game().level().get();
+		var fork = level.fork();
+		play(fork, 100);
+		int eatenFood = fork.world().eatenFoodCount();
+		var forkOfFork = fork.fork();
+		play(forkOfFork, 200);
+		assertEquals(eatenFood, fork.world().eatenFoodCount());
+		assertTrue(forkOfFork.world().eatenFoodCount() >= eatenFood);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.model.FrameTrace;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.Memory;
+import org.junit.Test;
+
+import static de.amr.games.pacman.lib.Direction.LEFT;
+import static de.amr.games.pacman.lib.Globals.v2i;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class FrameTraceTest {
+
+	@Test
+	public void testRecordAndDump() {
+		var trace = new FrameTrace(16);
+		trace.recordMove(FrameTrace.ACTOR_PAC, v2i(13, 26), LEFT, FrameTrace.MOVE_NEW_TILE, 1.25f);
+		trace.recordBlocked(0, v2i(12, 25), LEFT, FrameTrace.BLOCKED_BY_TILE);
+		trace.recordTeleport(2, v2i(-2, 17), v2i(27, 17));
+		trace.recordFrame(new Memory());
+		assertEquals(4, trace.size());
+		assertEquals(1, trace.tick());
+		var lines = trace.dump();
+		assertTrue(lines.get(0).endsWith("Pac: moved LEFT to (13,26) (1.25 pixels) new tile"));
+		assertTrue(lines.get(1).endsWith("Red ghost: cannot move LEFT into tile (12,25)"));
+		assertTrue(lines.get(2).endsWith("Cyan ghost: teleported from (-2,17) to (27,17)"));
+		assertTrue(lines.get(3).endsWith("Frame:"));
+	}
+
+	@Test
+	public void testRingBufferKeepsNewestRecords() {
+		var trace = new FrameTrace(5); // rounded up to 8
+		assertEquals(8, trace.capacity());
+		for (int i = 0; i < 20; ++i) {
+			trace.recordMove(FrameTrace.ACTOR_PAC, v2i(i, 0), LEFT, 0, 1);
+		}
+		assertEquals(8, trace.size());
+		var lines = trace.dump();
+		assertTrue(lines.get(0).contains("(12, 0)"));
+		assertTrue(lines.get(7).contains("(19, 0)"));
+		trace.clear();
+		assertEquals(0, trace.size());
+	}
+
+	@Test
+	public void testLevelIsTraced() {
+		var game = new GameModel(GameVariant.PACMAN);
+		game.setTraceCapacity(GameModel.TRACE_CAPACITY);
+		game.reset();
+		game.createDemoLevel();
+		game.startLevel();
+		var level = game.level().get();
+		for (int i = 0; i < 300; ++i) {
+			level.simulateOneFrame();
+		}
+		assertEquals(300, game.trace().tick());
+		var lines = game.trace().dump();
+		assertTrue(lines.stream().anyMatch(line -> line.contains("Pac: moved")));
+		assertTrue(lines.stream().anyMatch(line -> line.contains("pellet at")));
+	}
+
+	@Test
+	public void testTraceOnlyEnabledForSessionsWithUserInterface() {
+		var game = new GameModel(GameVariant.PACMAN);
+		assertFalse(game.trace().isEnabled());
+		game.reset();
+		game.createDemoLevel();
+		game.startLevel();
+		for (int i = 0; i < 100; ++i) {
+			game.level().get().simulateOneFrame();
+		}
+		assertEquals(0, game.trace().size());
+		assertEquals(0, game.trace().tick());
+
+		var session = new GameController(GameVariant.PACMAN, 42);
+		assertTrue(session.game().trace().isEnabled());
+		session.setHeadless(true);
+		assertFalse(session.game().trace().isEnabled());
+	}
+}
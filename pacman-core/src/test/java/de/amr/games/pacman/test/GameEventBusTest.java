@@ -0,0 +1,223 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventBatch;
+import de.amr.games.pacman.event.GameEventBus;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.event.GameStateChangeEvent;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static de.amr.games.pacman.lib.Globals.v2i;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class GameEventBusTest {
+
+	private static class CollectingSubscriber implements Flow.Subscriber<GameEventBatch> {
+
+		final List<GameEventBatch> batches = new CopyOnWriteArrayList<>();
+		final CountDownLatch completed = new CountDownLatch(1);
+		final long initialRequest;
+		Flow.Subscription subscription;
+
+		CollectingSubscriber(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (initialRequest > 0) {
+				subscription.request(initialRequest);
+			}
+		}
+
+		@Override
+		public void onNext(GameEventBatch batch) {
+			batches.add(batch);
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			completed.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			completed.countDown();
+		}
+	}
+
+	@Test
+	public void testBatchesPerFrame() throws Exception {
+		var game = new GameModel(GameVariant.PACMAN);
+		var bus = new GameEventBus(64);
+		var subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		bus.subscribe(subscriber);
+		bus.offer(game, GameEventType.PAC_FOUND_FOOD, v2i(1, 4));
+		bus.offer(game, GameEventType.PAC_GETS_POWER, null);
+		bus.endFrame();
+		bus.endFrame(); // no events, no batch
+		bus.offerStateChange(game, GameState.READY, GameState.HUNTING);
+		bus.endFrame();
+		bus.close();
+		assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+
+		assertEquals(2, subscriber.batches.size());
+		var first = subscriber.batches.get(0);
+		assertEquals(0, first.frame());
+		assertEquals(2, first.events().size());
+		assertEquals(GameEventType.PAC_FOUND_FOOD, first.events().get(0).type);
+		assertEquals(v2i(1, 4), first.events().get(0).tile);
+		assertSame(game, first.events().get(0).game);
+		assertNull(first.events().get(1).tile);
+		var second = subscriber.batches.get(1);
+		assertEquals(2, second.frame());
+		var change = (GameStateChangeEvent) second.events().get(0);
+		assertEquals(GameState.READY, change.oldState);
+		assertEquals(GameState.HUNTING, change.newState);
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		var game = new GameModel(GameVariant.PACMAN);
+		var bus = new GameEventBus(64, 16, Set.of(GameEventType.PAC_FOUND_FOOD));
+		var subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		bus.subscribe(subscriber);
+		bus.offer(game, GameEventType.PAC_FOUND_FOOD, v2i(1, 4));
+		bus.offer(game, GameEventType.PAC_GETS_POWER, null);
+		bus.offer(game, GameEventType.PAC_FOUND_FOOD, v2i(2, 4));
+		bus.offer(game, GameEventType.PAC_FOUND_FOOD, v2i(3, 4));
+		bus.endFrame();
+		bus.close();
+		assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+		var events = subscriber.batches.get(0).events();
+		assertEquals(2, events.size());
+		assertEquals(GameEventType.PAC_GETS_POWER, events.get(0).type);
+		assertEquals(v2i(3, 4), events.get(1).tile);
+	}
+
+	@Test
+	public void testRingBufferOverflow() throws Exception {
+		var game = new GameModel(GameVariant.PACMAN);
+		var bus = new GameEventBus(8);
+		var subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		bus.subscribe(subscriber);
+		for (int i = 0; i < 10; ++i) {
+			bus.offer(game, GameEventType.PAC_FOUND_FOOD, v2i(i, 4));
+		}
+		bus.endFrame();
+		bus.close();
+		assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+		// one slot is reserved for the frame end marker
+		assertEquals(3, bus.droppedEvents());
+		assertEquals(7, subscriber.batches.get(0).events().size());
+	}
+
+	@Test
+	public void testBackpressure() throws Exception {
+		var game = new GameModel(GameVariant.PACMAN);
+		var bus = new GameEventBus(1024, 2, Set.of());
+		var subscriber = new CollectingSubscriber(0);
+		bus.subscribe(subscriber);
+		for (int frame = 0; frame < 100; ++frame) {
+			// producer never blocks, even if nobody consumes
+			bus.offer(game, GameEventType.PAC_FOUND_FOOD, v2i(frame, 4));
+			bus.endFrame();
+		}
+		bus.close();
+		assertEquals(0, bus.droppedEvents());
+		assertEquals(98, bus.droppedBatches());
+		assertTrue(subscriber.batches.isEmpty());
+		subscriber.subscription.request(10);
+		assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+		assertEquals(2, subscriber.batches.size());
+		assertEquals(0, subscriber.batches.get(0).frame());
+		assertEquals(1, subscriber.batches.get(1).frame());
+	}
+
+	@Test
+	public void testAsyncSession() throws Exception {
+		var session = new GameController(GameVariant.PACMAN);
+		var syncEvents = new CopyOnWriteArrayList<GameEventType>();
+		session.addListener(new GameEventListener() {
+			@Override
+			public void onGameEvent(GameEvent event) {
+				syncEvents.add(event.type);
+			}
+		});
+		var bus = new GameEventBus(1024);
+		session.setEventBus(bus);
+		var subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		bus.subscribe(subscriber);
+		session.game().setHighScorePersistent(false);
+		session.setAutoControlled(true);
+		session.setCredit(1);
+		session.restart(GameState.READY);
+		for (int i = 0; i < 600; ++i) {
+			session.update();
+		}
+		bus.close();
+		assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+		assertTrue(syncEvents.isEmpty());
+		assertEquals(0, bus.droppedEvents());
+		assertTrue(subscriber.batches.stream().flatMap(batch -> batch.events().stream())
+				.anyMatch(event -> event.type == GameEventType.PAC_FOUND_FOOD));
+	}
+
+	@Test
+	public void testAsyncCommandsRunOnSimulationThread() throws Exception {
+		var session = new GameController(GameVariant.PACMAN);
+		var bus = new GameEventBus(64);
+		session.setEventBus(bus);
+		var subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		bus.subscribe(subscriber);
+		session.restart(GameState.INTRO);
+		var ui = new Thread(session::addCredit);
+		ui.start();
+		ui.join();
+		assertEquals(0, session.credit());
+		assertEquals(GameState.INTRO, session.state());
+		session.update();
+		assertEquals(1, session.credit());
+		assertEquals(GameState.CREDIT, session.state());
+		bus.close();
+		assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+		assertTrue(subscriber.batches.stream().flatMap(batch -> batch.events().stream())
+				.anyMatch(event -> event.type == GameEventType.CREDIT_ADDED));
+	}
+
+	@Test
+	public void testHeadlessSessionDropsPresentationEvents() {
+		var session = new GameController(GameVariant.PACMAN);
+		session.setHeadless(true);
+		var received = new CopyOnWriteArrayList<GameEventType>();
+		session.addListener(new GameEventListener() {
+			@Override
+			public void onGameEvent(GameEvent event) {
+				received.add(event.type);
+			}
+		});
+		session.publishGameEvent(new GameEvent(GameEventType.STOP_ALL_SOUNDS, session.game(), null));
+		session.publishGameEvent(new GameEvent(GameEventType.CREDIT_ADDED, session.game(), null));
+		assertEquals(List.of(GameEventType.CREDIT_ADDED), received);
+	}
+}
@@ -0,0 +1,106 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventListenerRegistry;
+import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class GameEventListenerRegistryTest {
+
+	private static GameEventListener recorder(List<GameEventType> types) {
+		return new GameEventListener() {
+			@Override
+			public void onGameEvent(GameEvent event) {
+				types.add(event.type);
+			}
+		};
+	}
+
+	@Test
+	public void testTypedListeners() {
+		var game = new GameModel(GameVariant.PACMAN);
+		var registry = new GameEventListenerRegistry();
+		var all = new ArrayList<GameEventType>();
+		var food = new ArrayList<GameEventType>();
+		registry.add(recorder(all));
+		registry.add(recorder(food), GameEventType.PAC_FOUND_FOOD, GameEventType.PAC_GETS_POWER);
+		assertTrue(registry.hasListeners(GameEventType.PAC_FOUND_FOOD));
+		assertEquals(2, registry.numListeners(GameEventType.PAC_GETS_POWER));
+		assertEquals(1, registry.numListeners(GameEventType.PAC_DIED));
+
+		registry.dispatch(new GameEvent(GameEventType.PAC_FOUND_FOOD, game, null));
+		registry.dispatch(new GameEvent(GameEventType.PAC_DIED, game, null));
+		assertEquals(List.of(GameEventType.PAC_FOUND_FOOD, GameEventType.PAC_DIED), all);
+		assertEquals(List.of(GameEventType.PAC_FOUND_FOOD), food);
+	}
+
+	@Test
+	public void testAddTwiceAndRemove() {
+		var game = new GameModel(GameVariant.PACMAN);
+		var registry = new GameEventListenerRegistry();
+		var received = new ArrayList<GameEventType>();
+		var listener = recorder(received);
+		registry.add(listener, GameEventType.PAC_DIED);
+		registry.add(listener);
+		registry.dispatch(new GameEvent(GameEventType.PAC_DIED, game, null));
+		assertEquals(1, received.size());
+
+		registry.remove(listener);
+		for (var type : GameEventType.values()) {
+			assertFalse(registry.hasListeners(type));
+		}
+		registry.dispatch(new GameEvent(GameEventType.PAC_DIED, game, null));
+		assertEquals(1, received.size());
+	}
+
+	@Test
+	public void testRemoveDuringDispatch() {
+		var game = new GameModel(GameVariant.PACMAN);
+		var registry = new GameEventListenerRegistry();
+		var received = new ArrayList<GameEventType>();
+		var second = recorder(received);
+		registry.add(new GameEventListener() {
+			@Override
+			public void onGameEvent(GameEvent event) {
+				registry.remove(second);
+			}
+		});
+		registry.add(second);
+		// the running dispatch still uses the old snapshot
+		registry.dispatch(new GameEvent(GameEventType.PAC_DIED, game, null));
+		assertEquals(1, received.size());
+		registry.dispatch(new GameEvent(GameEventType.PAC_DIED, game, null));
+		assertEquals(1, received.size());
+	}
+
+	@Test
+	public void testControllerPublishesToInterestedListenersOnly() {
+		var session = new GameController(GameVariant.PACMAN);
+		var stateChanges = new ArrayList<GameEventType>();
+		session.addListener(recorder(stateChanges), GameEventType.GAME_STATE_CHANGED);
+		session.game().setHighScorePersistent(false);
+		session.restart(GameState.READY);
+		for (int i = 0; i < 300; ++i) {
+			session.update();
+		}
+		assertFalse(stateChanges.isEmpty());
+		assertTrue(stateChanges.stream().allMatch(type -> type == GameEventType.GAME_STATE_CHANGED));
+	}
+}
@@ -0,0 +1,148 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.controller.MsPacManIntro;
+import de.amr.games.pacman.controller.PacManIntro;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameEventType;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class GameSessionTest {
+
+	@Test
+	public void testSessionsHaveOwnTimers() {
+		var s1 = new GameController(GameVariant.PACMAN);
+		var s2 = new GameController(GameVariant.MS_PACMAN);
+		s1.restart(GameState.BOOT);
+		s2.restart(GameState.BOOT);
+		for (int i = 0; i < 10; ++i) {
+			s1.update();
+		}
+		assertNotSame(s1.timer(), s2.timer());
+		assertEquals(10, s1.timer().tick());
+		assertEquals(0, s2.timer().tick());
+	}
+
+	@Test
+	public void testIntrosDriveOnlyTheirOwnSession() {
+		var s1 = new GameController(GameVariant.PACMAN);
+		var s2 = new GameController(GameVariant.PACMAN);
+		s1.restart(GameState.INTRO);
+		s2.restart(GameState.INTRO);
+		var intro1 = new PacManIntro(s1);
+		var intro2 = new PacManIntro(s2);
+		intro1.restart(PacManIntro.State.START);
+		intro2.restart(PacManIntro.State.START);
+		for (int i = 0; i < 10_000 && s1.state() == GameState.INTRO; ++i) {
+			intro1.update();
+		}
+		assertEquals(GameState.READY, s1.state());
+		assertEquals(PacManIntro.State.READY_TO_PLAY, intro1.state());
+		assertEquals(GameState.INTRO, s2.state());
+		assertEquals(PacManIntro.State.START, intro2.state());
+
+		var s3 = new GameController(GameVariant.MS_PACMAN);
+		var s4 = new GameController(GameVariant.MS_PACMAN);
+		s3.restart(GameState.INTRO);
+		s4.restart(GameState.INTRO);
+		var msIntro3 = new MsPacManIntro(s3);
+		var msIntro4 = new MsPacManIntro(s4);
+		msIntro3.restart(MsPacManIntro.State.START);
+		msIntro4.restart(MsPacManIntro.State.START);
+		for (int i = 0; i < 10_000 && s3.state() == GameState.INTRO; ++i) {
+			msIntro3.update();
+		}
+		assertEquals(GameState.READY, s3.state());
+		assertEquals(MsPacManIntro.State.READY_TO_PLAY, msIntro3.state());
+		assertEquals(GameState.INTRO, s4.state());
+		assertEquals(MsPacManIntro.State.START, msIntro4.state());
+	}
+
+	private static GameEventListener counter(AtomicInteger count) {
+		return new GameEventListener() {
+			@Override
+			public void onGameEvent(GameEvent event) {
+				count.incrementAndGet();
+			}
+		};
+	}
+
+	@Test
+	public void testSessionsHaveOwnSubscribers() {
+		var s1 = new GameController(GameVariant.PACMAN);
+		var s2 = new GameController(GameVariant.PACMAN);
+		var count1 = new AtomicInteger();
+		var count2 = new AtomicInteger();
+		s1.addListener(counter(count1));
+		s2.addListener(counter(count2));
+		s1.publishGameEvent(GameEventType.UNSPECIFIED_CHANGE);
+		assertEquals(1, count1.get());
+		assertEquals(0, count2.get());
+	}
+
+	@Test
+	public void testDetachedModelPublishesNoEvents() {
+		var game = new GameModel(GameVariant.PACMAN);
+		assertTrue(game.controller().isEmpty());
+		game.reset();
+		game.createLevel(1);
+		game.startLevel();
+		assertTrue(game.level().isPresent());
+	}
+
+	@Test
+	public void testParallelDemoSessions() throws Exception {
+		var sessions = new ArrayList<GameController>();
+		for (int i = 0; i < 4; ++i) {
+			sessions.add(new GameController(i % 2 == 0 ? GameVariant.PACMAN : GameVariant.MS_PACMAN));
+		}
+		var huntingFrames = new AtomicInteger[sessions.size()];
+		var foreignEvents = new AtomicInteger();
+		var executor = Executors.newFixedThreadPool(sessions.size());
+		for (int i = 0; i < sessions.size(); ++i) {
+			var session = sessions.get(i);
+			var frames = huntingFrames[i] = new AtomicInteger();
+			session.addListener(new GameEventListener() {
+				@Override
+				public void onGameEvent(GameEvent event) {
+					if (event.game != session.game()) {
+						foreignEvents.incrementAndGet();
+					}
+				}
+			});
+			executor.execute(() -> {
+				session.restart(GameState.READY); // no credit: demo level
+				for (int t = 0; t < 2000; ++t) {
+					session.update();
+					if (session.state() == GameState.HUNTING) {
+						frames.incrementAndGet();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		for (var frames : huntingFrames) {
+			assertTrue(frames.get() > 0);
+		}
+		assertEquals(0, foreignEvents.get());
+	}
+}
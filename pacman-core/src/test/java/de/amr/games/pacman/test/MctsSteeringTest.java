@@ -0,0 +1,111 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.MctsSteering;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class MctsSteeringTest {
+
+	private static GameLevel createLevel(long seed) {
+		var level = TestGames.createLevel(GameVariant.PACMAN, seed, 1);
+		level.game().setPlaying(true);
+		level.beginHunting();
+		return level;
+	}
+
+	private static MctsSteering createSteering(int parallelism, int maxIterations) {
+		var steering = new MctsSteering(parallelism);
+		steering.setTimeBudgetMillis(60_000); // never reached
+		steering.setMaxIterations(maxIterations);
+		return steering;
+	}
+
+	/*
+	 * Intersection with a straight corridor of at least 4 tiles to the right.
+	 */
+	private static Vector2i findIntersectionWithCorridorRight(GameLevel level) {
+		var world = level.world();
+		return world.tiles().filter(world::isIntersection).filter(tile -> {
+			for (int i = 1; i <= 4; ++i) {
+				var t = tile.plus(i, 0);
+				if (world.isWall(t) || world.isIntersection(t) || world.isWall(t.plus(0, -1)) == false
+						|| world.isWall(t.plus(0, 1)) == false) {
+					return false;
+				}
+			}
+			return true;
+		}).findFirst().orElseThrow();
+	}
+
+	@Test
+	public void testAvoidsHuntingGhostAhead() {
+		var level = createLevel(1);
+		var tile = findIntersectionWithCorridorRight(level);
+		var pac = level.pac();
+		pac.placeAtTile(tile);
+		pac.setMoveAndWishDir(Direction.RIGHT);
+		var blinky = level.ghost(GameModel.RED_GHOST);
+		blinky.placeAtTile(tile.plus(4, 0));
+		blinky.setMoveAndWishDir(Direction.LEFT);
+		blinky.enterStateHuntingPac();
+
+		var steering = createSteering(2, 400);
+		steering.steer(level, pac);
+		assertTrue(steering.lastIterations() >= 400);
+		assertNotEquals(Direction.RIGHT, pac.wishDir());
+	}
+
+	@Test
+	public void testDecisionsReproducibleWithIterationLimit() {
+		var positions = new float[2][];
+		for (int run = 0; run < 2; ++run) {
+			var level = createLevel(7);
+			var steering = createSteering(2, 40);
+			steering.setHorizonFrames(60);
+			level.setPacSteering(steering);
+			var trail = new float[2 * 400];
+			for (int frame = 0; frame < 400 && !level.thisFrame().pacKilled; ++frame) {
+				level.simulateOneFrame();
+				trail[2 * frame] = level.pac().position().x();
+				trail[2 * frame + 1] = level.pac().position().y();
+			}
+			positions[run] = trail;
+		}
+		assertTrue(Arrays.equals(positions[0], positions[1]));
+	}
+
+	@Test
+	public void testDecisionTimeWithinBudget() {
+		var level = createLevel(3);
+		var steering = new MctsSteering(2);
+		steering.setTimeBudgetMillis(5);
+		var pac = level.pac();
+		var tile = findIntersectionWithCorridorRight(level);
+		var times = new long[21];
+		for (int i = 0; i < times.length; ++i) {
+			pac.placeAtTile(tile);
+			long start = System.nanoTime();
+			steering.steer(level, pac);
+			times[i] = System.nanoTime() - start;
+			assertTrue(steering.lastIterations() > 0);
+		}
+		Arrays.sort(times);
+		double medianMillis = times[times.length / 2] / 1e6;
+		assertTrue("Median decision time " + medianMillis + " ms", medianMillis < 1000 / 60.0);
+	}
+}
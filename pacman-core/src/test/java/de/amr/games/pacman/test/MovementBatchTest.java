@@ -0,0 +1,131 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Creature;
+import de.amr.games.pacman.model.actors.Ghost;
+import de.amr.games.pacman.model.actors.MovementBatch;
+import de.amr.games.pacman.model.actors.Pac;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static de.amr.games.pacman.model.actors.MovementBatch.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class MovementBatchTest {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+
+	private static GameLevel createLevel(GameVariant variant) {
+		var level = TestGames.createLevel(variant, 1, 1);
+		level.startHunting(0);
+		return level;
+	}
+
+	/*
+	 * Copies of Pac-Man and the ghosts in different states, placed on random tiles with random offsets and speeds.
+	 */
+	private static List<Creature> createCreatures(GameLevel level, int count, SplittableRandom rnd) {
+		var world = level.world();
+		var tiles = world.tiles().filter(tile -> !world.isWall(tile)).toList();
+		var creatures = new ArrayList<Creature>();
+		for (int i = 0; i < count; ++i) {
+			Creature creature;
+			if (i % 5 == 0) {
+				creature = new Pac(level.pac());
+			} else {
+				var ghost = new Ghost(level.ghost((byte) (i % 4)));
+				switch (i % 3) {
+				case 0 -> ghost.enterStateHuntingPac();
+				case 1 -> ghost.enterStateFrightened();
+				default -> ghost.enterStateLeavingHouse();
+				}
+				creature = ghost;
+			}
+			creature.placeAtTile(tiles.get(rnd.nextInt(tiles.size())), rnd.nextInt(-2, 3), rnd.nextInt(-2, 3));
+			creature.setMoveAndWishDir(DIRECTIONS[rnd.nextInt(4)]);
+			creature.setPixelSpeed(0.5f + 0.25f * rnd.nextInt(7));
+			creatures.add(creature);
+		}
+		return creatures;
+	}
+
+	private static int expectedResult(Creature creature) {
+		int result = creature.moved() ? MOVED : 0;
+		result |= creature.isNewTileEntered() ? NEW_TILE_ENTERED : 0;
+		result |= creature.enteredTunnel() ? TUNNEL_ENTERED : 0;
+		result |= creature.teleported() ? TELEPORTED : 0;
+		return result;
+	}
+
+	private static void assertSameMovement(GameVariant variant) {
+		var rnd = new SplittableRandom(variant.ordinal());
+		var level = createLevel(variant);
+		var creatures = createCreatures(level, 37, rnd);
+		var batch = new MovementBatch(level, creatures.size());
+		creatures.forEach(batch::add);
+		int teleports = 0;
+		int tunnelsEntered = 0;
+		for (int frame = 0; frame < 3000; ++frame) {
+			for (int slot = 0; slot < creatures.size(); ++slot) {
+				if ((frame + slot) % 16 == 0) {
+					var dir = DIRECTIONS[rnd.nextInt(4)];
+					creatures.get(slot).setWishDir(dir);
+					batch.setWishDir(slot, dir);
+				}
+			}
+			creatures.forEach(Creature::tryMoving);
+			batch.step();
+			for (int slot = 0; slot < creatures.size(); ++slot) {
+				var creature = creatures.get(slot);
+				String message = "Frame " + frame + ", " + creature.name();
+				assertEquals(message, creature.position().x(), batch.x(slot), 0);
+				assertEquals(message, creature.position().y(), batch.y(slot), 0);
+				assertEquals(message, creature.moveDir(), batch.moveDir(slot));
+				assertEquals(message, expectedResult(creature), batch.result(slot));
+				teleports += creature.teleported() ? 1 : 0;
+				tunnelsEntered += creature.enteredTunnel() ? 1 : 0;
+			}
+		}
+		assertTrue(teleports > 0);
+		assertTrue(tunnelsEntered > 0);
+	}
+
+	@Test
+	public void testScalarStepMovesLikeCreature() {
+		for (var variant : GameVariant.values()) {
+			assertSameMovement(variant);
+		}
+	}
+
+	@Test
+	public void testStoreCopiesBack() {
+		var level = createLevel(GameVariant.MS_PACMAN);
+		var pac = level.pac();
+		var batch = new MovementBatch(level, 1);
+		int slot = batch.add(pac);
+		var copy = new Pac(pac);
+		batch.setWishDir(slot, Direction.RIGHT);
+		copy.setWishDir(Direction.RIGHT);
+		for (int frame = 0; frame < 20; ++frame) {
+			batch.step();
+			copy.tryMoving();
+		}
+		batch.store(slot, pac);
+		assertEquals(copy.position(), pac.position());
+		assertEquals(copy.moveDir(), pac.moveDir());
+		assertEquals(copy.isNewTileEntered(), pac.isNewTileEntered());
+		assertTrue(pac.moved());
+	}
+}
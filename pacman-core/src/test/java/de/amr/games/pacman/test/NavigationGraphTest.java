@@ -0,0 +1,117 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.world.World;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.amr.games.pacman.lib.Direction.*;
+import static de.amr.games.pacman.lib.Globals.v2i;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class NavigationGraphTest {
+
+	private static List<World> allWorlds() {
+		var worlds = new ArrayList<World>();
+		worlds.add(GameModel.createPacManWorld());
+		for (int number = 1; number <= 4; ++number) {
+			worlds.add(GameModel.createMsPacManWorld(number));
+		}
+		return worlds;
+	}
+
+	@Test
+	public void testGraphSharedByWorldsWithSameMap() {
+		assertSame(GameModel.createPacManWorld().navigationGraph(), GameModel.createPacManWorld().navigationGraph());
+		assertNotSame(GameModel.createMsPacManWorld(1).navigationGraph(),
+				GameModel.createMsPacManWorld(2).navigationGraph());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWorldWithoutHouse() {
+		byte[][] map = { { 1, 1, 1 }, { 1, 3, 1 }, { 1, 1, 1 } };
+		new World(map).navigationGraph();
+	}
+
+	@Test
+	public void testPacManGraph() {
+		var world = GameModel.createPacManWorld();
+		var graph = world.navigationGraph();
+		int start = world.index(v2i(13, 26));
+		assertTrue(graph.isAccessible(start));
+		assertFalse(graph.isNode(start));
+		assertEquals(world.index(v2i(12, 26)), graph.nextNode(start, LEFT));
+		assertEquals(1, graph.distanceToNextNode(start, LEFT));
+		assertEquals(world.index(v2i(15, 26)), graph.nextNode(start, RIGHT));
+		assertEquals(2, graph.distanceToNextNode(start, RIGHT));
+		assertEquals(-1, graph.nextNode(start, DOWN));
+		assertFalse(graph.isAccessible(world.index(v2i(13, 15)))); // door
+		assertFalse(graph.isAccessible(world.index(v2i(13, 17)))); // inside house
+		assertFalse(graph.isAccessible(world.index(v2i(0, 14)))); // outside maze
+
+		var portal = world.portals().get(0);
+		int leftEnd = world.index(portal.leftTunnelEnd());
+		int rightEnd = world.index(portal.rightTunnelEnd());
+		assertTrue(graph.isNode(leftEnd));
+		assertTrue(graph.isNode(rightEnd));
+		assertEquals(rightEnd, graph.edge(leftEnd, LEFT).target());
+		assertEquals(1, graph.edge(leftEnd, LEFT).length());
+	}
+
+	@Test
+	public void testFoodTilesAccessible() {
+		for (var world : allWorlds()) {
+			var graph = world.navigationGraph();
+			world.tiles().filter(world::isFoodTile).forEach(tile -> assertTrue(graph.isAccessible(world.index(tile))));
+		}
+	}
+
+	@Test
+	public void testEdgesConsistent() {
+		for (var world : allWorlds()) {
+			var graph = world.navigationGraph();
+			assertTrue(graph.numNodes() > 0);
+			assertEquals(graph.numEdges(), graph.nodes().map(node -> graph.edges(node).size()).sum());
+			graph.nodes().forEach(node -> {
+				for (var edge : graph.edges(node)) {
+					assertEquals(node, edge.source());
+					assertTrue(graph.isNode(edge.target()));
+					assertEquals(edge.target(), graph.nextNode(node, edge.dir()));
+					assertEquals(edge.length(), graph.distanceToNextNode(node, edge.dir()));
+					// corridor tiles are connected and not nodes
+					var prev = world.tile(node);
+					for (var tile : edge.tiles()) {
+						assertFalse(graph.isNode(world.index(tile)));
+						assertTrue(isNeighbor(world, prev, tile));
+						prev = tile;
+					}
+					assertTrue(isNeighbor(world, prev, world.tile(edge.target())));
+					// corridor can be walked back with the same length
+					var reverse = graph.edges(edge.target()).stream()
+							.filter(e -> e.target() == node && e.length() == edge.length()).findFirst();
+					assertTrue(reverse.isPresent());
+				}
+			});
+		}
+	}
+
+	private static boolean isNeighbor(World world, Vector2i a, Vector2i b) {
+		for (var dir : Direction.values()) {
+			if (world.neighbor(world.index(a), dir) == world.index(b)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
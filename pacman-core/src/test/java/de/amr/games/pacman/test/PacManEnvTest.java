@@ -0,0 +1,160 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.lib.RuleBasedSteering;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.simulation.PacManEnv;
+import de.amr.games.pacman.simulation.VectorPacManEnv;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static de.amr.games.pacman.simulation.PacManEnv.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class PacManEnvTest {
+
+	private static int sum(float[] observation, int offset, int channel) {
+		int sum = 0;
+		for (int i = 0; i < PLANE_SIZE; ++i) {
+			sum += (int) observation[offset + channel * PLANE_SIZE + i];
+		}
+		return sum;
+	}
+
+	private static int sumGhosts(float[] observation, int offset) {
+		int sum = 0;
+		for (int channel = CHANNEL_GHOSTS; channel < NUM_CHANNELS; ++channel) {
+			sum += sum(observation, offset, channel);
+		}
+		return sum;
+	}
+
+	@Test
+	public void testResetObservation() {
+		for (var variant : GameVariant.values()) {
+			var env = new PacManEnv(variant, 4);
+			env.reset(1);
+			var world = env.game().level().get().world();
+			var obs = env.observation();
+			assertEquals(world.tiles().filter(world::isWall).count(), sum(obs, 0, CHANNEL_WALLS));
+			assertEquals(world.energizerTiles().count(), sum(obs, 0, CHANNEL_ENERGIZERS));
+			assertEquals(world.totalFoodCount(), sum(obs, 0, CHANNEL_PELLETS) + sum(obs, 0, CHANNEL_ENERGIZERS));
+			assertEquals(1, sum(obs, 0, CHANNEL_PAC));
+			assertEquals(4, sumGhosts(obs, 0));
+		}
+	}
+
+	@Test
+	public void testEpisode() {
+		for (var variant : GameVariant.values()) {
+			var env = new PacManEnv(variant, 4);
+			var rnd = new SplittableRandom(5);
+			env.reset(5);
+			float totalReward = 0;
+			StepResult result;
+			do {
+				result = env.step(rnd.nextInt(4));
+				totalReward += result.reward();
+				var world = env.game().level().get().world();
+				assertEquals(world.uneatenFoodCount(), sum(env.observation(), 0, CHANNEL_PELLETS)
+						+ sum(env.observation(), 0, CHANNEL_ENERGIZERS));
+				assertTrue(sum(env.observation(), 0, CHANNEL_PAC) <= 1);
+				assertTrue(sumGhosts(env.observation(), 0) <= 4);
+			} while (!result.done());
+			assertEquals(0, result.lives());
+			assertTrue(result.score() > 0);
+			assertEquals(result.score(), totalReward, 0);
+			assertTrue(env.isDone());
+		}
+	}
+
+	@Test
+	public void testSameSeedSameEpisode() {
+		var env1 = new PacManEnv(GameVariant.MS_PACMAN, 2);
+		var env2 = new PacManEnv(GameVariant.MS_PACMAN, 2);
+		env1.reset(99);
+		env2.reset(99);
+		var rnd = new SplittableRandom(3);
+		for (int step = 0; step < 2000 && !env1.isDone(); ++step) {
+			int action = rnd.nextInt(4);
+			var r1 = env1.step(action);
+			var r2 = env2.step(action);
+			assertEquals(r1.toString(), r2.toString());
+			assertArrayEquals(env1.observation(), env2.observation(), 0);
+		}
+		var buffer = ByteBuffer.allocateDirect(4 * OBSERVATION_SIZE);
+		env1.copyObservation(buffer);
+		assertEquals(4 * OBSERVATION_SIZE, buffer.position());
+		buffer.flip();
+		assertEquals(env1.observation()[0], buffer.order(ByteOrder.nativeOrder()).getFloat(0), 0);
+	}
+
+	@Test
+	public void testVectorEnvIsIndependentOfParallelism() {
+		try (var sequential = new VectorPacManEnv(GameVariant.PACMAN, 8, 4, 1);
+				var parallel = new VectorPacManEnv(GameVariant.PACMAN, 8, 4, 4)) {
+			sequential.reset(10);
+			parallel.reset(10);
+			var rnd = new SplittableRandom(7);
+			var actions = new int[8];
+			int numDone = 0;
+			for (int step = 0; step < 3000; ++step) {
+				Arrays.setAll(actions, i -> rnd.nextInt(4));
+				sequential.step(actions);
+				parallel.step(actions);
+				assertArrayEquals(sequential.rewards(), parallel.rewards(), 0);
+				assertArrayEquals(sequential.dones(), parallel.dones());
+				for (boolean done : sequential.dones()) {
+					numDone += done ? 1 : 0;
+				}
+			}
+			assertArrayEquals(sequential.observations(), parallel.observations(), 0);
+			assertTrue(numDone > 0); // auto-reset happened
+		}
+	}
+
+	@Test
+	public void testEpisodeEqualsHeadlessGame() {
+		for (var variant : GameVariant.values()) {
+			var session = new GameController(variant, 3);
+			session.game().setHighScorePersistent(false);
+			session.setHeadless(true);
+			session.setAutopilot(new RuleBasedSteering());
+			session.setAutoControlled(true);
+			session.setCredit(1);
+			long seed = session.game().seed();
+			session.restart(GameState.READY);
+			for (int frame = 0; frame < 1_000_000 && session.state() != GameState.GAME_OVER; ++frame) {
+				if (session.state() == GameState.INTERMISSION) {
+					session.terminateCurrentState();
+				}
+				session.update();
+			}
+			assertEquals(GameState.GAME_OVER, session.state());
+
+			// the env level is steered by an autopilot of its own, the action keeps the autopilot's last decision
+			var env = new PacManEnv(variant, 1);
+			var autopilot = new RuleBasedSteering();
+			env.reset(seed);
+			while (!env.isDone()) {
+				var level = env.game().level().orElseThrow();
+				level.setPacSteering(autopilot);
+				env.step(level.pac().wishDir());
+			}
+			assertEquals(session.game().level().get().number(), env.game().level().get().number());
+			assertEquals(session.game().score().points(), env.game().score().points());
+		}
+	}
+}
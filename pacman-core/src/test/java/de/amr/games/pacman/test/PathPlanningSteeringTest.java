@@ -0,0 +1,112 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.PathPlanningSteering;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.amr.games.pacman.lib.Globals.v2i;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class PathPlanningSteeringTest {
+
+	private GameLevel level;
+	private PathPlanningSteering steering;
+
+	@Before
+	public void setUp() {
+		level = TestGames.createLevel(GameVariant.PACMAN, 1, 1);
+		level.ghosts().forEach(ghost -> ghost.enterStateLocked());
+		steering = new PathPlanningSteering();
+	}
+
+	/*
+	 * Lets Pac-Man follow the steering tile by tile until the target is reached, returns the visited tiles.
+	 */
+	private List<Vector2i> walk(Vector2i start, Vector2i target, int maxSteps) {
+		var world = level.world();
+		var pac = level.pac();
+		pac.placeAtTile(start);
+		pac.setTargetTile(target);
+		var visited = new ArrayList<Vector2i>();
+		while (!pac.tile().equals(target) && visited.size() < maxSteps) {
+			steering.steer(level, pac);
+			int next = world.neighbor(world.index(pac.tile()), pac.wishDir());
+			assertTrue(world.navigationGraph().isAccessible(next));
+			pac.placeAtTile(world.tile(next));
+			visited.add(pac.tile());
+		}
+		return visited;
+	}
+
+	@Test
+	public void testFollowsShortestPathWithSinglePlan() {
+		var start = v2i(1, 4);
+		var target = v2i(26, 32);
+		var visited = walk(start, target, 200);
+		assertEquals(target, visited.get(visited.size() - 1));
+		assertEquals(level.world().mazeDistance(start, target), visited.size());
+		assertEquals(1, steering.numReplans());
+	}
+
+	@Test
+	public void testReplansWhenHuntingGhostEntersPath() {
+		var start = v2i(1, 4);
+		var target = v2i(26, 32);
+		var path = walk(start, target, 200);
+		var pac = level.pac();
+		pac.placeAtTile(start);
+		steering.init();
+		steering.steer(level, pac);
+		assertEquals(1, steering.numReplans());
+
+		// a hunting ghost away from the path does not invalidate the path
+		var blinky = level.ghost(GameModel.RED_GHOST);
+		var world = level.world();
+		var offPath = world.tiles().filter(tile -> world.navigationGraph().isAccessible(world.index(tile)))
+				.filter(tile -> !path.contains(tile) && !tile.equals(start)).findFirst().orElseThrow();
+		blinky.placeAtTile(offPath);
+		blinky.enterStateHuntingPac();
+		steering.steer(level, pac);
+		assertEquals(1, steering.numReplans());
+
+		// on the remaining path it does
+		blinky.placeAtTile(path.get(path.size() / 2));
+		steering.steer(level, pac);
+		assertEquals(2, steering.numReplans());
+	}
+
+	@Test
+	public void testReplansWhenTargetChanges() {
+		var pac = level.pac();
+		pac.placeAtTile(v2i(1, 4));
+		pac.setTargetTile(v2i(26, 32));
+		steering.steer(level, pac);
+		pac.setTargetTile(v2i(26, 4));
+		steering.steer(level, pac);
+		assertEquals(2, steering.numReplans());
+	}
+
+	@Test
+	public void testFallsBackForInaccessibleTarget() {
+		var pac = level.pac();
+		pac.placeAtTile(v2i(1, 4));
+		pac.setTargetTile(v2i(0, 0)); // wall
+		steering.steer(level, pac);
+		assertEquals(0, steering.numReplans());
+		assertFalse(steering.hasPath());
+	}
+}
@@ -4,9 +4,15 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.test;
 
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.EnumSet;
+import java.util.SplittableRandom;
+
 import static de.amr.games.pacman.lib.Globals.randomFloat;
 import static de.amr.games.pacman.lib.Globals.randomInt;
 
@@ -32,4 +38,24 @@ public class RandomNumberTest {
 			Assert.assertTrue(10.0f <= number && number < 100.0f);
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testSeededGameRandom() {
+		var g1 = new GameModel(GameVariant.PACMAN, null, 4711);
+		var g2 = new GameModel(GameVariant.PACMAN, null, 4711);
+		Assert.assertEquals(4711, g1.seed());
+		for (int i = 0; i < 1000; ++i) {
+			Assert.assertEquals(randomInt(g1.random(), 0, 320), randomInt(g2.random(), 0, 320));
+		}
+	}
+
+	@Test
+	public void testShuffledDirections() {
+		var rnd = new SplittableRandom(1);
+		for (int i = 0; i < 100; ++i) {
+			var dirs = Direction.shuffled(rnd);
+			Assert.assertEquals(4, dirs.size());
+			Assert.assertEquals(EnumSet.allOf(Direction.class), EnumSet.copyOf(dirs));
+		}
+	}
+}
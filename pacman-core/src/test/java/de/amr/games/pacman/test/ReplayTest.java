@@ -0,0 +1,96 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.lib.RuleBasedSteering;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.simulation.InputRecorder;
+import de.amr.games.pacman.simulation.InputRecording;
+import de.amr.games.pacman.simulation.ReplayPlayer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class ReplayTest {
+
+	private static GameController recordGame(GameVariant variant, long seed, InputRecorder[] recorder) {
+		var session = new GameController(variant, seed);
+		recorder[0] = new InputRecorder(session, new RuleBasedSteering(), 500);
+		session.game().setHighScorePersistent(false);
+		session.setManualPacSteering(recorder[0]);
+		session.setAutoControlled(false);
+		session.setCredit(1);
+		session.restart(GameState.READY);
+		for (int frame = 0; frame < 1_000_000 && session.state() != GameState.GAME_OVER; ++frame) {
+			if (session.state() == GameState.INTERMISSION) {
+				session.terminateCurrentState();
+			}
+			session.update();
+		}
+		assertEquals(GameState.GAME_OVER, session.state());
+		return session;
+	}
+
+	@Test
+	public void testReplayReproducesGame() throws IOException {
+		for (var variant : GameVariant.values()) {
+			var recorder = new InputRecorder[1];
+			var recorded = recordGame(variant, 7, recorder);
+			var recording = recorder[0].recording();
+			assertTrue(recording.numKeyframes() > 1);
+			assertTrue(recording.sizeInBytes() < recording.numTicks());
+
+			var out = new ByteArrayOutputStream();
+			recording.write(out);
+			var loaded = InputRecording.read(new ByteArrayInputStream(out.toByteArray()));
+			assertEquals(recording, loaded);
+
+			var player = new ReplayPlayer(loaded);
+			assertEquals(recording.numTicks(), player.playToEnd());
+			var replayed = player.session();
+			assertEquals(recorded.game().score().points(), replayed.game().score().points());
+			assertEquals(recorded.game().level().get().number(), replayed.game().level().get().number());
+		}
+	}
+
+	@Test
+	public void testSeek() {
+		var recorder = new InputRecorder[1];
+		recordGame(GameVariant.PACMAN, 11, recorder);
+		var recording = recorder[0].recording();
+		long target = recording.numTicks() / 2;
+
+		var cursor = recording.cursor(0);
+		for (long tick = 0; tick < recording.numTicks(); ++tick) {
+			assertEquals(cursor.next(), recording.directionAt(tick));
+		}
+
+		var player = new ReplayPlayer(recording);
+		player.seek(target);
+		assertEquals(target, player.tick());
+		var position = player.session().game().level().get().pac().position();
+		int score = player.session().game().score().points();
+
+		player.seek(target / 3); // backwards: restarts
+		assertEquals(target / 3, player.tick());
+		player.seek(target);
+		assertEquals(position, player.session().game().level().get().pac().position());
+		assertEquals(score, player.session().game().score().points());
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadGarbage() throws IOException {
+		InputRecording.read(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+	}
+}
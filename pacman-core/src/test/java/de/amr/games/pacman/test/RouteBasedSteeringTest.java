@@ -0,0 +1,168 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.NavigationPoint;
+import de.amr.games.pacman.lib.RouteBasedSteering;
+import de.amr.games.pacman.lib.TickTimer;
+import de.amr.games.pacman.lib.Vector2i;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Bonus;
+import de.amr.games.pacman.model.actors.MovingBonus;
+import de.amr.games.pacman.model.world.Portal;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.amr.games.pacman.lib.Globals.tileAt;
+import static de.amr.games.pacman.lib.Globals.v2i;
+import static de.amr.games.pacman.lib.NavigationPoint.np;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class RouteBasedSteeringTest {
+
+	/*
+	 * Lets Pac-Man follow the steering tile by tile until the route is complete or leaves the world through a portal,
+	 * returns the waypoints in the order they were reached.
+	 */
+	private static List<Vector2i> walk(GameLevel level, RouteBasedSteering steering, int maxSteps) {
+		var world = level.world();
+		var pac = level.pac();
+		var reached = new ArrayList<Vector2i>();
+		for (int step = 0; step < maxSteps; ++step) {
+			if (pac.tile().equals(pac.targetTile().orElse(null))) {
+				reached.add(pac.tile());
+			}
+			steering.steer(level, pac);
+			if (steering.isComplete()) {
+				return reached;
+			}
+			assertNotEquals("Reversed at " + pac.tile(), pac.moveDir().opposite(), pac.wishDir());
+			var portalTile = pac.tile().plus(pac.wishDir().vector());
+			if (world.belongsToPortal(portalTile) && portalTile.equals(pac.targetTile().orElse(null))) {
+				reached.add(portalTile);
+				return reached;
+			}
+			int next = world.neighbor(world.index(pac.tile()), pac.wishDir());
+			assertTrue(world.navigationGraph().isAccessible(next));
+			pac.placeAtTile(world.tile(next));
+			pac.setMoveDir(pac.wishDir());
+		}
+		fail("Route not completed in " + maxSteps + " steps, reached " + reached);
+		return reached;
+	}
+
+	@Test
+	public void testDemoRouteReachesEveryWaypoint() {
+		var game = TestGames.createGame(GameVariant.PACMAN, 1);
+		game.createDemoLevel();
+		var level = game.level().orElseThrow();
+		var steering = (RouteBasedSteering) level.pacSteering().orElseThrow();
+		level.pac().placeAtTile(v2i(13, 26));
+		level.pac().setMoveAndWishDir(Direction.LEFT);
+		var reached = walk(level, steering, 2000);
+		assertEquals(50, reached.size());
+	}
+
+	@Test
+	public void testBonusRouteAroundHouseThroughPortal() {
+		var game = TestGames.createGame(GameVariant.MS_PACMAN, 1);
+		game.createLevel(1);
+		var level = game.level().orElseThrow();
+		var world = level.world();
+		var houseEntryTile = tileAt(world.house().door().entryPosition());
+		var entryPortal = world.portals().get(0);
+		var exitPortal = world.portals().get(world.portals().size() - 1);
+		List<NavigationPoint> route = List.of(
+			np(houseEntryTile),
+			np(houseEntryTile.plus(0, world.house().size().y() + 1)),
+			np(houseEntryTile),
+			np(exitPortal.rightTunnelEnd().plus(1, 0)));
+		level.pac().placeAtTile(entryPortal.leftTunnelEnd());
+		level.pac().setMoveAndWishDir(Direction.RIGHT);
+		var reached = walk(level, new RouteBasedSteering(route), 500);
+		assertEquals(route.stream().map(NavigationPoint::tile).toList(), reached);
+	}
+
+	/*
+	 * Runs the moving bonus over the route built like in GameLevel.createMovingBonus() until it is inactive.
+	 */
+	private static void assertMovingBonusLeavesWorld(GameLevel level, Portal entryPortal, Portal exitPortal,
+			boolean leftToRight) {
+		var world = level.world();
+		var houseEntryTile = tileAt(world.house().door().entryPosition());
+		var route = new ArrayList<NavigationPoint>();
+		route.add(leftToRight ? np(entryPortal.leftTunnelEnd()) : np(entryPortal.rightTunnelEnd()));
+		route.add(np(houseEntryTile));
+		route.add(np(houseEntryTile.plus(0, world.house().size().y() + 1)));
+		route.add(np(houseEntryTile));
+		route.add(leftToRight ? np(exitPortal.rightTunnelEnd().plus(1, 0)) : np(exitPortal.leftTunnelEnd().minus(1, 0)));
+		var bonus = new MovingBonus((byte) 0, 100);
+		bonus.setLevel(level);
+		bonus.setRoute(route, leftToRight);
+		bonus.setEdible(TickTimer.INDEFINITE);
+		for (int frame = 0; frame < 10_000 && bonus.state() == Bonus.STATE_EDIBLE; ++frame) {
+			bonus.update(level);
+		}
+		assertEquals("Bonus did not leave the world at " + bonus.tile() + ", route " + route, Bonus.STATE_INACTIVE,
+				bonus.state());
+		assertTrue(world.belongsToPortal(bonus.tile()));
+	}
+
+	@Test
+	public void testMovingBonusLeavesWorldOnEveryMap() {
+		for (int levelNumber : new int[] { 1, 3, 6, 10 }) { // maps 1-4
+			var level = TestGames.createLevel(GameVariant.MS_PACMAN, 1, levelNumber);
+			level.pac().placeAtTile(v2i(-10, -10)); // out of the bonus' way
+			for (var entryPortal : level.world().portals()) {
+				for (var exitPortal : level.world().portals()) {
+					assertMovingBonusLeavesWorld(level, entryPortal, exitPortal, true);
+					assertMovingBonusLeavesWorld(level, entryPortal, exitPortal, false);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFlowFieldsAreSharedByLevels() {
+		var game = TestGames.createGame(GameVariant.PACMAN, 1);
+		game.createLevel(1);
+		var map = game.level().orElseThrow().world().map();
+		var field = map.flowField(v2i(12, 26), true);
+		game.createLevel(2);
+		assertSame(map, game.level().orElseThrow().world().map());
+		assertSame(field, map.flowField(v2i(12, 26), true));
+		assertNotSame(field, map.flowField(v2i(9, 26), true));
+		assertNotSame(field, map.flowField(v2i(12, 26), false));
+	}
+
+	@Test
+	public void testFlowFieldLeadsIntoPortal() {
+		var game = TestGames.createGame(GameVariant.PACMAN, 1);
+		game.createLevel(1);
+		var world = game.level().orElseThrow().world();
+		var field = world.map().flowField(v2i(-1, 17), true);
+		assertEquals(Direction.LEFT, field.get(world.index(v2i(0, 17)), Direction.LEFT));
+		assertEquals(Direction.LEFT, field.get(world.index(v2i(5, 17)), Direction.LEFT));
+		assertNull(field.get(world.index(v2i(0, 0)), Direction.LEFT)); // wall
+	}
+
+	@Test
+	public void testFlowFieldWithoutTeleportAvoidsPortal() {
+		var world = TestGames.createLevel(GameVariant.PACMAN, 1, 1).world();
+		var target = v2i(2, 17);
+		var tile = world.index(v2i(25, 17));
+		assertTrue(world.map().flowField(target, true).isTeleport());
+		assertEquals(Direction.RIGHT, world.map().flowField(target, true).get(tile, Direction.RIGHT));
+		assertFalse(world.map().flowField(target, false).isTeleport());
+		assertEquals(Direction.LEFT, world.map().flowField(target, false).get(tile, Direction.RIGHT));
+	}
+}
@@ -0,0 +1,126 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.simulation.PacManEnv;
+import de.amr.games.pacman.simulation.SharedStateExporter;
+import de.amr.games.pacman.simulation.SharedStateReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class SharedStateExportTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSnapshotMatchesGame() throws IOException {
+		var file = folder.newFile("state.bin").toPath();
+		try (var exporter = new SharedStateExporter(file); var reader = new SharedStateReader(file)) {
+			var env = new PacManEnv(GameVariant.MS_PACMAN, 1);
+			env.setStateExporter(exporter);
+			env.reset(3);
+			var rnd = new SplittableRandom(3);
+			for (int step = 0; step < 600 && !env.isDone(); ++step) {
+				env.step(rnd.nextInt(4));
+			}
+			var game = env.game();
+			var level = game.level().orElseThrow();
+			var world = level.world();
+			long seq = reader.beginRead();
+			assertEquals(exporter.sequence(), seq);
+			assertEquals(GameModel.TILES_X, reader.numCols());
+			assertEquals(GameModel.TILES_Y, reader.numRows());
+			assertEquals(level.number(), reader.levelNumber());
+			assertEquals(game.score().points(), reader.score());
+			assertEquals(game.lives(), reader.lives());
+			assertEquals(level.huntingPhase(), reader.huntingPhase());
+			assertEquals(world.uneatenFoodCount(), reader.foodRemaining());
+			assertEquals(GameVariant.MS_PACMAN.ordinal(), reader.variant());
+			assertEquals(level.pac().position().x(), reader.actorX(0), 0);
+			assertEquals(level.pac().position().y(), reader.actorY(0), 0);
+			assertEquals(level.pac().moveDir(), reader.actorMoveDir(0));
+			for (byte id = 0; id < 4; ++id) {
+				var ghost = level.ghost(id);
+				assertEquals(ghost.position().x(), reader.actorX(1 + id), 0);
+				assertEquals(ghost.position().y(), reader.actorY(1 + id), 0);
+				assertEquals(ghost.wishDir(), reader.actorWishDir(1 + id));
+				assertEquals(ghost.state().ordinal(), reader.actorState(1 + id));
+				assertEquals(world.index(ghost.tile()), reader.actorTile(1 + id));
+			}
+			for (int i = 0; i < GameModel.TILES_X * GameModel.TILES_Y; ++i) {
+				assertEquals(world.hasFoodAt(i), reader.hasFood(i));
+				assertEquals(world.isWall(i), (reader.tileFlags(i) & SharedStateExporter.TILE_WALL) != 0);
+				assertEquals(world.isEnergizerTile(i), (reader.tileFlags(i) & SharedStateExporter.TILE_ENERGIZER) != 0);
+			}
+			assertTrue(reader.validate(seq));
+		}
+	}
+
+	@Test
+	public void testConcurrentReadsAreConsistent() throws Exception {
+		var file = folder.newFile("state.bin").toPath();
+		try (var exporter = new SharedStateExporter(file); var reader = new SharedStateReader(file)) {
+			var env = new PacManEnv(GameVariant.PACMAN, 1);
+			env.setStateExporter(exporter);
+			env.reset(5);
+			var stop = new AtomicBoolean();
+			var writer = new Thread(() -> {
+				var rnd = new SplittableRandom(5);
+				while (!stop.get()) {
+					if (env.isDone()) {
+						env.reset(rnd.nextLong());
+					}
+					env.step(rnd.nextInt(4));
+				}
+			});
+			writer.start();
+			int consistentReads = 0;
+			long lastSeq = 0;
+			try {
+				while (consistentReads < 2000) {
+					long seq = reader.beginRead();
+					int foodRemaining = reader.foodRemaining();
+					int foodTiles = 0;
+					for (int i = 0; i < reader.numCols() * reader.numRows(); ++i) {
+						foodTiles += reader.hasFood(i) ? 1 : 0;
+					}
+					if (reader.validate(seq)) {
+						assertEquals("Snapshot " + seq / 2, foodRemaining, foodTiles);
+						assertTrue(seq >= lastSeq);
+						lastSeq = seq;
+						++consistentReads;
+					}
+				}
+			} finally {
+				stop.set(true);
+				writer.join();
+			}
+			assertTrue(lastSeq > 0);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsOtherFiles() throws IOException {
+		var file = folder.newFile("other.bin").toPath();
+		Files.write(file, new byte[1024]);
+		try (var reader = new SharedStateReader(file)) {
+			fail("Reader accepted file without state export header");
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.simulation.SimulationRunner;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class SimulationTest {
+
+	@Test
+	public void testPlayCompleteGames() {
+		for (var variant : GameVariant.values()) {
+			var runner = new SimulationRunner(variant);
+			runner.setNumGames(4);
+			runner.setParallelism(2);
+			var report = runner.run();
+			assertEquals(4, report.numGames());
+			assertEquals(0, report.numCappedGames());
+			assertTrue(report.meanLevel() >= 1);
+			assertTrue(report.minScore() > 0);
+			assertTrue(report.totalFrames() > 0);
+			assertEquals(4, Arrays.stream(report.scoreHistogram(10)).sum());
+			assertTrue(report.scorePercentile(50) <= report.maxScore());
+		}
+	}
+
+	@Test
+	public void testFrameLimit() {
+		var runner = new SimulationRunner(GameVariant.PACMAN);
+		runner.setNumGames(2);
+		runner.setMaxFramesPerGame(100);
+		var report = runner.run();
+		assertEquals(2, report.numCappedGames());
+		assertEquals(200, report.totalFrames());
+	}
+
+	@Test
+	public void testSeededRunsAreReproducible() {
+		for (var variant : GameVariant.values()) {
+			var sequential = new SimulationRunner(variant);
+			sequential.setNumGames(4);
+			sequential.setParallelism(1);
+			sequential.setSeed(42);
+			var parallel = new SimulationRunner(variant);
+			parallel.setNumGames(4);
+			parallel.setParallelism(4);
+			parallel.setSeed(42);
+			var r1 = sequential.run();
+			var r2 = parallel.run();
+			assertEquals(r1.totalFrames(), r2.totalFrames());
+			assertEquals(r1.meanScore(), r2.meanScore(), 0);
+			assertArrayEquals(r1.scoreHistogram(10), r2.scoreHistogram(10));
+		}
+	}
+
+	@Test
+	public void testHeadlessRunsHaveSameOutcome() {
+		for (var variant : GameVariant.values()) {
+			var headless = new SimulationRunner(variant);
+			headless.setNumGames(4);
+			headless.setSeed(7);
+			var normal = new SimulationRunner(variant);
+			normal.setNumGames(4);
+			normal.setSeed(7);
+			normal.setHeadless(false);
+			var r1 = headless.run();
+			var r2 = normal.run();
+			assertEquals(r1.meanScore(), r2.meanScore(), 0);
+			assertEquals(r1.meanLevel(), r2.meanLevel(), 0);
+			assertArrayEquals(r1.scoreHistogram(10), r2.scoreHistogram(10));
+			assertTrue(r1.totalFrames() < r2.totalFrames());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalNumberOfGames() {
+		new SimulationRunner(GameVariant.PACMAN).setNumGames(0);
+	}
+}
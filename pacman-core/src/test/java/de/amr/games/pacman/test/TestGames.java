@@ -0,0 +1,45 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+
+/**
+ * Creates games and levels for the tests: no game controller, no persistent high score, reproducible random numbers.
+ *
+ * @author Armin Reichert
+ */
+public final class TestGames {
+
+	private TestGames() {
+	}
+
+	/**
+	 * @param variant game variant
+	 * @param seed    seed of the game's random numbers
+	 * @return new game without level
+	 */
+	public static GameModel createGame(GameVariant variant, long seed) {
+		var game = new GameModel(variant, null, seed);
+		game.setHighScorePersistent(false);
+		game.reset();
+		return game;
+	}
+
+	/**
+	 * @param variant     game variant
+	 * @param seed        seed of the game's random numbers
+	 * @param levelNumber level number
+	 * @return started level of a new game, the guys are at their start positions and hunting has not yet started
+	 */
+	public static GameLevel createLevel(GameVariant variant, long seed, int levelNumber) {
+		var game = createGame(variant, seed);
+		game.createLevel(levelNumber);
+		game.startLevel();
+		return game.level().orElseThrow();
+	}
+}
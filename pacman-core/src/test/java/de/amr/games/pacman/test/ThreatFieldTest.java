@@ -0,0 +1,85 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.ThreatField;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Ghost;
+import org.junit.Before;
+import org.junit.Test;
+
+import static de.amr.games.pacman.lib.Globals.v2i;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class ThreatFieldTest {
+
+	private GameLevel level;
+	private Ghost blinky;
+	private ThreatField field;
+
+	@Before
+	public void setUp() {
+		level = TestGames.createLevel(GameVariant.PACMAN, 1, 1);
+		level.ghosts().forEach(ghost -> ghost.enterStateLocked());
+		blinky = level.ghost(GameModel.RED_GHOST);
+		blinky.placeAtTile(v2i(3, 4));
+		blinky.setMoveAndWishDir(Direction.LEFT);
+		blinky.enterStateHuntingPac();
+		field = new ThreatField();
+		field.update(level);
+	}
+
+	@Test
+	public void testDistancesFromHuntingGhost() {
+		assertEquals(0, field.distance(v2i(3, 4)));
+		assertEquals(1, field.distance(v2i(2, 4)));
+		assertEquals(2, field.distance(v2i(1, 4)));
+		assertEquals(3, field.distance(v2i(1, 5)));
+		// the tile behind is only reached without reversing
+		assertTrue(field.distance(v2i(4, 4)) > 2);
+		assertSame(blinky, field.nearestGhost(level, v2i(1, 5)));
+		assertSame(blinky, field.huntingGhostAt(level, v2i(3, 4)));
+		assertNull(field.huntingGhostAt(level, v2i(2, 4)));
+		assertEquals(ThreatField.UNREACHABLE, field.distance(v2i(0, 0))); // wall
+	}
+
+	@Test
+	public void testNoHuntingGhosts() {
+		blinky.enterStateLocked();
+		assertTrue(field.update(level));
+		assertEquals(ThreatField.UNREACHABLE, field.distance(v2i(2, 4)));
+		assertNull(field.nearestGhost(level, v2i(2, 4)));
+		assertNull(field.huntingGhostAt(level, v2i(3, 4)));
+	}
+
+	@Test
+	public void testSearchOnlyAfterChange() {
+		field.distance(v2i(1, 4));
+		field.distance(v2i(1, 5));
+		assertEquals(1, field.numSearches());
+
+		assertFalse(field.update(level));
+		field.distance(v2i(1, 4));
+		assertEquals(1, field.numSearches());
+
+		// a ghost that is not hunting does not change the field
+		var pinky = level.ghost(GameModel.PINK_GHOST);
+		pinky.placeAtTile(v2i(6, 8));
+		assertFalse(field.update(level));
+
+		blinky.placeAtTile(v2i(2, 4));
+		assertTrue(field.update(level));
+		assertEquals(1, field.numSearches()); // not read yet
+		assertEquals(0, field.distance(v2i(2, 4)));
+		assertEquals(1, field.distance(v2i(1, 4)));
+		assertEquals(2, field.numSearches());
+	}
+}
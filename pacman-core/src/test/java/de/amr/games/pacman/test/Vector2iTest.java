@@ -0,0 +1,37 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.test;
+
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.lib.Vector2i;
+import org.junit.Test;
+
+import static de.amr.games.pacman.lib.Globals.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Armin Reichert
+ */
+public class Vector2iTest {
+
+	@Test
+	public void testTilesAreCanonical() {
+		assertSame(v2i(13, 26), v2i(13, 26));
+		assertSame(v2i(13, 26), tileAt(13 * TS + HTS, 26 * TS + 1));
+		assertSame(Vector2i.ZERO, v2i(0, 0));
+		assertSame(v2i(14, 26), v2i(13, 26).plus(Direction.RIGHT.vector()));
+		assertSame(v2i(12, 26), v2i(13, 26).minus(1, 0));
+		assertSame(v2i(-2, 34), v2i(-1, 17).scaled(2));
+	}
+
+	@Test
+	public void testTilesOutsidePoolRange() {
+		var far = v2i(1000, -1000);
+		assertNotSame(far, v2i(1000, -1000));
+		assertEquals(far, v2i(1000, -1000));
+		assertEquals(far.hashCode(), v2i(1000, -1000).hashCode());
+		assertEquals(v2i(1001, -1000), far.plus(1, 0));
+	}
+}
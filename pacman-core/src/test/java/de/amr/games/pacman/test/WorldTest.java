@@ -12,6 +12,13 @@ import de.amr.games.pacman.model.world.World;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static de.amr.games.pacman.lib.Direction.*;
 import static de.amr.games.pacman.lib.Globals.*;
 import static java.util.function.Predicate.not;
 import static org.junit.Assert.*;
@@ -134,6 +141,133 @@ public class WorldTest {
 		assertNotEquals(map[1][1], copy[1][1]);
 	}
 
+	@Test
+	public void testTileIndex() {
+		var world = GameModel.createPacManWorld();
+		assertEquals(-1, world.index(v2i(-1, 0)));
+		assertEquals(-1, world.index(v2i(0, world.numRows())));
+		world.tiles().forEach(tile -> {
+			int index = world.index(tile);
+			assertSame(tile, world.tile(index));
+			assertEquals(world.isWall(tile), world.isWall(index));
+			assertEquals(world.isTunnel(tile), world.isTunnel(index));
+			assertEquals(world.isFoodTile(tile), world.isFoodTile(index));
+			assertEquals(world.isEnergizerTile(tile), world.isEnergizerTile(index));
+			assertEquals(world.hasFoodAt(tile), world.hasFoodAt(index));
+		});
+		var foodTile = world.tiles().filter(world::isFoodTile).findFirst().get();
+		world.removeFood(foodTile);
+		assertFalse(world.hasFoodAt(world.index(foodTile)));
+		assertTrue(world.hasEatenFoodAt(world.index(foodTile)));
+	}
+
+	@Test
+	public void testTileNeighbors() {
+		var world = GameModel.createPacManWorld();
+		int index = world.index(v2i(13, 26));
+		assertEquals(world.index(v2i(12, 26)), world.neighbor(index, LEFT));
+		assertEquals(world.index(v2i(14, 26)), world.neighbor(index, RIGHT));
+		assertEquals(world.index(v2i(13, 25)), world.neighbor(index, UP));
+		assertEquals(world.index(v2i(13, 27)), world.neighbor(index, DOWN));
+		assertEquals(-1, world.neighbor(world.index(v2i(0, 0)), LEFT));
+		assertEquals(-1, world.neighbor(world.index(v2i(0, 0)), UP));
+		var portal = world.portals().get(0);
+		int leftEnd = world.index(portal.leftTunnelEnd());
+		int rightEnd = world.index(portal.rightTunnelEnd());
+		assertEquals(rightEnd, world.neighbor(leftEnd, LEFT));
+		assertEquals(leftEnd, world.neighbor(rightEnd, RIGHT));
+		assertTrue(world.belongsToPortal(portal.leftTunnelEnd().minus(1, 0)));
+		assertTrue(world.belongsToPortal(portal.rightTunnelEnd().plus(2, 0)));
+		assertFalse(world.belongsToPortal(portal.rightTunnelEnd().plus(3, 0)));
+		assertFalse(world.belongsToPortal(portal.leftTunnelEnd()));
+	}
+
+	@Test
+	public void testWorldsShareMap() {
+		var world1 = GameModel.createPacManWorld();
+		var world2 = GameModel.createPacManWorld();
+		assertSame(world1.map(), world2.map());
+		assertSame(world1.house(), world2.house());
+		var foodTile = world1.tiles().filter(world1::isFoodTile).findFirst().get();
+		world1.removeFood(foodTile);
+		assertFalse(world1.hasFoodAt(foodTile));
+		assertTrue(world2.hasFoodAt(foodTile));
+		assertEquals(world2.totalFoodCount() - 1, world1.uneatenFoodCount());
+		assertEquals(world2.totalFoodCount(), world2.uneatenFoodCount());
+	}
+
+	@Test
+	public void testNearestFoodTiles() {
+		var world = GameModel.createMsPacManWorld(2);
+		var rnd = new Random(7);
+		var foodTiles = world.tiles().filter(world::isFoodTile).collect(Collectors.toList());
+		Collections.shuffle(foodTiles, rnd);
+		for (var eatenTile : foodTiles) {
+			for (int i = 0; i < 3; ++i) {
+				var from = v2i(rnd.nextInt(world.numCols() + 4) - 2, rnd.nextInt(world.numRows()));
+				for (boolean includeEnergizers : new boolean[] { true, false }) {
+					assertEquals(nearestFoodTilesByScan(world, from, includeEnergizers),
+							world.nearestFoodTiles(from, includeEnergizers));
+				}
+			}
+			world.removeFood(eatenTile);
+		}
+		assertTrue(world.nearestFoodTiles(v2i(13, 26), true).isEmpty());
+	}
+
+	private static List<Vector2i> nearestFoodTilesByScan(World world, Vector2i from, boolean includeEnergizers) {
+		var result = new ArrayList<Vector2i>();
+		int minDist = Integer.MAX_VALUE;
+		for (int x = 0; x < world.numCols(); ++x) {
+			for (int y = 0; y < world.numRows(); ++y) {
+				var tile = v2i(x, y);
+				if (!world.hasFoodAt(tile) || !includeEnergizers && world.isEnergizerTile(tile)) {
+					continue;
+				}
+				int dist = (int) tile.manhattanDistance(from);
+				if (dist < minDist) {
+					minDist = dist;
+					result.clear();
+				}
+				if (dist == minDist) {
+					result.add(tile);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void testMazeDistance() {
+		var world = GameModel.createPacManWorld();
+		assertEquals(0, world.mazeDistance(v2i(13, 26), v2i(13, 26)));
+		assertEquals(3, world.mazeDistance(v2i(12, 26), v2i(15, 26)));
+		assertEquals(-1, world.mazeDistance(v2i(0, 0), v2i(13, 26))); // wall
+		assertEquals(-1, world.mazeDistance(v2i(13, 17), v2i(13, 26))); // inside house
+		assertEquals(-1, world.mazeDistance(v2i(-1, 17), v2i(13, 26))); // outside of world
+		var portal = world.portals().get(0);
+		assertEquals(1, world.mazeDistance(portal.leftTunnelEnd(), portal.rightTunnelEnd()));
+		// house door is blocked: the tiles above and below the door are not connected directly
+		assertTrue(world.mazeDistance(v2i(13, 14), v2i(13, 26)) > 12);
+
+		var graph = world.navigationGraph();
+		var accessible = world.tiles().filter(tile -> graph.isAccessible(world.index(tile))).toArray(Vector2i[]::new);
+		for (var a : accessible) {
+			for (var b : accessible) {
+				int dist = world.mazeDistance(a, b);
+				assertTrue(dist >= 0);
+				assertEquals(dist, world.mazeDistance(b, a));
+				// a step to a neighbor tile changes the distance by exactly one
+				for (var dir : values()) {
+					int neighbor = world.neighbor(world.index(a), dir);
+					if (neighbor != -1 && graph.isAccessible(neighbor)) {
+						assertEquals(1, Math.abs(world.mazeDistance(neighbor, world.index(b)) - dist));
+					}
+				}
+			}
+		}
+	}
+
 	@Test
 	public void testIllegalMapData() {
 		byte[][] map = { { 0, 1, 2 }, { 3, 4, 5 }, { 6, 7, 8 } };